@@ -1,8 +1,16 @@
 package br.com.oystr.agromachinery.scraping;
 
+import br.com.oystr.agromachinery.scraping.api.ScrapeApiServer;
 import br.com.oystr.agromachinery.scraping.bot.BotFactory;
 import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.service.ListingDiscovery;
+import br.com.oystr.agromachinery.scraping.service.RecrawlDaemon;
 import br.com.oystr.agromachinery.scraping.service.ScraperService;
+import br.com.oystr.agromachinery.scraping.util.MachineSink;
+import br.com.oystr.agromachinery.scraping.util.MachineSinkFactory;
+import br.com.oystr.agromachinery.scraping.util.MachineStore;
+import br.com.oystr.agromachinery.scraping.util.UrlSource;
+import br.com.oystr.agromachinery.scraping.util.UrlSourceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,7 +19,8 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 
-import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * Main Spring Boot application class for the Agromachinery scraping tool.
@@ -19,27 +28,68 @@ import java.util.List;
  * <p>
  * This application orchestrates the scraping of machinery data from multiple
  * agricultural websites using scrapers provided by {@link BotFactory}. The
- * URLs to be scraped are configured in a {@link CommandLineRunner} bean.
+ * URLs to be scraped are streamed from the {@link UrlSource} configured by
+ * {@code scraper.input}: the {@code scraper.urls} property, a file, the standard
+ * input or a watched directory. With {@code scraper.discovery.enabled}, search and
+ * category pages among them are expanded by the {@link ListingDiscovery} into the
+ * listings they link to, which are scraped as they are found.
  * </p>
  *
  * <p>
  * The {@link CommandLineRunner} executes scraping tasks concurrently using a
  * thread pool executor. Each task selects the appropriate scraper for the URL,
- * fetches the machine data, and logs the resulting {@link Machine} instances.
+ * fetches the machine data, and hands the resulting {@link Machine} instances
+ * to the {@link MachineSink} configured by {@code scraper.output} as they are
+ * streamed back, without keeping the whole batch in memory.
+ * </p>
+ *
+ * <p>
+ * With {@code scraper.store.enabled}, every machine is also recorded in the
+ * {@link MachineStore}, and with {@code scraper.store.changed-only} only the
+ * listings that are new or changed since the last run reach the sink.
+ * </p>
+ *
+ * <p>
+ * With {@code scraper.daemon.enabled}, the application does not exit after the
+ * batch: the {@link RecrawlDaemon} keeps revisiting the listings read from the
+ * input, more often those that change, until the process is stopped.
+ * </p>
+ *
+ * <p>
+ * With {@code scraper.api.port}, the {@link ScrapeApiServer} also accepts batches
+ * of URLs over HTTP while the application runs, streaming back their machines.
  * </p>
  */
 @SpringBootApplication
 public class AgromachineryScrapingApplication {
 
     private final ScraperService scraperService;
-
-    @Value("${scraper.urls}")
-    private List<String> urls;
+    private final UrlSourceFactory urlSourceFactory;
+    private final ListingDiscovery listingDiscovery;
+    private final MachineSinkFactory machineSinkFactory;
+    private final MachineStore machineStore;
+    private final RecrawlDaemon recrawlDaemon;
+    private final boolean changedOnly;
+    private final boolean daemonEnabled;
 
     private static final Logger log = LoggerFactory.getLogger(AgromachineryScrapingApplication.class);
 
-    public AgromachineryScrapingApplication(ScraperService scraperService) {
+    public AgromachineryScrapingApplication(ScraperService scraperService,
+                                            UrlSourceFactory urlSourceFactory,
+                                            ListingDiscovery listingDiscovery,
+                                            MachineSinkFactory machineSinkFactory,
+                                            MachineStore machineStore,
+                                            RecrawlDaemon recrawlDaemon,
+                                            @Value("${scraper.store.changed-only}") boolean changedOnly,
+                                            @Value("${scraper.daemon.enabled}") boolean daemonEnabled) {
         this.scraperService = scraperService;
+        this.urlSourceFactory = urlSourceFactory;
+        this.listingDiscovery = listingDiscovery;
+        this.machineSinkFactory = machineSinkFactory;
+        this.machineStore = machineStore;
+        this.recrawlDaemon = recrawlDaemon;
+        this.changedOnly = changedOnly;
+        this.daemonEnabled = daemonEnabled;
     }
 
     public static void main(String[] args) {
@@ -49,8 +99,39 @@ public class AgromachineryScrapingApplication {
     @Bean
     CommandLineRunner run() {
         return args -> {
-            List<Machine> machines = scraperService.scrape(urls);
-            log.info("Successfully fetched {} machines.", machines.size());
+            AtomicInteger fetched = new AtomicInteger();
+            AtomicInteger unchanged = new AtomicInteger();
+            try (MachineSink sink = machineSinkFactory.open()) {
+                Function<Machine, MachineStore.Change> consumer = machine -> {
+                    fetched.incrementAndGet();
+                    MachineStore.Change change = machineStore.record(machine);
+                    if (change == MachineStore.Change.UNCHANGED) {
+                        unchanged.incrementAndGet();
+                        if (changedOnly) {
+                            return change;
+                        }
+                    }
+                    sink.accept(machine);
+                    return change;
+                };
+
+                try (UrlSource source = urlSourceFactory.open();
+                     ListingDiscovery.Listings urls = listingDiscovery.discover(source)) {
+                    if (daemonEnabled) {
+                        recrawlDaemon.follow(urls);
+                    } else {
+                        scraperService.scrape(urls, consumer::apply);
+                    }
+                }
+                if (daemonEnabled) {
+                    recrawlDaemon.run(consumer);
+                }
+            }
+            log.info("Successfully fetched {} machines.", fetched.get());
+            if (machineStore.isEnabled()) {
+                machineStore.sync();
+                log.info("{} listings did not change since they were last stored.", unchanged.get());
+            }
         };
     }
 }
@@ -0,0 +1,338 @@
+package br.com.oystr.agromachinery.scraping.api;
+
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.service.ScraperService;
+import br.com.oystr.agromachinery.scraping.util.MachineJson;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * HTTP API to scrape batches of URLs without restarting the application, enabled by
+ * {@code scraper.api.port} greater than zero.
+ * <p>
+ * A job is submitted with {@code POST /jobs} and a body like {@code {"urls": [...]}}, optionally
+ * with {@code "photos": false} to skip downloading the photos, and answers {@code 202} with the
+ * id of the job. Its machines are streamed by {@code GET /jobs/{id}/results} as soon as each one
+ * is fetched: as Server-Sent Events when the request accepts {@code text/event-stream}, or else
+ * as chunked NDJSON. Either way the stream replays the machines fetched before the request and
+ * ends when the job does. {@code GET /jobs/{id}} returns the status of the job.
+ * </p>
+ * <p>
+ * Jobs run concurrently through {@link ScraperService#scrapeBatch(Iterable, boolean, java.util.function.Consumer)},
+ * so they share the warmed-up bots, connection pools and per-host rate and concurrency limits
+ * of the application. At most {@code scraper.api.max-running-jobs} run at a time, further submissions
+ * answer {@code 429}. The results of a job are kept in a temporary file, not on the heap, and
+ * finished jobs and their results are forgotten after {@code scraper.api.job-retention-minutes}.
+ * </p>
+ * <p>
+ * The server listens on {@code scraper.api.bind-address}, the loopback interface by default, since
+ * the API has no authentication; bind it to another interface only behind a trusted network. It
+ * keeps the application running after the batch read from {@code scraper.input}; stop it to exit.
+ * </p>
+ */
+@Component
+public class ScrapeApiServer implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ScrapeApiServer.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String JOBS = "/jobs";
+    private static final String RESULTS = "/results";
+    /**
+     * How long a result stream may stay silent: SSE clients then get a comment, so proxies and
+     * the client itself see the connection is alive.
+     */
+    private static final Duration HEARTBEAT = Duration.ofSeconds(15);
+
+    private final ScraperService scraperService;
+    private final ObjectMapper objectMapper;
+    private final int maxUrlsPerJob;
+    private final Duration jobRetention;
+    private final Semaphore runningJobs;
+    private final Map<String, ScrapeJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService jobExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("scrape-job-", 0).factory());
+    private final ExecutorService requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpServer server;
+
+    public ScrapeApiServer(ScraperService scraperService,
+                           ObjectMapper objectMapper,
+                           @Value("${scraper.api.bind-address}") String bindAddress,
+                           @Value("${scraper.api.port}") int port,
+                           @Value("${scraper.api.max-running-jobs}") int maxRunningJobs,
+                           @Value("${scraper.api.max-urls-per-job}") int maxUrlsPerJob,
+                           @Value("${scraper.api.job-retention-minutes}") long jobRetentionMinutes) {
+        this.scraperService = scraperService;
+        this.objectMapper = objectMapper;
+        this.maxUrlsPerJob = maxUrlsPerJob;
+        this.jobRetention = Duration.ofMinutes(jobRetentionMinutes);
+        this.runningJobs = new Semaphore(maxRunningJobs);
+        this.server = port > 0 ? startServer(new InetSocketAddress(bindAddress, port)) : null;
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        jobExecutor.shutdownNow();
+        requestExecutor.shutdownNow();
+        jobs.values().forEach(ScrapeApiServer::closeQuietly);
+        jobs.clear();
+    }
+
+    private HttpServer startServer(InetSocketAddress address) {
+        try {
+            HttpServer httpServer = HttpServer.create(address, 0);
+            httpServer.createContext(JOBS, this::handle);
+            httpServer.setExecutor(requestExecutor);
+            httpServer.start();
+            log.info("Accepting scrape jobs on http://{}:{}{}", address.getHostString(), address.getPort(), JOBS);
+
+            return httpServer;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serve the scrape API on " + address, e);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals(JOBS) || path.equals(JOBS + "/")) {
+                if (method.equals("POST")) {
+                    submit(exchange);
+                } else {
+                    respondError(exchange, 405, "Use POST to submit a job");
+                }
+                return;
+            }
+
+            String rest = path.substring(JOBS.length() + 1);
+            boolean results = rest.endsWith(RESULTS);
+            ScrapeJob job = jobs.get(results ? rest.substring(0, rest.length() - RESULTS.length()) : rest);
+            if (job == null) {
+                respondError(exchange, 404, "No such job");
+            } else if (!method.equals("GET")) {
+                respondError(exchange, 405, "Use GET to read a job");
+            } else if (results) {
+                streamResults(exchange, job);
+            } else {
+                respond(exchange, 200, status(job.status()));
+            }
+        } catch (IOException e) {
+            // Mostly clients that went away while their results were streamed; the job goes on
+            log.debug("Scrape API request {} {} failed: {}", exchange.getRequestMethod(), exchange.getRequestURI(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(HttpExchange exchange) throws IOException {
+        JsonNode request;
+        try (InputStream body = exchange.getRequestBody()) {
+            request = objectMapper.readTree(body);
+        } catch (JsonProcessingException e) {
+            respondError(exchange, 400, "Malformed JSON: " + e.getOriginalMessage());
+            return;
+        }
+
+        JsonNode urlsNode = request == null ? null : request.get("urls");
+        if (urlsNode == null || !urlsNode.isArray() || urlsNode.isEmpty()) {
+            respondError(exchange, 400, "Expected a non-empty \"urls\" array");
+            return;
+        }
+        if (urlsNode.size() > maxUrlsPerJob) {
+            respondError(exchange, 413, "At most " + maxUrlsPerJob + " URLs per job");
+            return;
+        }
+        List<String> urls = new ArrayList<>(urlsNode.size());
+        for (JsonNode url : urlsNode) {
+            if (!url.isTextual()) {
+                respondError(exchange, 400, "URLs must be strings");
+                return;
+            }
+            urls.add(url.asText());
+        }
+        boolean withPhoto = request.path("photos").asBoolean(true);
+
+        purgeExpiredJobs();
+        if (!runningJobs.tryAcquire()) {
+            respondError(exchange, 429, "Too many running jobs, retry later");
+            return;
+        }
+
+        ScrapeJob job;
+        try {
+            job = new ScrapeJob(UUID.randomUUID().toString(), urls.size(), Instant.now());
+        } catch (IOException e) {
+            runningJobs.release();
+            log.error("Could not create the results file of a scrape job", e);
+            respondError(exchange, 500, "Could not store the results of the job");
+            return;
+        }
+        jobs.put(job.id(), job);
+        try {
+            jobExecutor.execute(() -> run(job, urls, withPhoto));
+        } catch (RuntimeException e) {
+            runningJobs.release();
+            jobs.remove(job.id());
+            closeQuietly(job);
+            throw e;
+        }
+        log.info("Submitted scrape job {} with {} URLs", job.id(), urls.size());
+
+        exchange.getResponseHeaders().set("Location", JOBS + "/" + job.id());
+        respond(exchange, 202, status(job.status()));
+    }
+
+    private void run(ScrapeJob job, List<String> urls, boolean withPhoto) {
+        boolean completed = false;
+        try {
+            completed = scraperService.scrapeBatch(urls, withPhoto, machine -> job.add(encode(machine, withPhoto)));
+        } catch (RuntimeException e) {
+            log.error("Scrape job {} failed", job.id(), e);
+        } finally {
+            job.finish(completed);
+            runningJobs.release();
+            ScrapeJob.Status status = job.status();
+            log.info("Scrape job {} {}: {} machines from {} URLs", job.id(), status.state(), status.results(), status.urls());
+        }
+    }
+
+    /**
+     * Writes the machines of the job as they are fetched, until the job is done. The response is
+     * flushed after every slice, since chunks are otherwise buffered by the server.
+     */
+    private void streamResults(HttpExchange exchange, ScrapeJob job) throws IOException, InterruptedException {
+        boolean sse = acceptsEventStream(exchange);
+        exchange.getResponseHeaders().set("Content-Type", sse ? "text/event-stream; charset=utf-8" : "application/x-ndjson");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+
+        OutputStream out = exchange.getResponseBody();
+        int read = 0;
+        ScrapeJob.Slice slice;
+        do {
+            slice = job.await(read, HEARTBEAT);
+            for (byte[] machine : slice.results()) {
+                if (sse) {
+                    out.write(("event: machine\nid: " + read + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+                    out.write(machine);
+                    out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+                } else {
+                    out.write(machine);
+                    out.write('\n');
+                }
+                read++;
+            }
+            if (sse && slice.results().isEmpty() && !slice.last()) {
+                out.write(": keep-alive\n\n".getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+        } while (!slice.last());
+
+        if (sse) {
+            out.write("event: end\ndata: ".getBytes(StandardCharsets.UTF_8));
+            out.write(status(job.status()));
+            out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+        }
+        out.close();
+    }
+
+    private static boolean acceptsEventStream(HttpExchange exchange) {
+        List<String> accept = exchange.getRequestHeaders().get("Accept");
+        return accept != null && accept.stream().anyMatch(value -> value.contains("text/event-stream"));
+    }
+
+    private void purgeExpiredJobs() {
+        Instant now = Instant.now();
+        jobs.values().removeIf(job -> {
+            if (!job.expired(now, jobRetention)) {
+                return false;
+            }
+            closeQuietly(job);
+            return true;
+        });
+    }
+
+    private static void closeQuietly(ScrapeJob job) {
+        try {
+            job.close();
+        } catch (IOException e) {
+            log.warn("Failed to delete the results of scrape job {}: {}", job.id(), e.getMessage());
+        }
+    }
+
+    private static byte[] encode(Machine machine, boolean withPhoto) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(withPhoto ? 8192 : 512);
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(buffer)) {
+            MachineJson.write(json, machine, withPhoto);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode machine from URL " + machine.url(), e);
+        }
+
+        return buffer.toByteArray();
+    }
+
+    private static byte[] status(ScrapeJob.Status status) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(buffer)) {
+            json.writeStartObject();
+            json.writeStringField("id", status.id());
+            json.writeStringField("state", status.state().name());
+            json.writeNumberField("urls", status.urls());
+            json.writeNumberField("results", status.results());
+            json.writeStringField("submittedAt", status.submittedAt().toString());
+            json.writeStringField("finishedAt", status.finishedAt() != null ? status.finishedAt().toString() : null);
+            json.writeEndObject();
+        }
+
+        return buffer.toByteArray();
+    }
+
+    private static void respondError(HttpExchange exchange, int code, String message) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(buffer)) {
+            json.writeStartObject();
+            json.writeStringField("error", message);
+            json.writeEndObject();
+        }
+        respond(exchange, code, buffer.toByteArray());
+    }
+
+    private static void respond(HttpExchange exchange, int code, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package br.com.oystr.agromachinery.scraping.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A batch of URLs submitted to the {@link ScrapeApiServer}, with the machines fetched so far.
+ * <p>
+ * Machines are kept encoded, one JSON object per entry in fetch order, so every client reading
+ * the results replays them from the start and then follows the new ones as they arrive.
+ * Written by the worker threads and read by the HTTP threads.
+ * </p>
+ * <p>
+ * The results are appended to a temporary file rather than kept on the heap, which only holds
+ * where each one ends: jobs of thousands of machines with their Base64 photos, kept until
+ * they expire, would otherwise fill it. Clients read them back a slice of at most
+ * {@link #MAX_SLICE_BYTES} at a time. The file is deleted when the job is closed.
+ * </p>
+ */
+final class ScrapeJob implements Closeable {
+
+    /**
+     * Most bytes returned by one {@link #await(int, Duration)}, unless a single result is larger.
+     */
+    static final int MAX_SLICE_BYTES = 1 << 20;
+
+    private final String id;
+    private final int urls;
+    private final Instant submittedAt;
+    private final Path file;
+    private final RandomAccessFile results;
+    private long[] ends = new long[64];
+    private int count;
+    private State state = State.RUNNING;
+    private Instant finishedAt;
+
+    /**
+     * @throws IOException if the temporary file of the results cannot be created
+     */
+    ScrapeJob(String id, int urls, Instant submittedAt) throws IOException {
+        this.id = id;
+        this.urls = urls;
+        this.submittedAt = submittedAt;
+        this.file = Files.createTempFile("scrape-job-" + id + "-", ".ndjson");
+        try {
+            this.results = new RandomAccessFile(file.toFile(), "rw");
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    String id() {
+        return id;
+    }
+
+    /**
+     * Appends a machine and wakes up the clients following the results.
+     *
+     * @param json the machine encoded as one JSON object
+     * @throws UncheckedIOException if the results file cannot be written, e.g. once the job is closed
+     */
+    synchronized void add(byte[] json) {
+        long end = start(count);
+        try {
+            // Reads move the file pointer, so every write seeks back to the end first
+            results.seek(end);
+            results.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store a result of scrape job " + id, e);
+        }
+
+        if (count == ends.length) {
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        ends[count++] = end + json.length;
+        notifyAll();
+    }
+
+    /**
+     * Marks the job as done, so the clients following the results see their end.
+     *
+     * @param completed whether every URL was processed before the termination timeout
+     */
+    synchronized void finish(boolean completed) {
+        state = completed ? State.COMPLETED : State.INCOMPLETE;
+        finishedAt = Instant.now();
+        notifyAll();
+    }
+
+    /**
+     * Waits until there are results past {@code from} or the job is done.
+     *
+     * @param from    number of results already read
+     * @param timeout how long to wait for a new result, after which an empty slice is returned
+     * @return the results past {@code from}, possibly none, up to {@link #MAX_SLICE_BYTES}
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @throws IOException          if the results file cannot be read, e.g. once the job is closed
+     */
+    synchronized Slice await(int from, Duration timeout) throws InterruptedException, IOException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long remaining;
+        while (count <= from && state == State.RUNNING && (remaining = deadline - System.nanoTime()) > 0) {
+            wait(Math.max(1, remaining / 1_000_000));
+        }
+
+        int first = Math.min(from, count);
+        int last = first;
+        while (last < count && (last == first || ends[last] - start(first) <= MAX_SLICE_BYTES)) {
+            last++;
+        }
+
+        List<byte[]> next = new ArrayList<>(last - first);
+        results.seek(start(first));
+        for (int i = first; i < last; i++) {
+            byte[] json = new byte[(int) (ends[i] - start(i))];
+            results.readFully(json);
+            next.add(json);
+        }
+
+        return new Slice(next, state != State.RUNNING && last == count);
+    }
+
+    /**
+     * @return whether the job finished more than {@code retention} ago
+     */
+    synchronized boolean expired(Instant now, Duration retention) {
+        return finishedAt != null && finishedAt.plus(retention).isBefore(now);
+    }
+
+    synchronized Status status() {
+        return new Status(id, state, urls, count, submittedAt, finishedAt);
+    }
+
+    /**
+     * Deletes the results. Clients still reading them, and workers still adding to them, fail.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            results.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * @return the offset where the result at {@code index} starts, i.e. where the previous one ends
+     */
+    private long start(int index) {
+        return index == 0 ? 0 : ends[index - 1];
+    }
+
+    /**
+     * Progress of a job.
+     */
+    enum State {
+        RUNNING,
+        /** Every URL was processed; failed URLs just have no result. */
+        COMPLETED,
+        /** The job was stopped by the termination timeout or a shutdown before every URL was processed. */
+        INCOMPLETE
+    }
+
+    /**
+     * Results read by {@link #await(int, Duration)}.
+     *
+     * @param results the encoded machines, in fetch order
+     * @param last    whether the job is done and these were its last results
+     */
+    record Slice(List<byte[]> results, boolean last) {
+    }
+
+    /**
+     * Status of a job, as returned by the API.
+     *
+     * @param urls    URLs submitted, before deduplication
+     * @param results machines fetched so far
+     */
+    record Status(String id, State state, int urls, int results, Instant submittedAt, Instant finishedAt) {
+    }
+}
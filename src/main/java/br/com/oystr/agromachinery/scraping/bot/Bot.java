@@ -1,6 +1,13 @@
 package br.com.oystr.agromachinery.scraping.bot;
 
 import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.PhotoMode;
+import br.com.oystr.agromachinery.scraping.util.StreamTargets;
+import br.com.oystr.agromachinery.scraping.util.UrlUtils;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
 
 /**
  * Represents a web scraper (bot) capable of fetching machine data
@@ -13,20 +20,104 @@ import br.com.oystr.agromachinery.scraping.model.Machine;
 public interface Bot {
 
     /**
-     * Fetches machine information from the given URL.
+     * Fetches machine information from the given URL, downloading its photo eagerly.
      *
      * @param url the URL of the web page containing the machine details
      * @return a {@link Machine} object populated with data from the page,
-     * or {@code null} if the page could not be parsed or an error occurs
+     * or {@code null} if the page could not be fetched or parsed
+     * @throws br.com.oystr.agromachinery.scraping.exceptions.PageNotModifiedException
+     *         if the page did not change since it was last scraped
+     * @throws br.com.oystr.agromachinery.scraping.exceptions.HostThrottledException
+     *         if the website asked to slow down
+     * @throws br.com.oystr.agromachinery.scraping.exceptions.MachineNotFoundException
+     *         if the page says the listing is no longer available, e.g. sold
      */
-    Machine fetch(String url);
+    default Machine fetch(String url) {
+        return fetch(url, PhotoMode.EAGER);
+    }
+
+    /**
+     * Fetches machine information from the given URL.
+     *
+     * @param url       the URL of the web page containing the machine details
+     * @param photoMode whether the photo is retrieved now, on first access or not at all
+     * @return a {@link Machine} object populated with data from the page,
+     * or {@code null} if the page could not be fetched or parsed
+     * @throws br.com.oystr.agromachinery.scraping.exceptions.PageNotModifiedException
+     *         if the page did not change since it was last scraped
+     * @throws br.com.oystr.agromachinery.scraping.exceptions.HostThrottledException
+     *         if the website asked to slow down
+     * @throws br.com.oystr.agromachinery.scraping.exceptions.MachineNotFoundException
+     *         if the page says the listing is no longer available, e.g. sold
+     */
+    Machine fetch(String url, PhotoMode photoMode);
+
+    /**
+     * Extracts machine information from an already fetched page, without retrieving its photo.
+     * <p>
+     * This is the CPU-bound part of {@link #fetch(String, PhotoMode)}, exposed so that
+     * downloading, parsing and photo retrieval can run on separate executors.
+     * </p>
+     *
+     * @param document the parsed page
+     * @param url      the URL of the page
+     * @return a {@link Machine} object populated with data from the page, without photo payload
+     * @throws br.com.oystr.agromachinery.scraping.exceptions.MachineNotFoundException
+     *         if the page says the listing is no longer available
+     * @throws IOException if embedded data of the page cannot be read
+     */
+    Machine extract(Document document, String url) throws IOException;
+
+    /**
+     * Declares the elements {@link #extract(Document, String)} reads, so pages can be parsed in
+     * streaming mode into a partial document holding only those elements.
+     *
+     * @return the targets of this bot, or {@code null} if it needs the full document
+     */
+    default StreamTargets streamTargets() {
+        return null;
+    }
 
     /**
      * Checks whether this bot implementation can scrape data from
      * the given URL.
+     * <p>
+     * The URL host must be the {@link #domain()} or one of its subdomains, and its path must
+     * match the {@link #pathPattern()}, if any. {@link BotFactory} routes URLs by the same rule
+     * through a precomputed index instead of asking every bot.
+     * </p>
      *
      * @param url the URL to check
      * @return {@code true} if this bot can handle the URL, {@code false} otherwise
      */
-    boolean supports(String url);
+    default boolean supports(String url) {
+        String authority = UrlUtils.authority(url);
+        if (authority == null || !UrlUtils.isInDomain(authority, domain())) {
+            return false;
+        }
+
+        Pattern pathPattern = pathPattern();
+        return pathPattern == null || pathPattern.matcher(UrlUtils.path(url)).matches();
+    }
+
+    /**
+     * Returns the domain this bot scrapes, e.g. {@code "agrofy.com.br"}.
+     * <p>
+     * URLs are routed to the bot by this domain, which is also the key
+     * for per-host limits.
+     * </p>
+     *
+     * @return the domain handled by this bot
+     */
+    String domain();
+
+    /**
+     * Restricts this bot to the URLs of its domain whose path (without query string) fully
+     * matches the pattern, so several bots can share a domain.
+     *
+     * @return the path pattern, or {@code null} if the bot handles every path of its domain
+     */
+    default Pattern pathPattern() {
+        return null;
+    }
 }
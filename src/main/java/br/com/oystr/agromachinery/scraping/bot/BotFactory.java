@@ -1,25 +1,63 @@
 package br.com.oystr.agromachinery.scraping.bot;
 
+import br.com.oystr.agromachinery.scraping.util.UrlUtils;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.regex.Pattern;
 
 /**
  * Factory for retrieving the appropriate {@link Bot} implementation
  * based on a given URL.
  * <p>
- * This class maintains a list of available bots and provides a method
- * to find the first bot that supports a particular URL.
+ * Bots are indexed by their {@link Bot#domain()} when the factory is built. A URL is routed
+ * by its authority only: the full {@code host:port} is looked up first, then the host, then
+ * its parent domains ({@code www.agrofy.com.br} falls back to {@code agrofy.com.br}), so a
+ * domain that only appears in the path or query string never selects a bot. Several bots
+ * may share a domain when they declare distinct {@link Bot#pathPattern()}s; at most one of
+ * them may have no pattern and catches the remaining paths.
+ * </p>
+ * <p>
+ * The route resolved for each authority is kept in a fixed-size, direct-mapped cache probed
+ * in place in the URL, so routing a URL of an already seen host costs one scan of its
+ * authority and allocates nothing.
  * </p>
  */
 @Component
 public class BotFactory {
 
-    private final List<Bot> bots;
+    /**
+     * Number of slots of the route cache, a power of two. Authorities sharing a slot evict each
+     * other, which bounds the cache when the input holds many unknown hosts.
+     */
+    private static final int ROUTE_CACHE_SIZE = 1024;
+
+    private static final Route NO_ROUTE = new Route(List.of(), Optional.empty());
 
+    private final Map<String, Route> routesByDomain;
+    private final CachedRoute[] routeCache = new CachedRoute[ROUTE_CACHE_SIZE];
+
+    /**
+     * Builds the domain index.
+     *
+     * @param bots the available bots
+     * @throws IllegalStateException if two bots would accept the same URLs, i.e. share a domain
+     *                               and both have no path pattern or the same one
+     */
     public BotFactory(List<Bot> bots) {
-        this.bots = bots;
+        Map<String, List<Bot>> botsByDomain = new HashMap<>();
+        for (Bot bot : bots) {
+            botsByDomain.computeIfAbsent(bot.domain().toLowerCase(Locale.ROOT), domain -> new ArrayList<>()).add(bot);
+        }
+
+        Map<String, Route> routes = new HashMap<>();
+        botsByDomain.forEach((domain, domainBots) -> routes.put(domain, route(domain, domainBots)));
+        this.routesByDomain = Map.copyOf(routes);
     }
 
     /**
@@ -29,8 +67,120 @@ public class BotFactory {
      * @return an {@link Optional} containing the bot if found, or empty if no bot supports the URL
      */
     public Optional<Bot> getRobot(String url) {
-        return bots.stream()
-            .filter(r -> r.supports(url))
-            .findFirst();
+        int end = UrlUtils.authorityEnd(url);
+        int start = UrlUtils.authorityStart(url, end);
+        if (start == end) {
+            return Optional.empty();
+        }
+
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + toLowerAscii(url.charAt(i));
+        }
+
+        int slot = (hash ^ (hash >>> 16)) & (ROUTE_CACHE_SIZE - 1);
+        CachedRoute cached = routeCache[slot];
+        if (cached == null || !cached.matches(url, start, end, hash)) {
+            String authority = url.substring(start, end).toLowerCase(Locale.ROOT);
+            cached = new CachedRoute(authority, hash, resolve(authority));
+            routeCache[slot] = cached;
+        }
+
+        return cached.route.select(url);
+    }
+
+    private Route resolve(String authority) {
+        Route route = routesByDomain.get(authority);
+        if (route != null) {
+            return route;
+        }
+
+        String host = UrlUtils.host(authority);
+        for (String domain = host; domain != null; domain = parentDomain(domain)) {
+            route = routesByDomain.get(domain);
+            if (route != null) {
+                return route;
+            }
+        }
+
+        return NO_ROUTE;
+    }
+
+    private static char toLowerAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static String parentDomain(String domain) {
+        int dot = domain.indexOf('.');
+
+        return dot < 0 ? null : domain.substring(dot + 1);
+    }
+
+    private static Route route(String domain, List<Bot> bots) {
+        List<Bot> patterned = new ArrayList<>();
+        Map<String, Bot> patterns = new HashMap<>();
+        Bot catchAll = null;
+        for (Bot bot : bots) {
+            Pattern pattern = bot.pathPattern();
+            if (pattern == null) {
+                if (catchAll != null) {
+                    throw ambiguous(domain, catchAll, bot);
+                }
+                catchAll = bot;
+            } else {
+                Bot previous = patterns.putIfAbsent(pattern.pattern(), bot);
+                if (previous != null) {
+                    throw ambiguous(domain, previous, bot);
+                }
+                patterned.add(bot);
+            }
+        }
+
+        return new Route(List.copyOf(patterned), Optional.ofNullable(catchAll));
+    }
+
+    private static IllegalStateException ambiguous(String domain, Bot first, Bot second) {
+        return new IllegalStateException("Bots %s and %s both handle the same URLs of %s"
+            .formatted(first.getClass().getName(), second.getClass().getName(), domain));
+    }
+
+    /**
+     * Route resolved for an authority. Entries are immutable, so the cache can be read and
+     * overwritten by concurrent threads without locking.
+     */
+    private record CachedRoute(String authority, int hash, Route route) {
+
+        boolean matches(String url, int start, int end, int hash) {
+            if (this.hash != hash || authority.length() != end - start) {
+                return false;
+            }
+            for (int i = start; i < end; i++) {
+                if (toLowerAscii(url.charAt(i)) != authority.charAt(i - start)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Bots of one domain: those with a path pattern are tried in registration order, then the
+     * catch-all bot, if any.
+     */
+    private record Route(List<Bot> patterned, Optional<Bot> catchAll) {
+
+        Optional<Bot> select(String url) {
+            if (!patterned.isEmpty()) {
+                String path = UrlUtils.path(url);
+                for (Bot bot : patterned) {
+                    if (bot.pathPattern().matcher(path).matches()) {
+                        return Optional.of(bot);
+                    }
+                }
+            }
+
+            return catchAll;
+        }
     }
 }
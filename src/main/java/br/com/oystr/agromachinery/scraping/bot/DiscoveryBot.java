@@ -0,0 +1,76 @@
+package br.com.oystr.agromachinery.scraping.bot;
+
+import br.com.oystr.agromachinery.scraping.util.UrlUtils;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Crawls the search and category pages of a website for the URLs of its listings, which are
+ * then scraped by the {@link Bot} of the same website.
+ * <p>
+ * Implementations only read the pages: fetching, pagination and politeness are handled by
+ * {@link br.com.oystr.agromachinery.scraping.service.ListingDiscovery}.
+ * </p>
+ */
+public interface DiscoveryBot {
+
+    /**
+     * Extracts the listings of one page of results.
+     *
+     * @param document the parsed page
+     * @param url      the URL of the page
+     * @return the absolute URLs of the listings on the page and, if the page tells it, the
+     * number of pages of the results
+     * @throws IOException if embedded data of the page cannot be read
+     */
+    ResultsPage discover(Document document, String url) throws IOException;
+
+    /**
+     * Returns the URL of another page of the same results.
+     *
+     * @param url  the URL of the first page, as given to the discovery
+     * @param page the page number, starting at 1
+     * @return the URL of the page
+     */
+    String pageUrl(String url, int page);
+
+    /**
+     * Checks whether the URL is a search or category page of this bot, following the same rule
+     * as {@link Bot#supports(String)}.
+     *
+     * @param url the URL to check
+     * @return {@code true} if this bot can discover listings from the URL
+     */
+    default boolean supports(String url) {
+        String authority = UrlUtils.authority(url);
+        return authority != null && UrlUtils.isInDomain(authority, domain())
+            && pathPattern().matcher(UrlUtils.path(url)).matches();
+    }
+
+    /**
+     * Returns the domain this bot crawls, the same as the {@link Bot#domain()} scraping its listings,
+     * so both share the per-host limits.
+     *
+     * @return the domain handled by this bot
+     */
+    String domain();
+
+    /**
+     * Tells the search and category pages apart from the listing pages of the domain.
+     *
+     * @return the pattern fully matching the path (without query string) of the pages to crawl
+     */
+    Pattern pathPattern();
+
+    /**
+     * Listings of one page of results.
+     *
+     * @param listingUrls absolute URLs of the listings, in page order
+     * @param lastPage    number of pages of the results, or {@code 0} if the page does not tell
+     */
+    record ResultsPage(List<String> listingUrls, int lastPage) {
+    }
+}
@@ -0,0 +1,24 @@
+package br.com.oystr.agromachinery.scraping.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Spring configuration class providing the {@link MeterRegistry} of the scraping metrics.
+ * <p>
+ * With {@code scraper.metrics.enabled} the meters are kept in a Prometheus registry, otherwise
+ * in an empty composite registry that records nothing.
+ * </p>
+ */
+@Configuration
+public class MetricsConfig {
+    @Bean
+    public MeterRegistry meterRegistry(@Value("${scraper.metrics.enabled}") boolean enabled) {
+        return enabled ? new PrometheusMeterRegistry(PrometheusConfig.DEFAULT) : new CompositeMeterRegistry();
+    }
+}
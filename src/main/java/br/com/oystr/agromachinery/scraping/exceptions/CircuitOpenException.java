@@ -0,0 +1,14 @@
+package br.com.oystr.agromachinery.scraping.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown instead of sending a request to a host whose circuit breaker is open,
+ * i.e. that failed repeatedly and is given time to recover, so a site that is down fails
+ * fast instead of consuming a full timeout per URL.
+ */
+public class CircuitOpenException extends IOException {
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,39 @@
+package br.com.oystr.agromachinery.scraping.exceptions;
+
+import org.jsoup.HttpStatusException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Exception thrown when a website asks to slow down, answering {@code 429 Too Many Requests}
+ * or {@code 503 Service Unavailable}.
+ * <p>
+ * Scrapers must let it propagate so the scheduler can lower the request rate of the host
+ * and retry the URL later, honoring the {@code Retry-After} header when present. The
+ * original {@link HttpStatusException} is kept as the cause.
+ * </p>
+ */
+public class HostThrottledException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public HostThrottledException(HttpStatusException cause, Duration retryAfter) {
+        super("Throttled with HTTP " + cause.getStatusCode() + ": " + cause.getUrl(), cause);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return the HTTP status code of the response, {@code 429} or {@code 503}
+     */
+    public int getStatusCode() {
+        return ((HttpStatusException) getCause()).getStatusCode();
+    }
+
+    /**
+     * @return how long the website asked to wait before the next request, if it said so
+     */
+    public Optional<Duration> getRetryAfter() {
+        return Optional.ofNullable(retryAfter);
+    }
+}
@@ -0,0 +1,13 @@
+package br.com.oystr.agromachinery.scraping.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when a photo exceeds the configured maximum size,
+ * so that a single huge image cannot exhaust the memory of a worker.
+ */
+public class ImageTooLargeException extends IOException {
+    public ImageTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package br.com.oystr.agromachinery.scraping.exceptions;
+
+/**
+ * Exception thrown when a page has not changed since its last snapshot,
+ * either because the server answered {@code 304 Not Modified} or because
+ * the downloaded content has the same hash as before.
+ * <p>
+ * Scrapers must let it propagate so the previously extracted machine can
+ * be reused instead of parsing the page again.
+ * </p>
+ */
+public class PageNotModifiedException extends RuntimeException {
+    public PageNotModifiedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package br.com.oystr.agromachinery.scraping.model;
+
+/**
+ * Where the URLs to scrape are read from.
+ * <p>
+ * <ul>
+ *     <li>{@link #CONFIG} – the {@code scraper.urls} property.</li>
+ *     <li>{@link #FILE} – the file at {@code scraper.input.path}: plain text or NDJSON, optionally gzipped.</li>
+ *     <li>{@link #STDIN} – the standard input, in the same formats as a file.</li>
+ *     <li>{@link #DIRECTORY} – every file in the directory at {@code scraper.input.path}, then every file
+ *     added to it, until none is added for {@code scraper.input.watch-idle-seconds}.</li>
+ * </ul>
+ * </p>
+ */
+public enum InputMode {
+    CONFIG, FILE, STDIN, DIRECTORY;
+}
@@ -11,6 +11,12 @@ import java.util.Locale;
  * hours of use, location, price, image URL, and the page URL
  * where the machine is listed.
  * </p>
+ *
+ * <p>
+ * The encoded photo is held by a {@link PhotoPayload}, which may be loaded
+ * lazily, and is {@code null} when photos were skipped
+ * (see {@link PhotoMode}).
+ * </p>
  */
 public record Machine(
     String model,
@@ -21,9 +27,25 @@ public record Machine(
     String city,
     BigDecimal price,
     String photo,
-    String photoBase64,
+    PhotoPayload photoPayload,
     String url
 ) {
+    /**
+     * Returns the Base64-encoded photo, loading it first if it is lazy.
+     *
+     * @return the encoded photo, or {@code null} if it was skipped or could not be retrieved
+     */
+    public String photoBase64() {
+        return photoPayload != null ? photoPayload.base64().orElse(null) : null;
+    }
+
+    /**
+     * Returns a copy of this machine with another photo payload.
+     */
+    public Machine withPhotoPayload(PhotoPayload photoPayload) {
+        return new Machine(model, contractType, make, year, workedHours, city, price, photo, photoPayload, url);
+    }
+
     @Override
     public String toString() {
         String formattedPrice = price != null
@@ -39,9 +61,21 @@ public record Machine(
             "  city='" + city + '\'' + "," + System.lineSeparator() +
             "  price=" + formattedPrice + "," + System.lineSeparator() +
             "  photo='" + photo + '\'' + "," + System.lineSeparator() +
-            "  photoBase64='data:image/png;base64," +
-            (photoBase64 != null ? photoBase64.substring(0, 30) + "..." : null) + "'," + System.lineSeparator() +
+            "  photoBase64='data:image/png;base64," + formatPhotoBase64() + "'," + System.lineSeparator() +
             "  url='" + url + '\'' + System.lineSeparator() +
             "}";
     }
+
+    private String formatPhotoBase64() {
+        if (photoPayload == null) {
+            return null;
+        }
+        if (!photoPayload.isLoaded()) {
+            return "<lazy>";
+        }
+
+        return photoPayload.base64()
+            .map(base64 -> base64.substring(0, Math.min(30, base64.length())) + "...")
+            .orElse(null);
+    }
 }
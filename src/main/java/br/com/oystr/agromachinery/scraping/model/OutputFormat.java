@@ -0,0 +1,15 @@
+package br.com.oystr.agromachinery.scraping.model;
+
+/**
+ * Format of the files the scraped machines are written to.
+ * <p>
+ * <ul>
+ *     <li>{@link #NONE} – machines are not written to files; a one-line summary of each is logged.</li>
+ *     <li>{@link #NDJSON} – one JSON object per line.</li>
+ *     <li>{@link #CSV} – RFC 4180 CSV with a header row, one column per field.</li>
+ * </ul>
+ * </p>
+ */
+public enum OutputFormat {
+    NONE, NDJSON, CSV;
+}
@@ -0,0 +1,15 @@
+package br.com.oystr.agromachinery.scraping.model;
+
+/**
+ * How the photo of a machine is retrieved while scraping.
+ * <p>
+ * <ul>
+ *     <li>{@link #EAGER} – the photo is downloaded and encoded while the page is scraped.</li>
+ *     <li>{@link #LAZY} – the photo is downloaded and encoded the first time it is accessed.</li>
+ *     <li>{@link #SKIP} – the photo is never retrieved; only its URL is kept.</li>
+ * </ul>
+ * </p>
+ */
+public enum PhotoMode {
+    EAGER, LAZY, SKIP;
+}
@@ -0,0 +1,16 @@
+package br.com.oystr.agromachinery.scraping.model;
+
+/**
+ * Where the encoded photo of a machine is written by the output sink.
+ * <p>
+ * <ul>
+ *     <li>{@link #INLINE} – in the {@code photoBase64} field of the machine.</li>
+ *     <li>{@link #SEPARATE} – in a {@code photos-*.ndjson} file next to the machines, keyed by URL, so the
+ *     machine files stay small.</li>
+ *     <li>{@link #NONE} – not written; only the photo URL is kept.</li>
+ * </ul>
+ * </p>
+ */
+public enum PhotoOutput {
+    INLINE, SEPARATE, NONE;
+}
@@ -0,0 +1,109 @@
+package br.com.oystr.agromachinery.scraping.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Handle to the Base64-encoded photo of a {@link Machine}.
+ * <p>
+ * The payload is either loaded up front or produced by a loader the first time
+ * {@link #base64()} is called, so consumers that only need the listing data never
+ * pay for the photo download nor keep its encoded form on the heap.
+ * </p>
+ *
+ * <p>
+ * A lazy payload can also be streamed with {@link #writeBase64To(OutputStream)},
+ * which encodes the photo straight into the given stream without keeping it.
+ * </p>
+ */
+public final class PhotoPayload {
+
+    private final Supplier<Optional<String>> loader;
+    private final Writer writer;
+    private volatile Optional<String> base64;
+
+    private PhotoPayload(Supplier<Optional<String>> loader, Writer writer, Optional<String> base64) {
+        this.loader = loader;
+        this.writer = writer;
+        this.base64 = base64;
+    }
+
+    /**
+     * Creates an already loaded payload.
+     *
+     * @param base64 the encoded photo, may be {@code null} if it could not be retrieved
+     */
+    public static PhotoPayload of(String base64) {
+        return new PhotoPayload(null, null, Optional.ofNullable(base64));
+    }
+
+    /**
+     * Creates a payload that is loaded on first access.
+     *
+     * @param loader fetches and encodes the photo; called at most once
+     * @param writer streams the encoded photo into a sink without keeping it
+     */
+    public static PhotoPayload lazy(Supplier<Optional<String>> loader, Writer writer) {
+        return new PhotoPayload(loader, writer, null);
+    }
+
+    /**
+     * Returns the Base64-encoded photo, loading it if needed.
+     *
+     * @return the encoded photo, or empty if it could not be retrieved
+     */
+    public Optional<String> base64() {
+        Optional<String> loaded = base64;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = base64;
+                if (loaded == null) {
+                    base64 = loaded = loader.get();
+                }
+            }
+        }
+
+        return loaded;
+    }
+
+    /**
+     * @return {@code true} if the photo has already been loaded
+     */
+    public boolean isLoaded() {
+        return base64 != null;
+    }
+
+    /**
+     * Writes the Base64-encoded photo into the given stream.
+     * <p>
+     * A payload that is not loaded yet is streamed from its source and stays unloaded,
+     * so the encoded photo is never held in memory.
+     * </p>
+     *
+     * @param out the stream receiving the encoded photo; it is not closed
+     * @throws IOException if the photo could not be retrieved or written
+     */
+    public void writeBase64To(OutputStream out) throws IOException {
+        Optional<String> loaded = base64;
+        if (loaded == null && writer != null) {
+            writer.writeTo(out);
+            return;
+        }
+
+        Optional<String> encoded = loaded != null ? loaded : base64();
+        if (encoded.isPresent()) {
+            out.write(encoded.get().getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Streams an encoded photo into a sink.
+     */
+    @FunctionalInterface
+    public interface Writer {
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
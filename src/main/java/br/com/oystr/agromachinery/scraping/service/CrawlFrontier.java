@@ -0,0 +1,354 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Disk-backed list of the URLs of a scraping batch and of how far each one got, so a batch
+ * stopped by a crash or by {@code scraper.await-termination-seconds} resumes where it left off.
+ * <p>
+ * The frontier is made of two files. {@code urls.log} is an append-only log of the URLs of the
+ * batch, one per line; the id of a URL is its line number. {@code states.bin} is a
+ * memory-mapped array of one {@link State} byte per URL after a small header, updated in place
+ * as the workers report back. Neither the URLs nor their states are held on the heap: URLs are
+ * read back sequentially by {@link #unfinished()} and states live in the page cache, so a batch
+ * of millions of URLs costs a few megabytes of disk.
+ * </p>
+ * <p>
+ * The state file is only created once every URL was appended to the log, which seals the batch.
+ * Opening a sealed frontier that still has unfinished URLs resumes it: the URLs that were
+ * pending or in flight when the previous run stopped are handed out again, while done and failed
+ * ones are not. Otherwise a new batch is started from the given URLs. States are flushed to disk
+ * every {@code checkpointInterval} and when the frontier is closed.
+ * </p>
+ */
+class CrawlFrontier implements ScrapeProgress, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CrawlFrontier.class);
+
+    private static final int MAGIC = 0x46524E54;
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    private static final String URLS_FILE = "urls.log";
+    private static final String STATES_FILE = "states.bin";
+
+    private final Path directory;
+    private final long size;
+    private final boolean resumed;
+    private final long checkpointIntervalNanos;
+    private final FileChannel statesChannel;
+    private final MappedByteBuffer states;
+    private final AtomicLong done;
+    private final AtomicLong failed;
+    private final AtomicLong lastCheckpoint = new AtomicLong(System.nanoTime());
+
+    private CrawlFrontier(Path directory, long size, boolean resumed, long done, long failed, Duration checkpointInterval)
+        throws IOException {
+        this.directory = directory;
+        this.size = size;
+        this.resumed = resumed;
+        this.done = new AtomicLong(done);
+        this.failed = new AtomicLong(failed);
+        this.checkpointIntervalNanos = checkpointInterval.toNanos();
+        this.statesChannel = FileChannel.open(directory.resolve(STATES_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.states = statesChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + size);
+    }
+
+    /**
+     * Opens the frontier kept in a directory, resuming its batch if it has unfinished URLs or
+     * starting a new batch from the given URLs otherwise.
+     *
+     * @param directory          directory of the frontier files, created if needed
+     * @param checkpointInterval how often states are flushed to disk while URLs are reported
+     * @param urls               URLs of the new batch, read only if there is nothing to resume;
+     *                           blank entries are skipped
+     * @return the open frontier, to be closed once the batch stops
+     * @throws IOException if the frontier files cannot be read or written
+     */
+    static CrawlFrontier open(Path directory, Duration checkpointInterval, Iterable<String> urls) throws IOException {
+        Files.createDirectories(directory);
+
+        Path statesFile = directory.resolve(STATES_FILE);
+        if (Files.exists(statesFile)) {
+            long[] counts = countStates(statesFile);
+            if (counts != null && counts[0] > counts[State.DONE.ordinal() + 1] + counts[State.FAILED.ordinal() + 1]) {
+                return new CrawlFrontier(directory, counts[0], true,
+                    counts[State.DONE.ordinal() + 1], counts[State.FAILED.ordinal() + 1], checkpointInterval);
+            }
+        }
+
+        Files.deleteIfExists(statesFile);
+        long size = writeLog(directory.resolve(URLS_FILE), urls);
+        seal(directory, size);
+
+        return new CrawlFrontier(directory, size, false, 0, 0, checkpointInterval);
+    }
+
+    /**
+     * @return whether the batch was resumed from a previous run rather than started from the given URLs
+     */
+    boolean resumed() {
+        return resumed;
+    }
+
+    /**
+     * @return the number of URLs in the batch
+     */
+    long size() {
+        return size;
+    }
+
+    long done() {
+        return done.get();
+    }
+
+    long failed() {
+        return failed.get();
+    }
+
+    /**
+     * @return the number of URLs neither done nor failed
+     */
+    long remaining() {
+        return size - done.get() - failed.get();
+    }
+
+    State state(long id) {
+        return State.values()[states.get(index(id))];
+    }
+
+    /**
+     * Reads the URLs that are neither done nor failed, in batch order.
+     *
+     * @return a cursor over the log, to be closed once done
+     * @throws IOException if the log cannot be opened
+     */
+    Cursor unfinished() throws IOException {
+        return new Cursor(Files.newBufferedReader(directory.resolve(URLS_FILE), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void started(long id) {
+        set(id, State.IN_FLIGHT);
+    }
+
+    @Override
+    public void succeeded(long id) {
+        set(id, State.DONE);
+        done.incrementAndGet();
+        checkpointIfDue();
+    }
+
+    @Override
+    public void failed(long id) {
+        set(id, State.FAILED);
+        failed.incrementAndGet();
+        checkpointIfDue();
+    }
+
+    /**
+     * Flushes the states to disk.
+     */
+    void checkpoint() {
+        lastCheckpoint.set(System.nanoTime());
+        states.force();
+        log.debug("Crawl frontier checkpoint: {} done, {} failed, {} remaining of {} URLs", done(), failed(), remaining(), size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkpoint();
+        statesChannel.close();
+    }
+
+    /**
+     * Bytes are written at distinct absolute positions, so workers need no lock.
+     */
+    private void set(long id, State state) {
+        states.put(index(id), (byte) state.ordinal());
+    }
+
+    private void checkpointIfDue() {
+        long last = lastCheckpoint.get();
+        if (System.nanoTime() - last >= checkpointIntervalNanos && lastCheckpoint.compareAndSet(last, System.nanoTime())) {
+            checkpoint();
+        }
+    }
+
+    private int index(long id) {
+        return HEADER_BYTES + Math.toIntExact(id);
+    }
+
+    /**
+     * Writes the URLs to the log and flushes it, so the log is complete before the batch is sealed.
+     *
+     * @return the number of URLs written
+     */
+    private static long writeLog(Path file, Iterable<String> urls) throws IOException {
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING);
+             BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+            for (String url : urls) {
+                String trimmed = url == null ? "" : url.strip();
+                if (trimmed.isEmpty() || trimmed.indexOf('\n') >= 0 || trimmed.indexOf('\r') >= 0) {
+                    continue;
+                }
+
+                writer.write(trimmed);
+                writer.newLine();
+                count++;
+            }
+
+            writer.flush();
+            channel.force(true);
+        }
+
+        if (count > Integer.MAX_VALUE - HEADER_BYTES) {
+            throw new IOException("A crawl frontier holds at most " + (Integer.MAX_VALUE - HEADER_BYTES) + " URLs, got " + count);
+        }
+
+        return count;
+    }
+
+    /**
+     * Creates the state file, all URLs pending, and moves it in place atomically.
+     */
+    private static void seal(Path directory, long size) throws IOException {
+        Path temp = Files.createTempFile(directory, STATES_FILE, ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putLong(size).flip();
+            channel.write(header, 0);
+            if (size > 0) {
+                channel.write(ByteBuffer.allocate(1), HEADER_BYTES + size - 1);
+            }
+            channel.force(true);
+        }
+
+        Files.move(temp, directory.resolve(STATES_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the state file without mapping it.
+     *
+     * @return the number of URLs followed by the number of URLs in each {@link State}, or
+     *         {@code null} if the file is not a valid state file
+     */
+    private static long[] countStates(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            if (channel.size() < HEADER_BYTES || channel.read(header, 0) < HEADER_BYTES || header.flip().getInt() != MAGIC) {
+                log.warn("Ignoring invalid crawl frontier state file: {}", file);
+                return null;
+            }
+
+            long[] counts = new long[State.values().length + 1];
+            counts[0] = header.getLong();
+            if (channel.size() != HEADER_BYTES + counts[0]) {
+                log.warn("Ignoring truncated crawl frontier state file: {}", file);
+                return null;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            channel.position(HEADER_BYTES);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    int state = buffer.get();
+                    if (state < 0 || state >= State.values().length) {
+                        log.warn("Ignoring corrupted crawl frontier state file: {}", file);
+                        return null;
+                    }
+                    counts[state + 1]++;
+                }
+                buffer.clear();
+            }
+
+            return counts;
+        }
+    }
+
+    /**
+     * State of a URL in the batch.
+     */
+    enum State {
+        PENDING,
+        IN_FLIGHT,
+        DONE,
+        FAILED
+    }
+
+    /**
+     * A URL of the batch.
+     *
+     * @param id  position of the URL in the batch
+     * @param url the URL
+     */
+    record Entry(long id, String url) {
+    }
+
+    /**
+     * Lazy iterator over the unfinished URLs of the log, reading one line at a time.
+     */
+    final class Cursor implements Iterator<Entry>, Closeable {
+        private final BufferedReader reader;
+        private long nextId;
+        private Entry next;
+
+        private Cursor(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                String line;
+                while (next == null && (line = reader.readLine()) != null) {
+                    long id = nextId++;
+                    State state = state(id);
+                    if (state == State.PENDING || state == State.IN_FLIGHT) {
+                        next = new Entry(id, line);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read crawl frontier log in " + directory, e);
+            }
+
+            return next != null;
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Entry entry = next;
+            next = null;
+            return entry;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+/**
+ * Strategy used by {@link ScraperService} to run scraping tasks.
+ * <p>
+ * <ul>
+ *     <li>{@link #FIXED} – tasks share a fixed-size platform thread pool of {@code scraper.threads-count} threads.</li>
+ *     <li>{@link #VIRTUAL} – every URL runs on its own virtual thread; concurrency is bounded only by the
+ *     per-host limit {@code scraper.max-concurrency-per-host}.</li>
+ *     <li>{@link #PIPELINE} – page fetch, parse/extract and photo fetch run as separate stages, each with
+ *     its own executor and bounded queue (see {@link ScrapePipeline}).</li>
+ * </ul>
+ * </p>
+ */
+public enum ExecutionMode {
+    FIXED, VIRTUAL, PIPELINE;
+}
@@ -0,0 +1,249 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket per host whose rate adapts to how the website responds, used by
+ * {@link ScraperService} to stay polite without leaving throughput on the table.
+ * <p>
+ * Each host starts at {@code initialRate} requests per second and may send up to {@code burst}
+ * requests back to back. The rate follows AIMD (additive increase, multiplicative decrease):
+ * every response faster than {@code targetLatency} adds {@code increase} requests per second,
+ * while a slow response or a {@code 429}/{@code 503} multiplies the rate by
+ * {@code decreaseFactor}. Responses to requests started before the last decrease are ignored
+ * for decreasing, so a burst of in-flight failures only halves the rate once. A
+ * {@code Retry-After} delay blocks the host until it expires.
+ * </p>
+ *
+ * <p>Slots are reserved ahead of time, so callers know when they may send their request without
+ * holding a lock while waiting, or only once due with {@link #tryReserve(String, long)}, when the
+ * limiter is shared with other callers. All times are read from the given clock, in nanoseconds.</p>
+ */
+class HostRateLimiter {
+
+    private final Settings settings;
+    private final LongSupplier clock;
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    HostRateLimiter(Settings settings) {
+        this(settings, System::nanoTime);
+    }
+
+    HostRateLimiter(Settings settings, LongSupplier clock) {
+        this.settings = settings;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the current time of the limiter clock, in nanoseconds
+     */
+    long now() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Returns when the next request to the host may start, without reserving it.
+     *
+     * @param host the host key, usually {@link br.com.oystr.agromachinery.scraping.bot.Bot#domain()}
+     * @return the clock time of the next free slot, possibly in the past
+     */
+    long readyAt(String host) {
+        if (!settings.enabled()) {
+            return now();
+        }
+
+        return state(host).readyAt(now());
+    }
+
+    /**
+     * Reserves the next slot of the host.
+     *
+     * @param host the host key
+     * @return the clock time at which the request may start, never before now
+     */
+    long reserve(String host) {
+        long now = now();
+        if (!settings.enabled()) {
+            return now;
+        }
+
+        return Math.max(now, state(host).reserve(now));
+    }
+
+    /**
+     * Reserves the next slot of the host only if it is due, checking and reserving at once so
+     * that no other caller takes the slot in between.
+     *
+     * @param host the host key
+     * @param now  the current time of the limiter clock
+     * @return whether the slot was due and is now reserved
+     */
+    boolean tryReserve(String host, long now) {
+        if (!settings.enabled()) {
+            return true;
+        }
+
+        return state(host).tryReserve(now);
+    }
+
+    /**
+     * Reserves the next slot of the host and sleeps until it is due.
+     *
+     * @param host the host key
+     * @return the clock time at which the request started, to report its outcome
+     * @throws InterruptedException if interrupted while waiting for the slot
+     */
+    long acquire(String host) throws InterruptedException {
+        long slot = reserve(host);
+        long delay = slot - now();
+        if (delay > 0) {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        }
+
+        return slot;
+    }
+
+    /**
+     * Reports a response to a request started at {@code startNanos}, raising the rate of the
+     * host if it was fast enough and lowering it otherwise.
+     *
+     * @param host       the host key
+     * @param startNanos the clock time at which the request started
+     */
+    void onResponse(String host, long startNanos) {
+        if (!settings.enabled()) {
+            return;
+        }
+
+        long now = now();
+        HostState state = state(host);
+        if (now - startNanos > settings.targetLatency().toNanos()) {
+            state.decrease(startNanos, now);
+        } else {
+            state.increase();
+        }
+    }
+
+    /**
+     * Reports that the website throttled a request started at {@code startNanos}.
+     *
+     * @param host       the host key
+     * @param startNanos the clock time at which the request started
+     * @param retryAfter the delay asked by the website, or {@code null} if none
+     */
+    void onThrottled(String host, long startNanos, Duration retryAfter) {
+        if (!settings.enabled()) {
+            return;
+        }
+
+        long now = now();
+        HostState state = state(host);
+        state.decrease(startNanos, now);
+        if (retryAfter != null) {
+            state.blockUntil(now + retryAfter.toNanos());
+        }
+    }
+
+    /**
+     * @return the current rate of the host, in requests per second
+     */
+    double rate(String host) {
+        return state(host).rate();
+    }
+
+    private HostState state(String host) {
+        return hosts.computeIfAbsent(host, h -> new HostState(now()));
+    }
+
+    /**
+     * Rate and reservations of one host.
+     */
+    private final class HostState {
+        private double rate = settings.initialRate();
+        private long nextFree;
+        private long blockedUntil = Long.MIN_VALUE;
+        private long lastDecrease = Long.MIN_VALUE;
+
+        private HostState(long now) {
+            this.nextFree = now - (settings.burst() - 1) * interval();
+        }
+
+        synchronized long readyAt(long now) {
+            return Math.max(bucket(now), blockedUntil);
+        }
+
+        synchronized long reserve(long now) {
+            long slot = readyAt(now);
+            nextFree = slot + interval();
+
+            return slot;
+        }
+
+        synchronized boolean tryReserve(long now) {
+            if (readyAt(now) - now > 0) {
+                return false;
+            }
+
+            reserve(now);
+            return true;
+        }
+
+        synchronized void increase() {
+            rate = Math.min(settings.maxRate(), rate + settings.increase());
+        }
+
+        synchronized void decrease(long startNanos, long now) {
+            if (startNanos <= lastDecrease) {
+                return;
+            }
+
+            rate = Math.max(settings.minRate(), rate * settings.decreaseFactor());
+            lastDecrease = now;
+        }
+
+        synchronized void blockUntil(long until) {
+            blockedUntil = Math.max(blockedUntil, until);
+        }
+
+        synchronized double rate() {
+            return rate;
+        }
+
+        /**
+         * Next free slot, not earlier than what a full bucket of {@code burst} tokens allows.
+         */
+        private long bucket(long now) {
+            return Math.max(nextFree, now - (settings.burst() - 1) * interval());
+        }
+
+        private long interval() {
+            return (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        }
+    }
+
+    /**
+     * Configuration of the limiter.
+     *
+     * @param enabled        whether requests are limited at all
+     * @param initialRate    requests per second of a host not seen yet
+     * @param minRate        lower bound of the rate
+     * @param maxRate        upper bound of the rate
+     * @param increase       requests per second added after each fast response
+     * @param decreaseFactor factor applied to the rate after a slow or throttled response
+     * @param targetLatency  responses slower than this lower the rate
+     * @param burst          requests that may be sent back to back after an idle period
+     */
+    record Settings(boolean enabled,
+                    double initialRate,
+                    double minRate,
+                    double maxRate,
+                    double increase,
+                    double decreaseFactor,
+                    Duration targetLatency,
+                    int burst) {
+    }
+}
@@ -0,0 +1,372 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import br.com.oystr.agromachinery.scraping.bot.DiscoveryBot;
+import br.com.oystr.agromachinery.scraping.exceptions.HostThrottledException;
+import br.com.oystr.agromachinery.scraping.util.JsoupWrapper;
+import br.com.oystr.agromachinery.scraping.util.PageSnapshotStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Expands the search and category pages of the input into the listings they link to, enabled
+ * by {@code scraper.discovery.enabled}.
+ * <p>
+ * Input URLs supported by a {@link DiscoveryBot} are crawled instead of scraped: the first page
+ * of the results tells how many pages there are, and the other pages, up to
+ * {@code scraper.discovery.max-pages}, are then fetched in parallel. When a website does not
+ * tell, pages are followed one by one until one brings no new listing. Other input URLs are
+ * passed through as they are.
+ * </p>
+ * <p>
+ * The listings are streamed to {@link ScraperService} as their pages are read, through a queue
+ * of {@code scraper.discovery.queue-capacity} URLs, so detail pages are scraped while the next
+ * result pages are still being fetched, and a slow scrape holds up the discovery instead of
+ * letting the queue grow. Result pages take the same per-host permits as the listings, in
+ * every execution mode, and go through the same {@link HostRateLimiter}, so discovery and
+ * scraping share each website's budget.
+ * </p>
+ */
+@Service
+public class ListingDiscovery {
+
+    private static final Logger log = LoggerFactory.getLogger(ListingDiscovery.class);
+
+    /**
+     * Marks the end of the discovered URLs, compared by identity.
+     */
+    private static final String END = new String("");
+
+    private final ScraperService scraperService;
+    private final JsoupWrapper jsoupWrapper;
+    private final PageSnapshotStore pageSnapshotStore;
+    private final List<DiscoveryBot> discoveryBots;
+    private final boolean enabled;
+    private final int maxPages;
+    private final int queueCapacity;
+    private final int maxThrottledRetries;
+
+    public ListingDiscovery(ScraperService scraperService,
+                            JsoupWrapper jsoupWrapper,
+                            PageSnapshotStore pageSnapshotStore,
+                            List<DiscoveryBot> discoveryBots,
+                            @Value("${scraper.discovery.enabled}") boolean enabled,
+                            @Value("${scraper.discovery.max-pages}") int maxPages,
+                            @Value("${scraper.discovery.queue-capacity}") int queueCapacity,
+                            @Value("${scraper.rate-limit.max-throttled-retries}") int maxThrottledRetries) {
+        this.scraperService = scraperService;
+        this.jsoupWrapper = jsoupWrapper;
+        this.pageSnapshotStore = pageSnapshotStore;
+        this.discoveryBots = List.copyOf(discoveryBots);
+        this.enabled = enabled;
+        this.maxPages = maxPages;
+        this.queueCapacity = queueCapacity;
+        this.maxThrottledRetries = maxThrottledRetries;
+    }
+
+    /**
+     * Starts discovering the listings of the given URLs in the background.
+     *
+     * @param urls the input URLs, iterated once from another thread
+     * @return the listings and the other input URLs, as they are found; the input as it is when
+     * discovery is disabled
+     */
+    public Listings discover(Iterable<String> urls) {
+        return enabled ? new Listings(urls) : new Listings(urls.iterator());
+    }
+
+    /**
+     * @return the discovery bot of a search or category page, if any
+     */
+    Optional<DiscoveryBot> discoveryBot(String url) {
+        for (DiscoveryBot bot : discoveryBots) {
+            if (bot.supports(url)) {
+                return Optional.of(bot);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Fetches a page of results, retrying it when the website throttles.
+     *
+     * @return the page, or {@code null} if it could not be read
+     */
+    private DiscoveryBot.ResultsPage fetchPage(DiscoveryBot bot, String url) throws InterruptedException {
+        HostRateLimiter rateLimiter = scraperService.rateLimiter();
+        Semaphore permits = scraperService.hostPermits(bot.domain());
+        for (int attempt = 0; ; attempt++) {
+            permits.acquire();
+            long start = rateLimiter.acquire(bot.domain());
+            try {
+                DiscoveryBot.ResultsPage page = bot.discover(jsoupWrapper.fetch(url), url);
+                rateLimiter.onResponse(bot.domain(), start);
+
+                return page;
+            } catch (HostThrottledException e) {
+                rateLimiter.onThrottled(bot.domain(), start, e.getRetryAfter().orElse(null));
+                if (attempt >= maxThrottledRetries) {
+                    log.warn("{} throttled by HTTP {} {} times, skipping results page: {}", bot.domain(), e.getStatusCode(), attempt + 1, url);
+                    return null;
+                }
+                log.info("{} throttled by HTTP {}, retrying results page: {}", bot.domain(), e.getStatusCode(), url);
+            } catch (IOException e) {
+                // Like the listings, a request that got no usable response does not pace the host
+                log.warn("Failed to discover listings on {}: {}", url, e.toString());
+                return null;
+            } catch (RuntimeException e) {
+                rateLimiter.onResponse(bot.domain(), start);
+                log.warn("Failed to discover listings on {}: {}", url, e.toString());
+                return null;
+            } finally {
+                permits.release();
+                // Result pages change all the time, their validators are not worth keeping
+                pageSnapshotStore.discard(url);
+            }
+        }
+    }
+
+    /**
+     * Interruptible unit of discovery work.
+     */
+    private interface Work {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Single-pass stream of the discovered listings, to be closed once read. Iterating blocks
+     * until the next URL is found; {@link #ready()} tells whether it would.
+     */
+    public final class Listings implements Iterable<String>, Closeable {
+
+        private final Iterator<String> passthrough;
+        private final BlockingQueue<String> queue;
+        private final ExecutorService executor;
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final LongAdder searches = new LongAdder();
+        private final LongAdder pages = new LongAdder();
+        private final LongAdder listings = new LongAdder();
+        private volatile RuntimeException failure;
+        private boolean iterated;
+
+        private Listings(Iterable<String> urls) {
+            this.passthrough = null;
+            this.queue = new LinkedBlockingQueue<>(queueCapacity);
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("discovery-", 0).factory());
+            submit(() -> feed(urls), false);
+        }
+
+        private Listings(Iterator<String> passthrough) {
+            this.passthrough = passthrough;
+            this.queue = null;
+            this.executor = null;
+        }
+
+        /**
+         * @return whether search and category pages are being crawled, rather than the input
+         * passed through as it is
+         */
+        public boolean crawling() {
+            return passthrough == null;
+        }
+
+        /**
+         * @return whether the next URL, or the end of the stream, is known without waiting
+         */
+        public boolean ready() {
+            return passthrough != null || !queue.isEmpty();
+        }
+
+        /**
+         * @throws IllegalStateException if the listings were already iterated
+         * @throws RuntimeException      from the iterator, if the input could not be read
+         */
+        @Override
+        public Iterator<String> iterator() {
+            if (iterated) {
+                throw new IllegalStateException("Discovered listings can only be read once");
+            }
+            iterated = true;
+            if (passthrough != null) {
+                return passthrough;
+            }
+
+            return new Iterator<>() {
+                private String next;
+                private boolean ended;
+
+                @Override
+                public boolean hasNext() {
+                    if (next == null && !ended) {
+                        try {
+                            String url = queue.take();
+                            if (url == END) {
+                                ended = true;
+                                if (failure != null) {
+                                    throw failure;
+                                }
+                            } else {
+                                next = url;
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            ended = true;
+                        }
+                    }
+
+                    return next != null;
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    String url = next;
+                    next = null;
+                    return url;
+                }
+            };
+        }
+
+        /**
+         * Stops the discovery still running, e.g. when the batch timed out.
+         */
+        @Override
+        public void close() {
+            if (executor == null) {
+                return;
+            }
+
+            executor.shutdownNow();
+            log.info("Discovered {} listings on {} result pages of {} searches", listings.sum(), pages.sum(), searches.sum());
+        }
+
+        private void feed(Iterable<String> urls) throws InterruptedException {
+            try {
+                for (String url : urls) {
+                    Optional<DiscoveryBot> bot = discoveryBot(url);
+                    if (bot.isPresent()) {
+                        searches.increment();
+                        submit(() -> search(bot.get(), url), true);
+                    } else {
+                        queue.put(url);
+                    }
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        private void search(DiscoveryBot bot, String url) throws InterruptedException {
+            DiscoveryBot.ResultsPage first = fetchPage(bot, url);
+            if (first == null) {
+                return;
+            }
+            pages.increment();
+            emit(first.listingUrls());
+
+            int lastPage = Math.min(first.lastPage(), maxPages);
+            if (first.lastPage() > 1) {
+                log.info("Discovering listings on {} pages of {}", lastPage, url);
+                for (int page = 2; page <= lastPage; page++) {
+                    String pageUrl = bot.pageUrl(url, page);
+                    submit(() -> {
+                        DiscoveryBot.ResultsPage results = fetchPage(bot, pageUrl);
+                        if (results != null) {
+                            pages.increment();
+                            emit(results.listingUrls());
+                        }
+                    }, true);
+                }
+            } else if (first.lastPage() == 0) {
+                follow(bot, url, first);
+            }
+        }
+
+        /**
+         * Reads the pages one by one when their count is unknown, until one brings no new listing,
+         * which also stops websites that ignore the page parameter.
+         */
+        private void follow(DiscoveryBot bot, String url, DiscoveryBot.ResultsPage first) throws InterruptedException {
+            Set<String> seen = new HashSet<>(first.listingUrls());
+            for (int page = 2; page <= maxPages && !seen.isEmpty(); page++) {
+                DiscoveryBot.ResultsPage results = fetchPage(bot, bot.pageUrl(url, page));
+                if (results == null) {
+                    return;
+                }
+                pages.increment();
+
+                List<String> fresh = results.listingUrls().stream().filter(seen::add).toList();
+                if (fresh.isEmpty()) {
+                    return;
+                }
+                emit(fresh);
+            }
+        }
+
+        private void emit(List<String> urls) throws InterruptedException {
+            for (String url : urls) {
+                queue.put(url);
+                listings.increment();
+            }
+        }
+
+        /**
+         * Runs work on its own virtual thread; the stream ends once no work is left.
+         *
+         * @param counted whether the work still has to be counted as pending, i.e. is not the feed
+         */
+        private void submit(Work work, boolean counted) {
+            if (counted) {
+                pending.incrementAndGet();
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        work.run();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (RuntimeException e) {
+                        log.error("Listing discovery failed", e);
+                    } finally {
+                        if (pending.decrementAndGet() == 0) {
+                            end();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Closed: nobody reads the listings anymore
+                pending.decrementAndGet();
+            }
+        }
+
+        private void end() {
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
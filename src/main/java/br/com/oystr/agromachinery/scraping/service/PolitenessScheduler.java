@@ -0,0 +1,235 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import br.com.oystr.agromachinery.scraping.bot.Bot;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Hands URLs to the workers of {@link ScraperService} host by host, so every website is
+ * scraped as fast as its own limits allow and a throttled website never holds up the others.
+ * <p>
+ * URLs are queued per host ({@link Bot#domain()}). Each call to {@link #next(long)} picks,
+ * among the hosts with queued URLs and a free permit, the one whose {@link HostRateLimiter}
+ * slot comes first; ties go to the host served least recently, which interleaves the input.
+ * The slot is reserved and the permit taken when the URL is handed out, so the worker can
+ * start right away. Workers report back with {@link #done(Task)} or {@link #retry(Task)}.
+ * </p>
+ * <p>
+ * The permits of a host are shared with the other batches running at the same time and with
+ * the listing discovery, so together they never exceed the concurrency limit of the host.
+ * Since those do not wake this scheduler up when they return a permit, a host out of permits
+ * is checked again every few milliseconds.
+ * </p>
+ */
+class PolitenessScheduler {
+
+    private static final long PERMIT_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final HostRateLimiter rateLimiter;
+    private final Function<String, Semaphore> hostPermits;
+    private final int maxInFlight;
+
+    private final Map<String, HostQueue> hosts = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private int queued;
+    private int inFlight;
+
+    /**
+     * @param rateLimiter request rate of each host
+     * @param hostPermits permits limiting the URLs of a host handed out at the same time
+     * @param maxInFlight maximum URLs handed out at the same time, e.g. the worker count
+     */
+    PolitenessScheduler(HostRateLimiter rateLimiter, Function<String, Semaphore> hostPermits, int maxInFlight) {
+        this.rateLimiter = rateLimiter;
+        this.hostPermits = hostPermits;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Queues a URL behind the other URLs of its host.
+     *
+     * @param id position of the URL in the batch, reported back with the task
+     */
+    void add(Bot robot, String url, long id) {
+        enqueue(new Task(robot, url, id, 0));
+    }
+
+    /**
+     * @return the number of URLs queued and not handed out yet
+     */
+    int queued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for the next URL that may be fetched now.
+     *
+     * @param deadlineNanos {@link System#nanoTime()} after which to stop waiting
+     * @return the task, or {@code null} once every URL was handed out and reported back
+     * @throws TimeoutException     if the deadline passed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    Task next(long deadlineNanos) throws TimeoutException, InterruptedException {
+        lock.lock();
+        try {
+            while (queued > 0 || inFlight > 0) {
+                HostQueue host = inFlight < maxInFlight ? earliestHost() : null;
+                long wait = deadlineNanos - System.nanoTime();
+                if (host != null) {
+                    long delay = rateLimiter.readyAt(host.name) - rateLimiter.now();
+                    // Unlike tryAcquire(), a zero timeout leaves the permit to threads already waiting for it
+                    if (delay <= 0 && host.permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                        // The limiter is shared with other batches, which may have taken the slot meanwhile
+                        if (rateLimiter.tryReserve(host.name, rateLimiter.now())) {
+                            return dispatch(host);
+                        }
+                        host.permits.release();
+                        delay = rateLimiter.readyAt(host.name) - rateLimiter.now();
+                    }
+                    wait = Math.min(wait, delay <= 0 ? PERMIT_POLL_NANOS : delay);
+                } else if (inFlight < maxInFlight && queued > 0) {
+                    wait = Math.min(wait, PERMIT_POLL_NANOS);
+                }
+
+                if (deadlineNanos - System.nanoTime() <= 0) {
+                    throw new TimeoutException("%d URLs still queued and %d in flight".formatted(queued, inFlight));
+                }
+                changed.awaitNanos(wait);
+            }
+
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reports that a task handed out by {@link #next(long)} is finished.
+     */
+    void done(Task task) {
+        lock.lock();
+        try {
+            release(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reports that a task must be fetched again, queueing it behind the other URLs of its host.
+     */
+    void retry(Task task) {
+        lock.lock();
+        try {
+            release(task);
+            enqueue(new Task(task.robot(), task.url(), task.id(), task.attempt() + 1));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the permits of the URLs handed out and never reported back, e.g. dropped by a
+     * forced shutdown of the workers. Called once no worker can report back anymore.
+     */
+    void releaseUnfinished() {
+        lock.lock();
+        try {
+            for (HostQueue host : hosts.values()) {
+                host.permits.release(host.inFlight);
+                inFlight -= host.inFlight;
+                host.inFlight = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(Task task) {
+        lock.lock();
+        try {
+            hosts.computeIfAbsent(task.robot().domain(), name -> new HostQueue(name, hostPermits.apply(name))).tasks.addLast(task);
+            queued++;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Task task) {
+        HostQueue host = hosts.get(task.robot().domain());
+        host.inFlight--;
+        host.permits.release();
+        inFlight--;
+        changed.signalAll();
+    }
+
+    /**
+     * Host with queued URLs and a free permit whose rate limiter slot comes first.
+     * Hosts are kept in least recently served order, so the first one wins ties.
+     */
+    private HostQueue earliestHost() {
+        HostQueue earliest = null;
+        long earliestReadyAt = Long.MAX_VALUE;
+        for (HostQueue host : hosts.values()) {
+            if (!host.tasks.isEmpty() && host.permits.availablePermits() > 0) {
+                long readyAt = rateLimiter.readyAt(host.name);
+                if (earliest == null || readyAt - earliestReadyAt < 0) {
+                    earliest = host;
+                    earliestReadyAt = readyAt;
+                }
+            }
+        }
+
+        return earliest;
+    }
+
+    private Task dispatch(HostQueue host) {
+        Task task = host.tasks.removeFirst();
+        host.inFlight++;
+        queued--;
+        inFlight++;
+
+        hosts.remove(host.name);
+        hosts.put(host.name, host);
+
+        return task;
+    }
+
+    /**
+     * A URL handed out to a worker.
+     *
+     * @param robot   the bot handling the URL
+     * @param url     the URL to fetch
+     * @param id      position of the URL in the batch
+     * @param attempt how many times the URL was already retried
+     */
+    record Task(Bot robot, String url, long id, int attempt) {
+    }
+
+    private static final class HostQueue {
+        private final String name;
+        private final Semaphore permits;
+        private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+        private int inFlight;
+
+        private HostQueue(String name, Semaphore permits) {
+            this.name = name;
+            this.permits = permits;
+        }
+    }
+}
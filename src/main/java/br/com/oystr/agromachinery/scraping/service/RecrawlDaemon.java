@@ -0,0 +1,244 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.util.MachineStore;
+import br.com.oystr.agromachinery.scraping.util.UrlUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Resident mode of the scraper, enabled by {@code scraper.daemon.enabled}: instead of scraping
+ * the input once and exiting, it keeps revisiting the listings, so the Spring context, the pooled
+ * connections and the JIT-compiled code are reused across cycles.
+ * <p>
+ * Every cycle scrapes the listings due in the {@link RecrawlSchedule}, at most
+ * {@code scraper.daemon.max-batch} of them, through {@link ScraperService}. Whether each listing
+ * changed is told by the {@link MachineStore}, so the crawl budget goes to the listings whose
+ * price or worked hours actually move, while sold listings are visited rarely and eventually
+ * dropped. Without {@code scraper.store.enabled} every listing looks new and keeps its initial
+ * interval.
+ * </p>
+ * <p>
+ * A cycle is given {@code scraper.daemon.cycle-timeout-seconds} rather than the one-shot
+ * {@code scraper.await-termination-seconds}. Listings it leaves unfinished are due again at once,
+ * so a {@code max-batch} the hosts cannot serve within that time at their rate limits makes cycles
+ * run back to back; a warning tells when that happens.
+ * </p>
+ * <p>
+ * The daemon runs on the calling thread until {@link #close()}, which lets the current cycle
+ * finish, within its timeout.
+ * </p>
+ */
+@Service
+public class RecrawlDaemon implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(RecrawlDaemon.class);
+
+    private final ScraperService scraperService;
+    private final MachineStore machineStore;
+    private final RecrawlSchedule schedule;
+    private final int maxBatch;
+    private final long cycleTimeoutSeconds;
+
+    private volatile boolean stopped;
+    private volatile Thread runner;
+
+    public RecrawlDaemon(ScraperService scraperService,
+                         MachineStore machineStore,
+                         @Value("${scraper.daemon.min-interval-minutes}") long minIntervalMinutes,
+                         @Value("${scraper.daemon.initial-interval-minutes}") long initialIntervalMinutes,
+                         @Value("${scraper.daemon.max-interval-minutes}") long maxIntervalMinutes,
+                         @Value("${scraper.daemon.max-not-found}") int maxNotFound,
+                         @Value("${scraper.daemon.max-batch}") int maxBatch,
+                         @Value("${scraper.daemon.cycle-timeout-seconds}") long cycleTimeoutSeconds) {
+        this.scraperService = scraperService;
+        this.machineStore = machineStore;
+        this.schedule = new RecrawlSchedule(new RecrawlSchedule.Settings(
+            Duration.ofMinutes(minIntervalMinutes),
+            Duration.ofMinutes(initialIntervalMinutes),
+            Duration.ofMinutes(maxIntervalMinutes),
+            maxNotFound
+        ));
+        this.maxBatch = maxBatch;
+        this.cycleTimeoutSeconds = cycleTimeoutSeconds;
+    }
+
+    /**
+     * Follows the given listings, due right away. URLs are normalized and followed once.
+     *
+     * @return the number of listings newly followed
+     */
+    public synchronized int follow(Iterable<String> urls) {
+        Instant now = Instant.now();
+        int added = 0;
+        for (String url : urls) {
+            String normalized = UrlUtils.normalize(url);
+            if (!normalized.isEmpty() && schedule.add(normalized, machineStore.history(normalized), now)) {
+                added++;
+            }
+        }
+
+        return added;
+    }
+
+    /**
+     * Runs recrawl cycles until {@link #close()}.
+     *
+     * @param consumer handles every fetched machine and tells whether it changed, e.g. by
+     *                 recording it in the {@link MachineStore}; called from the worker threads
+     * @throws InterruptedException if the thread is interrupted while waiting for the next cycle
+     */
+    public void run(Function<Machine, MachineStore.Change> consumer) throws InterruptedException {
+        runner = Thread.currentThread();
+        if (!machineStore.isEnabled()) {
+            log.warn("Machine store is disabled: listings cannot be told changed, so they keep their initial revisit interval");
+        }
+        log.info("Recrawl daemon following {} listings", schedule.size());
+
+        try {
+            long cycle = 0;
+            while (!stopped) {
+                List<String> due;
+                synchronized (this) {
+                    due = schedule.due(Instant.now(), maxBatch);
+                    if (due.isEmpty()) {
+                        awaitNextVisit();
+                        continue;
+                    }
+                }
+
+                runCycle(++cycle, due, consumer);
+            }
+        } finally {
+            log.info("Recrawl daemon stopped");
+        }
+    }
+
+    /**
+     * Stops the daemon, waiting for the current cycle to finish.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            stopped = true;
+            notifyAll();
+        }
+
+        Thread current = runner;
+        if (current != null && current != Thread.currentThread()) {
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void runCycle(long cycle, List<String> due, Function<Machine, MachineStore.Change> consumer) {
+        long start = System.nanoTime();
+        Cycle progress = new Cycle(due.size());
+        scraperService.recrawl(due, cycleTimeoutSeconds, progress,
+            machine -> progress.changes.put(machine.url(), consumer.apply(machine)));
+
+        Map<RecrawlSchedule.Visit, Integer> visits = new EnumMap<>(RecrawlSchedule.Visit.class);
+        synchronized (this) {
+            Instant now = Instant.now();
+            for (int i = 0; i < due.size(); i++) {
+                RecrawlSchedule.Visit visit = progress.visit(i, due.get(i));
+                schedule.visited(due.get(i), visit, now);
+                visits.merge(visit, 1, Integer::sum);
+            }
+        }
+
+        if (machineStore.isEnabled()) {
+            try {
+                machineStore.sync();
+            } catch (IOException e) {
+                log.warn("Failed to sync the machine store", e);
+            }
+        }
+
+        log.info("Recrawl cycle {}: {} listings in {} s {}, {} listings followed", cycle, due.size(),
+            Duration.ofNanos(System.nanoTime() - start).toSeconds(), visits, schedule.size());
+        if (visits.containsKey(RecrawlSchedule.Visit.UNFINISHED)) {
+            log.warn("Recrawl cycle {} left {} listings unfinished after {} s. They are due again at once: lower"
+                    + " scraper.daemon.max-batch or raise scraper.daemon.cycle-timeout-seconds to fit the host rate limits.",
+                cycle, visits.get(RecrawlSchedule.Visit.UNFINISHED), cycleTimeoutSeconds);
+        }
+    }
+
+    /**
+     * Waits until the next listing is due or the daemon is stopped. Must hold the monitor.
+     */
+    private void awaitNextVisit() throws InterruptedException {
+        Instant nextVisit = schedule.nextVisit().orElse(null);
+        if (nextVisit == null) {
+            log.info("No listing left to follow, waiting to be stopped");
+            wait();
+            return;
+        }
+
+        long millis = Duration.between(Instant.now(), nextVisit).toMillis();
+        if (millis > 0) {
+            log.debug("Next recrawl cycle at {}", nextVisit);
+            wait(millis);
+        }
+    }
+
+    /**
+     * Outcome of every URL of a cycle, reported by the worker threads.
+     */
+    private static final class Cycle implements ScrapeProgress {
+
+        private final AtomicReferenceArray<RecrawlSchedule.Visit> visits;
+        private final Map<String, MachineStore.Change> changes = new ConcurrentHashMap<>();
+
+        private Cycle(int size) {
+            this.visits = new AtomicReferenceArray<>(size);
+        }
+
+        @Override
+        public void succeeded(long id) {
+            visits.set((int) id, RecrawlSchedule.Visit.NEW);
+        }
+
+        @Override
+        public void failed(long id) {
+            visits.set((int) id, RecrawlSchedule.Visit.FAILED);
+        }
+
+        @Override
+        public void notFound(long id) {
+            visits.set((int) id, RecrawlSchedule.Visit.NOT_FOUND);
+        }
+
+        private RecrawlSchedule.Visit visit(int id, String url) {
+            RecrawlSchedule.Visit visit = visits.get(id);
+            if (visit == null) {
+                return RecrawlSchedule.Visit.UNFINISHED;
+            }
+            if (visit != RecrawlSchedule.Visit.NEW) {
+                return visit;
+            }
+
+            return switch (changes.getOrDefault(url, MachineStore.Change.NEW)) {
+                case NEW -> RecrawlSchedule.Visit.NEW;
+                case CHANGED -> RecrawlSchedule.Visit.CHANGED;
+                case UNCHANGED -> RecrawlSchedule.Visit.UNCHANGED;
+            };
+        }
+    }
+}
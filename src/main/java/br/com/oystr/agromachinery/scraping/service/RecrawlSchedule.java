@@ -0,0 +1,183 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import br.com.oystr.agromachinery.scraping.util.MachineStore;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+/**
+ * Revisit plan of the listings followed by the {@link RecrawlDaemon}.
+ * <p>
+ * Every listing has its own revisit interval, adapted to how often it changes: it is halved
+ * when a visit finds the listing changed and doubled when it did not, between {@code minInterval}
+ * and {@code maxInterval}. A listing is first visited right away; its interval starts at half
+ * the mean time between the versions kept in its {@link MachineStore} history, so listings whose
+ * price moved often are revisited first, or at {@code initialInterval} without history.
+ * </p>
+ * <p>
+ * Listings the website reports as gone, e.g. sold, are revisited at {@code maxInterval} in case
+ * they are listed again, and dropped after {@code maxNotFound} reports in a row. Listings that
+ * failed keep their interval; those left unfinished by the cycle timeout are due again at once.
+ * </p>
+ * <p>
+ * Due listings are handed out earliest first. Not thread-safe: the daemon updates the schedule
+ * between cycles.
+ * </p>
+ */
+class RecrawlSchedule {
+
+    private final Settings settings;
+    private final Map<String, Listing> listings = new HashMap<>();
+    private final PriorityQueue<Listing> queue = new PriorityQueue<>(Comparator.comparing(Listing::nextVisit));
+
+    RecrawlSchedule(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Follows a listing, due right away.
+     *
+     * @param url     the normalized URL of the listing
+     * @param history the stored versions of the listing, oldest first, possibly empty
+     * @return {@code false} if the listing was already followed
+     */
+    boolean add(String url, List<MachineStore.Observation> history, Instant now) {
+        if (listings.containsKey(url)) {
+            return false;
+        }
+
+        Listing listing = new Listing(url, initialInterval(history), now);
+        listings.put(url, listing);
+        queue.add(listing);
+
+        return true;
+    }
+
+    /**
+     * Takes the listings due at the given time, earliest first. They stay out of the queue until
+     * their visit is reported with {@link #visited(String, Visit, Instant)}.
+     *
+     * @param limit maximum number of listings to take
+     * @return the URLs of the due listings
+     */
+    List<String> due(Instant now, int limit) {
+        List<String> due = new ArrayList<>();
+        while (due.size() < limit && !queue.isEmpty() && !queue.peek().nextVisit().isAfter(now)) {
+            due.add(queue.poll().url());
+        }
+
+        return due;
+    }
+
+    /**
+     * Reschedules a listing taken by {@link #due(Instant, int)} according to its visit.
+     */
+    void visited(String url, Visit visit, Instant now) {
+        Listing listing = listings.get(url);
+        if (listing == null) {
+            return;
+        }
+
+        Duration interval = listing.interval();
+        int notFound = 0;
+        switch (visit) {
+            case CHANGED -> interval = clamp(interval.dividedBy(2));
+            case UNCHANGED -> interval = clamp(interval.multipliedBy(2));
+            case NOT_FOUND -> {
+                notFound = listing.notFound() + 1;
+                if (notFound >= settings.maxNotFound()) {
+                    listings.remove(url);
+                    return;
+                }
+            }
+            case NEW, FAILED, UNFINISHED -> {
+            }
+        }
+
+        Instant nextVisit = switch (visit) {
+            case UNFINISHED -> now;
+            case NOT_FOUND -> now.plus(settings.maxInterval());
+            default -> now.plus(interval);
+        };
+        Listing rescheduled = new Listing(url, interval, nextVisit, notFound);
+        listings.put(url, rescheduled);
+        queue.add(rescheduled);
+    }
+
+    /**
+     * @return when the next listing is due, or empty if none is queued
+     */
+    Optional<Instant> nextVisit() {
+        return Optional.ofNullable(queue.peek()).map(Listing::nextVisit);
+    }
+
+    /**
+     * @return the revisit interval of a followed listing
+     */
+    Optional<Duration> interval(String url) {
+        return Optional.ofNullable(listings.get(url)).map(Listing::interval);
+    }
+
+    /**
+     * @return the number of listings followed
+     */
+    int size() {
+        return listings.size();
+    }
+
+    private Duration initialInterval(List<MachineStore.Observation> history) {
+        if (history.size() < 2) {
+            return settings.initialInterval();
+        }
+
+        Duration span = Duration.between(history.getFirst().observedAt(), history.getLast().observedAt());
+        return clamp(span.dividedBy(history.size() - 1).dividedBy(2));
+    }
+
+    private Duration clamp(Duration interval) {
+        if (interval.compareTo(settings.minInterval()) < 0) {
+            return settings.minInterval();
+        }
+
+        return interval.compareTo(settings.maxInterval()) > 0 ? settings.maxInterval() : interval;
+    }
+
+    /**
+     * Outcome of the visit of a listing.
+     */
+    enum Visit {
+        /** First scrape of a listing unknown to the store, or scraped without the store. */
+        NEW,
+        CHANGED,
+        UNCHANGED,
+        /** The website says the listing is gone. */
+        NOT_FOUND,
+        FAILED,
+        /** The cycle stopped before the listing was scraped. */
+        UNFINISHED
+    }
+
+    private record Listing(String url, Duration interval, Instant nextVisit, int notFound) {
+        private Listing(String url, Duration interval, Instant nextVisit) {
+            this(url, interval, nextVisit, 0);
+        }
+    }
+
+    /**
+     * Bounds of the revisit intervals.
+     *
+     * @param minInterval     shortest interval, for the most volatile listings
+     * @param initialInterval interval of listings without history
+     * @param maxInterval     longest interval, also used for listings reported gone
+     * @param maxNotFound     consecutive not-found reports after which a listing is dropped
+     */
+    record Settings(Duration minInterval, Duration initialInterval, Duration maxInterval, int maxNotFound) {
+    }
+}
@@ -0,0 +1,329 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import br.com.oystr.agromachinery.scraping.bot.Bot;
+import br.com.oystr.agromachinery.scraping.bot.BotFactory;
+import br.com.oystr.agromachinery.scraping.exceptions.HostThrottledException;
+import br.com.oystr.agromachinery.scraping.exceptions.MachineNotFoundException;
+import br.com.oystr.agromachinery.scraping.exceptions.PageNotModifiedException;
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.PhotoMode;
+import br.com.oystr.agromachinery.scraping.util.ImageConverter;
+import br.com.oystr.agromachinery.scraping.util.JsoupWrapper;
+import br.com.oystr.agromachinery.scraping.util.PageSnapshotStore;
+import br.com.oystr.agromachinery.scraping.util.RawPage;
+import br.com.oystr.agromachinery.scraping.util.ScrapeMetrics;
+import org.jsoup.HttpStatusException;
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Scraping flow split into pipeline stages, used by {@link ScraperService} in
+ * {@link ExecutionMode#PIPELINE} mode.
+ * <p>
+ * Each URL goes through <em>page fetch → parse/extract → photo fetch → emit</em>.
+ * Every stage has its own executor and bounded queue, so I/O-bound downloads and
+ * CPU-bound parsing can be sized independently and a slow photo CDN only backs up
+ * the photo stage. A full queue blocks the previous stage, which propagates
+ * backpressure up to the submission of URLs.
+ * </p>
+ * <p>
+ * Page downloads wait for a slot of the {@link HostRateLimiter} and report their outcome
+ * to it. URLs are fetched in submission order, so unlike the {@link PolitenessScheduler}
+ * used by the other modes, throttled URLs are not retried.
+ * </p>
+ * <p>
+ * The outcome of every URL is reported to a {@link ScrapeProgress}: started when it enters the
+ * fetch stage, succeeded once its machine was handed to the consumer, not found when the website
+ * says the listing is gone, failed otherwise.
+ * </p>
+ * <p>
+ * The time each task waits in a stage queue is recorded in {@link ScrapeMetrics}, tagged by
+ * stage, which tells an undersized stage from a slow website.
+ * </p>
+ */
+class ScrapePipeline implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ScrapePipeline.class);
+
+    private final BotFactory botFactory;
+    private final JsoupWrapper jsoupWrapper;
+    private final ImageConverter imageConverter;
+    private final PageSnapshotStore pageSnapshotStore;
+    private final Function<String, Semaphore> hostPermits;
+    private final HostRateLimiter rateLimiter;
+    private final PhotoMode photoMode;
+    private final Consumer<Machine> consumer;
+    private final ScrapeProgress progress;
+    private final ScrapeMetrics metrics;
+
+    private final ThreadPoolExecutor fetchStage;
+    private final ThreadPoolExecutor parseStage;
+    private final ThreadPoolExecutor photoStage;
+
+    private long pending;
+
+    ScrapePipeline(BotFactory botFactory,
+                   JsoupWrapper jsoupWrapper,
+                   ImageConverter imageConverter,
+                   PageSnapshotStore pageSnapshotStore,
+                   Function<String, Semaphore> hostPermits,
+                   HostRateLimiter rateLimiter,
+                   PhotoMode photoMode,
+                   Consumer<Machine> consumer,
+                   ScrapeProgress progress,
+                   ScrapeMetrics metrics,
+                   Settings settings) {
+        this.botFactory = botFactory;
+        this.jsoupWrapper = jsoupWrapper;
+        this.imageConverter = imageConverter;
+        this.pageSnapshotStore = pageSnapshotStore;
+        this.hostPermits = hostPermits;
+        this.rateLimiter = rateLimiter;
+        this.photoMode = photoMode;
+        this.consumer = consumer;
+        this.progress = progress;
+        this.metrics = metrics;
+
+        this.fetchStage = stage(settings.fetchConcurrency(), settings.queueCapacity(), Thread.ofVirtual().name("fetch-", 0).factory());
+        this.parseStage = stage(settings.parseThreads(), settings.queueCapacity(), Thread.ofPlatform().name("parse-", 0).factory());
+        this.photoStage = stage(settings.photoConcurrency(), settings.queueCapacity(), Thread.ofVirtual().name("photo-", 0).factory());
+    }
+
+    /**
+     * Queues a URL in the fetch stage, blocking while the stage queue is full.
+     *
+     * @param id position of the URL in the batch, reported to the {@link ScrapeProgress}
+     */
+    void submit(String url, long id) {
+        started();
+        progress.started(id);
+        execute(fetchStage, "fetch", () -> fetch(url, id));
+    }
+
+    /**
+     * Waits until every submitted URL went through the pipeline.
+     *
+     * @return {@code false} if the timeout elapsed first
+     */
+    synchronized boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (pending > 0) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the number of tasks waiting in each stage queue, in pipeline order
+     */
+    Map<String, Integer> queueDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        depths.put("fetch", fetchStage.getQueue().size());
+        depths.put("parse", parseStage.getQueue().size());
+        depths.put("photo", photoStage.getQueue().size());
+
+        return depths;
+    }
+
+    @Override
+    public void close() {
+        List.of(fetchStage, parseStage, photoStage).forEach(ThreadPoolExecutor::shutdownNow);
+    }
+
+    private void fetch(String url, long id) {
+        Bot robot = botFactory.getRobot(url).orElse(null);
+        if (robot == null) {
+            log.warn("No scraper found for URL: {}", url);
+            fail(url, id);
+            return;
+        }
+
+        Semaphore permits = hostPermits.apply(robot.domain());
+        try {
+            permits.acquire();
+            RawPage page;
+            try {
+                page = download(robot, url);
+            } finally {
+                permits.release();
+            }
+
+            execute(parseStage, "parse", () -> parse(robot, page, id));
+        } catch (PageNotModifiedException e) {
+            log.debug("Reusing snapshot of unchanged page: {}", url);
+            reuseSnapshot(url, id);
+        } catch (HostThrottledException e) {
+            log.warn("{} throttled by HTTP {}, now at {} requests/s. Skipping URL: {}",
+                robot.domain(), e.getStatusCode(), "%.2f".formatted(rateLimiter.rate(robot.domain())), url);
+            fail(url, id);
+        } catch (HttpStatusException e) {
+            if (e.getStatusCode() == 404) {
+                log.warn("Machine not found on URL: {}", url);
+                notFound(url, id);
+            } else {
+                log.error("Error while processing URL {}", url, e);
+                fail(url, id);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(url, id);
+        } catch (Exception e) {
+            log.error("Error while processing URL {}", url, e);
+            fail(url, id);
+        }
+    }
+
+    private void reuseSnapshot(String url, long id) {
+        try {
+            pageSnapshotStore.find(url)
+                .map(PageSnapshotStore.Snapshot::machine)
+                .ifPresentOrElse(machine -> execute(photoStage, "photo", () -> photo(machine, id)), () -> fail(url, id));
+        } catch (RuntimeException e) {
+            // the photo stage rejects tasks once the pipeline is shut down
+            log.error("Error while processing URL {}", url, e);
+            fail(url, id);
+        }
+    }
+
+    private RawPage download(Bot robot, String url) throws IOException, InterruptedException {
+        long start = rateLimiter.acquire(robot.domain());
+        try {
+            RawPage page = jsoupWrapper.download(url);
+            rateLimiter.onResponse(robot.domain(), start);
+
+            return page;
+        } catch (HostThrottledException e) {
+            rateLimiter.onThrottled(robot.domain(), start, e.getRetryAfter().orElse(null));
+            throw e;
+        } catch (PageNotModifiedException e) {
+            rateLimiter.onResponse(robot.domain(), start);
+            throw e;
+        }
+    }
+
+    private void parse(Bot robot, RawPage page, long id) {
+        try {
+            Document document = jsoupWrapper.parse(page, robot.streamTargets());
+            Machine machine = robot.extract(document, page.url());
+            pageSnapshotStore.commit(page.url(), machine);
+
+            execute(photoStage, "photo", () -> photo(machine, id));
+        } catch (MachineNotFoundException e) {
+            log.warn(e.getMessage());
+            notFound(page.url(), id);
+        } catch (Exception e) {
+            log.error("Error while processing URL {}", page.url(), e);
+            fail(page.url(), id);
+        }
+    }
+
+    private void photo(Machine machine, long id) {
+        boolean succeeded = false;
+        try {
+            Machine withPhoto = machine.withPhotoPayload(imageConverter.photoPayload(machine.photo(), photoMode));
+            log.debug("Fetched machine: {}", withPhoto);
+            consumer.accept(withPhoto);
+            succeeded = true;
+        } catch (RuntimeException e) {
+            log.error("Consumer failed to handle machine from URL {}", machine.url(), e);
+        } finally {
+            if (succeeded) {
+                progress.succeeded(id);
+            } else if (!Thread.currentThread().isInterrupted()) {
+                progress.failed(id);
+            }
+            finished();
+        }
+    }
+
+    /**
+     * Ends a URL that yielded no machine. URLs interrupted by the shutdown of the pipeline are
+     * not reported as failed, so a resumed batch fetches them again.
+     */
+    private void fail(String url, long id) {
+        pageSnapshotStore.discard(url);
+        if (!Thread.currentThread().isInterrupted()) {
+            progress.failed(id);
+        }
+        finished();
+    }
+
+    /**
+     * Ends a URL whose listing is gone. Unlike a failure, it is reported even when interrupted,
+     * since the website already answered.
+     */
+    private void notFound(String url, long id) {
+        pageSnapshotStore.discard(url);
+        progress.notFound(id);
+        finished();
+    }
+
+    private synchronized void started() {
+        pending++;
+    }
+
+    private synchronized void finished() {
+        if (--pending == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Queues a task in a stage, recording how long it waits there.
+     */
+    private void execute(ThreadPoolExecutor stage, String name, Runnable task) {
+        long queued = System.nanoTime();
+        stage.execute(() -> {
+            metrics.recordQueueWait(name, queued);
+            task.run();
+        });
+    }
+
+    private static ThreadPoolExecutor stage(int threads, int queueCapacity, ThreadFactory threadFactory) {
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), threadFactory, ScrapePipeline::blockUntilQueued);
+    }
+
+    private static void blockUntilQueued(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Pipeline stage is shut down");
+        }
+
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for a pipeline stage", e);
+        }
+    }
+
+    /**
+     * Sizing of the pipeline stages.
+     *
+     * @param fetchConcurrency maximum pages downloaded at the same time
+     * @param parseThreads     platform threads parsing and extracting pages
+     * @param photoConcurrency maximum photos downloaded at the same time
+     * @param queueCapacity    capacity of each stage queue
+     */
+    record Settings(int fetchConcurrency, int parseThreads, int photoConcurrency, int queueCapacity) {
+    }
+}
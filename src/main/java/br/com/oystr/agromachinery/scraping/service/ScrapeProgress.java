@@ -0,0 +1,45 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+/**
+ * Receives how far each URL of a batch got, identified by its position in the batch.
+ * <p>
+ * Called from the worker threads of {@link ScraperService} and {@link ScrapePipeline}, so
+ * implementations must be thread-safe. A URL whose worker was interrupted, e.g. by the
+ * shutdown at {@code scraper.await-termination-seconds}, is neither reported as succeeded nor
+ * as failed.
+ * </p>
+ */
+interface ScrapeProgress {
+
+    /**
+     * Ignores every report, for batches that are not tracked.
+     */
+    ScrapeProgress NONE = new ScrapeProgress() {
+    };
+
+    /**
+     * Reports that the URL was handed to a worker.
+     */
+    default void started(long id) {
+    }
+
+    /**
+     * Reports that the machine of the URL was fetched and handed to the consumer.
+     */
+    default void succeeded(long id) {
+    }
+
+    /**
+     * Reports that the URL could not be scraped and will not be tried again in this batch.
+     */
+    default void failed(long id) {
+    }
+
+    /**
+     * Reports that the website says the listing is gone, e.g. sold. It is a failure for
+     * implementations that do not tell it apart.
+     */
+    default void notFound(long id) {
+        failed(id);
+    }
+}
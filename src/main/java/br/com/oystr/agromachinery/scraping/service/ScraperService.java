@@ -1,32 +1,93 @@
 package br.com.oystr.agromachinery.scraping.service;
 
 import br.com.oystr.agromachinery.scraping.AgromachineryScrapingApplication;
+import br.com.oystr.agromachinery.scraping.bot.Bot;
 import br.com.oystr.agromachinery.scraping.bot.BotFactory;
+import br.com.oystr.agromachinery.scraping.exceptions.HostThrottledException;
+import br.com.oystr.agromachinery.scraping.exceptions.MachineNotFoundException;
+import br.com.oystr.agromachinery.scraping.exceptions.PageNotModifiedException;
 import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.PhotoMode;
+import br.com.oystr.agromachinery.scraping.util.ImageConverter;
+import br.com.oystr.agromachinery.scraping.util.JsoupWrapper;
+import br.com.oystr.agromachinery.scraping.util.PageSnapshotStore;
+import br.com.oystr.agromachinery.scraping.util.ScrapeMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * Service responsible for orchestrating the scraping of machinery listings
  * from various URLs using configured scraper bots.
  * <p>
- * Each URL is processed concurrently using a thread pool. The service ensures
- * proper shutdown of the executor and logs the results of each scraping task.
+ * Each URL is processed concurrently using either a fixed thread pool, one
+ * virtual thread per URL, or a staged {@link ScrapePipeline} (see {@link ExecutionMode}). Requests to the same
+ * host, keyed by {@link Bot#domain()}, are capped in concurrency and paced by a
+ * {@link HostRateLimiter} that adapts each host's rate to its latency and to
+ * {@code 429}/{@code 503} responses. The service ensures proper shutdown of the
+ * executor and logs the results of each scraping task.
+ * </p>
+ *
+ * <p>
+ * In {@code FIXED} and {@code VIRTUAL} modes URLs are handed to the workers by a
+ * {@link PolitenessScheduler}, which interleaves the hosts so a throttled website
+ * does not hold up the others. URLs throttled by their website are retried later,
+ * after its {@code Retry-After} delay.
+ * </p>
+ *
+ * <p>
+ * With {@code scraper.frontier.enabled}, the batch is tracked in a disk-backed
+ * {@link CrawlFrontier}: a run stopped by a crash or by the termination timeout
+ * is resumed by the next one, which only scrapes the URLs left unfinished. URLs
+ * are read from the frontier a window at a time, so huge batches are never fully
+ * loaded on the heap.
+ * </p>
+ *
+ * <p>
+ * URLs are normalized and deduplicated by a {@link UrlDeduplicator} before being
+ * scheduled, with a Bloom filter of fixed size that can be persisted to skip the
+ * URLs already scraped by previous runs.
+ * </p>
+ *
+ * <p>
+ * Pages that did not change since the last run are not parsed again: the
+ * machine kept in the {@link PageSnapshotStore} is reused instead. Photos are
+ * retrieved according to {@code scraper.photo-mode} (see {@link PhotoMode}).
+ * </p>
+ *
+ * <p>
+ * In {@code FIXED} and {@code VIRTUAL} modes, the time each URL waits for a worker and the
+ * time its bot takes to scrape it are recorded in {@link ScrapeMetrics}.
  * </p>
  */
 @Service
 public class ScraperService {
 
     private final BotFactory botFactory;
+    private final JsoupWrapper jsoupWrapper;
+    private final PageSnapshotStore pageSnapshotStore;
+    private final ImageConverter imageConverter;
+    private final ScrapeMetrics metrics;
 
     @Value("${scraper.threads-count}")
     private int threadsCount;
@@ -34,20 +95,111 @@ public class ScraperService {
     @Value("${scraper.await-termination-seconds}")
     private int awaitTerminationSeconds;
 
+    @Value("${scraper.execution-mode}")
+    private ExecutionMode executionMode;
+
+    @Value("${scraper.max-concurrency-per-host}")
+    private int maxConcurrencyPerHost;
+
+    @Value("${scraper.photo-mode}")
+    private PhotoMode photoMode;
+
+    @Value("${scraper.pipeline.fetch-concurrency}")
+    private int pipelineFetchConcurrency;
+
+    @Value("${scraper.pipeline.parse-threads}")
+    private int pipelineParseThreads;
+
+    @Value("${scraper.pipeline.photo-concurrency}")
+    private int pipelinePhotoConcurrency;
+
+    @Value("${scraper.pipeline.queue-capacity}")
+    private int pipelineQueueCapacity;
+
+    @Value("${scraper.pipeline.stats-interval-seconds}")
+    private int pipelineStatsIntervalSeconds;
+
+    @Value("${scraper.rate-limit.enabled}")
+    private boolean rateLimitEnabled;
+
+    @Value("${scraper.rate-limit.initial-requests-per-second}")
+    private double rateLimitInitialRate;
+
+    @Value("${scraper.rate-limit.min-requests-per-second}")
+    private double rateLimitMinRate;
+
+    @Value("${scraper.rate-limit.max-requests-per-second}")
+    private double rateLimitMaxRate;
+
+    @Value("${scraper.rate-limit.increase-per-success}")
+    private double rateLimitIncrease;
+
+    @Value("${scraper.rate-limit.decrease-factor}")
+    private double rateLimitDecreaseFactor;
+
+    @Value("${scraper.rate-limit.target-latency-ms}")
+    private long rateLimitTargetLatencyMs;
+
+    @Value("${scraper.rate-limit.burst}")
+    private int rateLimitBurst;
+
+    @Value("${scraper.rate-limit.max-throttled-retries}")
+    private int maxThrottledRetries;
+
+    @Value("${scraper.frontier.enabled}")
+    private boolean frontierEnabled;
+
+    @Value("${scraper.frontier.directory}")
+    private Path frontierDirectory;
+
+    @Value("${scraper.frontier.window}")
+    private int frontierWindow;
+
+    @Value("${scraper.frontier.checkpoint-interval-seconds}")
+    private long frontierCheckpointIntervalSeconds;
+
+    @Value("${scraper.dedup.enabled}")
+    private boolean dedupEnabled;
+
+    @Value("${scraper.dedup.expected-urls}")
+    private long dedupExpectedUrls;
+
+    @Value("${scraper.dedup.false-positive-rate}")
+    private double dedupFalsePositiveRate;
+
+    @Value("${scraper.dedup.snapshot-file}")
+    private String dedupSnapshotFile;
+
+    private static final BooleanSupplier ALWAYS_READY = () -> true;
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    private HostRateLimiter rateLimiter;
+
+    private UrlDeduplicator urlDeduplicator;
+
     private static final Logger log = LoggerFactory.getLogger(AgromachineryScrapingApplication.class);
 
-    public ScraperService(BotFactory botFactory) {
+    public ScraperService(BotFactory botFactory,
+                          JsoupWrapper jsoupWrapper,
+                          PageSnapshotStore pageSnapshotStore,
+                          ImageConverter imageConverter,
+                          ScrapeMetrics metrics) {
         this.botFactory = botFactory;
+        this.jsoupWrapper = jsoupWrapper;
+        this.pageSnapshotStore = pageSnapshotStore;
+        this.imageConverter = imageConverter;
+        this.metrics = metrics;
     }
 
     /**
-     * Starts scraping machinery data from the provided list of URLs.
+     * Starts scraping machinery data from the provided list of URLs and collects
+     * the results.
      *
      * <p>
-     * Each URL is processed in a separate thread from a fixed-size thread pool.
-     * The service will wait for a maximum of {@code awaitTerminationSeconds} for
-     * all tasks to complete before forcing shutdown. Individual scraping results
-     * are logged; if a scraper is not found for a URL, a warning is logged.
+     * This is a convenience over {@link #scrape(Iterable, Consumer)} that keeps every
+     * fetched machine in memory until the whole batch is done. Prefer the streaming
+     * variant for large batches.
      * </p>
      *
      * @param urls List of URLs to scrape machinery data from
@@ -55,41 +207,436 @@ public class ScraperService {
      *         fetched machines. URLs that could not be scraped (e.g., scraper
      *         not found or fetch error) are not included in the list.
      */
-    public List<Machine> scrape(List<String> urls) {
+    public List<Machine> scrape(Iterable<String> urls) {
         List<Machine> machines = Collections.synchronizedList(new ArrayList<>());
+        scrape(urls, machines::add);
+
+        return new ArrayList<>(machines);
+    }
+
+    /**
+     * Starts scraping machinery data from the provided URLs, handing each machine
+     * to the given consumer as soon as it is fetched.
+     *
+     * <p>
+     * Each URL is processed in a separate thread, either from a fixed-size thread
+     * pool or on its own virtual thread, depending on {@code scraper.execution-mode}.
+     * At most {@code scraper.max-concurrency-per-host} URLs of the same host are
+     * fetched at the same time, at the rate allowed by {@code scraper.rate-limit}, with
+     * the URLs of different hosts interleaved. The service will wait for a maximum of
+     * {@code awaitTerminationSeconds} for all tasks to complete before forcing shutdown.
+     * Individual scraping results are logged; if a scraper is not found for a URL, a
+     * warning is logged.
+     * </p>
+     *
+     * <p>
+     * The consumer is called from the worker threads, so it must be thread-safe.
+     * A slow consumer holds its worker, which naturally throttles the scraping
+     * instead of buffering results. Machines are not retained by the service.
+     * </p>
+     *
+     * <p>
+     * With {@code scraper.frontier.enabled}, the URLs are first written to the crawl
+     * frontier. If the previous batch stopped with unfinished URLs, it is resumed instead
+     * and the given URLs are ignored.
+     * </p>
+     *
+     * <p>
+     * URLs are normalized and, with {@code scraper.dedup.enabled}, duplicates are skipped
+     * before reaching the workers. With {@code scraper.dedup.snapshot-file}, URLs that were
+     * scraped or found gone are also skipped by later batches, including after a restart.
+     * </p>
+     *
+     * <p>
+     * The URLs are iterated lazily, as workers free up, so a streaming
+     * {@link br.com.oystr.agromachinery.scraping.util.UrlSource} is never loaded in memory at once.
+     * When they are {@link ListingDiscovery.Listings} still being discovered, the URLs already
+     * read are handed out to the workers while the next ones are found. This overlap does not
+     * apply with the crawl frontier, which is sealed before handing out any URL: the whole
+     * discovery is then written to it first.
+     * </p>
+     *
+     * @param urls     URLs to scrape machinery data from, iterated once
+     * @param consumer Receives every successfully fetched {@link Machine}
+     * @throws UncheckedIOException if the crawl frontier cannot be read or written
+     */
+    public void scrape(Iterable<String> urls, Consumer<Machine> consumer) {
+        UrlDeduplicator.Batch batch = urlDeduplicator().newBatch();
+        if (!frontierEnabled) {
+            scrape(batch.tracked(numbered(batch.filter(urls).iterator())), inputReady(urls), batch, photoMode,
+                awaitTerminationSeconds, consumer);
+            batch.commit();
+            logDuplicates(batch);
+            return;
+        }
+
+        if (urls instanceof ListingDiscovery.Listings listings && listings.crawling()) {
+            log.warn("Crawl frontier enabled: unless a previous batch is resumed, the listing discovery completes"
+                + " and is written to the frontier before scraping starts, instead of overlapping with it");
+        }
+        try (CrawlFrontier frontier = CrawlFrontier.open(frontierDirectory, Duration.ofSeconds(frontierCheckpointIntervalSeconds),
+            batch.filter(urls));
+             CrawlFrontier.Cursor unfinished = frontier.unfinished()) {
+            if (frontier.resumed()) {
+                log.info("Resuming crawl frontier in {}: {} of {} URLs left. The given URLs are ignored until it completes.",
+                    frontierDirectory, frontier.remaining(), frontier.size());
+            } else {
+                logDuplicates(batch);
+            }
+
+            scrape(batch.tracked(unfinished), batch.reportingTo(frontier), consumer);
+            batch.commit();
+
+            if (frontier.remaining() > 0) {
+                log.warn("Crawl frontier stopped with {} of {} URLs left ({} done, {} failed). Run again to resume.",
+                    frontier.remaining(), frontier.size(), frontier.done(), frontier.failed());
+            } else {
+                log.info("Crawl frontier completed: {} done, {} failed", frontier.done(), frontier.failed());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to use the crawl frontier in " + frontierDirectory, e);
+        }
+    }
+
+    /**
+     * Scrapes the listings due in a cycle of the {@link RecrawlDaemon}.
+     * <p>
+     * Unlike {@link #scrape(Iterable, Consumer)}, the URLs are neither deduplicated against
+     * previous batches nor tracked in the crawl frontier, since they are scraped again on
+     * purpose and the daemon schedule already holds each listing once.
+     * </p>
+     *
+     * @param urls           normalized URLs of the cycle, whose positions are the ids reported to the progress
+     * @param timeoutSeconds how long the cycle may take, instead of {@code scraper.await-termination-seconds}
+     * @param progress       receives the outcome of every URL
+     * @param consumer       receives every successfully fetched {@link Machine}
+     * @return whether every URL was processed before the timeout
+     */
+    boolean recrawl(List<String> urls, long timeoutSeconds, ScrapeProgress progress, Consumer<Machine> consumer) {
+        return scrape(numbered(urls.iterator()), ALWAYS_READY, progress, photoMode, timeoutSeconds, consumer);
+    }
+
+    /**
+     * Scrapes a batch submitted while other batches may be running, e.g. a job of the HTTP API.
+     * <p>
+     * The URLs are normalized and deduplicated within the batch only: they are neither skipped
+     * because a previous batch saw them nor tracked in the crawl frontier, which hold a single
+     * batch. Concurrent batches share the bots, the connection pools and the per-host rate
+     * and concurrency limits, while each one schedules its own workers.
+     * </p>
+     *
+     * @param urls       URLs to scrape machinery data from, iterated once
+     * @param withPhotos whether photos are retrieved according to {@code scraper.photo-mode}, or
+     *                   not downloaded at all
+     * @param consumer   receives every successfully fetched {@link Machine}, from the worker threads
+     * @return whether every URL was processed before the termination timeout
+     */
+    public boolean scrapeBatch(Iterable<String> urls, boolean withPhotos, Consumer<Machine> consumer) {
+        UrlDeduplicator.Batch batch = urlDeduplicator().newIsolatedBatch();
+        boolean completed = scrape(numbered(batch.filter(urls).iterator()), ALWAYS_READY, ScrapeProgress.NONE,
+            withPhotos ? photoMode : PhotoMode.SKIP, awaitTerminationSeconds, consumer);
+        logDuplicates(batch);
+
+        return completed;
+    }
 
-        try (ExecutorService executorService = Executors.newFixedThreadPool(threadsCount)) {
-            for (String url : urls) {
-                executorService.submit(() ->
-                    botFactory.getRobot(url).ifPresentOrElse(
-                        robot -> {
-                            Machine machine = robot.fetch(url);
-                            if (machine != null) {
-                                machines.add(machine);
-                                log.info("Fetched machine: {}", machine);
-                            }
-                        },
-                        () -> log.warn("No scraper found for URL: {}", url)
-                    )
-                );
+    private static void logDuplicates(UrlDeduplicator.Batch batch) {
+        if (batch.duplicates() > 0) {
+            log.info("Skipped {} duplicate URLs, {} distinct URLs scheduled", batch.duplicates(), batch.accepted());
+        }
+    }
+
+    /**
+     * Numbers the URLs in iteration order, as the frontier does when it is disabled.
+     */
+    private static Iterator<CrawlFrontier.Entry> numbered(Iterator<String> urls) {
+        return new Iterator<>() {
+            private long nextId;
+
+            @Override
+            public boolean hasNext() {
+                return urls.hasNext();
             }
 
-            executorService.shutdown();
-            log.info("Executor service shutdown initiated. Waiting up to {} seconds for tasks to complete...", awaitTerminationSeconds);
+            @Override
+            public CrawlFrontier.Entry next() {
+                return new CrawlFrontier.Entry(nextId++, urls.next());
+            }
+        };
+    }
+
+    /**
+     * Tells whether reading the next URL would block, for inputs produced while the batch runs.
+     */
+    private static BooleanSupplier inputReady(Iterable<String> urls) {
+        return urls instanceof ListingDiscovery.Listings listings ? listings::ready : ALWAYS_READY;
+    }
+
+    /**
+     * @return whether every URL was processed before the termination timeout
+     */
+    private boolean scrape(Iterator<CrawlFrontier.Entry> urls, ScrapeProgress progress, Consumer<Machine> consumer) {
+        return scrape(urls, ALWAYS_READY, progress, photoMode, awaitTerminationSeconds, consumer);
+    }
+
+    /**
+     * @param inputReady     whether the next URL can be read without blocking; while it cannot, the
+     *                       URLs already queued are handed out instead of waiting for the input
+     * @param photoMode      how the photos of this batch are retrieved
+     * @param timeoutSeconds how long the batch may take before the unfinished URLs are given up
+     * @return whether every URL was processed before the timeout
+     */
+    private boolean scrape(Iterator<CrawlFrontier.Entry> urls, BooleanSupplier inputReady, ScrapeProgress progress,
+                           PhotoMode photoMode, long timeoutSeconds, Consumer<Machine> consumer) {
+        if (executionMode == ExecutionMode.PIPELINE) {
+            return scrapePipelined(urls, progress, photoMode, timeoutSeconds, consumer);
+        }
+
+        PolitenessScheduler scheduler = new PolitenessScheduler(rateLimiter(), this::hostPermits,
+            executionMode == ExecutionMode.FIXED ? threadsCount : Integer.MAX_VALUE);
+
+        try (ExecutorService executorService = createExecutorService()) {
+            log.info("Scheduling URLs per host. Waiting up to {} seconds for them to complete...", timeoutSeconds);
 
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
             try {
-                if (!executorService.awaitTermination(awaitTerminationSeconds, TimeUnit.SECONDS)) {
-                    log.warn("Executor service did not terminate within {} seconds. Forcing shutdown now.", awaitTerminationSeconds);
-                    executorService.shutdownNow();
-                } else {
-                    log.info("Executor service terminated gracefully");
+                PolitenessScheduler.Task task;
+                while ((task = nextTask(scheduler, urls, inputReady, progress, deadline)) != null) {
+                    PolitenessScheduler.Task scheduled = task;
+                    progress.started(scheduled.id());
+                    long queued = System.nanoTime();
+                    executorService.submit(() -> process(scheduler, scheduled, progress, photoMode, consumer, queued));
                 }
+                log.info("Executor service terminated gracefully");
+                return true;
+            } catch (TimeoutException e) {
+                log.warn("Scraping did not complete within {} seconds ({}). Forcing shutdown now.", timeoutSeconds, e.getMessage());
+                executorService.shutdownNow();
             } catch (InterruptedException e) {
-                log.error("Shutdown interrupted. Forcing executor service shutdown now.", e);
+                log.error("Scheduling interrupted. Forcing executor service shutdown now.", e);
                 executorService.shutdownNow();
+                Thread.currentThread().interrupt();
             }
+        } finally {
+            // Runs once the executor is closed, so no worker can report back anymore
+            scheduler.releaseUnfinished();
         }
 
-        return new ArrayList<>(machines);
+        return false;
+    }
+
+    /**
+     * Tops up the scheduler to {@code scraper.frontier.window} queued URLs, then waits for the
+     * next URL to fetch. Reading the URLs a window at a time keeps the heap bounded however
+     * large the batch is, while still giving the scheduler several hosts to interleave. The
+     * input is only waited for once the scheduler has no URL left to hand out.
+     */
+    private PolitenessScheduler.Task nextTask(PolitenessScheduler scheduler,
+                                              Iterator<CrawlFrontier.Entry> urls,
+                                              BooleanSupplier inputReady,
+                                              ScrapeProgress progress,
+                                              long deadline) throws TimeoutException, InterruptedException {
+        int queued;
+        while ((queued = scheduler.queued()) < frontierWindow && (queued == 0 || inputReady.getAsBoolean()) && urls.hasNext()) {
+            CrawlFrontier.Entry entry = urls.next();
+            Optional<Bot> robot = botFactory.getRobot(entry.url());
+            if (robot.isPresent()) {
+                scheduler.add(robot.get(), entry.url(), entry.id());
+            } else {
+                log.warn("No scraper found for URL: {}", entry.url());
+                progress.failed(entry.id());
+            }
+        }
+
+        return scheduler.next(deadline);
+    }
+
+    private boolean scrapePipelined(Iterator<CrawlFrontier.Entry> urls, ScrapeProgress progress, PhotoMode photoMode,
+                                    long timeoutSeconds, Consumer<Machine> consumer) {
+        ScrapePipeline.Settings settings = new ScrapePipeline.Settings(
+            pipelineFetchConcurrency,
+            pipelineParseThreads > 0 ? pipelineParseThreads : Runtime.getRuntime().availableProcessors(),
+            pipelinePhotoConcurrency,
+            pipelineQueueCapacity
+        );
+
+        try (ScrapePipeline pipeline = new ScrapePipeline(botFactory, jsoupWrapper, imageConverter, pageSnapshotStore,
+            this::hostPermits, rateLimiter(), photoMode, consumer, progress, metrics, settings)) {
+            urls.forEachRemaining(entry -> pipeline.submit(entry.url(), entry.id()));
+            log.info("All URLs queued in the pipeline. Waiting up to {} seconds for them to complete...", timeoutSeconds);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            boolean completed = false;
+            try {
+                long remainingSeconds;
+                while (!completed && (remainingSeconds = TimeUnit.NANOSECONDS.toSeconds(deadline - System.nanoTime())) > 0) {
+                    completed = pipeline.awaitCompletion(Math.min(pipelineStatsIntervalSeconds, remainingSeconds), TimeUnit.SECONDS);
+                    if (!completed) {
+                        log.info("Pipeline queue depths: {}", pipeline.queueDepths());
+                    }
+                }
+
+                if (completed) {
+                    log.info("Pipeline completed gracefully");
+                } else {
+                    log.warn("Pipeline did not complete within {} seconds. Forcing shutdown now.", timeoutSeconds);
+                }
+            } catch (InterruptedException e) {
+                log.error("Pipeline interrupted. Forcing shutdown now.", e);
+                Thread.currentThread().interrupt();
+            }
+
+            return completed;
+        }
+    }
+
+    private ExecutorService createExecutorService() {
+        return switch (executionMode) {
+            case FIXED -> Executors.newFixedThreadPool(threadsCount);
+            case VIRTUAL, PIPELINE -> Executors.newVirtualThreadPerTaskExecutor();
+        };
+    }
+
+    /**
+     * The rate limiter is kept across calls, so the rates learned for each host carry over to
+     * the next batch.
+     *
+     * @return the request rate of each host, shared by every batch and by the {@link ListingDiscovery}
+     */
+    synchronized HostRateLimiter rateLimiter() {
+        if (rateLimiter == null) {
+            rateLimiter = new HostRateLimiter(new HostRateLimiter.Settings(
+                rateLimitEnabled,
+                rateLimitInitialRate,
+                rateLimitMinRate,
+                rateLimitMaxRate,
+                rateLimitIncrease,
+                rateLimitDecreaseFactor,
+                Duration.ofMillis(rateLimitTargetLatencyMs),
+                rateLimitBurst
+            ));
+        }
+
+        return rateLimiter;
+    }
+
+    /**
+     * The deduplicator is kept across calls, so with a snapshot file the URLs of a batch are
+     * skipped by the next ones too.
+     */
+    private synchronized UrlDeduplicator urlDeduplicator() {
+        if (urlDeduplicator == null) {
+            urlDeduplicator = new UrlDeduplicator(new UrlDeduplicator.Settings(
+                dedupEnabled,
+                dedupExpectedUrls,
+                dedupFalsePositiveRate,
+                dedupSnapshotFile.isBlank() ? null : Path.of(dedupSnapshotFile)
+            ));
+        }
+
+        return urlDeduplicator;
+    }
+
+    /**
+     * @return the permits limiting the requests in flight to a host to {@code scraper.max-concurrency-per-host},
+     * shared by every batch, whatever its execution mode, and by the {@link ListingDiscovery}
+     */
+    Semaphore hostPermits(String domain) {
+        return hostPermits.computeIfAbsent(domain, d -> new Semaphore(maxConcurrencyPerHost, true));
+    }
+
+    /**
+     * @return whether the consumer handled the machine without failing
+     */
+    private boolean emit(Consumer<Machine> consumer, Machine machine) {
+        try {
+            consumer.accept(machine);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Consumer failed to handle machine from URL {}", machine.url(), e);
+            return false;
+        }
+    }
+
+    private void process(PolitenessScheduler scheduler, PolitenessScheduler.Task task, ScrapeProgress progress,
+                         PhotoMode photoMode, Consumer<Machine> consumer, long queuedNanos) {
+        metrics.recordQueueWait("executor", queuedNanos);
+        Bot robot = task.robot();
+        String url = task.url();
+        long start = rateLimiter.now();
+        long scrapeStart = System.nanoTime();
+        boolean retry = false;
+        boolean succeeded = false;
+        boolean notFound = false;
+        try {
+            Machine machine = fetchMachine(robot, url, start, photoMode);
+            metrics.record(ScrapeMetrics.Stage.SCRAPE, robot.domain(), machine != null ? ScrapeMetrics.SUCCESS : "error", scrapeStart);
+            if (machine != null) {
+                log.debug("Fetched machine: {}", machine);
+                succeeded = emit(consumer, machine);
+            }
+        } catch (MachineNotFoundException e) {
+            metrics.record(ScrapeMetrics.Stage.SCRAPE, robot.domain(), ScrapeMetrics.outcome(e), scrapeStart);
+            log.warn(e.getMessage());
+            notFound = true;
+        } catch (HostThrottledException e) {
+            metrics.record(ScrapeMetrics.Stage.SCRAPE, robot.domain(), ScrapeMetrics.outcome(e), scrapeStart);
+            rateLimiter.onThrottled(robot.domain(), start, e.getRetryAfter().orElse(null));
+            retry = task.attempt() < maxThrottledRetries;
+            if (retry) {
+                log.info("{} throttled by HTTP {}, now at {} requests/s. Retrying later: {}",
+                    robot.domain(), e.getStatusCode(), "%.2f".formatted(rateLimiter.rate(robot.domain())), url);
+            } else {
+                log.warn("{} throttled by HTTP {} {} times, skipping URL: {}", robot.domain(), e.getStatusCode(), task.attempt() + 1, url);
+            }
+        } finally {
+            if (retry) {
+                scheduler.retry(task);
+            } else {
+                // URLs interrupted by the forced shutdown stay in flight, so a resumed batch fetches them again
+                if (succeeded) {
+                    progress.succeeded(task.id());
+                } else if (notFound) {
+                    progress.notFound(task.id());
+                } else if (!Thread.currentThread().isInterrupted()) {
+                    progress.failed(task.id());
+                }
+                scheduler.done(task);
+            }
+        }
+    }
+
+    /**
+     * Fetches the page of a listing, then its photo. Only the page request is reported to the
+     * rate limiter, like {@link ScrapePipeline} does, so the photo download from another host
+     * does not slow the page host down. A {@code null} machine from the bot means the request
+     * failed, e.g. timed out, so it is not reported as a response.
+     */
+    private Machine fetchMachine(Bot robot, String url, long start, PhotoMode photoMode) {
+        Machine machine;
+        try {
+            machine = robot.fetch(url, PhotoMode.SKIP);
+            if (machine != null) {
+                rateLimiter.onResponse(robot.domain(), start);
+            }
+        } catch (MachineNotFoundException e) {
+            rateLimiter.onResponse(robot.domain(), start);
+            pageSnapshotStore.discard(url);
+            throw e;
+        } catch (PageNotModifiedException e) {
+            rateLimiter.onResponse(robot.domain(), start);
+            log.debug("Reusing snapshot of unchanged page: {}", url);
+            machine = pageSnapshotStore.find(url)
+                .map(PageSnapshotStore.Snapshot::machine)
+                .orElse(null);
+        }
+
+        if (machine != null) {
+            pageSnapshotStore.commit(url, machine);
+        } else {
+            pageSnapshotStore.discard(url);
+        }
+
+        return machine != null ? machine.withPhotoPayload(imageConverter.photoPayload(machine.photo(), photoMode)) : null;
     }
 }
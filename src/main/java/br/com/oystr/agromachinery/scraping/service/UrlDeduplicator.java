@@ -0,0 +1,292 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import br.com.oystr.agromachinery.scraping.util.BloomFilter;
+import br.com.oystr.agromachinery.scraping.util.HashUtils;
+import br.com.oystr.agromachinery.scraping.util.UrlUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Normalization and deduplication stage in front of the workers of {@link ScraperService}.
+ * <p>
+ * Every URL is normalized with {@link UrlUtils#normalize(String)}, so tracking parameters,
+ * fragments and trailing slashes do not make the same listing look new. Duplicates within a
+ * batch are dropped with a {@link BloomFilter} sized by {@code expectedUrls} and
+ * {@code falsePositiveRate}, so memory stays fixed and off-heap however many URLs are read.
+ * A false positive drops a URL that was not a duplicate, with the configured probability.
+ * </p>
+ * <p>
+ * With a {@code snapshotFile}, URLs are also deduplicated across runs: the URLs of a batch
+ * that were scraped or found gone are {@link Batch#commit() committed} to a filter of the URLs
+ * seen so far, which is saved to the file together with its number of URLs and loaded on
+ * startup. URLs seen in a previous run are skipped, while failed ones are tried again.
+ * </p>
+ * <p>
+ * Once that filter holds {@code expectedUrls} URLs, it is kept as the previous generation in
+ * a {@code .previous} file next to the snapshot and a new one is started, so its false positive
+ * rate stays bounded: URLs age out after two generations and are then scraped again.
+ * </p>
+ */
+class UrlDeduplicator {
+
+    private static final Logger log = LoggerFactory.getLogger(UrlDeduplicator.class);
+
+    private final Settings settings;
+    private final Path previousFile;
+    private BloomFilter seen;
+    private BloomFilter previous;
+
+    UrlDeduplicator(Settings settings) {
+        this.settings = settings;
+        boolean remembering = settings.enabled() && settings.snapshotFile() != null;
+        this.previousFile = remembering
+            ? settings.snapshotFile().resolveSibling(settings.snapshotFile().getFileName() + ".previous")
+            : null;
+        this.seen = remembering ? loadSnapshot(settings.snapshotFile()) : null;
+        this.previous = remembering ? loadSnapshot(previousFile) : null;
+    }
+
+    /**
+     * @return a new batch, to filter the URLs of one call to {@link ScraperService}
+     */
+    Batch newBatch() {
+        return new Batch(seen != null);
+    }
+
+    /**
+     * @return a new batch deduplicated on its own: it neither skips the URLs seen by previous
+     * batches nor is remembered by later ones, e.g. for the jobs submitted to the HTTP API
+     */
+    Batch newIsolatedBatch() {
+        return new Batch(false);
+    }
+
+    private BloomFilter loadSnapshot(Path file) {
+        try {
+            BloomFilter snapshot = BloomFilter.read(file, settings.expectedUrls(), settings.falsePositiveRate())
+                .orElse(null);
+            if (snapshot != null) {
+                log.info("Loaded URL dedup snapshot of {} URLs from {}", snapshot.insertions(), file);
+                return snapshot;
+            }
+            log.info("No URL dedup snapshot of the configured size in {}, starting empty", file);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable URL dedup snapshot {}", file, e);
+        }
+
+        return BloomFilter.create(settings.expectedUrls(), settings.falsePositiveRate());
+    }
+
+    private synchronized boolean seenBefore(long hash) {
+        return seen.mightContain(hash) || previous.mightContain(hash);
+    }
+
+    private synchronized void remember(BloomFilter completed) {
+        if (seen.insertions() + completed.insertions() > settings.expectedUrls()) {
+            log.warn("URL dedup snapshot would exceed the {} URLs it is sized for, starting a new generation."
+                + " URLs seen before the previous generation will be scraped again.", settings.expectedUrls());
+            previous = seen;
+            seen = BloomFilter.create(settings.expectedUrls(), settings.falsePositiveRate());
+            write(previous, previousFile);
+        }
+
+        seen.merge(completed);
+        if (seen.insertions() > settings.expectedUrls()) {
+            log.warn("A single batch completed {} URLs, more than the {} the dedup snapshot is sized for;"
+                + " its false positive rate now exceeds {}", seen.insertions(), settings.expectedUrls(), settings.falsePositiveRate());
+        }
+        write(seen, settings.snapshotFile());
+    }
+
+    private static void write(BloomFilter filter, Path file) {
+        try {
+            filter.write(file);
+        } catch (IOException e) {
+            log.warn("Failed to write URL dedup snapshot {}", file, e);
+        }
+    }
+
+    /**
+     * URLs of one batch. Filtering and committing happen on the thread feeding the workers, while
+     * the outcomes are reported by the workers.
+     */
+    final class Batch implements ScrapeProgress {
+        private final BloomFilter filter = settings.enabled()
+            ? BloomFilter.create(settings.expectedUrls(), settings.falsePositiveRate())
+            : null;
+        private final boolean shared;
+        private final BloomFilter completed;
+        private final Map<Long, Long> hashesInFlight = new HashMap<>();
+        private ScrapeProgress delegate = ScrapeProgress.NONE;
+        private long accepted;
+        private long duplicates;
+
+        private Batch(boolean shared) {
+            this.shared = shared;
+            this.completed = shared ? BloomFilter.create(settings.expectedUrls(), settings.falsePositiveRate()) : null;
+        }
+
+        /**
+         * @param urls the URLs of the batch
+         * @return the normalized URLs, without those already seen, computed lazily
+         */
+        Iterable<String> filter(Iterable<String> urls) {
+            return () -> new Iterator<>() {
+                private final Iterator<String> source = urls.iterator();
+                private String next;
+
+                @Override
+                public boolean hasNext() {
+                    while (next == null && source.hasNext()) {
+                        String url = UrlUtils.normalize(source.next());
+                        if (url.isEmpty()) {
+                            continue;
+                        }
+                        if (isNew(url)) {
+                            accepted++;
+                            next = url;
+                        } else {
+                            duplicates++;
+                        }
+                    }
+
+                    return next != null;
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    String url = next;
+                    next = null;
+                    return url;
+                }
+            };
+        }
+
+        /**
+         * Tracks the URLs handed to the workers, so that their outcomes reported to this batch
+         * tell which ones to {@link #commit() commit}.
+         *
+         * @param entries the URLs of the batch, numbered with the ids reported to this batch
+         * @return the same URLs
+         */
+        Iterator<CrawlFrontier.Entry> tracked(Iterator<CrawlFrontier.Entry> entries) {
+            if (completed == null) {
+                return entries;
+            }
+
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public CrawlFrontier.Entry next() {
+                    CrawlFrontier.Entry entry = entries.next();
+                    synchronized (Batch.this) {
+                        hashesInFlight.put(entry.id(), HashUtils.hash64(entry.url()));
+                    }
+                    return entry;
+                }
+            };
+        }
+
+        /**
+         * @param delegate receives every outcome reported to this batch as well, e.g. the crawl frontier
+         * @return this batch
+         */
+        Batch reportingTo(ScrapeProgress delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        @Override
+        public void started(long id) {
+            delegate.started(id);
+        }
+
+        @Override
+        public void succeeded(long id) {
+            delegate.succeeded(id);
+            completed(id, true);
+        }
+
+        @Override
+        public void failed(long id) {
+            delegate.failed(id);
+            completed(id, false);
+        }
+
+        @Override
+        public void notFound(long id) {
+            delegate.notFound(id);
+            completed(id, true);
+        }
+
+        long accepted() {
+            return accepted;
+        }
+
+        long duplicates() {
+            return duplicates;
+        }
+
+        /**
+         * Remembers across runs the URLs of the batch that were scraped or found gone, once the
+         * batch ended. URLs that failed or did not finish are not remembered, so a later batch
+         * tries them again.
+         */
+        synchronized void commit() {
+            if (completed != null) {
+                remember(completed);
+            }
+        }
+
+        private synchronized void completed(long id, boolean remembered) {
+            Long hash = hashesInFlight.remove(id);
+            if (hash != null && remembered) {
+                completed.put(hash);
+            }
+        }
+
+        private boolean isNew(String url) {
+            if (filter == null) {
+                return true;
+            }
+
+            long hash = HashUtils.hash64(url);
+            if (shared && seenBefore(hash)) {
+                return false;
+            }
+            if (accepted == settings.expectedUrls()) {
+                log.warn("More than {} URLs in the batch, the dedup false positive rate now exceeds {}",
+                    settings.expectedUrls(), settings.falsePositiveRate());
+            }
+
+            return filter.put(hash);
+        }
+    }
+
+    /**
+     * Configuration of the deduplication.
+     *
+     * @param enabled           whether duplicates are dropped; URLs are normalized anyway
+     * @param expectedUrls      URLs the filters are sized for
+     * @param falsePositiveRate probability of dropping a new URL once {@code expectedUrls} were read
+     * @param snapshotFile      file keeping the URLs seen across runs, or {@code null} to forget
+     *                          them after each batch
+     */
+    record Settings(boolean enabled, long expectedUrls, double falsePositiveRate, Path snapshotFile) {
+    }
+}
@@ -0,0 +1,98 @@
+package br.com.oystr.agromachinery.scraping.service.discovery;
+
+import br.com.oystr.agromachinery.scraping.bot.DiscoveryBot;
+import br.com.oystr.agromachinery.scraping.util.UrlUtils;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Discovers the listings of the search and category pages of
+ * <a href="https://www.agrofy.com.br">Agrofy</a>.
+ *
+ * <p>Like the product pages read by
+ * {@link br.com.oystr.agromachinery.scraping.service.scrapers.AgrofyScraper}, the result pages
+ * are hydrated on the client, so the listings are read from the JSON embedded in the
+ * {@code <script id="__NEXT_DATA__">} tag rather than from the HTML. The payload is walked once
+ * with Jackson's streaming {@link JsonParser}: every {@code url}, {@code link} or {@code href}
+ * field pointing to a {@code .html} listing page is collected, and the number of pages is read
+ * from the {@code totalPages} or {@code pageCount} fields of the pagination, wherever they are
+ * nested.</p>
+ *
+ * <p>Other pages of the results are requested with the {@code page} parameter.</p>
+ */
+@Service
+public class AgrofyDiscoveryBot implements DiscoveryBot {
+
+    private static final String DOMAIN = "agrofy.com.br";
+    private static final String ORIGIN = "https://www.agrofy.com.br";
+    private static final String PAGE_PARAMETER = "page";
+    private static final Pattern LISTING_PATH = Pattern.compile("/[^/]+\\.html");
+    private static final Pattern RESULTS_PATH = Pattern.compile("(?:/[^/.]+)+");
+    private static final Set<String> LINK_FIELDS = Set.of("url", "link", "href");
+    private static final Set<String> PAGE_COUNT_FIELDS = Set.of("totalPages", "pageCount");
+
+    private final ObjectMapper objectMapper;
+
+    public AgrofyDiscoveryBot(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public ResultsPage discover(Document document, String url) throws IOException {
+        Element scriptTag = document.selectFirst("script#__NEXT_DATA__");
+        if (scriptTag == null) {
+            return new ResultsPage(List.of(), 0);
+        }
+
+        Set<String> listings = new LinkedHashSet<>();
+        int lastPage = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(scriptTag.data())) {
+            for (JsonToken token = parser.nextToken(); token != null; token = parser.nextToken()) {
+                if (token == JsonToken.VALUE_STRING && LINK_FIELDS.contains(parser.currentName())) {
+                    String listing = listingUrl(parser.getText());
+                    if (listing != null) {
+                        listings.add(listing);
+                    }
+                } else if (token == JsonToken.VALUE_NUMBER_INT && PAGE_COUNT_FIELDS.contains(parser.currentName())) {
+                    lastPage = Math.max(lastPage, parser.getIntValue());
+                }
+            }
+        }
+
+        return new ResultsPage(List.copyOf(listings), lastPage);
+    }
+
+    @Override
+    public String pageUrl(String url, int page) {
+        return UrlUtils.withQueryParameter(url, PAGE_PARAMETER, String.valueOf(page));
+    }
+
+    @Override
+    public String domain() {
+        return DOMAIN;
+    }
+
+    @Override
+    public Pattern pathPattern() {
+        return RESULTS_PATH;
+    }
+
+    /**
+     * @return the absolute, normalized URL of a listing link, or {@code null} if it points elsewhere
+     */
+    private static String listingUrl(String link) {
+        String url = link.startsWith("/") && !link.startsWith("//") ? ORIGIN + link : link;
+
+        return ResultsPages.isListing(url, DOMAIN, LISTING_PATH) ? UrlUtils.normalize(url) : null;
+    }
+}
@@ -0,0 +1,82 @@
+package br.com.oystr.agromachinery.scraping.service.discovery;
+
+import br.com.oystr.agromachinery.scraping.util.UrlUtils;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the listing links and the pagination of server-rendered result pages.
+ * <p>The constructor is private to prevent instantiation.</p>
+ */
+final class ResultsPages {
+
+    private ResultsPages() {
+    }
+
+    /**
+     * Collects the links of a page that point to listings, whatever element they are in, so
+     * the cards of the results can change layout without breaking discovery.
+     *
+     * @param document    the parsed page, whose base URI resolves relative links
+     * @param domain      the domain of the listings
+     * @param listingPath the pattern fully matching the path of a listing page
+     * @return the normalized listing URLs, in page order and without duplicates
+     */
+    static List<String> listingLinks(Document document, String domain, Pattern listingPath) {
+        Set<String> links = new LinkedHashSet<>();
+        for (Element link : document.select("a[href]")) {
+            String url = link.attr("abs:href");
+            if (isListing(url, domain, listingPath)) {
+                links.add(UrlUtils.normalize(url));
+            }
+        }
+
+        return List.copyOf(links);
+    }
+
+    /**
+     * @param url the absolute URL, possibly empty
+     * @return whether the URL is a listing page of the domain
+     */
+    static boolean isListing(String url, String domain, Pattern listingPath) {
+        String authority = url.isEmpty() ? null : UrlUtils.authority(url);
+        return authority != null && UrlUtils.isInDomain(authority, domain) && listingPath.matcher(UrlUtils.path(url)).matches();
+    }
+
+    /**
+     * Reads the number of the last page from the pagination links, taken from their page
+     * parameter or, failing that, from their text.
+     *
+     * @param document           the parsed page
+     * @param paginationSelector CSS selector of the pagination links
+     * @param pageParameter      query parameter holding the page number
+     * @return the highest page number linked, or {@code 0} if the page has no pagination
+     */
+    static int lastPage(Document document, String paginationSelector, String pageParameter) {
+        int lastPage = 0;
+        for (Element link : document.select(paginationSelector)) {
+            String parameter = UrlUtils.queryParameter(link.attr("abs:href"), pageParameter);
+            lastPage = Math.max(lastPage, Math.max(pageNumber(parameter), pageNumber(link.text())));
+        }
+
+        return lastPage;
+    }
+
+    private static int pageNumber(String text) {
+        if (text == null || text.isEmpty() || text.length() > 6) {
+            return 0;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return 0;
+            }
+        }
+
+        return Integer.parseInt(text);
+    }
+}
@@ -0,0 +1,47 @@
+package br.com.oystr.agromachinery.scraping.service.discovery;
+
+import br.com.oystr.agromachinery.scraping.bot.DiscoveryBot;
+import br.com.oystr.agromachinery.scraping.util.UrlUtils;
+import org.jsoup.nodes.Document;
+import org.springframework.stereotype.Service;
+
+import java.util.regex.Pattern;
+
+/**
+ * Discovers the vehicles listed by the search and category pages of
+ * <a href="https://www.tratoresecolheitadeiras.com.br">Tratores e Colheitadeiras</a>, which are
+ * rendered on the server.
+ * <p>
+ * Every link to a {@code /veiculo/} page is a listing, and the number of pages is read from
+ * the {@code pagina} parameter of the pagination links.
+ * </p>
+ */
+@Service
+public class TratoresColheitadeirasDiscoveryBot implements DiscoveryBot {
+
+    private static final String DOMAIN = "tratoresecolheitadeiras.com.br";
+    private static final String PAGE_PARAMETER = "pagina";
+    private static final Pattern LISTING_PATH = Pattern.compile("/veiculo/.+");
+    private static final Pattern RESULTS_PATH = Pattern.compile("/(?!veiculo/)[^.]+");
+
+    @Override
+    public ResultsPage discover(Document document, String url) {
+        return new ResultsPage(ResultsPages.listingLinks(document, DOMAIN, LISTING_PATH),
+            ResultsPages.lastPage(document, ".pagination a[href]", PAGE_PARAMETER));
+    }
+
+    @Override
+    public String pageUrl(String url, int page) {
+        return UrlUtils.withQueryParameter(url, PAGE_PARAMETER, String.valueOf(page));
+    }
+
+    @Override
+    public String domain() {
+        return DOMAIN;
+    }
+
+    @Override
+    public Pattern pathPattern() {
+        return RESULTS_PATH;
+    }
+}
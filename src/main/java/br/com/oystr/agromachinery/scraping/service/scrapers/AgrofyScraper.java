@@ -1,23 +1,31 @@
 package br.com.oystr.agromachinery.scraping.service.scrapers;
 
 import br.com.oystr.agromachinery.scraping.bot.Bot;
+import br.com.oystr.agromachinery.scraping.exceptions.HostThrottledException;
 import br.com.oystr.agromachinery.scraping.exceptions.MachineNotFoundException;
+import br.com.oystr.agromachinery.scraping.exceptions.PageNotModifiedException;
 import br.com.oystr.agromachinery.scraping.model.ContractType;
 import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.PhotoMode;
+import br.com.oystr.agromachinery.scraping.util.ExtractionPlan;
+import br.com.oystr.agromachinery.scraping.util.ImageConverter;
 import br.com.oystr.agromachinery.scraping.util.JsoupWrapper;
-import com.fasterxml.jackson.databind.JsonNode;
+import br.com.oystr.agromachinery.scraping.util.ScrapeMetrics;
+import br.com.oystr.agromachinery.scraping.util.StreamTargets;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jsoup.nodes.DataNode;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.util.Iterator;
-import java.util.Optional;
-
-import static br.com.oystr.agromachinery.scraping.util.ImageConverter.convertImageToBase64;
+import java.util.List;
+import java.util.function.Function;
 
 /**
  * Scraper implementation for <a href="https://www.agrofy.com.br">Agrofy</a> machinery listings.
@@ -29,6 +37,11 @@ import static br.com.oystr.agromachinery.scraping.util.ImageConverter.convertIma
  * {@code <script id="__NEXT_DATA__">} tag, which contains all the product details needed to
  * construct a {@link Machine} object.</p>
  *
+ * <p>The payload is often hundreds of kilobytes of which only a handful of fields are used, so it
+ * is read with Jackson's streaming {@link JsonParser}: the parser walks straight to
+ * {@code props.pageProps.productData}, skips every other subtree and collects the product fields
+ * and attribute codes in a single pass, without building a {@code JsonNode} tree.</p>
+ *
  * <p>Implements {@link Bot} to provide a uniform interface for fetching and determining
  * support for URLs.</p>
  */
@@ -36,42 +49,39 @@ import static br.com.oystr.agromachinery.scraping.util.ImageConverter.convertIma
 public class AgrofyScraper implements Bot {
 
     private final JsoupWrapper jsoupWrapper;
+    private final ImageConverter imageConverter;
+    private final ScrapeMetrics metrics;
     private final ObjectMapper objectMapper;
     private static final Logger log = LoggerFactory.getLogger(AgrofyScraper.class);
+    private static final String DOMAIN = "agrofy.com.br";
+    private static final ExtractionPlan.Field<Element> CLOSED_NOTICE = ExtractionPlan.selector(
+        "span[data-cy='title']:contains(A publicação está finalizada.)", Function.identity());
+    private static final ExtractionPlan.Field<Element> NEXT_DATA = ExtractionPlan.selector("script#__NEXT_DATA__", Function.identity());
+    private static final ExtractionPlan EXTRACTION_PLAN = ExtractionPlan.builder()
+        .fields(CLOSED_NOTICE, NEXT_DATA)
+        .build();
+    private static final StreamTargets STREAM_TARGETS = StreamTargets.of(
+        List.of("script#__NEXT_DATA__"),
+        List.of("span[data-cy=title]")
+    );
 
-    public AgrofyScraper(JsoupWrapper jsoupWrapper, ObjectMapper objectMapper) {
+    public AgrofyScraper(JsoupWrapper jsoupWrapper, ImageConverter imageConverter, ObjectMapper objectMapper,
+                         ScrapeMetrics metrics) {
         this.jsoupWrapper = jsoupWrapper;
+        this.imageConverter = imageConverter;
         this.objectMapper = objectMapper;
+        this.metrics = metrics;
     }
 
     @Override
-    public Machine fetch(String url) {
+    public Machine fetch(String url, PhotoMode photoMode) {
         try {
-            Document document = jsoupWrapper.fetch(url);
-
-            if (document.selectFirst("span[data-cy='title']:contains(A publicação está finalizada.)") != null) {
-                throw new MachineNotFoundException("Machine not found on URL: " + url);
-            }
+            Document document = jsoupWrapper.fetch(url, STREAM_TARGETS);
+            Machine machine = extract(document, url);
 
-            Element scriptTag = document.selectFirst("script#__NEXT_DATA__");
-            String json = scriptTag.html();
-
-            JsonNode root = objectMapper.readTree(json);
-            JsonNode productData = root.path("props").path("pageProps").path("productData");
-            JsonNode product = productData.path("product");
-            JsonNode productDetails = productData.path("productDetails");
-
-            String model = product.path("title").asText();
-            ContractType contractType = parseContractType(product.path("finalidad").asText());
-            String make = product.path("marca").asText();
-            Integer year = extractIntAttribute(productDetails, "ano_fabricacion");
-            Integer workedHours = extractIntAttribute(productDetails, "cn2_uso");
-            String city = product.path("localizacion").asText();
-            BigDecimal price = BigDecimal.valueOf(product.path("price").asDouble());
-            String photo = extractFirstImage(product);
-            String photoBase64 = convertImageToBase64(photo).orElse(null);
-
-            return new Machine(model, contractType, make, year, workedHours, city, price, photo, photoBase64, url);
+            return machine.withPhotoPayload(imageConverter.photoPayload(machine.photo(), photoMode));
+        } catch (PageNotModifiedException | HostThrottledException | MachineNotFoundException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error while processing URL {}", url, e);
 
@@ -80,28 +90,195 @@ public class AgrofyScraper implements Bot {
     }
 
     @Override
-    public boolean supports(String url) {
-        return url.contains("agrofy.com.br");
+    public Machine extract(Document document, String url) throws IOException {
+        return metrics.extract(DOMAIN, () -> extractMachine(document, url));
+    }
+
+    private Machine extractMachine(Document document, String url) throws IOException {
+        ExtractionPlan.Extraction extraction = EXTRACTION_PLAN.extract(document);
+        if (extraction.get(CLOSED_NOTICE) != null) {
+            throw new MachineNotFoundException("Machine not found on URL: " + url);
+        }
+
+        Element scriptTag = extraction.get(NEXT_DATA);
+        ProductFields fields = new ProductFields();
+        try (JsonParser parser = objectMapper.getFactory().createParser(scriptData(scriptTag))) {
+            if (parser.nextToken() == JsonToken.START_OBJECT
+                && moveToObjectField(parser, "props")
+                && moveToObjectField(parser, "pageProps")
+                && moveToObjectField(parser, "productData")) {
+                readProductData(parser, fields);
+            }
+        }
+
+        return new Machine(fields.model, parseContractType(fields.contractType), fields.make, fields.year,
+            fields.workedHours, fields.city, fields.price, fields.photo, null, url);
+    }
+
+    @Override
+    public StreamTargets streamTargets() {
+        return STREAM_TARGETS;
+    }
+
+    @Override
+    public String domain() {
+        return DOMAIN;
     }
 
     private ContractType parseContractType(String type) {
         return "Venda".equalsIgnoreCase(type) ? ContractType.SALE : ContractType.RENT;
     }
 
-    private Optional<JsonNode> findAttribute(JsonNode productDetails, String attributeCode) {
-        return productDetails.valueStream()
-            .filter(node -> attributeCode.equals(node.path("attributeCode").asText()))
-            .findFirst();
+    /**
+     * Returns the script contents without copying them when Jsoup holds them in a single data node.
+     */
+    private String scriptData(Element scriptTag) {
+        if (scriptTag.childNodeSize() == 1 && scriptTag.childNode(0) instanceof DataNode dataNode) {
+            return dataNode.getWholeData();
+        }
+
+        return scriptTag.data();
+    }
+
+    /**
+     * Advances the parser, positioned inside an object, to the start of the object held by
+     * {@code fieldName}, skipping every other field.
+     *
+     * @return {@code false} if the current object has no such object field
+     */
+    private boolean moveToObjectField(JsonParser parser, String fieldName) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            boolean matches = fieldName.equals(parser.currentName());
+            if (parser.nextToken() == JsonToken.START_OBJECT && matches) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+
+        return false;
+    }
+
+    private void readProductData(JsonParser parser, ProductFields fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("product".equals(name) && token == JsonToken.START_OBJECT) {
+                readProduct(parser, fields);
+            } else if ("productDetails".equals(name) && token == JsonToken.START_ARRAY) {
+                readProductDetails(parser, fields);
+            } else {
+                parser.skipChildren();
+            }
+        }
     }
 
-    private Integer extractIntAttribute(JsonNode productDetails, String attributeCode) {
-        return findAttribute(productDetails, attributeCode)
-            .map(n -> n.path("value").asInt())
-            .orElse(null);
+    private void readProduct(JsonParser parser, ProductFields fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (name) {
+                case "title" -> fields.model = parser.getValueAsString("");
+                case "finalidad" -> fields.contractType = parser.getValueAsString("");
+                case "marca" -> fields.make = parser.getValueAsString("");
+                case "localizacion" -> fields.city = parser.getValueAsString("");
+                case "price" -> fields.price = readDecimal(parser, token);
+                case "images" -> fields.photo = readFirstImage(parser, token);
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readProductDetails(JsonParser parser, ProductFields fields) throws IOException {
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            String attributeCode = null;
+            int value = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if ("attributeCode".equals(name)) {
+                    attributeCode = parser.getValueAsString();
+                } else if ("value".equals(name) && parser.currentToken().isScalarValue()) {
+                    value = parser.getValueAsInt();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if ("ano_fabricacion".equals(attributeCode) && fields.year == null) {
+                fields.year = value;
+            } else if ("cn2_uso".equals(attributeCode) && fields.workedHours == null) {
+                fields.workedHours = value;
+            }
+        }
+    }
+
+    private BigDecimal readDecimal(JsonParser parser, JsonToken token) throws IOException {
+        if (token.isNumeric()) {
+            return parser.getDecimalValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return new BigDecimal(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        parser.skipChildren();
+        return null;
+    }
+
+    private String readFirstImage(JsonParser parser, JsonToken token) throws IOException {
+        if (token != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+
+        JsonToken first = parser.nextToken();
+        if (first == JsonToken.END_ARRAY) {
+            return null;
+        }
+
+        String image = "";
+        if (first == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if ("image".equals(name)) {
+                    image = parser.getValueAsString("");
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } else {
+            parser.skipChildren();
+        }
+
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+        }
+
+        return image;
     }
 
-    private String extractFirstImage(JsonNode product) {
-        Iterator<JsonNode> images = product.path("images").elements();
-        return images.hasNext() ? images.next().path("image").asText() : null;
+    /**
+     * Fields collected while streaming through {@code productData}; defaults mirror what the
+     * tree-based extraction produced for missing fields, except the price, which is now
+     * {@code null} when missing or not numeric where the tree gave {@code 0.0}.
+     */
+    private static final class ProductFields {
+        private String model = "";
+        private String contractType = "";
+        private String make = "";
+        private Integer year;
+        private Integer workedHours;
+        private String city = "";
+        private BigDecimal price;
+        private String photo;
     }
 }
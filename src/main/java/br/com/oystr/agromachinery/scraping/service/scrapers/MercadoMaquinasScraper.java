@@ -1,11 +1,18 @@
 package br.com.oystr.agromachinery.scraping.service.scrapers;
 
 import br.com.oystr.agromachinery.scraping.bot.Bot;
+import br.com.oystr.agromachinery.scraping.exceptions.HostThrottledException;
 import br.com.oystr.agromachinery.scraping.exceptions.MachineNotFoundException;
+import br.com.oystr.agromachinery.scraping.exceptions.PageNotModifiedException;
 import br.com.oystr.agromachinery.scraping.model.ContractType;
 import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.PhotoMode;
+import br.com.oystr.agromachinery.scraping.util.ExtractionPlan;
+import br.com.oystr.agromachinery.scraping.util.ImageConverter;
 import br.com.oystr.agromachinery.scraping.util.JsoupWrapper;
 import br.com.oystr.agromachinery.scraping.util.PriceParser;
+import br.com.oystr.agromachinery.scraping.util.ScrapeMetrics;
+import br.com.oystr.agromachinery.scraping.util.StreamTargets;
 import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -16,16 +23,15 @@ import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.util.Optional;
-
-import static br.com.oystr.agromachinery.scraping.util.ImageConverter.convertImageToBase64;
+import java.util.List;
 
 /**
  * A web scraper implementation for extracting machine details from
  * <a href="https://www.mercadomaquinas.com.br">Mercado Máquinas</a> advertisements.
  * <p>
  * This scraper fetches details from the target page and converts them
- * into a {@link Machine} object.
+ * into a {@link Machine} object. Fields are read through an {@link ExtractionPlan}
+ * that indexes the "label: value" rows of the product info and specifications lists.
  * </p>
  *
  * <p>It uses {@link Jsoup} for HTML parsing.</p>
@@ -37,42 +43,43 @@ import static br.com.oystr.agromachinery.scraping.util.ImageConverter.convertIma
 public class MercadoMaquinasScraper implements Bot {
 
     private final JsoupWrapper jsoupWrapper;
+    private final ImageConverter imageConverter;
+    private final ScrapeMetrics metrics;
     private static final Logger log = LoggerFactory.getLogger(MercadoMaquinasScraper.class);
-
-    public MercadoMaquinasScraper(JsoupWrapper jsoupWrapper) {
+    private static final String DOMAIN = "mercadomaquinas.com.br";
+    private static final ExtractionPlan.Field<String> MODEL = ExtractionPlan.selector("h1.title", Element::text);
+    private static final ExtractionPlan.Field<String> MAKE = ExtractionPlan.label("Fabricante", Element::text);
+    private static final ExtractionPlan.Field<Integer> YEAR = ExtractionPlan.label("Ano", e -> Integer.valueOf(e.text()));
+    private static final ExtractionPlan.Field<Integer> WORKED_HOURS = ExtractionPlan.label("Horas trabalhadas",
+        e -> Integer.valueOf(e.text().replace(" ", "").replace("h", "").replace(".", "")));
+    private static final ExtractionPlan.Field<String> CITY = ExtractionPlan.label("Localização", Element::text);
+    private static final ExtractionPlan.Field<BigDecimal> PRICE = ExtractionPlan.selector("div.price", "span.value",
+        e -> PriceParser.parsePrice(e.text()).orElse(null));
+    private static final ExtractionPlan.Field<String> PHOTO = ExtractionPlan.selector("#ad-main-photo", "img", e -> e.attr("abs:src"));
+    private static final ExtractionPlan EXTRACTION_PLAN = ExtractionPlan.builder()
+        .labelRows("li.item", "span.item-name, span.name", "span.item-value, span.value")
+        .fields(MODEL, MAKE, YEAR, WORKED_HOURS, CITY, PRICE, PHOTO)
+        .build();
+    private static final StreamTargets STREAM_TARGETS = StreamTargets.of(
+        List.of("h1.title", "div.product-info", "div.price", "div.specifications", "#ad-main-photo"),
+        List.of()
+    );
+
+    public MercadoMaquinasScraper(JsoupWrapper jsoupWrapper, ImageConverter imageConverter, ScrapeMetrics metrics) {
         this.jsoupWrapper = jsoupWrapper;
+        this.imageConverter = imageConverter;
+        this.metrics = metrics;
     }
 
     @Override
-    public Machine fetch(String url) {
+    public Machine fetch(String url, PhotoMode photoMode) {
         try {
             Document document = fetchDocument(url);
+            Machine machine = extract(document, url);
 
-            String model = Optional.ofNullable(document.selectFirst("h1.title")).map(Element::text).orElse(null);
-            ContractType contractType = ContractType.SALE;
-            String make = findProductInfo(document, "Fabricante").orElse(null);
-            Integer year = findProductInfo(document, "Ano").map(Integer::valueOf).orElse(null);
-
-            Integer workedHours = Optional.ofNullable(document.selectFirst("li.item.spec:has(span.name:containsOwn(Horas trabalhadas:)) span.value"))
-                .map(Element::text)
-                .map(s -> s.replace(" ", "").replace("h", "").replace(".", ""))
-                .map(Integer::valueOf)
-                .orElse(null);
-
-            String city = findProductInfo(document, "Localização").orElse(null);
-
-            BigDecimal price = Optional.ofNullable(document.selectFirst("div.price span.value"))
-                .map(Element::text)
-                .flatMap(PriceParser::parsePrice)
-                .orElse(null);
-
-            String photo = Optional.ofNullable(document.selectFirst("#ad-main-photo img"))
-                .map(e -> e.attr("abs:src"))
-                .orElse(null);
-
-            String photoBase64 = convertImageToBase64(photo).orElse(null);
-
-            return new Machine(model, contractType, make, year, workedHours, city, price, photo, photoBase64, url);
+            return machine.withPhotoPayload(imageConverter.photoPayload(machine.photo(), photoMode));
+        } catch (PageNotModifiedException | HostThrottledException | MachineNotFoundException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error while processing URL {}", url, e);
 
@@ -81,19 +88,40 @@ public class MercadoMaquinasScraper implements Bot {
     }
 
     @Override
-    public boolean supports(String url) {
-        return url.contains("mercadomaquinas.com.br");
+    public Machine extract(Document document, String url) {
+        return metrics.extract(DOMAIN, () -> extractMachine(document, url));
     }
 
-    private Optional<String> findProductInfo(Document document, String label) {
-        String cssSelector = "li.item:has(span.item-name:containsOwn(%s:)) span.item-value".formatted(label);
+    private Machine extractMachine(Document document, String url) {
+        ExtractionPlan.Extraction extraction = EXTRACTION_PLAN.extract(document);
+
+        return new Machine(
+            extraction.get(MODEL),
+            ContractType.SALE,
+            extraction.get(MAKE),
+            extraction.get(YEAR),
+            extraction.get(WORKED_HOURS),
+            extraction.get(CITY),
+            extraction.get(PRICE),
+            extraction.get(PHOTO),
+            null,
+            url
+        );
+    }
 
-        return Optional.ofNullable(document.selectFirst(cssSelector)).map(Element::text);
+    @Override
+    public StreamTargets streamTargets() {
+        return STREAM_TARGETS;
+    }
+
+    @Override
+    public String domain() {
+        return DOMAIN;
     }
 
     private Document fetchDocument(String url) throws IOException {
         try {
-            return jsoupWrapper.fetch(url);
+            return jsoupWrapper.fetch(url, STREAM_TARGETS);
         } catch (HttpStatusException e) {
             if (e.getStatusCode() == 404) {
                 throw new MachineNotFoundException("Machine not found on URL: " + url);
@@ -1,13 +1,19 @@
 package br.com.oystr.agromachinery.scraping.service.scrapers;
 
 import br.com.oystr.agromachinery.scraping.bot.Bot;
+import br.com.oystr.agromachinery.scraping.exceptions.HostThrottledException;
 import br.com.oystr.agromachinery.scraping.exceptions.MachineNotFoundException;
+import br.com.oystr.agromachinery.scraping.exceptions.PageNotModifiedException;
 import br.com.oystr.agromachinery.scraping.model.ContractType;
 import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.PhotoMode;
+import br.com.oystr.agromachinery.scraping.util.ExtractionPlan;
+import br.com.oystr.agromachinery.scraping.util.ImageConverter;
 import br.com.oystr.agromachinery.scraping.util.JsoupWrapper;
 import br.com.oystr.agromachinery.scraping.util.PriceParser;
+import br.com.oystr.agromachinery.scraping.util.ScrapeMetrics;
+import br.com.oystr.agromachinery.scraping.util.StreamTargets;
 import org.jsoup.Jsoup;
-import org.jsoup.nodes.Attribute;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
@@ -16,16 +22,17 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
-
-import static br.com.oystr.agromachinery.scraping.util.ImageConverter.convertImageToBase64;
+import java.util.function.Function;
 
 /**
  * A web scraper implementation for extracting machine details from
  * <a href="https://www.tratoresecolheitadeiras.com.br">Tratores e Colheitadeiras</a> advertisements.
  * <p>
  * This scraper fetches details from the target page and converts them
- * into a {@link Machine} object.
+ * into a {@link Machine} object. Fields are read through an {@link ExtractionPlan}
+ * that indexes the "label: value" paragraphs of the description.
  * </p>
  *
  * <p>It uses {@link Jsoup} for HTML parsing.</p>
@@ -37,44 +44,45 @@ import static br.com.oystr.agromachinery.scraping.util.ImageConverter.convertIma
 public class TratoresColheitadeirasScraper implements Bot {
 
     private final JsoupWrapper jsoupWrapper;
+    private final ImageConverter imageConverter;
+    private final ScrapeMetrics metrics;
     private static final Logger log = LoggerFactory.getLogger(TratoresColheitadeirasScraper.class);
-
-    public TratoresColheitadeirasScraper(JsoupWrapper jsoupWrapper) {
+    private static final String DOMAIN = "tratoresecolheitadeiras.com.br";
+    private static final ExtractionPlan.Field<Element> SOLD_NOTICE = ExtractionPlan.selector(
+        "h1:contains(Esse veículo já foi vendido.)", Function.identity());
+    private static final ExtractionPlan.Field<String> MODEL = ExtractionPlan.selector(".product-single__title", Element::text);
+    private static final ExtractionPlan.Field<String> MAKE = ExtractionPlan.label("Marca", Element::text);
+    private static final ExtractionPlan.Field<Integer> YEAR = ExtractionPlan.label("Ano de Fabricação", e -> Integer.parseInt(e.text()));
+    private static final ExtractionPlan.Field<Integer> WORKED_HOURS = ExtractionPlan.label("Horas", e -> Integer.parseInt(e.text()));
+    private static final ExtractionPlan.Field<String> CITY = ExtractionPlan.selector(".product-single__description.rte",
+        TratoresColheitadeirasScraper::extractCity);
+    private static final ExtractionPlan.Field<BigDecimal> PRICE = ExtractionPlan.label("Preço",
+        e -> PriceParser.parsePrice(e.text()).orElse(null));
+    private static final ExtractionPlan.Field<String> PHOTO = ExtractionPlan.selector("[data-image]", e -> e.attr("data-image"));
+    private static final ExtractionPlan EXTRACTION_PLAN = ExtractionPlan.builder()
+        .ownTextLabelRows("p", "strong")
+        .fields(SOLD_NOTICE, MODEL, MAKE, YEAR, WORKED_HOURS, CITY, PRICE, PHOTO)
+        .build();
+    private static final StreamTargets STREAM_TARGETS = StreamTargets.of(
+        List.of(".product-single__title", ".product-single__description", "[data-image]"),
+        List.of("h1")
+    );
+
+    public TratoresColheitadeirasScraper(JsoupWrapper jsoupWrapper, ImageConverter imageConverter, ScrapeMetrics metrics) {
         this.jsoupWrapper = jsoupWrapper;
+        this.imageConverter = imageConverter;
+        this.metrics = metrics;
     }
 
     @Override
-    public Machine fetch(String url) {
+    public Machine fetch(String url, PhotoMode photoMode) {
         try {
-            Document document = jsoupWrapper.fetch(url);
-
-            if (document.selectFirst("h1:contains(Esse veículo já foi vendido.)") != null) {
-                throw new MachineNotFoundException("Machine not found on URL: " + url);
-            }
-
-            String model = Optional.ofNullable(document.selectFirst(".product-single__title"))
-                .map(Element::text)
-                .orElse(null);
-
-            ContractType contractType = ContractType.SALE;
-            String make = findDetail(document, "Marca").orElse(null);
-            Integer year = findDetail(document, "Ano de Fabricação").map(Integer::parseInt).orElse(null);
-            Integer workedHours = findDetail(document, "Horas").map(Integer::parseInt).orElse(null);
+            Document document = jsoupWrapper.fetch(url, STREAM_TARGETS);
+            Machine machine = extract(document, url);
 
-            Optional<Element> addressNode = Optional.ofNullable(document.select(".product-single__description.rte li").last());
-            String city = addressNode.map(Element::lastChild).map(Node::nodeValue).map(String::trim).orElse(null);
-
-            Optional<String> priceString = findDetail(document, "Preço");
-            BigDecimal price = priceString.flatMap(PriceParser::parsePrice).orElse(null);
-
-            String photo = Optional.ofNullable(document.selectFirst("[data-image]"))
-                .map(e -> e.attribute("data-image"))
-                .map(Attribute::getValue)
-                .orElse(null);
-
-            String photoBase64 = convertImageToBase64(photo).orElse(null);
-
-            return new Machine(model, contractType, make, year, workedHours, city, price, photo, photoBase64, url);
+            return machine.withPhotoPayload(imageConverter.photoPayload(machine.photo(), photoMode));
+        } catch (PageNotModifiedException | HostThrottledException | MachineNotFoundException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error while processing URL {}", url, e);
 
@@ -83,12 +91,48 @@ public class TratoresColheitadeirasScraper implements Bot {
     }
 
     @Override
-    public boolean supports(String url) {
-        return url.contains("tratoresecolheitadeiras.com.br");
+    public Machine extract(Document document, String url) {
+        return metrics.extract(DOMAIN, () -> extractMachine(document, url));
+    }
+
+    private Machine extractMachine(Document document, String url) {
+        ExtractionPlan.Extraction extraction = EXTRACTION_PLAN.extract(document);
+        if (extraction.get(SOLD_NOTICE) != null) {
+            throw new MachineNotFoundException("Machine not found on URL: " + url);
+        }
+
+        return new Machine(
+            extraction.get(MODEL),
+            ContractType.SALE,
+            extraction.get(MAKE),
+            extraction.get(YEAR),
+            extraction.get(WORKED_HOURS),
+            extraction.get(CITY),
+            extraction.get(PRICE),
+            extraction.get(PHOTO),
+            null,
+            url
+        );
+    }
+
+    @Override
+    public StreamTargets streamTargets() {
+        return STREAM_TARGETS;
+    }
+
+    @Override
+    public String domain() {
+        return DOMAIN;
     }
 
-    private Optional<String> findDetail(Document document, String label) {
-        return Optional.ofNullable(document.selectFirst("p:containsOwn(" + label + ") strong"))
-            .map(Element::text);
+    /**
+     * The city is the text after the line break of the last item of the description list.
+     */
+    private static String extractCity(Element description) {
+        return Optional.ofNullable(description.getElementsByTag("li").last())
+            .map(Element::lastChild)
+            .map(Node::nodeValue)
+            .map(String::trim)
+            .orElse(null);
     }
 }
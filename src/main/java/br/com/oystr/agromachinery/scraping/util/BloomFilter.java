@@ -0,0 +1,211 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Bloom filter over 64-bit hashes (see {@link HashUtils#hash64(String)}), with its bits kept
+ * off-heap in a direct buffer of fixed size.
+ * <p>
+ * The size and the number of hash functions are derived from the expected number of insertions
+ * and the acceptable false positive rate: about 1.8 bytes per URL at 0.1%. Beyond the expected
+ * insertions the filter keeps working, with a growing false positive rate. The {@code k} bit
+ * positions are derived from the hash by double hashing, so no other hash is computed.
+ * </p>
+ *
+ * <p>Filters of the same size can be merged, and can be written to and read from a file
+ * together with their number of insertions. The filter is not thread-safe.</p>
+ */
+public final class BloomFilter {
+
+    private static final int MAGIC = 0x424C4D32;
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    private final long bits;
+    private final int hashFunctions;
+    private final ByteBuffer words;
+    private long insertions;
+
+    private BloomFilter(long bits, int hashFunctions) {
+        this.bits = bits;
+        this.hashFunctions = hashFunctions;
+        this.words = ByteBuffer.allocateDirect(Math.toIntExact(bits / Byte.SIZE));
+    }
+
+    /**
+     * @param expectedInsertions number of hashes the filter is sized for
+     * @param falsePositiveRate  probability that {@link #mightContain(long)} returns {@code true}
+     *                           for a hash never inserted, once the filter is full
+     * @return an empty filter
+     * @throws IllegalArgumentException if the filter would exceed 2 GB
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        double ln2 = Math.log(2);
+        long optimalBits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2));
+        // Whole 64-bit words
+        long bits = Math.max(Long.SIZE, (optimalBits + Long.SIZE - 1) / Long.SIZE * Long.SIZE);
+        if (bits / Byte.SIZE > Integer.MAX_VALUE - Long.SIZE) {
+            throw new IllegalArgumentException("Bloom filter for " + expectedInsertions + " insertions exceeds 2 GB");
+        }
+        int hashFunctions = (int) Math.max(1, Math.round((double) bits / n * ln2));
+
+        return new BloomFilter(bits, hashFunctions);
+    }
+
+    /**
+     * Reads a filter written by {@link #write(Path)}.
+     *
+     * @param file              the file to read
+     * @param expectedInsertions number of hashes the filter must be sized for
+     * @param falsePositiveRate  false positive rate the filter must be sized for
+     * @return the filter, or empty if the file does not exist or holds a filter of another size
+     * @throws IOException if the file cannot be read
+     */
+    public static Optional<BloomFilter> read(Path file, long expectedInsertions, double falsePositiveRate) throws IOException {
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        BloomFilter filter = create(expectedInsertions, falsePositiveRate);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            if (channel.size() != HEADER_BYTES + filter.words.capacity() || channel.read(header, 0) < HEADER_BYTES
+                || header.flip().getInt() != MAGIC || header.getLong() != filter.bits || header.getInt() != filter.hashFunctions) {
+                return Optional.empty();
+            }
+            filter.insertions = header.getLong();
+
+            ByteBuffer words = filter.words.duplicate().clear();
+            long position = HEADER_BYTES;
+            while (words.hasRemaining()) {
+                int read = channel.read(words, position);
+                if (read < 0) {
+                    return Optional.empty();
+                }
+                position += read;
+            }
+        }
+
+        return Optional.of(filter);
+    }
+
+    /**
+     * Writes the filter to a file atomically, replacing any previous one.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putLong(bits).putInt(hashFunctions).putLong(insertions).flip());
+            ByteBuffer words = this.words.duplicate().clear();
+            while (words.hasRemaining()) {
+                channel.write(words);
+            }
+            channel.force(true);
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return {@code false} if the hash was definitely never inserted
+     */
+    public boolean mightContain(long hash) {
+        long h2 = secondHash(hash);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(hash + i * h2, bits);
+            if ((words.getLong(wordOffset(bit)) & mask(bit)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Inserts a hash.
+     *
+     * @return {@code true} if the hash was definitely not inserted before, i.e. some bit changed
+     */
+    public boolean put(long hash) {
+        long h2 = secondHash(hash);
+        boolean changed = false;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(hash + i * h2, bits);
+            int offset = wordOffset(bit);
+            long word = words.getLong(offset);
+            if ((word & mask(bit)) == 0) {
+                words.putLong(offset, word | mask(bit));
+                changed = true;
+            }
+        }
+        if (changed) {
+            insertions++;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Adds every hash of another filter of the same size to this one. Its insertions are added
+     * to the count of this one, even those this one already held.
+     *
+     * @throws IllegalArgumentException if the filters differ in size
+     */
+    public void merge(BloomFilter other) {
+        if (other.bits != bits || other.hashFunctions != hashFunctions) {
+            throw new IllegalArgumentException("Cannot merge Bloom filters of different sizes");
+        }
+
+        for (int offset = 0; offset < words.capacity(); offset += Long.BYTES) {
+            words.putLong(offset, words.getLong(offset) | other.words.getLong(offset));
+        }
+        insertions += other.insertions;
+    }
+
+    /**
+     * @return the number of hashes inserted, including through {@link #merge(BloomFilter)}, but
+     * not those found already present
+     */
+    public long insertions() {
+        return insertions;
+    }
+
+    /**
+     * @return the memory taken by the bits, in bytes
+     */
+    public long sizeBytes() {
+        return words.capacity();
+    }
+
+    /**
+     * Second hash of the double hashing scheme, the MurmurHash3 finalizer of the first one.
+     * Forced odd so that it is never zero, which would put all {@code k} positions on one bit.
+     */
+    private static long secondHash(long hash) {
+        long h = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+
+        return (h ^ (h >>> 33)) | 1;
+    }
+
+    private static int wordOffset(long bit) {
+        return (int) (bit >>> 6) * Long.BYTES;
+    }
+
+    private static long mask(long bit) {
+        return 1L << (bit & 63);
+    }
+}
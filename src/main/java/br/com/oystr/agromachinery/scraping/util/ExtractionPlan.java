@@ -0,0 +1,302 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Collector;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.QueryParser;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Declarative description of the fields a scraper reads from a page, compiled once and
+ * evaluated in a single traversal of the document.
+ * <p>
+ * Each {@link Field} is either found by a selector or by its label in a "label: value" row
+ * (e.g. {@code <li><span>Ano:</span><span>2020</span></li>}), and has a converter from the
+ * matched element to its value. All selectors are parsed into Jsoup {@link Evaluator}s when
+ * the plan is built, so extracting a page never parses a CSS query. While the document is
+ * walked, every row is indexed by its normalized label, and the walk stops as soon as every
+ * field was found.
+ * </p>
+ * <p>
+ * Anchor and row selectors are matched against each visited element, so they must only look at
+ * the element itself (tag, id, class, attributes, {@code :contains}); combinators and
+ * {@code :has} are rejected. Selectors relative to an anchor or row ({@code within},
+ * {@code label}, {@code value}) may be any CSS query.
+ * </p>
+ *
+ * <p>Plans are immutable and can be shared between threads.</p>
+ */
+public final class ExtractionPlan {
+
+    private final List<Field<?>> fields;
+    private final List<LabelRows> labelRows;
+
+    private ExtractionPlan(List<Field<?>> fields, List<LabelRows> labelRows) {
+        this.fields = List.copyOf(fields);
+        this.labelRows = List.copyOf(labelRows);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * A field read from the first element matching {@code anchor}.
+     *
+     * @param anchor    selector matched against each element of the page
+     * @param converter converts the matched element into the field value
+     * @return the field
+     */
+    public static <T> Field<T> selector(String anchor, Function<Element, T> converter) {
+        return new Field<>(compileSimple(anchor), null, null, converter);
+    }
+
+    /**
+     * A field read from the first element matching {@code within} inside the first element
+     * matching {@code anchor}, e.g. {@code selector("div.price", "span.value", ...)} for
+     * {@code div.price span.value}.
+     *
+     * @param anchor    selector matched against each element of the page
+     * @param within    selector applied inside the anchor
+     * @param converter converts the matched element into the field value
+     * @return the field
+     */
+    public static <T> Field<T> selector(String anchor, String within, Function<Element, T> converter) {
+        return new Field<>(compileSimple(anchor), QueryParser.parse(within), null, converter);
+    }
+
+    /**
+     * A field read from the value element of the first row with the given label. Labels are
+     * compared ignoring case, surrounding whitespace and a trailing colon; when no row has
+     * exactly that label, the first row whose label contains it is used.
+     *
+     * @param label     the row label, e.g. {@code "Ano"}
+     * @param converter converts the value element into the field value
+     * @return the field
+     */
+    public static <T> Field<T> label(String label, Function<Element, T> converter) {
+        return new Field<>(null, null, normalizeLabel(label), converter);
+    }
+
+    /**
+     * Walks the document once and resolves every field of the plan.
+     *
+     * @param root the document or element to extract from
+     * @return the resolved fields
+     */
+    public Extraction extract(Element root) {
+        Map<Field<?>, Element> found = new IdentityHashMap<>();
+        Map<String, Element> labels = new LinkedHashMap<>();
+
+        NodeTraversor.filter((node, depth) -> {
+            if (node instanceof Element element) {
+                visit(root, element, found, labels);
+                if (allFound(found, labels)) {
+                    return NodeFilter.FilterResult.STOP;
+                }
+            }
+
+            return NodeFilter.FilterResult.CONTINUE;
+        }, root);
+
+        return new Extraction(found, labels);
+    }
+
+    private void visit(Element root, Element element, Map<Field<?>, Element> found, Map<String, Element> labels) {
+        for (Field<?> field : fields) {
+            if (field.anchor != null && !found.containsKey(field) && field.anchor.matches(root, element)) {
+                Element target = field.within == null ? element : Collector.findFirst(field.within, element);
+                if (target != null) {
+                    found.put(field, target);
+                }
+            }
+        }
+
+        for (LabelRows rows : labelRows) {
+            if (rows.row.matches(root, element)) {
+                String label;
+                if (rows.label == null) {
+                    label = element.ownText();
+                } else {
+                    Element labelElement = Collector.findFirst(rows.label, element);
+                    label = labelElement == null ? null : labelElement.ownText();
+                }
+
+                Element value = Collector.findFirst(rows.value, element);
+                if (label != null && value != null) {
+                    labels.putIfAbsent(normalizeLabel(label), value);
+                }
+            }
+        }
+    }
+
+    private boolean allFound(Map<Field<?>, Element> found, Map<String, Element> labels) {
+        for (Field<?> field : fields) {
+            if (field.anchor != null ? !found.containsKey(field) : !labels.containsKey(field.label)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static String normalizeLabel(String label) {
+        String normalized = label.strip().toLowerCase(Locale.ROOT);
+        if (normalized.endsWith(":")) {
+            normalized = normalized.substring(0, normalized.length() - 1).strip();
+        }
+
+        return normalized;
+    }
+
+    private static Evaluator compileSimple(String query) {
+        int parentheses = 0;
+        int brackets = 0;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            switch (c) {
+                case '(' -> parentheses++;
+                case ')' -> parentheses--;
+                case '[' -> brackets++;
+                case ']' -> brackets--;
+                default -> {
+                    if (parentheses == 0 && brackets == 0 && (Character.isWhitespace(c) || c == '>' || c == '+' || c == '~' || c == ',')) {
+                        throw new IllegalArgumentException("Anchor selector must not use combinators: " + query);
+                    }
+                }
+            }
+        }
+        if (query.contains(":has(") || query.contains(":not(") || query.contains(":is(")) {
+            throw new IllegalArgumentException("Anchor selector must not use structural pseudo selectors: " + query);
+        }
+
+        return QueryParser.parse(query);
+    }
+
+    /**
+     * A field of a plan. Fields are compared by identity, so they are usually declared as constants
+     * of the scraper and used both to build the plan and to read the {@link Extraction}.
+     *
+     * @param <T> type of the field value
+     */
+    public static final class Field<T> {
+        private final Evaluator anchor;
+        private final Evaluator within;
+        private final String label;
+        private final Function<Element, T> converter;
+
+        private Field(Evaluator anchor, Evaluator within, String label, Function<Element, T> converter) {
+            this.anchor = anchor;
+            this.within = within;
+            this.label = label;
+            this.converter = converter;
+        }
+    }
+
+    /**
+     * Fields resolved from one page.
+     */
+    public static final class Extraction {
+        private final Map<Field<?>, Element> found;
+        private final Map<String, Element> labels;
+
+        private Extraction(Map<Field<?>, Element> found, Map<String, Element> labels) {
+            this.found = found;
+            this.labels = labels;
+        }
+
+        /**
+         * Converts the element matched by a field.
+         *
+         * @param field a field of the plan
+         * @return the converted value, or {@code null} if the page has no element for the field
+         */
+        public <T> T get(Field<T> field) {
+            Element element = field.anchor != null ? found.get(field) : findLabel(field.label);
+
+            return element == null ? null : field.converter.apply(element);
+        }
+
+        private Element findLabel(String label) {
+            Element exact = labels.get(label);
+            if (exact != null) {
+                return exact;
+            }
+
+            for (Map.Entry<String, Element> entry : labels.entrySet()) {
+                if (entry.getKey().contains(label)) {
+                    return entry.getValue();
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Rows indexed by label: the label is the own text of the {@code label} element inside the
+     * row, or of the row itself when {@code label} is {@code null}.
+     */
+    private record LabelRows(Evaluator row, Evaluator label, Evaluator value) {
+    }
+
+    /**
+     * Builder of {@link ExtractionPlan}.
+     */
+    public static final class Builder {
+        private final List<Field<?>> fields = new ArrayList<>();
+        private final List<LabelRows> labelRows = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Indexes rows whose label and value are child elements, e.g.
+         * {@code labelRows("li.item", "span.item-name", "span.item-value")}.
+         */
+        public Builder labelRows(String row, String label, String value) {
+            labelRows.add(new LabelRows(compileSimple(row), QueryParser.parse(label), QueryParser.parse(value)));
+            return this;
+        }
+
+        /**
+         * Indexes rows labelled by their own text, e.g. {@code <p>Marca: <strong>John Deere</strong></p>}
+         * with {@code ownTextLabelRows("p", "strong")}.
+         */
+        public Builder ownTextLabelRows(String row, String value) {
+            labelRows.add(new LabelRows(compileSimple(row), null, QueryParser.parse(value)));
+            return this;
+        }
+
+        /**
+         * Adds fields to the plan.
+         */
+        public Builder fields(Field<?>... fields) {
+            this.fields.addAll(List.of(fields));
+            return this;
+        }
+
+        /**
+         * Builds the plan.
+         *
+         * @throws IllegalStateException if label fields are declared without label rows
+         */
+        public ExtractionPlan build() {
+            boolean needsLabels = fields.stream().anyMatch(field -> field.label != null);
+            if (needsLabels && labelRows.isEmpty()) {
+                throw new IllegalStateException("Label fields need label rows to be declared");
+            }
+
+            return new ExtractionPlan(fields, labelRows);
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.OutputFormat;
+import br.com.oystr.agromachinery.scraping.model.PhotoOutput;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MachineSink} writing the machines to rotating NDJSON or CSV files (see {@link OutputFormat}).
+ * <p>
+ * Workers only put the machine in a bounded queue; a background thread takes them in batches
+ * of {@code batchSize}, or whatever arrived within {@code flushInterval}, encodes each batch in
+ * memory (NDJSON through Jackson's streaming generator, without building a tree) and writes it
+ * to the file in one call. A full queue blocks the workers, so a slow disk throttles the
+ * scraping instead of filling the heap.
+ * </p>
+ * <p>
+ * Files are named {@code machines-<start time>-<sequence>.<format>} and are written under a
+ * {@code .part} suffix, renamed once they reach {@code rotateBytes} or the sink is closed, so
+ * readers only ever see complete files. With {@link PhotoOutput#SEPARATE} photos go to
+ * {@code photos-<start time>-<sequence>.ndjson} files rotated with the machine files. Lazy
+ * photos are loaded by the worker before queueing, never by the writer thread.
+ * </p>
+ */
+public final class FileMachineSink implements MachineSink {
+
+    private static final Logger log = LoggerFactory.getLogger(FileMachineSink.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+    private static final String PART_SUFFIX = ".part";
+    /**
+     * Marks the end of the queue, put by {@link #close()}.
+     */
+    private static final Machine END = new Machine(null, null, null, null, null, null, null, null, null, null);
+
+    private final Settings settings;
+    private final String prefix;
+    private final BlockingQueue<Machine> queue;
+    private final ByteArrayOutputStream machineBuffer = new ByteArrayOutputStream(64 * 1024);
+    private final ByteArrayOutputStream photoBuffer = new ByteArrayOutputStream(64 * 1024);
+    private final Encoder encoder;
+    private final JsonGenerator photoJson;
+    private final Thread writer;
+    private OutputFile machineFile;
+    private OutputFile photoFile;
+    private int sequence;
+    private volatile long written;
+    private int files;
+    private volatile boolean closed;
+    private volatile Exception failure;
+
+    private FileMachineSink(Settings settings) throws IOException {
+        this.settings = settings;
+        this.prefix = FILE_TIMESTAMP.format(Instant.now());
+        this.queue = new ArrayBlockingQueue<>(settings.queueCapacity());
+        this.encoder = switch (settings.format()) {
+            case NDJSON -> new NdjsonEncoder();
+            case CSV -> new CsvEncoder();
+            case NONE -> throw new IllegalArgumentException("Use MachineSink.LOG to only log machines");
+        };
+        this.photoJson = ndjsonGenerator(photoBuffer);
+        this.writer = Thread.ofPlatform().name("machine-sink").daemon(true).unstarted(this::run);
+    }
+
+    /**
+     * @param settings where and how to write the machines
+     * @return a sink writing to new files in {@code settings.directory()}, to be closed once the batch is done
+     * @throws IOException if the directory cannot be created
+     */
+    public static FileMachineSink open(Settings settings) throws IOException {
+        Files.createDirectories(settings.directory());
+        FileMachineSink sink = new FileMachineSink(settings);
+        sink.writer.start();
+
+        return sink;
+    }
+
+    /**
+     * Queues the machine, waiting for room if the writer is behind.
+     *
+     * @throws UncheckedIOException  if a previous batch could not be written
+     * @throws IllegalStateException if the sink is closed or the thread is interrupted while waiting
+     */
+    @Override
+    public void accept(Machine machine) {
+        if (closed) {
+            throw new IllegalStateException("Machine sink is closed");
+        }
+        throwIfFailed();
+        if (settings.photos() != PhotoOutput.NONE && machine.photoPayload() != null) {
+            machine.photoPayload().base64();
+        }
+
+        try {
+            queue.put(machine);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing machine " + machine.url(), e);
+        }
+    }
+
+    /**
+     * Writes the queued machines, then closes and renames the current files.
+     *
+     * @throws IOException if some machines could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the last machines to " + settings.directory(), e);
+        }
+
+        log.info("Wrote {} machines to {} {} files in {}", written, files, settings.format(), settings.directory());
+        if (failure != null) {
+            throw new IOException("Failed to write machines to " + settings.directory(), failure);
+        }
+    }
+
+    /**
+     * @return the number of machines written to files so far
+     */
+    public long written() {
+        return written;
+    }
+
+    private void run() {
+        List<Machine> batch = new ArrayList<>(settings.batchSize());
+        long flushIntervalNanos = settings.flushInterval().toNanos();
+        boolean end = false;
+        try {
+            while (!end) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < settings.batchSize() && batch.getLast() != END) {
+                    queue.drainTo(batch, settings.batchSize() - batch.size());
+                    if (batch.getLast() == END || batch.size() >= settings.batchSize()) {
+                        break;
+                    }
+                    Machine next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                end = batch.getLast() == END;
+                if (end) {
+                    batch.removeLast();
+                }
+                write(batch);
+                batch.clear();
+            }
+            rotate();
+        } catch (InterruptedException e) {
+            failure = e;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write machines to {}, discarding the next ones", settings.directory(), e);
+            failure = e;
+            discardUntilEnd(end);
+        }
+    }
+
+    private void write(List<Machine> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        for (Machine machine : batch) {
+            encoder.write(machine, settings.photos() == PhotoOutput.INLINE);
+            if (settings.photos() == PhotoOutput.SEPARATE) {
+                writePhoto(machine);
+            }
+        }
+        encoder.flush();
+        photoJson.flush();
+
+        if (machineFile == null) {
+            sequence++;
+            machineFile = OutputFile.open(file("machines", settings.format().name().toLowerCase()));
+            machineFile.write(encoder.header());
+            files++;
+        }
+        machineFile.write(machineBuffer);
+        if (photoBuffer.size() > 0) {
+            if (photoFile == null) {
+                photoFile = OutputFile.open(file("photos", "ndjson"));
+            }
+            photoFile.write(photoBuffer);
+        }
+        written += batch.size();
+
+        if (machineFile.bytes >= settings.rotateBytes() || (photoFile != null && photoFile.bytes >= settings.rotateBytes())) {
+            rotate();
+        }
+    }
+
+    private void writePhoto(Machine machine) throws IOException {
+        String base64 = machine.photoBase64();
+        if (base64 == null) {
+            return;
+        }
+
+        photoJson.writeStartObject();
+        photoJson.writeStringField("url", machine.url());
+        photoJson.writeStringField("photoBase64", base64);
+        photoJson.writeEndObject();
+        photoJson.writeRaw('\n');
+    }
+
+    /**
+     * Closes the current files and gives them their final name.
+     */
+    private void rotate() throws IOException {
+        try (OutputFile ignored = photoFile) {
+            if (machineFile != null) {
+                machineFile.close();
+            }
+        } finally {
+            machineFile = null;
+            photoFile = null;
+        }
+    }
+
+    private void discardUntilEnd(boolean end) {
+        try {
+            while (!end) {
+                end = queue.take() == END;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void throwIfFailed() {
+        Exception failed = failure;
+        if (failed != null) {
+            throw new UncheckedIOException("Failed to write machines to " + settings.directory(),
+                failed instanceof IOException io ? io : new IOException(failed));
+        }
+    }
+
+    private Path file(String kind, String extension) {
+        return settings.directory().resolve("%s-%s-%05d.%s".formatted(kind, prefix, sequence, extension));
+    }
+
+    private static JsonGenerator ndjsonGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = JSON_FACTORY.createGenerator(out);
+        generator.setRootValueSeparator(null);
+
+        return generator;
+    }
+
+    /**
+     * Encodes machines into {@link #machineBuffer}.
+     */
+    private interface Encoder {
+        /**
+         * @return bytes starting every file
+         */
+        byte[] header();
+
+        void write(Machine machine, boolean withPhoto) throws IOException;
+
+        /**
+         * Moves the encoded machines still buffered by the encoder into {@link #machineBuffer}.
+         */
+        void flush() throws IOException;
+    }
+
+    private final class NdjsonEncoder implements Encoder {
+        private final JsonGenerator json = ndjsonGenerator(machineBuffer);
+
+        private NdjsonEncoder() throws IOException {
+        }
+
+        @Override
+        public byte[] header() {
+            return new byte[0];
+        }
+
+        @Override
+        public void write(Machine machine, boolean withPhoto) throws IOException {
+            MachineJson.write(json, machine, withPhoto);
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            json.flush();
+        }
+    }
+
+    private final class CsvEncoder implements Encoder {
+        private final Writer csv = new OutputStreamWriter(machineBuffer, StandardCharsets.UTF_8);
+
+        @Override
+        public byte[] header() {
+            String photoColumn = settings.photos() == PhotoOutput.INLINE ? ",photoBase64" : "";
+            return ("model,contractType,make,year,workedHours,city,price,photo" + photoColumn + ",url\r\n")
+                .getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void write(Machine machine, boolean withPhoto) throws IOException {
+            field(machine.model());
+            csv.write(',');
+            field(machine.contractType() != null ? machine.contractType().name() : null);
+            csv.write(',');
+            field(machine.make());
+            csv.write(',');
+            field(machine.year() != null ? machine.year().toString() : null);
+            csv.write(',');
+            field(machine.workedHours() != null ? machine.workedHours().toString() : null);
+            csv.write(',');
+            field(machine.city());
+            csv.write(',');
+            BigDecimal price = machine.price();
+            field(price != null ? price.toPlainString() : null);
+            csv.write(',');
+            field(machine.photo());
+            csv.write(',');
+            if (withPhoto) {
+                field(machine.photoBase64());
+                csv.write(',');
+            }
+            field(machine.url());
+            csv.write("\r\n");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            csv.flush();
+        }
+
+        /**
+         * Writes a value, quoted only if it holds a separator, a quote or a line break. Missing
+         * values are left empty.
+         */
+        private void field(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+
+            boolean quoted = false;
+            for (int i = 0; i < value.length() && !quoted; i++) {
+                char c = value.charAt(i);
+                quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+            }
+            if (!quoted) {
+                csv.write(value);
+                return;
+            }
+
+            csv.write('"');
+            csv.write(value.replace("\"", "\"\""));
+            csv.write('"');
+        }
+    }
+
+    /**
+     * File being written under its {@code .part} name.
+     */
+    private static final class OutputFile implements AutoCloseable {
+        private final Path target;
+        private final Path part;
+        private final OutputStream out;
+        private long bytes;
+
+        private OutputFile(Path target, Path part, OutputStream out) {
+            this.target = target;
+            this.part = part;
+            this.out = out;
+        }
+
+        static OutputFile open(Path target) throws IOException {
+            Path part = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+            return new OutputFile(target, part, Files.newOutputStream(part));
+        }
+
+        void write(byte[] bytes) throws IOException {
+            out.write(bytes);
+            this.bytes += bytes.length;
+        }
+
+        /**
+         * Writes and clears the buffer.
+         */
+        void write(ByteArrayOutputStream buffer) throws IOException {
+            buffer.writeTo(out);
+            bytes += buffer.size();
+            buffer.reset();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Configuration of the file sink.
+     *
+     * @param format        format of the machine files, other than {@link OutputFormat#NONE}
+     * @param directory     directory the files are written to
+     * @param photos        where the encoded photos are written
+     * @param batchSize     most machines encoded and written at once
+     * @param flushInterval longest time a queued machine waits for its batch to be written
+     * @param rotateBytes   size from which a file is closed and a new one started
+     * @param queueCapacity machines queued before the workers have to wait for the writer
+     */
+    public record Settings(OutputFormat format,
+                           Path directory,
+                           PhotoOutput photos,
+                           int batchSize,
+                           Duration flushInterval,
+                           long rotateBytes,
+                           int queueCapacity) {
+    }
+}
@@ -0,0 +1,73 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Utility class for computing the content hashes used as cache and snapshot keys, and the
+ * compact hashes used to deduplicate URLs.
+ *
+ * <p>The constructor is private to prevent instantiation.</p>
+ */
+public class HashUtils {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private HashUtils() {
+    }
+
+    /**
+     * Computes the SHA-256 of the given bytes.
+     *
+     * @param bytes the content to hash
+     * @return the hash as a lowercase hex string
+     */
+    public static String sha256(byte[] bytes) {
+        return HexFormat.of().formatHex(newSha256().digest(bytes));
+    }
+
+    /**
+     * Creates a SHA-256 digest for hashing content incrementally.
+     *
+     * @return a new {@link MessageDigest}; format its result with {@link HexFormat}
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Computes the SHA-256 of the UTF-8 bytes of the given string.
+     *
+     * @param value the string to hash
+     * @return the hash as a lowercase hex string
+     */
+    public static String sha256(String value) {
+        return sha256(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Computes a 64-bit hash of a string: FNV-1a over its chars followed by the SplitMix64
+     * finalizer, which spreads the bits well enough to key hash tables. Not a cryptographic hash.
+     *
+     * @param value the string to hash
+     * @return the hash
+     */
+    public static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+
+        return hash ^ (hash >>> 31);
+    }
+}
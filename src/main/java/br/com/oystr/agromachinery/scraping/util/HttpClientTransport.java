@@ -0,0 +1,80 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * {@link HttpTransport} backed by a single shared {@link HttpClient}.
+ * <p>
+ * The client negotiates HTTP/2 when the server supports it, keeps connections
+ * alive and reuses them for every request to the same host, so the TLS
+ * handshake is only paid once per host. Responses are requested with
+ * {@code gzip}/{@code deflate} compression and transparently decompressed.
+ * </p>
+ */
+@Service
+public class HttpClientTransport implements HttpTransport {
+
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private final HttpClient httpClient;
+    private final String userAgent;
+    private final Duration timeout;
+
+    public HttpClientTransport(@Value("${scraper.user-agent}") String userAgent,
+                               @Value("${scraper.timeout}") int timeout) {
+        this.userAgent = userAgent;
+        this.timeout = Duration.ofMillis(timeout);
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(this.timeout)
+            .build();
+    }
+
+    @Override
+    public TransportResponse get(String url, Map<String, String> headers) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+            .GET()
+            .timeout(timeout)
+            .header("User-Agent", userAgent)
+            .header("Accept-Encoding", ACCEPT_ENCODING);
+        headers.forEach(request::header);
+
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+
+            return new TransportResponse(
+                response.statusCode(),
+                response.uri().toString(),
+                response.headers(),
+                decode(response)
+            );
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching " + url);
+        }
+    }
+
+    private InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("").trim().toLowerCase();
+
+        return switch (encoding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(response.body());
+            case "deflate" -> new InflaterInputStream(response.body());
+            default -> response.body();
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Transport used to download pages and photos.
+ * <p>
+ * Implementations are expected to be shared by every scraper so that
+ * connections to the same host are pooled and reused across requests.
+ * Parsing is not a concern of the transport: callers receive the raw
+ * (already decompressed) response body and decide how to read it.
+ * </p>
+ */
+public interface HttpTransport {
+
+    /**
+     * Performs a {@code GET} request.
+     *
+     * @param url     the URL to fetch
+     * @param headers additional request headers, may be empty
+     * @return the response; the caller must close it to release the connection
+     * @throws IOException if the request could not be completed
+     */
+    TransportResponse get(String url, Map<String, String> headers) throws IOException;
+}
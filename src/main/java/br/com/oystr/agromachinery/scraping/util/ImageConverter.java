@@ -1,28 +1,69 @@
 package br.com.oystr.agromachinery.scraping.util;
 
+import br.com.oystr.agromachinery.scraping.exceptions.ImageTooLargeException;
+import br.com.oystr.agromachinery.scraping.model.PhotoMode;
+import br.com.oystr.agromachinery.scraping.model.PhotoPayload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
- * Utility class for converting remote images (fetched by URL) into Base64-encoded strings.
+ * Service for converting remote images (fetched by URL) into Base64-encoded data.
  * <p>
- * This class provides a static method to retrieve an image from a given URL,
- * read its bytes, and return the result as a Base64-encoded {@link String}.
- * <br>
+ * Images are downloaded through the shared {@link HttpTransport}, so photos
+ * reuse the same pooled connections as the pages they belong to. Downloaded
+ * photos are kept in the {@link PhotoCache}; a cached photo is served from disk
+ * while fresh and revalidated with a conditional request once it gets stale.
+ * </p>
+ *
+ * <p>
+ * Images are streamed in fixed-size chunks from the network (or the cache) through
+ * a Base64 encoder into a caller-supplied sink, so the raw image is never held in
+ * memory as a whole. Images larger than {@code scraper.photo-max-bytes} are rejected
+ * with an {@link ImageTooLargeException}.
+ * </p>
+ *
+ * <p>
+ * The whole retrieval of each photo and the part of it spent in the Base64 encoder are
+ * recorded as {@link ScrapeMetrics} stages.
+ * </p>
  */
+@Service
 public class ImageConverter {
 
     private static final Logger log = LoggerFactory.getLogger(ImageConverter.class);
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int POOLED_CHUNKS = 64;
 
-    /**
-     * Private constructor to prevent instantiation.
-     */
-    private ImageConverter() {
+    private final HttpTransport httpTransport;
+    private final PhotoCache photoCache;
+    private final long maxImageBytes;
+    private final ScrapeMetrics metrics;
+    private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(POOLED_CHUNKS);
+
+    public ImageConverter(HttpTransport httpTransport,
+                          PhotoCache photoCache,
+                          @Value("${scraper.photo-max-bytes}") long maxImageBytes,
+                          ScrapeMetrics metrics) {
+        this.httpTransport = httpTransport;
+        this.photoCache = photoCache;
+        this.maxImageBytes = maxImageBytes;
+        this.metrics = metrics;
     }
 
     /**
@@ -32,15 +73,213 @@ public class ImageConverter {
      * @return an {@link Optional} containing the Base64-encoded string if successful,
      * or an empty {@link Optional} if the image could not be fetched or converted
      */
-    public static Optional<String> convertImageToBase64(String imageUrl) {
-        try (InputStream in = URI.create(imageUrl).toURL().openStream()) {
-            byte[] bytes = in.readAllBytes();
+    public Optional<String> convertImageToBase64(String imageUrl) {
+        try {
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream(CHUNK_SIZE);
+            writeImageBase64(imageUrl, encoded);
 
-            return Optional.of(Base64.getEncoder().encodeToString(bytes));
+            return Optional.of(encoded.toString(StandardCharsets.US_ASCII));
         } catch (Exception e) {
             log.warn("Failed to fetch or convert image from URL: {}", imageUrl, e);
 
             return Optional.empty();
         }
     }
+
+    /**
+     * Streams the Base64 encoding of the image found at the given URL into a sink.
+     * <p>
+     * The sink is flushed but not closed. If the download fails midway, for instance
+     * because the image exceeds the maximum size, the sink may have received a partial
+     * encoding and should be discarded by the caller.
+     * </p>
+     *
+     * @param imageUrl the URL of the image to fetch
+     * @param sink     receives the Base64-encoded image
+     * @return the size of the raw image in bytes
+     * @throws ImageTooLargeException if the image exceeds {@code scraper.photo-max-bytes}
+     * @throws IOException            if the image could not be fetched
+     */
+    public long writeImageBase64(String imageUrl, OutputStream sink) throws IOException {
+        String host = UrlUtils.authority(imageUrl);
+        long start = System.nanoTime();
+        TimedOutputStream encoder = new TimedOutputStream(Base64.getEncoder().wrap(new UnclosableOutputStream(sink)));
+        long size;
+        try (encoder) {
+            size = writeImage(imageUrl, encoder);
+        } catch (IOException | RuntimeException e) {
+            metrics.record(ScrapeMetrics.Stage.PHOTO_FETCH, host, ScrapeMetrics.outcome(e), start);
+            throw e;
+        }
+        metrics.record(ScrapeMetrics.Stage.PHOTO_FETCH, host, ScrapeMetrics.SUCCESS, start);
+        metrics.recordNanos(ScrapeMetrics.Stage.PHOTO_ENCODE, host, ScrapeMetrics.SUCCESS, encoder.nanos);
+
+        return size;
+    }
+
+    /**
+     * Creates the photo payload of a machine according to the given mode.
+     *
+     * @param imageUrl  the URL of the photo, may be {@code null}
+     * @param photoMode whether the photo is retrieved now, on first access or not at all
+     * @return the payload, or {@code null} if there is no photo URL or photos are skipped
+     */
+    public PhotoPayload photoPayload(String imageUrl, PhotoMode photoMode) {
+        if (imageUrl == null) {
+            return null;
+        }
+
+        return switch (photoMode) {
+            case EAGER -> PhotoPayload.of(convertImageToBase64(imageUrl).orElse(null));
+            case LAZY -> PhotoPayload.lazy(() -> convertImageToBase64(imageUrl), sink -> writeImageBase64(imageUrl, sink));
+            case SKIP -> null;
+        };
+    }
+
+    private long writeImage(String imageUrl, OutputStream out) throws IOException {
+        Optional<PhotoCache.Entry> cached = photoCache.lookup(imageUrl);
+        if (cached.isPresent() && photoCache.isFresh(cached.get())) {
+            long size = copyCached(cached.get(), out);
+            if (size >= 0) {
+                return size;
+            }
+            cached = Optional.empty();
+        }
+
+        long size = download(imageUrl, cached.orElse(null), out);
+        return size >= 0 ? size : download(imageUrl, null, out);
+    }
+
+    /**
+     * Downloads an image, conditionally when a cached entry is given.
+     *
+     * @return the size of the image, or {@code -1} if the server answered 304 but the
+     * cached blob was evicted meanwhile, in which case nothing was written
+     */
+    private long download(String imageUrl, PhotoCache.Entry cached, OutputStream out) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        if (cached != null) {
+            if (cached.etag() != null) {
+                headers.put("If-None-Match", cached.etag());
+            }
+            if (cached.lastModified() != null) {
+                headers.put("If-Modified-Since", cached.lastModified());
+            }
+        }
+
+        try (TransportResponse response = httpTransport.get(imageUrl, headers)) {
+            if (response.statusCode() == 304 && cached != null) {
+                photoCache.revalidated(cached);
+                return copyCached(cached, out);
+            }
+
+            if (response.statusCode() >= 400) {
+                throw new IOException("HTTP " + response.statusCode() + " fetching image");
+            }
+
+            long contentLength = response.header("Content-Length").map(Long::parseLong).orElse(-1L);
+            if (contentLength > maxImageBytes) {
+                throw new ImageTooLargeException("Image of %d bytes exceeds the limit of %d bytes".formatted(contentLength, maxImageBytes));
+            }
+
+            try (PhotoCache.PendingPhoto pending = photoCache.begin(imageUrl,
+                response.header("ETag").orElse(null), response.header("Last-Modified").orElse(null))) {
+                long size = copy(response.body(), out, pending);
+                pending.commit();
+
+                return size;
+            }
+        }
+    }
+
+    /**
+     * Copies a cached image.
+     *
+     * @return the size of the image, or {@code -1} if its blob was evicted after the lookup
+     */
+    private long copyCached(PhotoCache.Entry cached, OutputStream out) throws IOException {
+        InputStream in;
+        try {
+            in = photoCache.open(cached);
+        } catch (NoSuchFileException e) {
+            log.debug("Cached photo of {} was evicted, downloading it again", cached.url());
+            return -1;
+        }
+
+        try (in) {
+            return copy(in, out, OutputStream.nullOutputStream());
+        }
+    }
+
+    private long copy(InputStream in, OutputStream out, OutputStream tee) throws IOException {
+        byte[] chunk = acquireChunk();
+        try {
+            long total = 0;
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                total += read;
+                if (total > maxImageBytes) {
+                    throw new ImageTooLargeException("Image exceeds the limit of %d bytes".formatted(maxImageBytes));
+                }
+
+                out.write(chunk, 0, read);
+                tee.write(chunk, 0, read);
+            }
+
+            return total;
+        } finally {
+            chunks.offer(chunk);
+        }
+    }
+
+    private byte[] acquireChunk() {
+        byte[] chunk = chunks.poll();
+        return chunk != null ? chunk : new byte[CHUNK_SIZE];
+    }
+
+    /**
+     * Sums the time spent in the wrapped stream, i.e. encoding and writing to the sink.
+     */
+    private static final class TimedOutputStream extends FilterOutputStream {
+
+        private long nanos;
+
+        private TimedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            out.write(b, off, len);
+            nanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public void close() throws IOException {
+            long start = System.nanoTime();
+            out.close();
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Lets the Base64 encoder write its final padding on close without closing the caller's sink.
+     */
+    private static final class UnclosableOutputStream extends FilterOutputStream {
+
+        private UnclosableOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
 }
@@ -1,42 +1,309 @@
 package br.com.oystr.agromachinery.scraping.util;
 
+import br.com.oystr.agromachinery.scraping.exceptions.HostThrottledException;
+import br.com.oystr.agromachinery.scraping.exceptions.PageNotModifiedException;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+import org.jsoup.select.Evaluator;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 /**
- * A utility service that wraps {@link Jsoup} HTTP calls for fetching and parsing HTML documents.
+ * A utility service that fetches HTML documents and parses them with {@link Jsoup}.
  * <p>
- * This wrapper centralizes common settings such as the User-Agent header and connection timeout,
- * allowing scrapers to reuse a consistent configuration for HTTP requests.
+ * Downloading is delegated to the shared {@link HttpTransport}, which centralizes
+ * common settings such as the User-Agent header and timeout and reuses pooled
+ * connections. Jsoup is only used to parse the response bytes.
+ * </p>
+ *
+ * <p>
+ * When the {@link PageSnapshotStore} knows a page, the request is made conditional on
+ * its validators. If the page did not change, a {@link PageNotModifiedException} is
+ * thrown instead of parsing it again.
+ * </p>
+ *
+ * <p>
+ * Responses asking to slow down ({@code 429} and {@code 503}) are surfaced as a
+ * {@link HostThrottledException} carrying the {@code Retry-After} delay, so the scraper
+ * service can adapt the request rate of the host.
+ * </p>
+ *
+ * <p>
+ * With {@code scraper.stream-parsing} enabled, callers that declare {@link StreamTargets}
+ * get a partial document: the page is parsed with Jsoup's {@link StreamParser}, elements
+ * outside the targets are dropped as soon as they are closed and parsing stops once every
+ * required target was found, so the rest of the page is never turned into nodes.
+ * </p>
+ *
+ * <p>
+ * The time to the response headers, the body download and the parsing are recorded as
+ * separate {@link ScrapeMetrics} stages, tagged by host and outcome.
  * </p>
  */
 @Service
 public class JsoupWrapper {
-    @Value("${scraper.user-agent}")
-    private String userAgent;
 
-    @Value("${scraper.timeout}")
-    private int timeout;
+    private final HttpTransport httpTransport;
+    private final PageSnapshotStore pageSnapshotStore;
+    private final boolean streamParsing;
+    private final ScrapeMetrics metrics;
+
+    private static final Set<String> STRUCTURAL_TAGS = Set.of("html", "head", "body");
+
+    public JsoupWrapper(HttpTransport httpTransport,
+                        PageSnapshotStore pageSnapshotStore,
+                        @Value("${scraper.stream-parsing}") boolean streamParsing,
+                        ScrapeMetrics metrics) {
+        this.httpTransport = httpTransport;
+        this.pageSnapshotStore = pageSnapshotStore;
+        this.streamParsing = streamParsing;
+        this.metrics = metrics;
+    }
 
     /**
-     * Fetches and parses an HTML document from the given URL using {@link Jsoup}.
+     * Fetches and parses an HTML document from the given URL.
      * <p>
-     * The request uses the configured User-Agent and timeout from application properties,
-     * ensuring consistent and configurable behavior across all scrapers.
+     * The request goes through the shared {@link HttpTransport}, ensuring consistent
+     * and configurable behavior across all scrapers.
      * </p>
      *
      * @param url the URL of the web page to fetch
      * @return the parsed {@link Document} representing the HTML content of the page
-     * @throws IOException if an I/O error occurs while fetching the URL
+     * @throws PageNotModifiedException if the page is unchanged since its last snapshot
+     * @throws HostThrottledException   if the server answers with {@code 429} or {@code 503}
+     * @throws HttpStatusException      if the server answers with another error status
+     * @throws IOException              if an I/O error occurs while fetching the URL
      */
     public Document fetch(String url) throws IOException {
-        return Jsoup.connect(url)
-            .userAgent(userAgent)
-            .timeout(timeout)
-            .get();
+        return parse(download(url));
+    }
+
+    /**
+     * Fetches an HTML document, keeping only the given targets when streaming parsing is enabled.
+     *
+     * @param url     the URL of the web page to fetch
+     * @param targets the elements the caller reads, or {@code null} to build the full document
+     * @return the parsed, possibly partial, {@link Document}
+     * @throws PageNotModifiedException if the page is unchanged since its last snapshot
+     * @throws HostThrottledException   if the server answers with {@code 429} or {@code 503}
+     * @throws HttpStatusException      if the server answers with another error status
+     * @throws IOException              if an I/O error occurs while fetching the URL
+     * @see #parse(RawPage, StreamTargets)
+     */
+    public Document fetch(String url, StreamTargets targets) throws IOException {
+        return parse(download(url), targets);
+    }
+
+    /**
+     * Downloads a page without parsing it.
+     *
+     * @param url the URL of the web page to fetch
+     * @return the downloaded page
+     * @throws PageNotModifiedException if the page is unchanged since its last snapshot
+     * @throws HostThrottledException   if the server answers with {@code 429} or {@code 503}
+     * @throws HttpStatusException      if the server answers with another error status
+     * @throws IOException              if an I/O error occurs while fetching the URL
+     */
+    public RawPage download(String url) throws IOException {
+        Optional<PageSnapshotStore.Validators> previous = pageSnapshotStore.find(url).map(PageSnapshotStore.Snapshot::validators);
+        String host = UrlUtils.authority(url);
+
+        long start = System.nanoTime();
+        TransportResponse transportResponse;
+        try {
+            transportResponse = httpTransport.get(url, conditionalHeaders(previous));
+        } catch (IOException | RuntimeException e) {
+            metrics.record(ScrapeMetrics.Stage.RESPONSE, host, ScrapeMetrics.outcome(e), start);
+            throw e;
+        }
+        metrics.record(ScrapeMetrics.Stage.RESPONSE, host, ScrapeMetrics.outcome(transportResponse.statusCode()), start);
+
+        try (TransportResponse response = transportResponse) {
+            if (response.statusCode() == 304 && previous.isPresent()) {
+                throw new PageNotModifiedException("Page not modified: " + url);
+            }
+
+            if (response.statusCode() == 429 || response.statusCode() == 503) {
+                throw new HostThrottledException(new HttpStatusException("HTTP error fetching URL", response.statusCode(), url),
+                    response.header("Retry-After").map(JsoupWrapper::parseRetryAfter).orElse(null));
+            }
+
+            if (response.statusCode() >= 400) {
+                throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), url);
+            }
+
+            long bodyStart = System.nanoTime();
+            byte[] content;
+            try {
+                content = response.body().readAllBytes();
+            } catch (IOException e) {
+                metrics.record(ScrapeMetrics.Stage.DOWNLOAD, host, ScrapeMetrics.outcome(e), bodyStart);
+                throw e;
+            }
+            metrics.record(ScrapeMetrics.Stage.DOWNLOAD, host, ScrapeMetrics.SUCCESS, bodyStart);
+            metrics.recordDownloadBytes(host, content.length);
+
+            String contentHash = HashUtils.sha256(content);
+            if (previous.isPresent() && contentHash.equals(previous.get().contentHash())) {
+                throw new PageNotModifiedException("Page content unchanged: " + url);
+            }
+
+            pageSnapshotStore.stage(url, new PageSnapshotStore.Validators(
+                response.header("ETag").orElse(null),
+                response.header("Last-Modified").orElse(null),
+                contentHash
+            ));
+
+            return new RawPage(url, response.url(), response.charset(), content);
+        }
+    }
+
+    /**
+     * Parses a downloaded page with {@link Jsoup}.
+     *
+     * @param page the downloaded page
+     * @return the parsed {@link Document}
+     * @throws IOException if the content cannot be decoded
+     */
+    public Document parse(RawPage page) throws IOException {
+        long start = System.nanoTime();
+        Document document = Jsoup.parse(new ByteArrayInputStream(page.content()), page.charset(), page.location());
+        metrics.record(ScrapeMetrics.Stage.PARSE, UrlUtils.authority(page.url()), ScrapeMetrics.SUCCESS, start);
+
+        return document;
+    }
+
+    /**
+     * Parses a downloaded page, keeping only the given targets when streaming parsing is enabled.
+     * <p>
+     * The full document is built when streaming is disabled, no targets are given or the
+     * server did not declare a charset, since the content must then be sniffed for one.
+     * </p>
+     *
+     * @param page    the downloaded page
+     * @param targets the elements the caller reads, or {@code null} to build the full document
+     * @return the parsed, possibly partial, {@link Document}
+     * @throws IOException if the content cannot be decoded
+     */
+    public Document parse(RawPage page, StreamTargets targets) throws IOException {
+        if (!streamParsing || targets == null || page.charset() == null) {
+            return parse(page);
+        }
+
+        long start = System.nanoTime();
+        Document document = streamParse(page, targets);
+        metrics.record(ScrapeMetrics.Stage.PARSE, UrlUtils.authority(page.url()), ScrapeMetrics.SUCCESS, start);
+
+        return document;
+    }
+
+    private Document streamParse(RawPage page, StreamTargets targets) throws IOException {
+        try (StreamParser streamParser = new StreamParser(Parser.htmlParser())) {
+            streamParser.parse(new InputStreamReader(new ByteArrayInputStream(page.content()), Charset.forName(page.charset())),
+                page.location());
+
+            List<Evaluator> required = targets.required();
+            boolean[] found = new boolean[required.size()];
+            int missing = found.length;
+            Map<Element, Boolean> insideTarget = new IdentityHashMap<>();
+
+            Iterator<Element> closedElements = streamParser.iterator();
+            while (missing > 0 && closedElements.hasNext()) {
+                Element element = closedElements.next();
+                for (int i = 0; i < found.length; i++) {
+                    if (!found[i] && element.is(required.get(i))) {
+                        found[i] = true;
+                        missing--;
+                    }
+                }
+
+                boolean keep = isInsideTarget(element, targets, insideTarget)
+                    || element.childrenSize() > 0
+                    || STRUCTURAL_TAGS.contains(element.normalName());
+                insideTarget.remove(element);
+                if (!keep) {
+                    element.remove();
+                }
+            }
+
+            return streamParser.document();
+        }
+    }
+
+    /**
+     * Whether the element or one of its ancestors is a target. Results for the (still open)
+     * ancestors are memoized, since they are checked again for each of their descendants.
+     */
+    private boolean isInsideTarget(Element element, StreamTargets targets, Map<Element, Boolean> insideTarget) {
+        if (targets.matchesAny(element)) {
+            return true;
+        }
+
+        Element parent = element.parent();
+        if (parent == null) {
+            return false;
+        }
+
+        Boolean parentInside = insideTarget.get(parent);
+        if (parentInside == null) {
+            parentInside = isInsideTarget(parent, targets, insideTarget);
+            insideTarget.put(parent, parentInside);
+        }
+
+        return parentInside;
+    }
+
+    /**
+     * Parses a {@code Retry-After} header, given either in seconds or as an HTTP date.
+     *
+     * @return the delay to wait, or {@code null} if the header cannot be parsed
+     */
+    static Duration parseRetryAfter(String retryAfter) {
+        String value = retryAfter.trim();
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            try {
+                Duration delay = Duration.between(Instant.now(), ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private Map<String, String> conditionalHeaders(Optional<PageSnapshotStore.Validators> validators) {
+        Map<String, String> headers = new HashMap<>();
+        validators.ifPresent(v -> {
+            if (v.etag() != null) {
+                headers.put("If-None-Match", v.etag());
+            }
+            if (v.lastModified() != null) {
+                headers.put("If-Modified-Since", v.lastModified());
+            }
+        });
+
+        return headers;
     }
 }
@@ -0,0 +1,57 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Writes machines as flat JSON objects through Jackson's streaming {@link JsonGenerator}, without
+ * building a tree. It is the format of the NDJSON output files and of the results of the scrape
+ * jobs submitted to the HTTP API.
+ */
+public final class MachineJson {
+
+    private MachineJson() {
+    }
+
+    /**
+     * Writes a machine as one JSON object. Missing values are written as {@code null} and the
+     * price keeps its scale.
+     *
+     * @param json      the generator
+     * @param machine   the machine
+     * @param withPhoto whether to include {@code photoBase64}, loading a lazy photo first
+     * @throws IOException if the generator fails to write
+     */
+    public static void write(JsonGenerator json, Machine machine, boolean withPhoto) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("model", machine.model());
+        json.writeStringField("contractType", machine.contractType() != null ? machine.contractType().name() : null);
+        json.writeStringField("make", machine.make());
+        writeNumberField(json, "year", machine.year());
+        writeNumberField(json, "workedHours", machine.workedHours());
+        json.writeStringField("city", machine.city());
+        json.writeFieldName("price");
+        if (machine.price() != null) {
+            json.writeNumber(machine.price());
+        } else {
+            json.writeNull();
+        }
+        json.writeStringField("photo", machine.photo());
+        if (withPhoto) {
+            json.writeStringField("photoBase64", machine.photoBase64());
+        }
+        json.writeStringField("url", machine.url());
+        json.writeEndObject();
+    }
+
+    private static void writeNumberField(JsonGenerator json, String name, Integer value) throws IOException {
+        json.writeFieldName(name);
+        if (value != null) {
+            json.writeNumber(value);
+        } else {
+            json.writeNull();
+        }
+    }
+}
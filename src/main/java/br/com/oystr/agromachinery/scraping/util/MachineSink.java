@@ -0,0 +1,35 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.function.Consumer;
+
+/**
+ * Destination of the scraped machines.
+ * <p>
+ * Machines are handed over from the worker threads, so implementations must be thread-safe.
+ * Closing the sink writes out every machine accepted so far.
+ * </p>
+ */
+public interface MachineSink extends Consumer<Machine>, Closeable {
+
+    /**
+     * Writes nothing, but logs a one-line summary of every machine at INFO level.
+     */
+    MachineSink LOG = new MachineSink() {
+        private static final Logger log = LoggerFactory.getLogger(MachineSink.class);
+
+        @Override
+        public void accept(Machine machine) {
+            log.info("Fetched machine: {} {} ({}), {}, price {}, {}", machine.make(), machine.model(), machine.year(),
+                machine.city(), machine.price() != null ? machine.price().toPlainString() : "N/A", machine.url());
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+}
@@ -0,0 +1,40 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.model.OutputFormat;
+import br.com.oystr.agromachinery.scraping.model.PhotoOutput;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Opens the {@link MachineSink} selected by {@code scraper.output.format} (see {@link OutputFormat}).
+ */
+@Component
+public class MachineSinkFactory {
+
+    private final OutputFormat format;
+    private final FileMachineSink.Settings settings;
+
+    public MachineSinkFactory(@Value("${scraper.output.format}") OutputFormat format,
+                              @Value("${scraper.output.directory}") Path directory,
+                              @Value("${scraper.output.photos}") PhotoOutput photos,
+                              @Value("${scraper.output.batch-size}") int batchSize,
+                              @Value("${scraper.output.flush-interval-ms}") long flushIntervalMs,
+                              @Value("${scraper.output.rotate-megabytes}") long rotateMegabytes,
+                              @Value("${scraper.output.queue-capacity}") int queueCapacity) {
+        this.format = format;
+        this.settings = new FileMachineSink.Settings(format, directory, photos, batchSize,
+            Duration.ofMillis(flushIntervalMs), rotateMegabytes * 1024 * 1024, queueCapacity);
+    }
+
+    /**
+     * @return a new sink writing the configured output, to be closed once the batch is done
+     * @throws IOException if the output directory cannot be created
+     */
+    public MachineSink open() throws IOException {
+        return format == OutputFormat.NONE ? MachineSink.LOG : FileMachineSink.open(settings);
+    }
+}
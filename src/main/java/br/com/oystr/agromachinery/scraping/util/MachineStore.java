@@ -0,0 +1,489 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.model.ContractType;
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded, persistent store of the scraped machines keyed by {@link Machine#url()}, keeping the
+ * price and worked-hours history of every listing.
+ * <p>
+ * Machines are appended to a log split in segments of {@code scraper.store.segment-megabytes}
+ * ({@code segment-00001.log}, ...). Each record holds the machine, without its photo payload,
+ * when it was observed and a pointer to the previous record of the same listing, so the history
+ * of a listing is a chain of records. A record is only appended when the listing is new or one
+ * of its fields changed: {@link #record(Machine)} tells which, so downstream jobs can skip
+ * unchanged listings.
+ * </p>
+ *
+ * <p>
+ * The in-memory index maps the 64-bit hash of each URL (see {@link HashUtils#hash64(String)}) to
+ * its latest record and to a fingerprint of its fields, in three parallel {@code long[]} arrays
+ * (24 bytes per slot). The arrays double when they are 3/4 full, so the index takes about 32 to
+ * 64 bytes per listing depending on how full it is. Change detection therefore needs no disk
+ * access, and a lookup costs one positional read. The index is rebuilt on startup by reading the
+ * segments sequentially; a record torn by a crash is detected by its CRC and truncated.
+ * </p>
+ */
+@Component
+public class MachineStore implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MachineStore.class);
+
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+    private static final int OFFSET_BITS = 40;
+    private static final long NO_RECORD = -1;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long segmentBytes;
+
+    private final Index index = new Index();
+    private final List<FileChannel> segments = new ArrayList<>();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(512);
+    private long activePosition;
+    private long flushedPosition;
+    private long records;
+
+    public MachineStore(@Value("${scraper.store.enabled}") boolean enabled,
+                        @Value("${scraper.store.directory}") Path directory,
+                        @Value("${scraper.store.segment-megabytes}") long segmentMegabytes) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentBytes = segmentMegabytes * 1024 * 1024;
+
+        if (enabled) {
+            try {
+                load();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open the machine store in " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * @return whether machines are stored, per {@code scraper.store.enabled}
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Stores a freshly scraped machine, unless its listing did not change since it was last stored.
+     *
+     * @param machine the machine; its photo payload is not stored
+     * @return whether the listing is new, changed or unchanged; always {@link Change#NEW} when the
+     *         store is disabled
+     * @throws UncheckedIOException if the machine cannot be written
+     */
+    public synchronized Change record(Machine machine) {
+        if (!enabled) {
+            return Change.NEW;
+        }
+
+        long key = HashUtils.hash64(machine.url());
+        long fingerprint = fingerprint(machine);
+        int slot = index.slot(key);
+        boolean known = index.contains(slot);
+        if (known && index.fingerprints[slot] == fingerprint) {
+            return Change.UNCHANGED;
+        }
+
+        try {
+            long pointer = append(known ? index.pointers[slot] : NO_RECORD, Instant.now(), machine);
+            index.put(slot, key, pointer, fingerprint);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store machine " + machine.url(), e);
+        }
+
+        return known ? Change.CHANGED : Change.NEW;
+    }
+
+    /**
+     * @param url the listing URL
+     * @return the machine last stored for the URL, without photo payload, or empty if never stored
+     * @throws UncheckedIOException if the record cannot be read
+     */
+    public synchronized Optional<Machine> find(String url) {
+        return latest(url).map(StoredRecord::machine);
+    }
+
+    /**
+     * @param url the listing URL
+     * @return the price and worked hours of every stored version of the listing, oldest first
+     * @throws UncheckedIOException if the records cannot be read
+     */
+    public synchronized List<Observation> history(String url) {
+        List<Observation> history = new ArrayList<>();
+        Optional<StoredRecord> stored = latest(url);
+        while (stored.isPresent()) {
+            StoredRecord current = stored.get();
+            history.add(new Observation(current.observedAt(), current.machine().price(), current.machine().workedHours()));
+            stored = current.previous() == NO_RECORD ? Optional.empty() : Optional.of(read(current.previous()));
+        }
+        Collections.reverse(history);
+
+        return history;
+    }
+
+    /**
+     * @return the number of listings stored
+     */
+    public synchronized long size() {
+        return index.size;
+    }
+
+    /**
+     * Writes buffered records and forces them to disk.
+     *
+     * @throws IOException if the records cannot be written
+     */
+    public synchronized void sync() throws IOException {
+        if (!segments.isEmpty()) {
+            flush();
+            segments.getLast().force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        for (FileChannel segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    private Optional<StoredRecord> latest(String url) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        int slot = index.slot(HashUtils.hash64(url));
+        if (!index.contains(slot)) {
+            return Optional.empty();
+        }
+
+        StoredRecord stored = read(index.pointers[slot]);
+        return url.equals(stored.machine().url()) ? Optional.of(stored) : Optional.empty();
+    }
+
+    private long append(long previous, Instant observedAt, Machine machine) throws IOException {
+        recordBytes.reset();
+        DataOutputStream body = new DataOutputStream(recordBytes);
+        body.writeLong(previous);
+        body.writeLong(observedAt.toEpochMilli());
+        writeString(body, machine.url());
+        writeString(body, machine.model());
+        writeString(body, machine.contractType() != null ? machine.contractType().name() : null);
+        writeString(body, machine.make());
+        writeInteger(body, machine.year());
+        writeInteger(body, machine.workedHours());
+        writeString(body, machine.city());
+        writeString(body, machine.price() != null ? machine.price().toPlainString() : null);
+        writeString(body, machine.photo());
+
+        byte[] bytes = recordBytes.toByteArray();
+        int length = RECORD_HEADER_BYTES + bytes.length;
+        if (segments.isEmpty() || (activePosition > 0 && activePosition + length > segmentBytes)) {
+            roll();
+        }
+        if (writeBuffer.remaining() < length) {
+            flush();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer record = writeBuffer.remaining() >= length ? writeBuffer : ByteBuffer.allocate(length);
+        record.putInt(bytes.length).putInt((int) crc.getValue()).put(bytes);
+        if (record != writeBuffer) {
+            write(record.flip());
+        }
+
+        long pointer = pointer(segments.size() - 1, activePosition);
+        activePosition += length;
+        records++;
+
+        return pointer;
+    }
+
+    private StoredRecord read(long pointer) {
+        int segment = (int) (pointer >>> OFFSET_BITS);
+        long offset = pointer & ((1L << OFFSET_BITS) - 1);
+        try {
+            if (segment == segments.size() - 1 && offset >= flushedPosition) {
+                flush();
+            }
+
+            FileChannel channel = segments.get(segment);
+            ByteBuffer header = readFully(channel, offset, RECORD_HEADER_BYTES);
+            ByteBuffer body = readFully(channel, offset + RECORD_HEADER_BYTES, header.getInt());
+
+            return decode(new DataInputStream(new ByteArrayInputStream(body.array())));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the machine store in " + directory, e);
+        }
+    }
+
+    /**
+     * Opens the segments and rebuilds the index from their records.
+     */
+    private void load() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(file -> file.getFileName().toString().matches("segment-\\d+\\.log")).sorted().toList();
+        }
+
+        for (Path file : files) {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments.add(channel);
+            long valid = scan(segments.size() - 1, file);
+            if (valid < channel.size()) {
+                log.warn("Truncating {} torn bytes at the end of {}", channel.size() - valid, file);
+                channel.truncate(valid);
+            }
+            activePosition = flushedPosition = valid;
+        }
+
+        log.info("Machine store loaded {} listings ({} records) from {}", index.size, records, directory);
+    }
+
+    /**
+     * Indexes the records of a segment.
+     *
+     * @return the length of the segment up to its last valid record
+     */
+    private long scan(int segment, Path file) throws IOException {
+        long size = Files.size(file);
+        long position = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), WRITE_BUFFER_BYTES))) {
+            while (true) {
+                int length = in.readInt();
+                int expectedCrc = in.readInt();
+                if (length <= 0 || length > size - position - RECORD_HEADER_BYTES) {
+                    return position;
+                }
+                byte[] body = new byte[length];
+                in.readFully(body);
+
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if ((int) crc.getValue() != expectedCrc) {
+                    return position;
+                }
+
+                Machine machine = decode(new DataInputStream(new ByteArrayInputStream(body))).machine();
+                long key = HashUtils.hash64(machine.url());
+                index.put(index.slot(key), key, pointer(segment, position), fingerprint(machine));
+                records++;
+                position += RECORD_HEADER_BYTES + length;
+            }
+        } catch (EOFException e) {
+            return position;
+        }
+    }
+
+    private void roll() throws IOException {
+        if (!segments.isEmpty()) {
+            flush();
+            segments.getLast().force(false);
+        }
+
+        Path file = directory.resolve("segment-%05d.log".formatted(segments.size() + 1));
+        segments.add(FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        activePosition = flushedPosition = 0;
+    }
+
+    private void flush() throws IOException {
+        if (writeBuffer.position() > 0) {
+            write(writeBuffer.flip());
+            writeBuffer.clear();
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        FileChannel channel = segments.getLast();
+        while (buffer.hasRemaining()) {
+            flushedPosition += channel.write(buffer, flushedPosition);
+        }
+    }
+
+    private static StoredRecord decode(DataInputStream body) throws IOException {
+        long previous = body.readLong();
+        Instant observedAt = Instant.ofEpochMilli(body.readLong());
+        String url = readString(body);
+        String model = readString(body);
+        String contractType = readString(body);
+        String make = readString(body);
+        Integer year = readInteger(body);
+        Integer workedHours = readInteger(body);
+        String city = readString(body);
+        String price = readString(body);
+        String photo = readString(body);
+
+        Machine machine = new Machine(model, contractType != null ? ContractType.valueOf(contractType) : null, make,
+            year, workedHours, city, price != null ? new BigDecimal(price) : null, photo, null, url);
+        return new StoredRecord(previous, observedAt, machine);
+    }
+
+    /**
+     * Hash of every stored field, ignoring the scale of the price so {@code 100.0} and
+     * {@code 100.00} are the same price.
+     */
+    private static long fingerprint(Machine machine) {
+        return HashUtils.hash64(String.join("\u0000",
+            String.valueOf(machine.model()),
+            String.valueOf(machine.contractType()),
+            String.valueOf(machine.make()),
+            String.valueOf(machine.year()),
+            String.valueOf(machine.workedHours()),
+            String.valueOf(machine.city()),
+            machine.price() != null ? machine.price().stripTrailingZeros().toPlainString() : "null",
+            String.valueOf(machine.photo())));
+    }
+
+    private static long pointer(int segment, long offset) {
+        return ((long) segment << OFFSET_BITS) | offset;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Record at " + position + " is truncated");
+            }
+        }
+
+        return buffer.flip();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    /**
+     * How a scraped machine compares to the version last stored for its listing.
+     */
+    public enum Change {
+        NEW, CHANGED, UNCHANGED
+    }
+
+    /**
+     * One stored version of a listing.
+     *
+     * @param observedAt  when this version was scraped
+     * @param price       the price, may be {@code null}
+     * @param workedHours the worked hours, may be {@code null}
+     */
+    public record Observation(Instant observedAt, BigDecimal price, Integer workedHours) {
+    }
+
+    private record StoredRecord(long previous, Instant observedAt, Machine machine) {
+    }
+
+    /**
+     * Open-addressing map from URL hash to the latest record pointer and fields fingerprint of
+     * the listing, stored in parallel primitive arrays.
+     */
+    private static final class Index {
+        private long[] keys = new long[1024];
+        private long[] pointers = new long[1024];
+        private long[] fingerprints = new long[1024];
+        private int size;
+
+        /**
+         * @return the slot holding the key, or the empty slot where it belongs
+         */
+        int slot(long hash) {
+            long key = hash == 0 ? 1 : hash;
+            int mask = keys.length - 1;
+            int i = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+
+            return i;
+        }
+
+        boolean contains(int slot) {
+            return keys[slot] != 0;
+        }
+
+        /**
+         * @param slot the slot returned by {@link #slot(long)} for the hash, before any other put
+         */
+        void put(int slot, long hash, long pointer, long fingerprint) {
+            boolean added = !contains(slot);
+            keys[slot] = hash == 0 ? 1 : hash;
+            pointers[slot] = pointer;
+            fingerprints[slot] = fingerprint;
+            if (added && ++size > keys.length * 3L / 4) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldPointers = pointers;
+            long[] oldFingerprints = fingerprints;
+            keys = new long[oldKeys.length * 2];
+            pointers = new long[oldKeys.length * 2];
+            fingerprints = new long[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    pointers[slot] = oldPointers[i];
+                    fingerprints[slot] = oldFingerprints[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Exposes the {@link ScrapeMetrics} of the run.
+ * <p>
+ * With {@code scraper.metrics.prometheus-port} greater than zero, the metrics are served in the
+ * Prometheus text format at {@code /metrics} on that port. The server keeps the application
+ * running after the batch, so the last values can still be scraped; stop it to exit.
+ * </p>
+ *
+ * <p>
+ * With {@code scraper.metrics.dump-interval-seconds} greater than zero, the count, mean, 95th
+ * percentile and maximum of every timer are logged periodically, and once more on close.
+ * </p>
+ */
+@Component
+public class MetricsExporter implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricsExporter.class);
+
+    private final MeterRegistry registry;
+    private final HttpServer server;
+    private final ScheduledExecutorService dumper;
+
+    public MetricsExporter(MeterRegistry registry,
+                           @Value("${scraper.metrics.prometheus-port}") int prometheusPort,
+                           @Value("${scraper.metrics.dump-interval-seconds}") int dumpIntervalSeconds) {
+        this.registry = registry;
+        this.server = prometheusPort > 0 ? startServer(prometheusPort) : null;
+        if (dumpIntervalSeconds > 0) {
+            dumper = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("metrics-dump").daemon().factory());
+            dumper.scheduleAtFixedRate(this::dump, dumpIntervalSeconds, dumpIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            dumper = null;
+        }
+    }
+
+    /**
+     * Logs a line per timer that recorded something, sorted by name and tags.
+     */
+    public void dump() {
+        registry.getMeters().stream()
+            .filter(Timer.class::isInstance)
+            .map(Timer.class::cast)
+            .filter(timer -> timer.count() > 0)
+            .sorted(Comparator.comparing((Timer timer) -> timer.getId().getName()).thenComparing(MetricsExporter::tags))
+            .forEach(timer -> {
+                HistogramSnapshot snapshot = timer.takeSnapshot();
+                log.info("{}{{}} count={} mean={}ms p95={}ms max={}ms", timer.getId().getName(), tags(timer),
+                    snapshot.count(), "%.1f".formatted(snapshot.mean(TimeUnit.MILLISECONDS)),
+                    "%.1f".formatted(p95(snapshot)), "%.1f".formatted(snapshot.max(TimeUnit.MILLISECONDS)));
+            });
+    }
+
+    @Override
+    public void close() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dump();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private HttpServer startServer(int port) {
+        if (!(registry instanceof PrometheusMeterRegistry prometheusRegistry)) {
+            log.warn("Metrics are disabled, not serving them on port {}", port);
+            return null;
+        }
+
+        try {
+            HttpServer httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+            httpServer.createContext("/metrics", exchange -> respond(exchange, prometheusRegistry.scrape()));
+            httpServer.start();
+            log.info("Serving Prometheus metrics on http://localhost:{}/metrics", port);
+
+            return httpServer;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serve metrics on port " + port, e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, content.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(content);
+        }
+    }
+
+    private static String tags(Timer timer) {
+        return timer.getId().getTags().stream()
+            .map(tag -> tag.getKey() + "=" + tag.getValue())
+            .collect(Collectors.joining(","));
+    }
+
+    private static double p95(HistogramSnapshot snapshot) {
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            if (percentile.percentile() == 0.95) {
+                return percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+
+        return Double.NaN;
+    }
+}
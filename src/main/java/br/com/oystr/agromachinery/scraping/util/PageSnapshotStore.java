@@ -0,0 +1,143 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Disk-backed store of page snapshots, used to avoid re-parsing listings that did not change.
+ * <p>
+ * For every successfully scraped URL the store keeps the {@code ETag} and
+ * {@code Last-Modified} validators, the SHA-256 of the page content and the
+ * {@link Machine} extracted from it (without the photo payload). On the next run
+ * {@link JsoupWrapper} sends a conditional request with those validators and, when
+ * the page is unchanged, the stored machine is reused.
+ * </p>
+ *
+ * <p>
+ * Validators of a new download are only staged by {@link #stage(String, Validators)}
+ * and become part of the snapshot once the extracted machine is {@link #commit(String, Machine) committed},
+ * so a page whose extraction failed is never considered unchanged.
+ * </p>
+ */
+@Component
+public class PageSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PageSnapshotStore.class);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Validators> staged = new ConcurrentHashMap<>();
+
+    public PageSnapshotStore(@Value("${scraper.page-snapshots.enabled}") boolean enabled,
+                             @Value("${scraper.page-snapshots.directory}") Path directory,
+                             ObjectMapper objectMapper) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Reads the snapshot of a URL.
+     *
+     * @param url the page URL
+     * @return the snapshot, or empty if the URL was never scraped successfully
+     */
+    public Optional<Snapshot> find(String url) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        Path file = fileOf(url);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(objectMapper.readValue(file.toFile(), Snapshot.class));
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable page snapshot for URL: {}", url, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Keeps the validators of a freshly downloaded page until its machine is committed.
+     */
+    public void stage(String url, Validators validators) {
+        if (enabled) {
+            staged.put(url, validators);
+        }
+    }
+
+    /**
+     * Persists the snapshot of a URL using the validators staged for it.
+     * The photo payload of the machine is not stored.
+     *
+     * @param url     the page URL
+     * @param machine the machine extracted from the page
+     */
+    public void commit(String url, Machine machine) {
+        Validators validators = staged.remove(url);
+        if (!enabled || validators == null) {
+            return;
+        }
+
+        Machine withoutPhoto = machine.withPhotoPayload(null);
+
+        try {
+            Path file = fileOf(url);
+            Files.createDirectories(file.getParent());
+
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temp.toFile(), new Snapshot(url, validators, withoutPhoto));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write page snapshot for URL: {}", url, e);
+        }
+    }
+
+    /**
+     * Drops the validators staged for a URL whose scraping failed.
+     */
+    public void discard(String url) {
+        staged.remove(url);
+    }
+
+    private Path fileOf(String url) {
+        String hash = HashUtils.sha256(url);
+        return directory.resolve(hash.substring(0, 2)).resolve(hash + ".json");
+    }
+
+    /**
+     * HTTP validators and content hash of a downloaded page.
+     *
+     * @param etag         the {@code ETag} response header, may be {@code null}
+     * @param lastModified the {@code Last-Modified} response header, may be {@code null}
+     * @param contentHash  SHA-256 of the page bytes
+     */
+    public record Validators(String etag, String lastModified, String contentHash) {
+    }
+
+    /**
+     * Last known state of a page.
+     *
+     * @param url        the page URL
+     * @param validators validators of the download the machine was extracted from
+     * @param machine    the extracted machine, without photo payload
+     */
+    public record Snapshot(String url, Validators validators, Machine machine) {
+    }
+}
@@ -0,0 +1,405 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Persistent, content-addressed cache for downloaded photos.
+ * <p>
+ * Photo bytes are stored once per content hash under {@code blobs/}, so the same
+ * picture published under several URLs takes space only once. Each photo URL has
+ * a small entry under {@code urls/} pointing to its blob together with the
+ * {@code ETag} and {@code Last-Modified} validators returned by the server, which
+ * are used to revalidate stale entries with a conditional request.
+ * </p>
+ *
+ * <p>
+ * The total size of the blobs is capped by {@code scraper.photo-cache.max-size-mb};
+ * the least recently used blobs are evicted first, together with the URL entries
+ * pointing to them. Recency survives restarts through the blobs' last-modified time.
+ * </p>
+ */
+@Component
+public class PhotoCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PhotoCache.class);
+
+    private final boolean enabled;
+    private final Path blobsDirectory;
+    private final Path urlsDirectory;
+    private final long maxSizeBytes;
+    private final Duration freshFor;
+    private final ObjectMapper objectMapper;
+
+    private final LinkedHashMap<String, Long> blobSizes = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<Path>> entriesByBlob = new HashMap<>();
+    private long totalSizeBytes;
+
+    public PhotoCache(@Value("${scraper.photo-cache.enabled}") boolean enabled,
+                      @Value("${scraper.photo-cache.directory}") Path directory,
+                      @Value("${scraper.photo-cache.max-size-mb}") long maxSizeMb,
+                      @Value("${scraper.photo-cache.fresh-seconds}") long freshSeconds,
+                      ObjectMapper objectMapper) {
+        this.enabled = enabled;
+        this.blobsDirectory = directory.resolve("blobs");
+        this.urlsDirectory = directory.resolve("urls");
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+        this.freshFor = Duration.ofSeconds(freshSeconds);
+        this.objectMapper = objectMapper;
+
+        if (enabled) {
+            loadBlobs();
+        }
+    }
+
+    /**
+     * Looks up the cache entry of a photo URL.
+     *
+     * @param url the photo URL
+     * @return the entry, or empty if the URL was never cached or its blob was evicted
+     */
+    public Optional<Entry> lookup(String url) {
+        if (!enabled || url == null) {
+            return Optional.empty();
+        }
+
+        Path entryFile = urlsDirectory.resolve(HashUtils.sha256(url) + ".json");
+        if (!Files.exists(entryFile)) {
+            return Optional.empty();
+        }
+
+        try {
+            Entry entry = objectMapper.readValue(entryFile.toFile(), Entry.class);
+            synchronized (blobSizes) {
+                if (blobSizes.containsKey(entry.contentHash())) {
+                    return Optional.of(entry);
+                }
+                // left behind by an eviction that could not delete it
+                Files.deleteIfExists(entryFile);
+                return Optional.empty();
+            }
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable photo cache entry for URL: {}", url, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Tells whether an entry was validated recently enough to be used without asking the server.
+     */
+    public boolean isFresh(Entry entry) {
+        return Instant.ofEpochMilli(entry.validatedAt()).plus(freshFor).isAfter(Instant.now());
+    }
+
+    /**
+     * Reads the photo bytes of an entry and marks them as recently used.
+     *
+     * @param entry an entry returned by {@link #lookup(String)}
+     * @return the cached bytes
+     * @throws IOException if the blob cannot be read, e.g. because it was evicted meanwhile
+     */
+    public byte[] read(Entry entry) throws IOException {
+        try (InputStream in = open(entry)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Opens the photo bytes of an entry for streaming and marks them as recently used.
+     *
+     * @param entry an entry returned by {@link #lookup(String)}
+     * @return a stream over the cached bytes; the caller must close it
+     * @throws IOException if the blob cannot be opened, e.g. because it was evicted meanwhile
+     */
+    public InputStream open(Entry entry) throws IOException {
+        Path blob = blobsDirectory.resolve(entry.contentHash());
+        InputStream in = Files.newInputStream(blob);
+
+        synchronized (blobSizes) {
+            // access-ordered map: a lookup moves the blob to the most recently used end
+            blobSizes.get(entry.contentHash());
+        }
+        Files.setLastModifiedTime(blob, FileTime.from(Instant.now()));
+
+        return in;
+    }
+
+    /**
+     * Records that the server confirmed the cached photo is still current (HTTP 304).
+     */
+    public void revalidated(Entry entry) {
+        if (enabled) {
+            writeEntry(new Entry(entry.url(), entry.contentHash(), entry.etag(), entry.lastModified(), System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Stores freshly downloaded photo bytes.
+     *
+     * @param url          the photo URL
+     * @param bytes        the photo bytes
+     * @param etag         the {@code ETag} response header, may be {@code null}
+     * @param lastModified the {@code Last-Modified} response header, may be {@code null}
+     */
+    public void store(String url, byte[] bytes, String etag, String lastModified) {
+        try (PendingPhoto pending = begin(url, etag, lastModified)) {
+            pending.write(bytes);
+            pending.commit();
+        } catch (IOException e) {
+            log.warn("Failed to cache photo from URL: {}", url, e);
+        }
+    }
+
+    /**
+     * Starts storing a photo that is being downloaded, so it can be cached while it is streamed
+     * elsewhere. Bytes written to the returned stream are only cached once
+     * {@link PendingPhoto#commit()} is called; closing it without committing discards them.
+     *
+     * @param url          the photo URL
+     * @param etag         the {@code ETag} response header, may be {@code null}
+     * @param lastModified the {@code Last-Modified} response header, may be {@code null}
+     * @return the pending photo; a no-op stream when the cache is disabled
+     * @throws IOException if the temporary file cannot be created
+     */
+    public PendingPhoto begin(String url, String etag, String lastModified) throws IOException {
+        return new PendingPhoto(url, etag, lastModified);
+    }
+
+    private void writeEntry(Entry entry) {
+        try {
+            Path entryFile = urlsDirectory.resolve(HashUtils.sha256(entry.url()) + ".json");
+            Path temp = Files.createTempFile(urlsDirectory, entryFile.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temp.toFile(), entry);
+            synchronized (blobSizes) {
+                if (!blobSizes.containsKey(entry.contentHash())) {
+                    // the blob was evicted while it was being downloaded or revalidated
+                    Files.delete(temp);
+                    return;
+                }
+                Files.move(temp, entryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                entriesByBlob.computeIfAbsent(entry.contentHash(), hash -> new HashSet<>()).add(entryFile);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write photo cache entry for URL: {}", entry.url(), e);
+        }
+    }
+
+    private void track(String contentHash, long size) {
+        synchronized (blobSizes) {
+            if (blobSizes.putIfAbsent(contentHash, size) == null) {
+                totalSizeBytes += size;
+            }
+            evict();
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = blobSizes.entrySet().iterator();
+        while (totalSizeBytes > maxSizeBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> blob = eldest.next();
+            try {
+                Files.deleteIfExists(blobsDirectory.resolve(blob.getKey()));
+            } catch (IOException e) {
+                log.warn("Failed to evict cached photo {}", blob.getKey(), e);
+            }
+            deleteEntries(blob.getKey());
+            totalSizeBytes -= blob.getValue();
+            eldest.remove();
+        }
+    }
+
+    private void deleteEntries(String contentHash) {
+        Set<Path> entryFiles = entriesByBlob.remove(contentHash);
+        if (entryFiles == null) {
+            return;
+        }
+
+        for (Path entryFile : entryFiles) {
+            try {
+                // the URL may have been re-downloaded since, pointing its entry at another blob
+                if (Files.exists(entryFile)
+                    && objectMapper.readValue(entryFile.toFile(), Entry.class).contentHash().equals(contentHash)) {
+                    Files.delete(entryFile);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to delete photo cache entry {}", entryFile, e);
+            }
+        }
+    }
+
+    private void loadBlobs() {
+        try {
+            Files.createDirectories(blobsDirectory);
+            Files.createDirectories(urlsDirectory);
+
+            List<Path> blobs;
+            try (Stream<Path> files = Files.list(blobsDirectory)) {
+                blobs = files
+                    .filter(path -> !path.getFileName().toString().endsWith(".tmp"))
+                    .sorted(Comparator.comparing(PhotoCache::lastModified))
+                    .toList();
+            }
+
+            for (Path blob : blobs) {
+                track(blob.getFileName().toString(), Files.size(blob));
+            }
+            loadEntries();
+            log.info("Photo cache loaded {} photos ({} bytes) from {}", blobSizes.size(), totalSizeBytes, blobsDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to initialize photo cache at " + blobsDirectory, e);
+        }
+    }
+
+    /**
+     * Indexes the URL entries by blob, deleting those whose blob is gone and temporary
+     * files left by an interrupted write.
+     */
+    private void loadEntries() throws IOException {
+        List<Path> entryFiles;
+        try (Stream<Path> files = Files.list(urlsDirectory)) {
+            entryFiles = files.toList();
+        }
+
+        for (Path entryFile : entryFiles) {
+            if (!entryFile.getFileName().toString().endsWith(".json")) {
+                Files.deleteIfExists(entryFile);
+                continue;
+            }
+
+            String contentHash;
+            try {
+                contentHash = objectMapper.readValue(entryFile.toFile(), Entry.class).contentHash();
+            } catch (IOException e) {
+                log.warn("Deleting unreadable photo cache entry {}", entryFile, e);
+                contentHash = null;
+            }
+
+            synchronized (blobSizes) {
+                if (contentHash != null && blobSizes.containsKey(contentHash)) {
+                    entriesByBlob.computeIfAbsent(contentHash, hash -> new HashSet<>()).add(entryFile);
+                } else {
+                    Files.deleteIfExists(entryFile);
+                }
+            }
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Photo being written to the cache while it is downloaded.
+     */
+    public final class PendingPhoto extends OutputStream {
+
+        private final String url;
+        private final String etag;
+        private final String lastModified;
+        private final MessageDigest digest = HashUtils.newSha256();
+        private final Path temp;
+        private final OutputStream file;
+        private long size;
+        private boolean committed;
+
+        private PendingPhoto(String url, String etag, String lastModified) throws IOException {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.temp = enabled ? Files.createTempFile(blobsDirectory, "photo", ".tmp") : null;
+            this.file = enabled ? Files.newOutputStream(temp) : OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            digest.update(b, off, len);
+            file.write(b, off, len);
+            size += len;
+        }
+
+        /**
+         * Moves the written bytes into the cache and points the URL entry at them.
+         */
+        public void commit() throws IOException {
+            file.close();
+            committed = true;
+            if (!enabled) {
+                return;
+            }
+
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            Path blob = blobsDirectory.resolve(contentHash);
+            if (Files.exists(blob)) {
+                Files.delete(temp);
+            } else {
+                Files.move(temp, blob, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            track(contentHash, size);
+            writeEntry(new Entry(url, contentHash, etag, lastModified, System.currentTimeMillis()));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                file.close();
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cache entry of a single photo URL.
+     *
+     * @param url          the photo URL
+     * @param contentHash  SHA-256 of the photo bytes, which is also the blob file name
+     * @param etag         the {@code ETag} validator, may be {@code null}
+     * @param lastModified the {@code Last-Modified} validator, may be {@code null}
+     * @param validatedAt  epoch millis of the last download or successful revalidation
+     */
+    public record Entry(
+        String url,
+        String contentHash,
+        String etag,
+        String lastModified,
+        long validatedAt
+    ) {
+    }
+}
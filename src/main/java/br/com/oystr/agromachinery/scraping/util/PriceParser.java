@@ -1,9 +1,6 @@
 package br.com.oystr.agromachinery.scraping.util;
 
 import java.math.BigDecimal;
-import java.text.NumberFormat;
-import java.text.ParseException;
-import java.util.Locale;
 import java.util.Optional;
 
 /**
@@ -12,6 +9,12 @@ import java.util.Optional;
  * This class provides a static method to convert Brazilian-formatted
  * currency strings (e.g., "R$ 1.234,56") into {@link BigDecimal}.
  * </p>
+ * <p>
+ * The string is scanned once, char by char, accumulating the digits into an unscaled
+ * {@code long} and counting the decimal places, so parsing allocates nothing besides the
+ * result and never goes through {@code double}: {@code "1.380.000,00"} becomes exactly
+ * {@code 1380000.00}.
+ * </p>
  *
  * <p>The constructor is private to prevent instantiation.</p>
  */
@@ -25,24 +28,72 @@ public class PriceParser {
 
     /**
      * Parses a price string formatted in Brazilian currency into a {@link BigDecimal}.
+     * <p>
+     * The number may be preceded by whitespace (including non-breaking spaces) and the
+     * {@code R$} symbol. Dots are thousands separators and a comma starts the decimal places,
+     * which define the scale of the result. Parsing stops at the first character that is not
+     * part of the number, so for a range such as "R$ 10.000 a R$ 12.000" the lower bound is
+     * returned.
+     * </p>
      *
      * @param priceString the price string to parse, e.g., "R$ 1.234,56"
      * @return an {@link Optional} containing the parsed {@link BigDecimal},
-     * or {@link Optional#empty()} if the input is null, blank, or unparseable
+     * or {@link Optional#empty()} if the input is null, blank, unparseable (e.g., "Sob consulta")
+     * or has more digits than fit in a {@code long}
      */
     public static Optional<BigDecimal> parsePrice(String priceString) {
-        if (priceString == null || priceString.isBlank()) {
+        if (priceString == null) {
             return Optional.empty();
         }
 
-        NumberFormat format = NumberFormat.getInstance(Locale.of("pt", "BR"));
-        String cleanedPriceString = priceString.replace("R$ ", "").replace(" ", "");
-
-        try {
-            Number number = format.parse(cleanedPriceString);
-            return Optional.of(BigDecimal.valueOf(number.doubleValue()));
-        } catch (ParseException e) {
+        int length = priceString.length();
+        int i = skipPrefix(priceString, length);
+        if (i == length || !isDigit(priceString.charAt(i))) {
             return Optional.empty();
         }
+
+        long unscaled = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (; i < length; i++) {
+            char c = priceString.charAt(i);
+            if (isDigit(c)) {
+                if (unscaled > (Long.MAX_VALUE - 9) / 10) {
+                    return Optional.empty();
+                }
+                unscaled = unscaled * 10 + (c - '0');
+                if (fraction) {
+                    scale++;
+                }
+            } else if (c == '.' && !fraction && i + 1 < length && isDigit(priceString.charAt(i + 1))) {
+                continue;
+            } else if (c == ',' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+
+        return Optional.of(BigDecimal.valueOf(unscaled, scale));
+    }
+
+    private static int skipPrefix(String priceString, int length) {
+        int i = 0;
+        while (i < length) {
+            char c = priceString.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                i++;
+            } else if (c == 'R' && i + 1 < length && priceString.charAt(i + 1) == '$') {
+                i += 2;
+            } else {
+                break;
+            }
+        }
+
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
 }
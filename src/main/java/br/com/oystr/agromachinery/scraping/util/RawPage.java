@@ -0,0 +1,17 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+/**
+ * Downloaded, not yet parsed HTML page.
+ *
+ * @param url      the requested URL
+ * @param location the final URL after redirects, used as base URI when parsing
+ * @param charset  the charset declared by the server, or {@code null} to detect it from the content
+ * @param content  the page bytes
+ */
+public record RawPage(
+    String url,
+    String location,
+    String charset,
+    byte[] content
+) {
+}
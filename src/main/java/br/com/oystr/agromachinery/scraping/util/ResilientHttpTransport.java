@@ -0,0 +1,345 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.exceptions.CircuitOpenException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link HttpTransport} adding retries, hedged requests and a per-host circuit breaker to
+ * {@link HttpClientTransport}, so every page and photo download gets the same resilience.
+ * <p>
+ * Failures are classified before being retried: I/O errors (timeouts, refused or reset
+ * connections) and {@code 408}/{@code 500}/{@code 502}/{@code 504} responses are transient
+ * and retried up to {@code maxAttempts} times with a "full jitter" exponential backoff, a
+ * random delay up to {@code backoffBase * 2^retry} capped at {@code backoffMax}. Other
+ * responses, including {@code 404} and the {@code 429}/{@code 503} handled by the rate
+ * limiter of the scraper service, are returned as they are. When every attempt failed, the
+ * last response or exception is passed on to the caller.
+ * </p>
+ * <p>
+ * With hedging enabled, a request still waiting for its response after the 95th percentile
+ * latency of the host (once {@code hedgingMinSamples} latencies are known) is duplicated;
+ * the first response wins and the other is closed. The duplicate goes through the circuit
+ * breaker too, so it is not sent while the breaker is deciding on a trial request.
+ * </p>
+ * <p>
+ * Each host has a circuit breaker: after {@code breakerFailureThreshold} consecutive failed
+ * attempts it opens and requests fail immediately with a {@link CircuitOpenException} for
+ * {@code breakerOpenDuration}. A single trial request then decides whether it closes again.
+ * </p>
+ */
+@Primary
+@Service
+public class ResilientHttpTransport implements HttpTransport, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ResilientHttpTransport.class);
+    private static final int LATENCY_SAMPLES = 128;
+
+    private final HttpTransport delegate;
+    private final Settings settings;
+    private final LongSupplier clock;
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+    private final ExecutorService hedgingExecutor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("hedge-", 0).factory());
+
+    @Autowired
+    public ResilientHttpTransport(HttpClientTransport delegate,
+                                  @Value("${scraper.resilience.max-attempts}") int maxAttempts,
+                                  @Value("${scraper.resilience.backoff-base-ms}") long backoffBaseMs,
+                                  @Value("${scraper.resilience.backoff-max-ms}") long backoffMaxMs,
+                                  @Value("${scraper.resilience.hedging-enabled}") boolean hedgingEnabled,
+                                  @Value("${scraper.resilience.hedging-min-samples}") int hedgingMinSamples,
+                                  @Value("${scraper.resilience.breaker-failure-threshold}") int breakerFailureThreshold,
+                                  @Value("${scraper.resilience.breaker-open-seconds}") long breakerOpenSeconds) {
+        this(delegate, new Settings(maxAttempts, Duration.ofMillis(backoffBaseMs), Duration.ofMillis(backoffMaxMs),
+            hedgingEnabled, hedgingMinSamples, breakerFailureThreshold, Duration.ofSeconds(breakerOpenSeconds)), System::nanoTime);
+    }
+
+    ResilientHttpTransport(HttpTransport delegate, Settings settings, LongSupplier clock) {
+        this.delegate = delegate;
+        this.settings = settings;
+        this.clock = clock;
+    }
+
+    @Override
+    public TransportResponse get(String url, Map<String, String> headers) throws IOException {
+        String authority = UrlUtils.authority(url);
+        HostState host = hosts.computeIfAbsent(authority == null ? "" : authority, HostState::new);
+
+        for (int attempt = 1; ; attempt++) {
+            if (!host.tryAcquire()) {
+                throw new CircuitOpenException("Circuit breaker open for " + host.name + ", not fetching " + url);
+            }
+
+            TransportResponse response;
+            try {
+                response = send(host, url, headers);
+            } catch (IOException e) {
+                if (e instanceof InterruptedIOException || Thread.currentThread().isInterrupted()) {
+                    host.onAbandoned();
+                    throw e;
+                }
+
+                host.onFailure();
+                if (attempt >= settings.maxAttempts()) {
+                    throw e;
+                }
+                log.debug("Attempt {} of {} for {} failed, retrying: {}", attempt, settings.maxAttempts(), url, e.toString());
+                backoff(attempt);
+                continue;
+            }
+
+            if (!isTransient(response.statusCode())) {
+                host.onSuccess();
+                return response;
+            }
+
+            host.onFailure();
+            if (attempt >= settings.maxAttempts()) {
+                return response;
+            }
+            log.debug("Attempt {} of {} for {} answered HTTP {}, retrying", attempt, settings.maxAttempts(), url, response.statusCode());
+            response.close();
+            backoff(attempt);
+        }
+    }
+
+    /**
+     * Stops the hedged requests still running, so they do not outlive the application context.
+     */
+    @Override
+    public void close() {
+        hedgingExecutor.shutdownNow();
+    }
+
+    /**
+     * @return whether the status is a server-side failure worth retrying
+     */
+    static boolean isTransient(int statusCode) {
+        return statusCode == 408 || statusCode == 500 || statusCode == 502 || statusCode == 504;
+    }
+
+    private TransportResponse send(HostState host, String url, Map<String, String> headers) throws IOException {
+        long hedgeAfter = settings.hedgingEnabled() ? host.p95(settings.hedgingMinSamples()) : -1;
+        if (hedgeAfter < 0) {
+            return timed(host, url, headers);
+        }
+
+        CompletableFuture<TransportResponse> primary = sendAsync(host, url, headers);
+        CompletableFuture<TransportResponse> response = primary;
+        try {
+            primary.get(hedgeAfter, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (host.tryAcquire()) {
+                log.debug("No response from {} after {} ms, hedging request", url, TimeUnit.NANOSECONDS.toMillis(hedgeAfter));
+                response = firstResponse(primary, sendAsync(host, url, headers));
+            }
+        } catch (ExecutionException e) {
+            // Reported by await
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return await(response);
+    }
+
+    private TransportResponse timed(HostState host, String url, Map<String, String> headers) throws IOException {
+        long start = clock.getAsLong();
+        TransportResponse response = delegate.get(url, headers);
+        host.recordLatency(clock.getAsLong() - start);
+
+        return response;
+    }
+
+    private CompletableFuture<TransportResponse> sendAsync(HostState host, String url, Map<String, String> headers) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return timed(host, url, headers);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, hedgingExecutor);
+    }
+
+    /**
+     * Completes with the first response of either request, closing the slower one when it
+     * arrives. Fails only if both requests fail.
+     */
+    private static CompletableFuture<TransportResponse> firstResponse(CompletableFuture<TransportResponse> primary,
+                                                                      CompletableFuture<TransportResponse> hedge) {
+        CompletableFuture<TransportResponse> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<TransportResponse> request : List.of(primary, hedge)) {
+            request.whenComplete((response, error) -> {
+                if (error == null) {
+                    if (!first.complete(response)) {
+                        closeQuietly(response);
+                    }
+                } else if (failures.incrementAndGet() == 2) {
+                    first.completeExceptionally(error);
+                }
+            });
+        }
+
+        return first;
+    }
+
+    private static TransportResponse await(CompletableFuture<TransportResponse> response) throws IOException {
+        try {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+
+            return response.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.thenAccept(ResilientHttpTransport::closeQuietly);
+            throw new InterruptedIOException("Interrupted while waiting for a response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException unchecked ? unchecked.getCause() : e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private void backoff(int attempt) throws InterruptedIOException {
+        long ceiling = Math.min(settings.backoffMax().toNanos(), settings.backoffBase().toNanos() << Math.min(attempt - 1, 30));
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off");
+        }
+    }
+
+    private static void closeQuietly(TransportResponse response) {
+        try {
+            response.close();
+        } catch (IOException e) {
+            log.debug("Failed to close hedged response", e);
+        }
+    }
+
+    /**
+     * Circuit breaker and recent latencies of one host.
+     */
+    private final class HostState {
+        private final String name;
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+        private int latencyCount;
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean open;
+        private boolean trialInFlight;
+
+        private HostState(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return whether a request may be sent: the breaker is closed, or it is a trial request
+         */
+        synchronized boolean tryAcquire() {
+            if (!open) {
+                return true;
+            }
+            if (trialInFlight || clock.getAsLong() - openUntil < 0) {
+                return false;
+            }
+
+            trialInFlight = true;
+            return true;
+        }
+
+        synchronized void onSuccess() {
+            if (open) {
+                log.info("Circuit breaker closed for {}", name);
+            }
+            consecutiveFailures = 0;
+            open = false;
+            trialInFlight = false;
+        }
+
+        /**
+         * Releases a trial request that ended without telling whether the host recovered.
+         */
+        synchronized void onAbandoned() {
+            trialInFlight = false;
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if (trialInFlight || (!open && consecutiveFailures >= settings.breakerFailureThreshold())) {
+                log.warn("Circuit breaker open for {} after {} consecutive failures, rejecting requests for {} seconds",
+                    name, consecutiveFailures, settings.breakerOpenDuration().toSeconds());
+                open = true;
+                trialInFlight = false;
+                openUntil = clock.getAsLong() + settings.breakerOpenDuration().toNanos();
+            }
+        }
+
+        synchronized void recordLatency(long nanos) {
+            latencies[latencyCount++ % LATENCY_SAMPLES] = nanos;
+        }
+
+        /**
+         * @return the 95th percentile of the recent latencies, or {@code -1} with too few samples
+         */
+        synchronized long p95(int minSamples) {
+            int samples = Math.min(latencyCount, LATENCY_SAMPLES);
+            if (samples < Math.max(1, minSamples)) {
+                return -1;
+            }
+
+            long[] sorted = Arrays.copyOf(latencies, samples);
+            Arrays.sort(sorted);
+
+            return sorted[(int) Math.ceil(samples * 0.95) - 1];
+        }
+    }
+
+    /**
+     * Configuration of the transport.
+     *
+     * @param maxAttempts             attempts per request, including the first one
+     * @param backoffBase             upper bound of the delay before the first retry
+     * @param backoffMax              upper bound of the delay before any retry
+     * @param hedgingEnabled          whether slow requests are duplicated
+     * @param hedgingMinSamples       latencies of a host to know before hedging its requests
+     * @param breakerFailureThreshold consecutive failures opening the circuit breaker of a host
+     * @param breakerOpenDuration     how long an open circuit breaker rejects requests
+     */
+    record Settings(int maxAttempts,
+                    Duration backoffBase,
+                    Duration backoffMax,
+                    boolean hedgingEnabled,
+                    int hedgingMinSamples,
+                    int breakerFailureThreshold,
+                    Duration breakerOpenDuration) {
+    }
+}
@@ -0,0 +1,200 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.exceptions.HostThrottledException;
+import br.com.oystr.agromachinery.scraping.exceptions.MachineNotFoundException;
+import br.com.oystr.agromachinery.scraping.exceptions.PageNotModifiedException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.jsoup.HttpStatusException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer timers of every scraping stage, tagged by {@code host} and {@code outcome}.
+ * <p>
+ * Each {@link Stage} is a timer publishing a percentile histogram (for Prometheus) and its
+ * median and 95th percentile (for the periodic dump of {@link MetricsExporter}), so the
+ * slow stage of each website stands out. The host is the bot domain for the extraction and
+ * the whole scrape, and the URL host for downloads. Timers are cached per stage, host and
+ * outcome, so recording a duration does not build a meter id.
+ * </p>
+ */
+@Component
+public class ScrapeMetrics {
+
+    /**
+     * Records nothing, for components created outside of Spring.
+     */
+    public static final ScrapeMetrics NONE = new ScrapeMetrics(new CompositeMeterRegistry());
+
+    public static final String SUCCESS = "success";
+
+    private static final String UNKNOWN_HOST = "unknown";
+
+    private final MeterRegistry registry;
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> queueTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> downloadSizes = new ConcurrentHashMap<>();
+
+    public ScrapeMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Records the time a stage took.
+     *
+     * @param stage      the stage
+     * @param host       the host or bot domain, may be {@code null}
+     * @param outcome    how the stage ended, see {@link #outcome(int)} and {@link #outcome(Throwable)}
+     * @param startNanos {@link System#nanoTime()} when the stage started
+     */
+    public void record(Stage stage, String host, String outcome, long startNanos) {
+        recordNanos(stage, host, outcome, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a duration measured by the caller, e.g. summed over several writes.
+     *
+     * @param stage   the stage
+     * @param host    the host or bot domain, may be {@code null}
+     * @param outcome how the stage ended
+     * @param nanos   the duration in nanoseconds
+     */
+    public void recordNanos(Stage stage, String host, String outcome, long nanos) {
+        String tagHost = host != null ? host : UNKNOWN_HOST;
+        timers.computeIfAbsent(new TimerKey(stage, tagHost, outcome), key -> histogram(Timer.builder(stage.meterName)
+                .description(stage.description)
+                .tag("host", tagHost)
+                .tag("outcome", outcome))
+                .register(registry))
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records how long a task waited in a queue before a worker picked it up.
+     *
+     * @param queue       the queue, e.g. {@code executor} or a pipeline stage
+     * @param queuedNanos {@link System#nanoTime()} when the task was queued
+     */
+    public void recordQueueWait(String queue, long queuedNanos) {
+        queueTimers.computeIfAbsent(queue, key -> histogram(Timer.builder("scraper.queue.wait")
+                .description("Time a task waited in a queue before a worker picked it up")
+                .tag("queue", queue))
+                .register(registry))
+            .record(System.nanoTime() - queuedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the size of a downloaded page.
+     */
+    public void recordDownloadBytes(String host, long bytes) {
+        String tagHost = host != null ? host : UNKNOWN_HOST;
+        downloadSizes.computeIfAbsent(tagHost, key -> DistributionSummary.builder("scraper.http.download.size")
+                .description("Size of the downloaded pages")
+                .baseUnit("bytes")
+                .tag("host", tagHost)
+                .register(registry))
+            .record(bytes);
+    }
+
+    /**
+     * Runs the extraction of a page, recording its time under {@link Stage#EXTRACT}.
+     *
+     * @param bot        the bot domain
+     * @param extraction extracts the machine
+     * @return the result of the extraction
+     * @throws E if the extraction fails
+     */
+    public <T, E extends Exception> T extract(String bot, Extraction<T, E> extraction) throws E {
+        long start = System.nanoTime();
+        try {
+            T result = extraction.run();
+            record(Stage.EXTRACT, bot, SUCCESS, start);
+
+            return result;
+        } catch (Exception e) {
+            record(Stage.EXTRACT, bot, outcome(e), start);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the outcome of an HTTP response: {@code success}, {@code not_modified},
+     *         {@code throttled}, {@code client_error} or {@code server_error}
+     */
+    public static String outcome(int statusCode) {
+        if (statusCode == 304) {
+            return "not_modified";
+        }
+        if (statusCode == 429 || statusCode == 503) {
+            return "throttled";
+        }
+        if (statusCode >= 500) {
+            return "server_error";
+        }
+
+        return statusCode >= 400 ? "client_error" : SUCCESS;
+    }
+
+    /**
+     * @return the outcome of a stage that failed with the given exception
+     */
+    public static String outcome(Throwable e) {
+        return switch (e) {
+            case PageNotModifiedException ignored -> "not_modified";
+            case HostThrottledException ignored -> "throttled";
+            case MachineNotFoundException ignored -> "not_found";
+            case HttpStatusException status -> outcome(status.getStatusCode());
+            default -> "error";
+        };
+    }
+
+    /**
+     * Buckets from 1 ms to 1 minute, enough for every stage without thousands of series.
+     */
+    private static Timer.Builder histogram(Timer.Builder builder) {
+        return builder
+            .publishPercentileHistogram()
+            .publishPercentiles(0.5, 0.95)
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofMinutes(1));
+    }
+
+    /**
+     * Timed stages of the scraping of a URL.
+     */
+    public enum Stage {
+        RESPONSE("scraper.http.response", "Time to the response headers of a page: DNS, connect, TLS and time to first byte"),
+        DOWNLOAD("scraper.http.download", "Time to read the body of a page once its headers arrived"),
+        PARSE("scraper.parse", "Time to parse a page with Jsoup"),
+        EXTRACT("scraper.extract", "Time for a bot to extract a machine from a parsed page"),
+        PHOTO_FETCH("scraper.photo.fetch", "Time to retrieve and encode a photo, from the network or the photo cache"),
+        PHOTO_ENCODE("scraper.photo.encode", "Time spent Base64-encoding a photo into its sink, part of its fetch"),
+        SCRAPE("scraper.scrape", "Time for a bot to scrape a URL with its photo, in the FIXED and VIRTUAL execution modes");
+
+        private final String meterName;
+        private final String description;
+
+        Stage(String meterName, String description) {
+            this.meterName = meterName;
+            this.description = description;
+        }
+    }
+
+    /**
+     * Extraction of a page, which may fail reading embedded data.
+     */
+    @FunctionalInterface
+    public interface Extraction<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    private record TimerKey(Stage stage, String host, String outcome) {
+    }
+}
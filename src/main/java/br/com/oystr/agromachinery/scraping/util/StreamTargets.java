@@ -0,0 +1,60 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+
+import java.util.List;
+
+/**
+ * Elements a scraper reads from a page, used by {@link JsoupWrapper} to parse pages in
+ * streaming mode.
+ * <p>
+ * Only the target elements (with their whole subtree) and their ancestors are kept in the
+ * resulting document, and parsing stops as soon as every {@code required} target was seen.
+ * {@code optional} targets are kept when they show up before that point, e.g. a "listing
+ * closed" notice that only some pages have.
+ * </p>
+ * <p>
+ * Targets are matched when an element is closed and also against its still-open ancestors,
+ * so selectors should only look at the element itself (tag, id, class, attributes) and not
+ * at its content ({@code :has}, {@code :contains}); content checks belong in the extraction,
+ * which runs on the kept subtree.
+ * </p>
+ *
+ * @param required selectors that must all match before parsing stops
+ * @param optional selectors kept when found, without holding parsing back
+ */
+public record StreamTargets(
+    List<Evaluator> required,
+    List<Evaluator> optional
+) {
+
+    /**
+     * Compiles the given CSS selectors once, so they can be shared by every parse.
+     *
+     * @param required CSS selectors that must all match before parsing stops
+     * @param optional CSS selectors kept when found
+     * @return the compiled targets
+     */
+    public static StreamTargets of(List<String> required, List<String> optional) {
+        return new StreamTargets(
+            required.stream().map(QueryParser::parse).toList(),
+            optional.stream().map(QueryParser::parse).toList()
+        );
+    }
+
+    boolean matchesAny(Element element) {
+        return matchesAny(required, element) || matchesAny(optional, element);
+    }
+
+    private static boolean matchesAny(List<Evaluator> evaluators, Element element) {
+        for (Evaluator evaluator : evaluators) {
+            if (element.is(evaluator)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,52 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpHeaders;
+import java.util.Optional;
+
+/**
+ * Response returned by an {@link HttpTransport}.
+ *
+ * @param statusCode the HTTP status code
+ * @param url        the final URL of the response, after redirects
+ * @param headers    the response headers
+ * @param body       the decompressed response body
+ */
+public record TransportResponse(
+    int statusCode,
+    String url,
+    HttpHeaders headers,
+    InputStream body
+) implements Closeable {
+
+    /**
+     * Returns the first value of the given header, matched case-insensitively.
+     *
+     * @param name the header name
+     * @return the header value, or empty if absent
+     */
+    public Optional<String> header(String name) {
+        return headers.firstValue(name);
+    }
+
+    /**
+     * Returns the charset declared in the {@code Content-Type} header.
+     *
+     * @return the charset name, or {@code null} if none was declared
+     */
+    public String charset() {
+        return header("Content-Type")
+            .map(contentType -> {
+                int index = contentType.toLowerCase().indexOf("charset=");
+                return index >= 0 ? contentType.substring(index + 8).replace("\"", "").split(";")[0].trim() : null;
+            })
+            .orElse(null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+}
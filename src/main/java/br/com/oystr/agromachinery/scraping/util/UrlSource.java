@@ -0,0 +1,343 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Lazy, single-pass stream of the URLs to scrape, read line by line from the configuration,
+ * a file, the standard input or a watched directory, so a dump of millions of URLs is never
+ * loaded in memory at once.
+ * <p>
+ * Each line holds either a URL or an NDJSON object whose top-level {@code "url"} field is the
+ * URL; blank lines and lines starting with {@code #} are skipped. Gzipped input is detected
+ * from its magic bytes. URLs are returned as read: normalization and deduplication happen in
+ * {@link br.com.oystr.agromachinery.scraping.service.ScraperService}.
+ * </p>
+ *
+ * <p>The source is meant to be iterated once and closed afterwards, which logs how many lines
+ * were read or rejected.</p>
+ */
+public final class UrlSource implements Iterable<String>, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(UrlSource.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String description;
+    private final Iterator<Input> inputs;
+    private final Closeable resources;
+    private BufferedReader current;
+    private String currentName;
+    private long lineNumber;
+    private boolean iterated;
+    private long urls;
+    private long invalid;
+
+    private UrlSource(String description, Iterator<Input> inputs, Closeable resources) {
+        this.description = description;
+        this.inputs = inputs;
+        this.resources = resources;
+    }
+
+    /**
+     * @param urls URLs given in memory, e.g. by the {@code scraper.urls} property
+     * @return a source reading the given URLs
+     */
+    public static UrlSource of(List<String> urls) {
+        Input input = new Input("configuration", () -> new BufferedReader(new StringReader(String.join("\n", urls))));
+        return new UrlSource("configuration", List.of(input).iterator(), () -> { });
+    }
+
+    /**
+     * @param file a plain text or NDJSON file, optionally gzipped
+     * @return a source reading the file
+     */
+    public static UrlSource file(Path file) {
+        Input input = new Input(file.toString(), () -> reader(Files.newInputStream(file)));
+        return new UrlSource(file.toString(), List.of(input).iterator(), () -> { });
+    }
+
+    /**
+     * @return a source reading the standard input, in the same formats as {@link #file(Path)}
+     */
+    public static UrlSource stdin() {
+        Input input = new Input("stdin", () -> reader(System.in));
+        return new UrlSource("stdin", List.of(input).iterator(), () -> { });
+    }
+
+    /**
+     * Reads every file of a directory, in name order, then every file added to it until none
+     * is added for {@code idleTimeout}. Hidden files and files ending with {@code .tmp} or
+     * {@code .part} are ignored, so producers can write a file under a temporary name and
+     * rename it once complete.
+     *
+     * @param directory   the directory to watch
+     * @param idleTimeout how long to wait for a new file before ending the source
+     * @return a source reading the files of the directory
+     * @throws IOException if the directory cannot be watched
+     */
+    public static UrlSource directory(Path directory, Duration idleTimeout) throws IOException {
+        DirectoryInputs inputs = new DirectoryInputs(directory, idleTimeout);
+        return new UrlSource(directory.toString(), inputs, inputs);
+    }
+
+    /**
+     * @throws IllegalStateException if the source was already iterated
+     * @throws UncheckedIOException  from the iterator, if the input cannot be read
+     */
+    @Override
+    public Iterator<String> iterator() {
+        if (iterated) {
+            throw new IllegalStateException("URL source " + description + " can only be read once");
+        }
+        iterated = true;
+
+        return new Iterator<>() {
+            private String next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = nextUrl();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to read URLs from " + currentName, e);
+                    }
+                }
+
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                String url = next;
+                next = null;
+                return url;
+            }
+        };
+    }
+
+    /**
+     * @return the number of URLs read so far
+     */
+    public long urls() {
+        return urls;
+    }
+
+    /**
+     * @return the number of lines skipped because they held no URL
+     */
+    public long invalid() {
+        return invalid;
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.info("Read {} URLs from {}, skipped {} invalid lines", urls, description, invalid);
+        try (Closeable ignored = resources) {
+            if (current != null) {
+                current.close();
+            }
+        }
+    }
+
+    private String nextUrl() throws IOException {
+        while (true) {
+            if (current == null) {
+                if (!inputs.hasNext()) {
+                    return null;
+                }
+
+                Input input = inputs.next();
+                current = input.opener().open();
+                currentName = input.name();
+                lineNumber = 0;
+            }
+
+            String line = current.readLine();
+            if (line == null) {
+                current.close();
+                current = null;
+                continue;
+            }
+            lineNumber++;
+
+            String url = parse(line.strip());
+            if (url == null) {
+                continue;
+            }
+
+            urls++;
+            return url;
+        }
+    }
+
+    /**
+     * @return the URL of a stripped line, or {@code null} if it holds none
+     */
+    private String parse(String line) {
+        if (line.isEmpty() || line.charAt(0) == '#') {
+            return null;
+        }
+        if (line.charAt(0) != '{') {
+            return line;
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+            String url = null;
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() == JsonToken.VALUE_STRING && "url".equals(field)) {
+                    url = parser.getText();
+                }
+                parser.skipChildren();
+            }
+
+            if (parser.currentToken() == JsonToken.END_OBJECT && url != null && !url.isBlank()) {
+                return url;
+            }
+        } catch (IOException e) {
+            log.debug("Invalid JSON on line {} of {}: {}", lineNumber, currentName, e.getMessage());
+        }
+
+        log.warn("Skipping line {} of {}: not a JSON object with a \"url\" field", lineNumber, currentName);
+        invalid++;
+        return null;
+    }
+
+    /**
+     * Wraps a stream in a UTF-8 reader, decompressing it if it starts with the gzip magic bytes.
+     */
+    private static BufferedReader reader(InputStream stream) throws IOException {
+        InputStream in = new BufferedInputStream(stream, BUFFER_SIZE);
+        in.mark(2);
+        boolean gzipped = in.read() == 0x1f && in.read() == 0x8b;
+        in.reset();
+        if (gzipped) {
+            in = new GZIPInputStream(in, BUFFER_SIZE);
+        }
+
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Opens the reader of an input.
+     */
+    private interface Opener {
+        BufferedReader open() throws IOException;
+    }
+
+    /**
+     * A file, or any other stream of lines, opened only when its turn comes.
+     */
+    private record Input(String name, Opener opener) {
+    }
+
+    /**
+     * Files of a watched directory, waiting for new ones once the known files are consumed.
+     */
+    private static final class DirectoryInputs implements Iterator<Input>, Closeable {
+        private final Path directory;
+        private final long idleTimeoutNanos;
+        private final WatchService watchService;
+        private final Set<Path> known = new HashSet<>();
+        private final ArrayDeque<Path> ready = new ArrayDeque<>();
+
+        private DirectoryInputs(Path directory, Duration idleTimeout) throws IOException {
+            this.directory = directory;
+            this.idleTimeoutNanos = idleTimeout.toNanos();
+            this.watchService = directory.getFileSystem().newWatchService();
+            // Registered before the first scan, so no file added in between is missed
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+            scan();
+        }
+
+        @Override
+        public boolean hasNext() {
+            long deadline = System.nanoTime() + idleTimeoutNanos;
+            try {
+                while (ready.isEmpty()) {
+                    WatchKey key = watchService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (key == null) {
+                        log.info("No new file in {} for {} seconds, stopping", directory, TimeUnit.NANOSECONDS.toSeconds(idleTimeoutNanos));
+                        return false;
+                    }
+                    key.pollEvents();
+                    key.reset();
+                    scan();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to list " + directory, e);
+            }
+
+            return true;
+        }
+
+        @Override
+        public Input next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Path file = ready.removeFirst();
+            log.info("Reading URLs from {}", file);
+            return new Input(file.toString(), () -> reader(Files.newInputStream(file)));
+        }
+
+        @Override
+        public void close() throws IOException {
+            watchService.close();
+        }
+
+        private void scan() throws IOException {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(Files::isRegularFile)
+                    .filter(file -> isComplete(file.getFileName().toString()))
+                    .filter(known::add)
+                    .sorted()
+                    .forEach(ready::addLast);
+            }
+        }
+
+        private static boolean isComplete(String name) {
+            return !name.startsWith(".") && !name.endsWith(".tmp") && !name.endsWith(".part");
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.model.InputMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Opens the {@link UrlSource} selected by {@code scraper.input.mode} (see {@link InputMode}).
+ */
+@Component
+public class UrlSourceFactory {
+
+    private final InputMode mode;
+    private final String path;
+    private final Duration watchIdleTimeout;
+    private final List<String> urls;
+
+    public UrlSourceFactory(@Value("${scraper.input.mode}") InputMode mode,
+                            @Value("${scraper.input.path}") String path,
+                            @Value("${scraper.input.watch-idle-seconds}") long watchIdleSeconds,
+                            @Value("${scraper.urls}") List<String> urls) {
+        this.mode = mode;
+        this.path = path;
+        this.watchIdleTimeout = Duration.ofSeconds(watchIdleSeconds);
+        this.urls = urls;
+    }
+
+    /**
+     * @return a new source reading the configured input, to be closed once read
+     * @throws IOException if the configured directory cannot be watched
+     */
+    public UrlSource open() throws IOException {
+        return switch (mode) {
+            case CONFIG -> UrlSource.of(urls);
+            case FILE -> UrlSource.file(Path.of(requirePath()));
+            case STDIN -> UrlSource.stdin();
+            case DIRECTORY -> UrlSource.directory(Path.of(requirePath()), watchIdleTimeout);
+        };
+    }
+
+    private String requirePath() {
+        if (path == null || path.isBlank()) {
+            throw new IllegalStateException("scraper.input.path is required when scraper.input.mode is " + mode);
+        }
+
+        return path;
+    }
+}
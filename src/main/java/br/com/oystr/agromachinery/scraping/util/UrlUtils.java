@@ -0,0 +1,254 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Utility class for reading the parts of a URL needed to route it, without the cost of
+ * {@link java.net.URI} parsing.
+ * <p>
+ * URLs with or without a scheme are accepted ({@code "https://www.agrofy.com.br/x"} and
+ * {@code "www.agrofy.com.br/x"}), since listings are sometimes given without one.
+ * </p>
+ *
+ * <p>The constructor is private to prevent instantiation.</p>
+ */
+public final class UrlUtils {
+
+    private static final Set<String> TRACKING_PARAMETERS = Set.of(
+        "gclid", "gclsrc", "dclid", "fbclid", "msclkid", "yclid", "igshid", "mc_cid", "mc_eid", "_ga", "_gl");
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private UrlUtils() {
+    }
+
+    /**
+     * Returns the lower-cased {@code host[:port]} authority of a URL, without user info.
+     *
+     * @param url the URL
+     * @return the authority, or {@code null} if the URL has none
+     */
+    public static String authority(String url) {
+        int end = authorityEnd(url);
+        int start = authorityStart(url, end);
+
+        return start == end ? null : url.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the index where the authority returned by {@link #authority(String)} starts in
+     * the URL, so callers can look it up without extracting it.
+     *
+     * @param url the URL
+     * @param end the index returned by {@link #authorityEnd(String)}
+     * @return the start index, equal to {@code end} if the URL has no authority
+     */
+    public static int authorityStart(String url, int end) {
+        int start = schemeEnd(url);
+        for (int at = url.indexOf('@', start, end); at >= 0; at = url.indexOf('@', start, end)) {
+            start = at + 1;
+        }
+
+        return start;
+    }
+
+    /**
+     * Returns the index where the authority of the URL ends, i.e. of the first {@code '/'},
+     * {@code '?'} or {@code '#'} after the scheme, or the URL length.
+     *
+     * @param url the URL
+     * @return the end index (exclusive)
+     */
+    public static int authorityEnd(String url) {
+        int start = schemeEnd(url);
+        int end = url.indexOf('/', start);
+        if (end < 0) {
+            end = url.length();
+        }
+        int query = url.indexOf('?', start, end);
+        if (query >= 0) {
+            end = query;
+        }
+        int fragment = url.indexOf('#', start, end);
+
+        return fragment >= 0 ? fragment : end;
+    }
+
+    /**
+     * Returns the host of an authority returned by {@link #authority(String)}, i.e. without port.
+     *
+     * @param authority the {@code host[:port]} authority
+     * @return the host
+     */
+    public static String host(String authority) {
+        int portSeparator = authority.lastIndexOf(':');
+        if (portSeparator < 0 || authority.indexOf(']', portSeparator) >= 0) {
+            return authority;
+        }
+
+        return authority.substring(0, portSeparator);
+    }
+
+    /**
+     * Checks whether an authority belongs to a domain: its host is the domain or one of its
+     * subdomains, or the whole authority equals the domain (for domains with a port).
+     *
+     * @param authority the {@code host[:port]} authority returned by {@link #authority(String)}
+     * @param domain    the domain, e.g. {@code "agrofy.com.br"}
+     * @return {@code true} if the authority belongs to the domain
+     */
+    public static boolean isInDomain(String authority, String domain) {
+        if (authority.equalsIgnoreCase(domain)) {
+            return true;
+        }
+
+        String host = host(authority);
+        int offset = host.length() - domain.length();
+
+        return offset == 0 ? host.equalsIgnoreCase(domain)
+            : offset > 0 && host.charAt(offset - 1) == '.' && host.regionMatches(true, offset, domain, 0, domain.length());
+    }
+
+    /**
+     * Returns the path of a URL, without query string nor fragment.
+     *
+     * @param url the URL
+     * @return the path, {@code "/"} if the URL has none
+     */
+    public static String path(String url) {
+        int start = authorityEnd(url);
+        int end = start;
+        while (end < url.length() && url.charAt(end) != '?' && url.charAt(end) != '#') {
+            end++;
+        }
+
+        return start == end ? "/" : url.substring(start, end);
+    }
+
+    /**
+     * Returns the raw value of the first query parameter of a URL with the given name.
+     *
+     * @param url  the URL
+     * @param name the parameter name, case-sensitive
+     * @return the value, empty for a parameter without {@code =}, or {@code null} if the URL has
+     * no such parameter
+     */
+    public static String queryParameter(String url, String name) {
+        int fragment = url.indexOf('#');
+        int queryStart = url.indexOf('?');
+        if (queryStart < 0 || (fragment >= 0 && fragment < queryStart)) {
+            return null;
+        }
+
+        String query = url.substring(queryStart + 1, fragment < 0 ? url.length() : fragment);
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            if ((equals < 0 ? parameter : parameter.substring(0, equals)).equals(name)) {
+                return equals < 0 ? "" : parameter.substring(equals + 1);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Sets a query parameter of a URL, replacing every previous value of the parameter and
+     * dropping the fragment. Other parameters keep their order.
+     *
+     * @param url   the URL
+     * @param name  the parameter name, case-sensitive
+     * @param value the raw value, already encoded
+     * @return the URL with the parameter set
+     */
+    public static String withQueryParameter(String url, String name, String value) {
+        int fragment = url.indexOf('#');
+        String withoutFragment = fragment < 0 ? url : url.substring(0, fragment);
+        int queryStart = withoutFragment.indexOf('?');
+        StringJoiner query = new StringJoiner("&");
+        if (queryStart >= 0) {
+            for (String parameter : withoutFragment.substring(queryStart + 1).split("&")) {
+                int equals = parameter.indexOf('=');
+                if (!parameter.isEmpty() && !(equals < 0 ? parameter : parameter.substring(0, equals)).equals(name)) {
+                    query.add(parameter);
+                }
+            }
+        }
+        query.add(name + "=" + value);
+
+        return (queryStart < 0 ? withoutFragment : withoutFragment.substring(0, queryStart)) + "?" + query;
+    }
+
+    /**
+     * Normalizes the parts of a URL that do not change the listing it points to, so trivially
+     * different URLs of the same page are recognized as duplicates:
+     * <ul>
+     *     <li>surrounding whitespace and the {@code #fragment} are dropped;</li>
+     *     <li>the scheme and the host are lower-cased, and a default port ({@code :80} for http,
+     *     {@code :443} for https) is dropped;</li>
+     *     <li>a trailing {@code /} is dropped from the path, except for the root path;</li>
+     *     <li>tracking parameters ({@code utm_*}, {@code gclid}, {@code fbclid}...) are dropped from
+     *     the query string, and so is the {@code ?} of an empty query.</li>
+     * </ul>
+     *
+     * @param url the URL
+     * @return the normalized URL
+     */
+    public static String normalize(String url) {
+        String normalized = url.strip();
+        int fragment = normalized.indexOf('#');
+        if (fragment >= 0) {
+            normalized = normalized.substring(0, fragment);
+        }
+
+        int end = authorityEnd(normalized);
+        int start = authorityStart(normalized, end);
+        int schemeEnd = schemeEnd(normalized);
+        String scheme = normalized.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+        String host = withoutDefaultPort(scheme, normalized.substring(start, end).toLowerCase(Locale.ROOT));
+
+        int queryStart = normalized.indexOf('?', end);
+        String path = queryStart < 0 ? normalized.substring(end) : normalized.substring(end, queryStart);
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        String query = queryStart < 0 ? "" : withoutTrackingParameters(normalized.substring(queryStart + 1));
+
+        return scheme + normalized.substring(schemeEnd, start) + host + path + (query.isEmpty() ? "" : "?" + query);
+    }
+
+    private static String withoutDefaultPort(String scheme, String authority) {
+        if (scheme.equals("http://") && authority.endsWith(":80")) {
+            return authority.substring(0, authority.length() - 3);
+        }
+        if (scheme.equals("https://") && authority.endsWith(":443")) {
+            return authority.substring(0, authority.length() - 4);
+        }
+
+        return authority;
+    }
+
+    private static String withoutTrackingParameters(String query) {
+        StringJoiner kept = new StringJoiner("&");
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = (equals < 0 ? parameter : parameter.substring(0, equals)).toLowerCase(Locale.ROOT);
+            if (!parameter.isEmpty() && !name.startsWith("utm_") && !TRACKING_PARAMETERS.contains(name)) {
+                kept.add(parameter);
+            }
+        }
+
+        return kept.toString();
+    }
+
+    private static int schemeEnd(String url) {
+        int schemeSeparator = url.indexOf("://");
+        if (schemeSeparator >= 0 && url.lastIndexOf('/', schemeSeparator) < 0) {
+            return schemeSeparator + 3;
+        }
+
+        return url.startsWith("//") ? 2 : 0;
+    }
+}
@@ -0,0 +1,145 @@
+package br.com.oystr.agromachinery.scraping.api;
+
+import br.com.oystr.agromachinery.scraping.model.ContractType;
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.service.ScraperService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.when;
+
+class ScrapeApiServerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final CountDownLatch secondMachine = new CountDownLatch(1);
+    private ScraperService scraperService;
+    private ScrapeApiServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        scraperService = Mockito.mock(ScraperService.class);
+        when(scraperService.scrapeBatch(any(), anyBoolean(), any())).thenAnswer(invocation -> {
+            List<String> urls = invocation.getArgument(0);
+            Consumer<Machine> consumer = invocation.getArgument(2);
+            consumer.accept(machine(urls.getFirst()));
+            if (urls.size() > 1) {
+                assertTrue(secondMachine.await(10, TimeUnit.SECONDS));
+                consumer.accept(machine(urls.get(1)));
+            }
+            return true;
+        });
+
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = new ScrapeApiServer(scraperService, objectMapper, "127.0.0.1", port, 1, 2, 60);
+        baseUrl = "http://127.0.0.1:" + port;
+    }
+
+    @AfterEach
+    void tearDown() {
+        secondMachine.countDown();
+        server.close();
+    }
+
+    @Test
+    void results_givenRunningJob_shouldStreamNdjsonAsMachinesAreFetched() throws Exception {
+        HttpResponse<String> submitted = post("{\"urls\": [\"https://www.agrofy.com.br/a\", \"https://www.agrofy.com.br/b\"], \"photos\": false}");
+        assertEquals(202, submitted.statusCode());
+        String id = objectMapper.readTree(submitted.body()).get("id").asText();
+        assertEquals("/jobs/" + id, submitted.headers().firstValue("Location").orElseThrow());
+
+        HttpResponse<InputStream> results = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/jobs/" + id + "/results")).build(),
+            HttpResponse.BodyHandlers.ofInputStream());
+        assertEquals("application/x-ndjson", results.headers().firstValue("Content-Type").orElseThrow());
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(results.body(), StandardCharsets.UTF_8))) {
+            String line = lines.readLine();
+            JsonNode first = objectMapper.readTree(line);
+            assertEquals("https://www.agrofy.com.br/a", first.get("url").asText());
+            assertTrue(line.contains("\"price\":350000.00"));
+            assertFalse(first.has("photoBase64"));
+
+            // The first machine arrived while the job was still running
+            assertEquals("RUNNING", status(id).get("state").asText());
+            secondMachine.countDown();
+
+            assertEquals("https://www.agrofy.com.br/b", objectMapper.readTree(lines.readLine()).get("url").asText());
+            assertNull(lines.readLine());
+        }
+
+        JsonNode status = status(id);
+        assertEquals("COMPLETED", status.get("state").asText());
+        assertEquals(2, status.get("results").asInt());
+    }
+
+    @Test
+    void results_givenEventStreamAccepted_shouldReplayMachinesThenSendEndEvent() throws Exception {
+        secondMachine.countDown();
+        String id = objectMapper.readTree(post("{\"urls\": [\"https://www.agrofy.com.br/a\"]}").body()).get("id").asText();
+
+        HttpResponse<String> events = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/jobs/" + id + "/results"))
+            .header("Accept", "text/event-stream").build(), HttpResponse.BodyHandlers.ofString());
+
+        assertTrue(events.headers().firstValue("Content-Type").orElseThrow().startsWith("text/event-stream"));
+        String[] parts = events.body().split("\n\n");
+        assertTrue(parts[0].startsWith("event: machine\nid: 0\ndata: {\"model\":\"Trator 8R\""));
+        assertTrue(parts[0].contains("\"photoBase64\":null"));
+        assertTrue(parts[1].startsWith("event: end\ndata: "));
+        assertEquals("COMPLETED", objectMapper.readTree(parts[1].substring(parts[1].indexOf('{'))).get("state").asText());
+    }
+
+    @Test
+    void submit_givenInvalidOrExcessJobs_shouldRefuseThem() throws Exception {
+        assertEquals(400, post("{\"urls\": []}").statusCode());
+        assertEquals(400, post("not json").statusCode());
+        assertEquals(413, post("{\"urls\": [\"a\", \"b\", \"c\"]}").statusCode());
+
+        assertEquals(202, post("{\"urls\": [\"https://www.agrofy.com.br/a\", \"https://www.agrofy.com.br/b\"]}").statusCode());
+        assertEquals(429, post("{\"urls\": [\"https://www.agrofy.com.br/c\"]}").statusCode());
+        assertEquals(404, client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/jobs/unknown")).build(),
+            HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    private HttpResponse<String> post(String body) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/jobs"))
+            .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private JsonNode status(String id) throws Exception {
+        return objectMapper.readTree(client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/jobs/" + id)).build(),
+            HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    private static Machine machine(String url) {
+        return new Machine("Trator 8R", ContractType.SALE, "John Deere", 2022, 100, "Erechim",
+            new BigDecimal("350000.00"), null, null, url);
+    }
+}
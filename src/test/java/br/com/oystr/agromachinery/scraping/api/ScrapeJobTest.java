@@ -0,0 +1,73 @@
+package br.com.oystr.agromachinery.scraping.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ScrapeJobTest {
+
+    @Test
+    void await_givenResultsLargerThanASlice_shouldReplayThemInSlices() throws Exception {
+        byte[] photo = new byte[ScrapeJob.MAX_SLICE_BYTES / 2];
+        Arrays.fill(photo, (byte) 'x');
+        try (ScrapeJob job = new ScrapeJob("job", 4, Instant.now())) {
+            job.add("{\"url\":\"a\"}".getBytes(StandardCharsets.UTF_8));
+            job.add(photo);
+            job.add(photo);
+            job.add("{\"url\":\"b\"}".getBytes(StandardCharsets.UTF_8));
+            job.finish(true);
+
+            ScrapeJob.Slice first = job.await(0, Duration.ZERO);
+            assertEquals(2, first.results().size());
+            assertFalse(first.last());
+            assertEquals("{\"url\":\"a\"}", new String(first.results().getFirst(), StandardCharsets.UTF_8));
+            assertArrayEquals(photo, first.results().get(1));
+
+            List<byte[]> rest = new ArrayList<>();
+            ScrapeJob.Slice slice;
+            int read = first.results().size();
+            do {
+                slice = job.await(read, Duration.ZERO);
+                rest.addAll(slice.results());
+                read += slice.results().size();
+            } while (!slice.last());
+
+            assertEquals(2, rest.size());
+            assertArrayEquals(photo, rest.getFirst());
+            assertEquals("{\"url\":\"b\"}", new String(rest.get(1), StandardCharsets.UTF_8));
+            assertEquals(4, job.status().results());
+        }
+    }
+
+    @Test
+    void close_givenResults_shouldDeleteThem() throws Exception {
+        ScrapeJob job = new ScrapeJob("closed", 1, Instant.now());
+        job.add("{\"url\":\"a\"}".getBytes(StandardCharsets.UTF_8));
+        assertEquals(1, temporaryFiles("scrape-job-closed-"));
+
+        job.close();
+
+        assertEquals(0, temporaryFiles("scrape-job-closed-"));
+        assertThrows(IOException.class, () -> job.await(0, Duration.ZERO));
+    }
+
+    private static long temporaryFiles(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package br.com.oystr.agromachinery.scraping.benchmark;
+
+import br.com.oystr.agromachinery.scraping.bot.Bot;
+import br.com.oystr.agromachinery.scraping.bot.BotFactory;
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.PhotoMode;
+import br.com.oystr.agromachinery.scraping.service.scrapers.AgrofyScraper;
+import br.com.oystr.agromachinery.scraping.service.scrapers.MercadoMaquinasScraper;
+import br.com.oystr.agromachinery.scraping.service.scrapers.TratoresColheitadeirasScraper;
+import br.com.oystr.agromachinery.scraping.util.ScrapeMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares routing URLs through the {@link BotFactory} host index against the original
+ * linear scan asking each bot whether the URL contains its domain.
+ * <p>
+ * Each operation routes the same batch of listing URLs of the three sites plus unknown hosts,
+ * so the score is the average time per URL times {@link #URLS_COUNT}. {@code otherSites} adds
+ * bots of other domains, registered before the real ones, to show how each approach scales
+ * with the number of supported sites.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BotFactoryBenchmark {
+
+    private static final int URLS_COUNT = 1_000;
+
+    @Param({"0", "100"})
+    private int otherSites;
+
+    private List<Bot> bots;
+    private BotFactory botFactory;
+    private String[] urls;
+
+    @Setup
+    public void setUp() {
+        bots = new ArrayList<>();
+        for (int i = 0; i < otherSites; i++) {
+            bots.add(new OtherSiteBot("maquinas-%d.com.br".formatted(i)));
+        }
+        bots.add(new AgrofyScraper(null, null, new ObjectMapper(), ScrapeMetrics.NONE));
+        bots.add(new MercadoMaquinasScraper(null, null, ScrapeMetrics.NONE));
+        bots.add(new TratoresColheitadeirasScraper(null, null, ScrapeMetrics.NONE));
+        botFactory = new BotFactory(bots);
+
+        String[] hosts = {
+            "https://www.agrofy.com.br/trator-john-deere-%d.html",
+            "https://www.mercadomaquinas.com.br/anuncio/%d-trator-massey-ferguson?utm_source=newsletter",
+            "https://www.tratoresecolheitadeiras.com.br/veiculo/curitiba/pr/trator/%d",
+            "https://www.example.com/classificados/%d?ref=portal"
+        };
+        urls = new String[URLS_COUNT];
+        for (int i = 0; i < URLS_COUNT; i++) {
+            urls[i] = hosts[i % hosts.length].formatted(i);
+        }
+    }
+
+    @Benchmark
+    public void hostIndex(Blackhole blackhole) {
+        for (String url : urls) {
+            blackhole.consume(botFactory.getRobot(url));
+        }
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        for (String url : urls) {
+            blackhole.consume(linearScan(url));
+        }
+    }
+
+    private Optional<Bot> linearScan(String url) {
+        return bots.stream()
+            .filter(bot -> url.contains(bot.domain()))
+            .findFirst();
+    }
+
+    private record OtherSiteBot(String domain) implements Bot {
+
+        @Override
+        public Machine fetch(String url, PhotoMode photoMode) {
+            return null;
+        }
+
+        @Override
+        public Machine extract(Document document, String url) {
+            return null;
+        }
+    }
+}
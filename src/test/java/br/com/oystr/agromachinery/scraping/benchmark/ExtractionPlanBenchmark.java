@@ -0,0 +1,135 @@
+package br.com.oystr.agromachinery.scraping.benchmark;
+
+import br.com.oystr.agromachinery.scraping.bot.Bot;
+import br.com.oystr.agromachinery.scraping.model.ContractType;
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.service.scrapers.MercadoMaquinasScraper;
+import br.com.oystr.agromachinery.scraping.service.scrapers.TratoresColheitadeirasScraper;
+import br.com.oystr.agromachinery.scraping.testutils.ListingPageGenerator;
+import br.com.oystr.agromachinery.scraping.util.ExtractionPlan;
+import br.com.oystr.agromachinery.scraping.util.PriceParser;
+import br.com.oystr.agromachinery.scraping.util.ScrapeMetrics;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static br.com.oystr.agromachinery.scraping.testutils.TestHtmlFileLoader.loadHtml;
+
+/**
+ * Compares extracting a listing with the scrapers' precompiled {@link ExtractionPlan} against
+ * the previous approach, which built a CSS query per label and ran one {@code selectFirst} over
+ * the whole document per field.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractionPlanBenchmark {
+
+    private static final String URL = "https://benchmark.local/listing";
+
+    @Param({"mercadomaquinas", "tratoresecolheitadeiras"})
+    private String site;
+
+    @Param({"FIXTURE", "LARGE"})
+    private ScraperExtractBenchmark.PageSize pageSize;
+
+    private Bot bot;
+    private Document document;
+
+    @Setup
+    public void setUp() throws IOException {
+        bot = switch (site) {
+            case "mercadomaquinas" -> new MercadoMaquinasScraper(null, null, ScrapeMetrics.NONE);
+            case "tratoresecolheitadeiras" -> new TratoresColheitadeirasScraper(null, null, ScrapeMetrics.NONE);
+            default -> throw new IllegalArgumentException("Unknown site: " + site);
+        };
+
+        String fixture = "mock_%s_product.html".formatted(site);
+        String html = pageSize == ScraperExtractBenchmark.PageSize.LARGE
+            ? ListingPageGenerator.largeListing(fixture, 600)
+            : loadHtml(fixture);
+        document = Jsoup.parse(html, URL);
+
+        if (!extractionPlan().equals(runtimeSelectors())) {
+            throw new IllegalStateException("Extraction plan and runtime selectors disagree for " + site);
+        }
+    }
+
+    @Benchmark
+    public Machine extractionPlan() throws IOException {
+        return bot.extract(document, URL);
+    }
+
+    @Benchmark
+    public Machine runtimeSelectors() {
+        return "mercadomaquinas".equals(site) ? legacyMercadoMaquinas(document) : legacyTratoresColheitadeiras(document);
+    }
+
+    private static Machine legacyMercadoMaquinas(Document document) {
+        String model = Optional.ofNullable(document.selectFirst("h1.title")).map(Element::text).orElse(null);
+        String make = findProductInfo(document, "Fabricante").orElse(null);
+        Integer year = findProductInfo(document, "Ano").map(Integer::valueOf).orElse(null);
+        Integer workedHours = Optional.ofNullable(document.selectFirst("li.item.spec:has(span.name:containsOwn(Horas trabalhadas:)) span.value"))
+            .map(Element::text)
+            .map(s -> s.replace(" ", "").replace("h", "").replace(".", ""))
+            .map(Integer::valueOf)
+            .orElse(null);
+        String city = findProductInfo(document, "Localização").orElse(null);
+        BigDecimal price = Optional.ofNullable(document.selectFirst("div.price span.value"))
+            .map(Element::text)
+            .flatMap(PriceParser::parsePrice)
+            .orElse(null);
+        String photo = Optional.ofNullable(document.selectFirst("#ad-main-photo img"))
+            .map(e -> e.attr("abs:src"))
+            .orElse(null);
+
+        return new Machine(model, ContractType.SALE, make, year, workedHours, city, price, photo, null, URL);
+    }
+
+    private static Optional<String> findProductInfo(Document document, String label) {
+        String cssSelector = "li.item:has(span.item-name:containsOwn(%s:)) span.item-value".formatted(label);
+
+        return Optional.ofNullable(document.selectFirst(cssSelector)).map(Element::text);
+    }
+
+    private static Machine legacyTratoresColheitadeiras(Document document) {
+        if (document.selectFirst("h1:contains(Esse veículo já foi vendido.)") != null) {
+            throw new IllegalStateException("Sold listing");
+        }
+
+        String model = Optional.ofNullable(document.selectFirst(".product-single__title")).map(Element::text).orElse(null);
+        String make = findDetail(document, "Marca").orElse(null);
+        Integer year = findDetail(document, "Ano de Fabricação").map(Integer::parseInt).orElse(null);
+        Integer workedHours = findDetail(document, "Horas").map(Integer::parseInt).orElse(null);
+        String city = Optional.ofNullable(document.select(".product-single__description.rte li").last())
+            .map(Element::lastChild).map(Node::nodeValue).map(String::trim).orElse(null);
+        BigDecimal price = findDetail(document, "Preço").flatMap(PriceParser::parsePrice).orElse(null);
+        String photo = Optional.ofNullable(document.selectFirst("[data-image]")).map(e -> e.attr("data-image")).orElse(null);
+
+        return new Machine(model, ContractType.SALE, make, year, workedHours, city, price, photo, null, URL);
+    }
+
+    private static Optional<String> findDetail(Document document, String label) {
+        return Optional.ofNullable(document.selectFirst("p:containsOwn(" + label + ") strong")).map(Element::text);
+    }
+}
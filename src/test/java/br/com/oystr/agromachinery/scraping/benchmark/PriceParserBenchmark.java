@@ -0,0 +1,58 @@
+package br.com.oystr.agromachinery.scraping.benchmark;
+
+import br.com.oystr.agromachinery.scraping.testutils.LegacyPriceParser;
+import br.com.oystr.agromachinery.scraping.util.PriceParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass {@link PriceParser} scanner against the original
+ * {@code NumberFormat}-based implementation ({@link LegacyPriceParser}).
+ * <p>
+ * Each operation parses the same mix of prices seen on listing pages, so the score is the
+ * average time per price times the number of inputs.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceParserBenchmark {
+
+    private static final String[] PRICES = {
+        "R$ 1.234,56",
+        "R$ 35.000",
+        "R$ 123.456,78",
+        "R$ 1.380.000,00",
+        "R$ 289.900,00",
+        "R$ 10.000 - R$ 12.000",
+        "Sob consulta",
+        "850"
+    };
+
+    @Benchmark
+    public void handRolled(Blackhole blackhole) {
+        for (String price : PRICES) {
+            blackhole.consume(PriceParser.parsePrice(price));
+        }
+    }
+
+    @Benchmark
+    public void numberFormat(Blackhole blackhole) {
+        for (String price : PRICES) {
+            blackhole.consume(LegacyPriceParser.parsePrice(price));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package br.com.oystr.agromachinery.scraping.benchmark;
+
+import br.com.oystr.agromachinery.scraping.bot.Bot;
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.service.scrapers.AgrofyScraper;
+import br.com.oystr.agromachinery.scraping.service.scrapers.MercadoMaquinasScraper;
+import br.com.oystr.agromachinery.scraping.service.scrapers.TratoresColheitadeirasScraper;
+import br.com.oystr.agromachinery.scraping.testutils.ListingPageGenerator;
+import br.com.oystr.agromachinery.scraping.util.JsoupWrapper;
+import br.com.oystr.agromachinery.scraping.util.RawPage;
+import br.com.oystr.agromachinery.scraping.util.ScrapeMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static br.com.oystr.agromachinery.scraping.testutils.TestHtmlFileLoader.loadHtml;
+
+/**
+ * Measures the CPU cost of turning a downloaded listing page into a {@link Machine}.
+ * <p>
+ * {@code parseAndExtract} covers the whole parse stage (decoding the bytes into a Jsoup
+ * {@link Document} and running the scraper's {@link Bot#extract}), {@code streamParseAndExtract}
+ * does the same with the streaming parse limited to the bot's {@link Bot#streamTargets()}, and
+ * {@code extract} isolates the selectors and JSON handling on an already parsed document.
+ * Pages are either the plain mock fixtures or the same fixtures inflated by
+ * {@link ListingPageGenerator} to the size of a real listing.
+ * </p>
+ * <p>
+ * Run it with the allocation profiler, which the {@code benchmark} profile enables by default:
+ * {@code mvn -Pbenchmark verify -DskipTests -Dbenchmark.include=ScraperExtractBenchmark}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScraperExtractBenchmark {
+
+    private static final String URL = "https://benchmark.local/listing";
+    private static final int LARGE_PAGE_FILLER_ITEMS = 600;
+
+    @Param({"agrofy", "mercadomaquinas", "tratoresecolheitadeiras"})
+    private String site;
+
+    @Param({"FIXTURE", "LARGE"})
+    private PageSize pageSize;
+
+    private Bot bot;
+    private JsoupWrapper jsoupWrapper;
+    private RawPage page;
+    private Document document;
+
+    public enum PageSize {
+        FIXTURE,
+        LARGE
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        jsoupWrapper = new JsoupWrapper(null, null, true, ScrapeMetrics.NONE);
+        bot = switch (site) {
+            case "agrofy" -> new AgrofyScraper(jsoupWrapper, null, new ObjectMapper(), ScrapeMetrics.NONE);
+            case "mercadomaquinas" -> new MercadoMaquinasScraper(jsoupWrapper, null, ScrapeMetrics.NONE);
+            case "tratoresecolheitadeiras" -> new TratoresColheitadeirasScraper(jsoupWrapper, null, ScrapeMetrics.NONE);
+            default -> throw new IllegalArgumentException("Unknown site: " + site);
+        };
+
+        String fixture = "mock_%s_product.html".formatted(site);
+        String html = pageSize == PageSize.LARGE
+            ? ListingPageGenerator.largeListing(fixture, LARGE_PAGE_FILLER_ITEMS)
+            : loadHtml(fixture);
+        page = new RawPage(URL, URL, StandardCharsets.UTF_8.name(), html.getBytes(StandardCharsets.UTF_8));
+        document = jsoupWrapper.parse(page);
+
+        Machine expected = bot.extract(jsoupWrapper.parse(new RawPage(URL, URL, StandardCharsets.UTF_8.name(),
+            loadHtml(fixture).getBytes(StandardCharsets.UTF_8))), URL);
+        if (!expected.equals(bot.extract(document, URL)) || !expected.equals(streamParseAndExtract())) {
+            throw new IllegalStateException("Generated %s page extracts a different machine than the fixture".formatted(site));
+        }
+    }
+
+    @Benchmark
+    public Machine parseAndExtract() throws IOException {
+        return bot.extract(jsoupWrapper.parse(page), URL);
+    }
+
+    @Benchmark
+    public Machine streamParseAndExtract() throws IOException {
+        return bot.extract(jsoupWrapper.parse(page, bot.streamTargets()), URL);
+    }
+
+    @Benchmark
+    public Machine extract() throws IOException {
+        return bot.extract(document, URL);
+    }
+}
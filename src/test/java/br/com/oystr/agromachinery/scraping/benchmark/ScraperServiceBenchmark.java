@@ -0,0 +1,157 @@
+package br.com.oystr.agromachinery.scraping.benchmark;
+
+import br.com.oystr.agromachinery.scraping.bot.Bot;
+import br.com.oystr.agromachinery.scraping.bot.BotFactory;
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.PhotoMode;
+import br.com.oystr.agromachinery.scraping.service.ExecutionMode;
+import br.com.oystr.agromachinery.scraping.service.ScraperService;
+import br.com.oystr.agromachinery.scraping.service.scrapers.AgrofyScraper;
+import br.com.oystr.agromachinery.scraping.service.scrapers.MercadoMaquinasScraper;
+import br.com.oystr.agromachinery.scraping.service.scrapers.TratoresColheitadeirasScraper;
+import br.com.oystr.agromachinery.scraping.testutils.StubHttpServer;
+import br.com.oystr.agromachinery.scraping.util.HttpClientTransport;
+import br.com.oystr.agromachinery.scraping.util.HttpTransport;
+import br.com.oystr.agromachinery.scraping.util.ImageConverter;
+import br.com.oystr.agromachinery.scraping.util.JsoupWrapper;
+import br.com.oystr.agromachinery.scraping.util.PageSnapshotStore;
+import br.com.oystr.agromachinery.scraping.util.PhotoCache;
+import br.com.oystr.agromachinery.scraping.util.ScrapeMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static br.com.oystr.agromachinery.scraping.testutils.TestHtmlFileLoader.loadHtml;
+
+/**
+ * Compares the {@link ExecutionMode#FIXED} thread pool, {@link ExecutionMode#VIRTUAL} threads
+ * and the staged {@link ExecutionMode#PIPELINE} when scraping a batch of URLs spread over three hosts.
+ * <p>
+ * Each website is replaced by a {@link StubHttpServer} that answers after a fixed latency,
+ * so the benchmark measures how well each mode overlaps network waits rather than the
+ * speed of the real websites.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScraperServiceBenchmark {
+
+    private static final byte[] PHOTO = new byte[64 * 1024];
+
+    @Param({"FIXED", "VIRTUAL", "PIPELINE"})
+    private ExecutionMode executionMode;
+
+    @Param({"300"})
+    private int urlsCount;
+
+    @Param({"50"})
+    private long latencyMillis;
+
+    private final List<StubHttpServer> servers = new ArrayList<>();
+    private final List<String> urls = new ArrayList<>();
+    private ScraperService scraperService;
+
+    @Setup
+    public void setUp() throws IOException {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME))
+            .setLevel(ch.qos.logback.classic.Level.WARN);
+
+        HttpTransport httpTransport = new HttpClientTransport("benchmark", 10_000);
+        PageSnapshotStore pageSnapshotStore = new PageSnapshotStore(false, Path.of("target", "benchmark-pages"), new ObjectMapper());
+        JsoupWrapper jsoupWrapper = new JsoupWrapper(httpTransport, pageSnapshotStore, false, ScrapeMetrics.NONE);
+        ImageConverter imageConverter = new ImageConverter(httpTransport,
+            new PhotoCache(false, Path.of("target", "benchmark-photos"), 0, 0, new ObjectMapper()), PHOTO.length, ScrapeMetrics.NONE);
+
+        StubHttpServer agrofy = startSite("mock_agrofy_product.html", "url.jpg");
+        StubHttpServer mercadoMaquinas = startSite("mock_mercadomaquinas_product.html", "https://mercadomaquinas.com.br/kombi.jpg");
+        StubHttpServer tratores = startSite("mock_tratoresecolheitadeiras_product.html", "https://example.com/mock-image.jpg");
+
+        List<Bot> bots = List.of(
+            new AgrofyScraper(jsoupWrapper, imageConverter, new ObjectMapper(), ScrapeMetrics.NONE) {
+                @Override
+                public String domain() {
+                    return agrofy.authority();
+                }
+            },
+            new MercadoMaquinasScraper(jsoupWrapper, imageConverter, ScrapeMetrics.NONE) {
+                @Override
+                public String domain() {
+                    return mercadoMaquinas.authority();
+                }
+            },
+            new TratoresColheitadeirasScraper(jsoupWrapper, imageConverter, ScrapeMetrics.NONE) {
+                @Override
+                public String domain() {
+                    return tratores.authority();
+                }
+            }
+        );
+
+        for (int i = 0; i < urlsCount; i++) {
+            urls.add(servers.get(i % servers.size()).baseUrl() + "/listing/" + i);
+        }
+
+        scraperService = new ScraperService(new BotFactory(bots), jsoupWrapper, pageSnapshotStore, imageConverter, ScrapeMetrics.NONE);
+        ReflectionTestUtils.setField(scraperService, "threadsCount", 3);
+        ReflectionTestUtils.setField(scraperService, "awaitTerminationSeconds", 600);
+        ReflectionTestUtils.setField(scraperService, "executionMode", executionMode);
+        ReflectionTestUtils.setField(scraperService, "maxConcurrencyPerHost", 16);
+        ReflectionTestUtils.setField(scraperService, "photoMode", PhotoMode.EAGER);
+        ReflectionTestUtils.setField(scraperService, "pipelineFetchConcurrency", 48);
+        ReflectionTestUtils.setField(scraperService, "pipelineParseThreads", Runtime.getRuntime().availableProcessors());
+        ReflectionTestUtils.setField(scraperService, "pipelinePhotoConcurrency", 48);
+        ReflectionTestUtils.setField(scraperService, "pipelineQueueCapacity", 256);
+        ReflectionTestUtils.setField(scraperService, "pipelineStatsIntervalSeconds", 60);
+        ReflectionTestUtils.setField(scraperService, "rateLimitEnabled", false);
+        ReflectionTestUtils.setField(scraperService, "frontierWindow", 10_000);
+        ReflectionTestUtils.setField(scraperService, "dedupEnabled", true);
+        ReflectionTestUtils.setField(scraperService, "dedupExpectedUrls", (long) urlsCount);
+        ReflectionTestUtils.setField(scraperService, "dedupFalsePositiveRate", 0.001);
+        ReflectionTestUtils.setField(scraperService, "dedupSnapshotFile", "");
+    }
+
+    @TearDown
+    public void tearDown() {
+        servers.forEach(StubHttpServer::close);
+    }
+
+    @Benchmark
+    public List<Machine> scrape() {
+        return scraperService.scrape(urls);
+    }
+
+    private StubHttpServer startSite(String mockHtml, String photoUrl) throws IOException {
+        StubHttpServer server = StubHttpServer.start(latencyMillis);
+        String html = loadHtml(mockHtml).replace(photoUrl, server.baseUrl() + "/photo.jpg");
+
+        server.respond("/listing/", "text/html; charset=UTF-8", html.getBytes(StandardCharsets.UTF_8))
+            .respond("/photo.jpg", "image/jpeg", PHOTO);
+        servers.add(server);
+
+        return server;
+    }
+}
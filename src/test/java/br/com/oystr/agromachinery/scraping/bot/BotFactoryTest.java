@@ -0,0 +1,90 @@
+package br.com.oystr.agromachinery.scraping.bot;
+
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.PhotoMode;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BotFactoryTest {
+
+    private final Bot agrofy = new TestBot("agrofy.com.br", null);
+    private final Bot mercadoMaquinas = new TestBot("mercadomaquinas.com.br", null);
+    private final Bot local = new TestBot("127.0.0.1:8080", null);
+
+    private final BotFactory botFactory = new BotFactory(List.of(agrofy, mercadoMaquinas, local));
+
+    @Test
+    void getRobot_givenDomainOrSubdomain_shouldReturnItsBot() {
+        assertEquals(Optional.of(agrofy), botFactory.getRobot("https://www.agrofy.com.br/trator-123.html"));
+        assertEquals(Optional.of(agrofy), botFactory.getRobot("https://agrofy.com.br"));
+        assertEquals(Optional.of(agrofy), botFactory.getRobot("HTTPS://User@WWW.Agrofy.com.br:443/x?y=1"));
+        assertEquals(Optional.of(mercadoMaquinas), botFactory.getRobot("www.mercadomaquinas.com.br/anuncio/1"));
+    }
+
+    @Test
+    void getRobot_givenDomainOutsideTheHost_shouldNotRouteByIt() {
+        assertEquals(Optional.empty(), botFactory.getRobot("https://example.com/?ref=https://www.agrofy.com.br/x"));
+        assertEquals(Optional.empty(), botFactory.getRobot("https://example.com/agrofy.com.br"));
+        assertEquals(Optional.empty(), botFactory.getRobot("https://notagrofy.com.br/x"));
+        assertEquals(Optional.empty(), botFactory.getRobot("https://agrofy.com.br.example.com/x"));
+        assertEquals(Optional.empty(), botFactory.getRobot("/relative/path"));
+    }
+
+    @Test
+    void getRobot_givenDomainWithPort_shouldMatchTheWholeAuthority() {
+        assertEquals(Optional.of(local), botFactory.getRobot("http://127.0.0.1:8080/listing/1"));
+        assertEquals(Optional.empty(), botFactory.getRobot("http://127.0.0.1:9090/listing/1"));
+    }
+
+    @Test
+    void getRobot_givenPathPatterns_shouldPreferTheMatchingBot() {
+        Bot listings = new TestBot("agrofy.com.br", Pattern.compile("/[^/]+-\\d+\\.html"));
+        Bot search = new TestBot("agrofy.com.br", Pattern.compile("/busca/.*"));
+        BotFactory factory = new BotFactory(List.of(agrofy, listings, search));
+
+        assertEquals(Optional.of(listings), factory.getRobot("https://www.agrofy.com.br/trator-123.html?a=1"));
+        assertEquals(Optional.of(search), factory.getRobot("https://www.agrofy.com.br/busca/tratores"));
+        assertEquals(Optional.of(agrofy), factory.getRobot("https://www.agrofy.com.br/sobre"));
+    }
+
+    @Test
+    void constructor_givenBotsHandlingTheSameUrls_shouldThrow() {
+        assertThrows(IllegalStateException.class,
+            () -> new BotFactory(List.of(agrofy, new TestBot("AGROFY.com.br", null))));
+        assertThrows(IllegalStateException.class, () -> new BotFactory(List.of(
+            new TestBot("agrofy.com.br", Pattern.compile("/a/.*")), new TestBot("agrofy.com.br", Pattern.compile("/a/.*")))));
+    }
+
+    @Test
+    void supports_givenUrl_shouldAgreeWithRouting() {
+        Bot listings = new TestBot("agrofy.com.br", Pattern.compile("/[^/]+-\\d+\\.html"));
+
+        assertTrue(agrofy.supports("https://www.agrofy.com.br/trator-123.html"));
+        assertFalse(agrofy.supports("https://example.com/?ref=agrofy.com.br"));
+        assertTrue(listings.supports("https://agrofy.com.br/trator-123.html#fotos"));
+        assertFalse(listings.supports("https://agrofy.com.br/sobre"));
+        assertTrue(local.supports("http://127.0.0.1:8080/listing/1"));
+    }
+
+    private record TestBot(String domain, Pattern pathPattern) implements Bot {
+
+        @Override
+        public Machine fetch(String url, PhotoMode photoMode) {
+            return null;
+        }
+
+        @Override
+        public Machine extract(Document document, String url) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CrawlFrontierTest {
+
+    private static final Duration CHECKPOINT_INTERVAL = Duration.ofSeconds(10);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void open_givenNoFrontier_shouldStartBatchFromUrlsSkippingBlankOnes() throws Exception {
+        try (CrawlFrontier frontier = CrawlFrontier.open(directory, CHECKPOINT_INTERVAL, List.of("https://a", " ", "https://b "))) {
+            assertFalse(frontier.resumed());
+            assertEquals(2, frontier.size());
+            assertEquals(List.of(new CrawlFrontier.Entry(0, "https://a"), new CrawlFrontier.Entry(1, "https://b")), unfinished(frontier));
+        }
+    }
+
+    @Test
+    void open_givenUnfinishedFrontier_shouldResumeOnlyPendingAndInFlightUrls() throws Exception {
+        try (CrawlFrontier frontier = CrawlFrontier.open(directory, CHECKPOINT_INTERVAL, List.of("https://a", "https://b", "https://c", "https://d"))) {
+            frontier.started(0);
+            frontier.succeeded(0);
+            frontier.started(1);
+            frontier.failed(1);
+            frontier.started(2);
+        }
+
+        try (CrawlFrontier frontier = CrawlFrontier.open(directory, CHECKPOINT_INTERVAL, List.of("https://other"))) {
+            assertTrue(frontier.resumed());
+            assertEquals(4, frontier.size());
+            assertEquals(1, frontier.done());
+            assertEquals(1, frontier.failed());
+            assertEquals(2, frontier.remaining());
+            assertEquals(CrawlFrontier.State.IN_FLIGHT, frontier.state(2));
+            assertEquals(List.of(new CrawlFrontier.Entry(2, "https://c"), new CrawlFrontier.Entry(3, "https://d")), unfinished(frontier));
+        }
+    }
+
+    @Test
+    void open_givenCompletedFrontier_shouldStartNewBatch() throws Exception {
+        try (CrawlFrontier frontier = CrawlFrontier.open(directory, CHECKPOINT_INTERVAL, List.of("https://a", "https://b"))) {
+            frontier.succeeded(0);
+            frontier.failed(1);
+        }
+
+        try (CrawlFrontier frontier = CrawlFrontier.open(directory, CHECKPOINT_INTERVAL, List.of("https://c"))) {
+            assertFalse(frontier.resumed());
+            assertEquals(1, frontier.size());
+            assertEquals(0, frontier.done());
+            assertEquals(List.of(new CrawlFrontier.Entry(0, "https://c")), unfinished(frontier));
+        }
+    }
+
+    @Test
+    void open_givenUnsealedOrCorruptedFrontier_shouldStartNewBatch() throws Exception {
+        Files.writeString(directory.resolve("urls.log"), "https://a\n");
+        Files.write(directory.resolve("states.bin"), new byte[]{1, 2, 3});
+
+        try (CrawlFrontier frontier = CrawlFrontier.open(directory, CHECKPOINT_INTERVAL, List.of("https://b"))) {
+            assertFalse(frontier.resumed());
+            assertEquals(List.of(new CrawlFrontier.Entry(0, "https://b")), unfinished(frontier));
+        }
+    }
+
+    private static List<CrawlFrontier.Entry> unfinished(CrawlFrontier frontier) throws Exception {
+        List<CrawlFrontier.Entry> entries = new ArrayList<>();
+        try (CrawlFrontier.Cursor cursor = frontier.unfinished()) {
+            cursor.forEachRemaining(entries::add);
+        }
+
+        return entries;
+    }
+}
@@ -0,0 +1,111 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HostRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final String HOST = "agrofy.com.br";
+
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+    private final HostRateLimiter rateLimiter = new HostRateLimiter(new HostRateLimiter.Settings(
+        true, 2.0, 0.5, 4.0, 0.5, 0.5, Duration.ofSeconds(1), 2), clock::get);
+
+    @Test
+    void reserve_givenBurstUsed_shouldSpaceRequestsByTheRate() {
+        long now = clock.get();
+
+        assertEquals(now, rateLimiter.reserve(HOST));
+        assertEquals(now, rateLimiter.reserve(HOST));
+        assertEquals(now + SECOND / 2, rateLimiter.reserve(HOST));
+        assertEquals(now + SECOND, rateLimiter.reserve(HOST));
+        assertEquals(now, rateLimiter.reserve("mercadomaquinas.com.br"));
+    }
+
+    @Test
+    void tryReserve_givenSlotNotDue_shouldNotReserveIt() {
+        assertTrue(rateLimiter.tryReserve(HOST, clock.get()));
+        assertTrue(rateLimiter.tryReserve(HOST, clock.get()));
+        assertFalse(rateLimiter.tryReserve(HOST, clock.get()));
+
+        long readyAt = rateLimiter.readyAt(HOST);
+        assertEquals(clock.get() + SECOND / 2, readyAt);
+        clock.set(readyAt);
+        assertTrue(rateLimiter.tryReserve(HOST, clock.get()));
+        assertFalse(rateLimiter.tryReserve(HOST, clock.get()));
+    }
+
+    @Test
+    void onResponse_givenFastResponses_shouldIncreaseRateAdditivelyUpToTheMaximum() {
+        long start = rateLimiter.reserve(HOST);
+        clock.addAndGet(SECOND / 10);
+
+        rateLimiter.onResponse(HOST, start);
+        assertEquals(2.5, rateLimiter.rate(HOST));
+
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.onResponse(HOST, start);
+        }
+        assertEquals(4.0, rateLimiter.rate(HOST));
+    }
+
+    @Test
+    void onResponse_givenSlowResponse_shouldDecreaseRateMultiplicatively() {
+        long start = rateLimiter.reserve(HOST);
+        clock.addAndGet(2 * SECOND);
+
+        rateLimiter.onResponse(HOST, start);
+
+        assertEquals(1.0, rateLimiter.rate(HOST));
+    }
+
+    @Test
+    void onThrottled_givenRequestsStartedBeforeLastDecrease_shouldDecreaseOnlyOnce() {
+        long first = rateLimiter.reserve(HOST);
+        long second = rateLimiter.reserve(HOST);
+        clock.addAndGet(SECOND / 10);
+
+        rateLimiter.onThrottled(HOST, first, null);
+        rateLimiter.onThrottled(HOST, second, null);
+        assertEquals(1.0, rateLimiter.rate(HOST));
+
+        clock.addAndGet(SECOND);
+        long third = rateLimiter.reserve(HOST);
+        rateLimiter.onThrottled(HOST, third, null);
+        assertEquals(0.5, rateLimiter.rate(HOST));
+
+        rateLimiter.onThrottled(HOST, rateLimiter.reserve(HOST) + 1, null);
+        assertEquals(0.5, rateLimiter.rate(HOST));
+    }
+
+    @Test
+    void onThrottled_givenRetryAfter_shouldBlockHostUntilItExpires() {
+        long start = rateLimiter.reserve(HOST);
+
+        rateLimiter.onThrottled(HOST, start, Duration.ofSeconds(30));
+
+        assertEquals(clock.get() + 30 * SECOND, rateLimiter.readyAt(HOST));
+        assertEquals(clock.get() + 30 * SECOND, rateLimiter.reserve(HOST));
+        assertEquals(clock.get(), rateLimiter.reserve("mercadomaquinas.com.br"));
+    }
+
+    @Test
+    void reserve_givenDisabledLimiter_shouldNeverWait() {
+        HostRateLimiter disabled = new HostRateLimiter(new HostRateLimiter.Settings(
+            false, 1.0, 1.0, 1.0, 0, 0.5, Duration.ofSeconds(1), 1), clock::get);
+
+        disabled.onThrottled(HOST, clock.get(), Duration.ofHours(1));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(clock.get(), disabled.reserve(HOST));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import br.com.oystr.agromachinery.scraping.bot.DiscoveryBot;
+import br.com.oystr.agromachinery.scraping.util.JsoupWrapper;
+import br.com.oystr.agromachinery.scraping.util.PageSnapshotStore;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ListingDiscoveryTest {
+
+    private static final String SEARCH = "https://www.agrofy.com.br/tratores";
+
+    private JsoupWrapper jsoupWrapper;
+    private DiscoveryBot bot;
+    private ListingDiscovery listingDiscovery;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ScraperService scraperService = Mockito.mock(ScraperService.class);
+        when(scraperService.rateLimiter()).thenReturn(new HostRateLimiter(new HostRateLimiter.Settings(
+            false, 1, 1, 1, 0, 0.5, Duration.ofSeconds(1), 1)));
+        when(scraperService.hostPermits(anyString())).thenReturn(new Semaphore(2));
+
+        jsoupWrapper = Mockito.mock(JsoupWrapper.class);
+        when(jsoupWrapper.fetch(anyString())).thenAnswer(invocation -> new Document(invocation.getArgument(0)));
+
+        bot = Mockito.mock(DiscoveryBot.class);
+        when(bot.domain()).thenReturn("agrofy.com.br");
+        when(bot.supports(anyString())).thenAnswer(invocation -> invocation.<String>getArgument(0).startsWith(SEARCH));
+        when(bot.pageUrl(anyString(), anyInt())).thenAnswer(invocation -> invocation.getArgument(0) + "?page=" + invocation.getArgument(1));
+
+        listingDiscovery = new ListingDiscovery(scraperService, jsoupWrapper, Mockito.mock(PageSnapshotStore.class),
+            List.of(bot), true, 10, 2, 2);
+    }
+
+    @Test
+    void discover_givenSearchWithPageCount_shouldStreamListingsOfEveryPageAndPassOtherUrls() throws Exception {
+        when(bot.discover(any(), eq(SEARCH))).thenReturn(page(3, "/a.html", "/b.html"));
+        when(bot.discover(any(), eq(SEARCH + "?page=2"))).thenReturn(page(3, "/c.html", "/d.html"));
+        when(bot.discover(any(), eq(SEARCH + "?page=3"))).thenReturn(page(3, "/e.html"));
+
+        List<String> urls = read(List.of(SEARCH, "https://www.agrofy.com.br/z.html"));
+
+        assertEquals(6, urls.size());
+        assertTrue(urls.containsAll(List.of("https://www.agrofy.com.br/a.html", "https://www.agrofy.com.br/e.html",
+            "https://www.agrofy.com.br/z.html")));
+    }
+
+    @Test
+    void discover_givenUnknownPageCount_shouldFollowPagesUntilOneBringsNoNewListing() throws Exception {
+        when(bot.discover(any(), eq(SEARCH))).thenReturn(page(0, "/a.html", "/b.html"));
+        when(bot.discover(any(), eq(SEARCH + "?page=2"))).thenReturn(page(0, "/b.html", "/c.html"));
+        when(bot.discover(any(), eq(SEARCH + "?page=3"))).thenReturn(page(0, "/a.html", "/c.html"));
+
+        List<String> urls = read(List.of(SEARCH));
+
+        assertEquals(List.of("https://www.agrofy.com.br/a.html", "https://www.agrofy.com.br/b.html",
+            "https://www.agrofy.com.br/c.html"), urls);
+        verify(jsoupWrapper, never()).fetch(SEARCH + "?page=4");
+    }
+
+    private List<String> read(List<String> input) {
+        List<String> urls = new ArrayList<>();
+        try (ListingDiscovery.Listings listings = listingDiscovery.discover(input)) {
+            listings.forEach(urls::add);
+        }
+
+        return urls;
+    }
+
+    private static DiscoveryBot.ResultsPage page(int lastPage, String... paths) {
+        return new DiscoveryBot.ResultsPage(
+            Arrays.stream(paths).map(path -> "https://www.agrofy.com.br" + path).toList(), lastPage);
+    }
+}
@@ -0,0 +1,155 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import br.com.oystr.agromachinery.scraping.bot.Bot;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+class PolitenessSchedulerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+    private final HostRateLimiter rateLimiter = new HostRateLimiter(new HostRateLimiter.Settings(
+        true, 1.0, 0.5, 4.0, 0.5, 0.5, Duration.ofSeconds(1), 1), clock::get);
+    private final Bot agrofy = bot("agrofy.com.br");
+    private final Bot mercadoMaquinas = bot("mercadomaquinas.com.br");
+
+    @Test
+    void next_givenUrlsGroupedByHost_shouldInterleaveHosts() throws Exception {
+        PolitenessScheduler scheduler = new PolitenessScheduler(rateLimiter, permits(10), 10);
+        scheduler.add(agrofy, "a1", 0);
+        scheduler.add(agrofy, "a2", 1);
+        scheduler.add(agrofy, "a3", 2);
+        scheduler.add(mercadoMaquinas, "m1", 3);
+        scheduler.add(mercadoMaquinas, "m2", 4);
+
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            PolitenessScheduler.Task task = scheduler.next(deadline());
+            order.add(task.url());
+            scheduler.done(task);
+            clock.addAndGet(SECOND);
+        }
+
+        assertEquals(List.of("a1", "m1", "a2", "m2", "a3"), order);
+        assertNull(scheduler.next(deadline()));
+    }
+
+    @Test
+    void next_givenThrottledHost_shouldKeepServingOtherHosts() throws Exception {
+        PolitenessScheduler scheduler = new PolitenessScheduler(rateLimiter, permits(10), 10);
+        scheduler.add(agrofy, "a1", 0);
+        scheduler.add(agrofy, "a2", 1);
+        scheduler.add(mercadoMaquinas, "m1", 2);
+        scheduler.add(mercadoMaquinas, "m2", 3);
+
+        PolitenessScheduler.Task throttled = scheduler.next(deadline());
+        rateLimiter.onThrottled("agrofy.com.br", clock.get(), Duration.ofMinutes(1));
+        scheduler.retry(throttled);
+
+        assertEquals("m1", scheduler.next(deadline()).url());
+        clock.addAndGet(SECOND);
+        assertEquals("m2", scheduler.next(deadline()).url());
+        clock.addAndGet(SECOND);
+        assertThrows(TimeoutException.class, () -> scheduler.next(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50)));
+
+        clock.addAndGet(60 * SECOND);
+        PolitenessScheduler.Task next = scheduler.next(deadline());
+        assertEquals("a2", next.url());
+        clock.addAndGet(2 * SECOND);
+        PolitenessScheduler.Task retried = scheduler.next(deadline());
+        assertEquals("a1", retried.url());
+        assertEquals(1, retried.attempt());
+    }
+
+    @Test
+    void next_givenHostAtMaxConcurrency_shouldWaitForATaskToFinish() throws Exception {
+        PolitenessScheduler scheduler = new PolitenessScheduler(rateLimiter, permits(1), 10);
+        scheduler.add(agrofy, "a1", 0);
+        scheduler.add(agrofy, "a2", 1);
+
+        PolitenessScheduler.Task first = scheduler.next(deadline());
+        clock.addAndGet(SECOND);
+        assertThrows(TimeoutException.class, () -> scheduler.next(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50)));
+
+        scheduler.done(first);
+        assertEquals("a2", scheduler.next(deadline()).url());
+    }
+
+    @Test
+    void next_givenHostPermitHeldElsewhere_shouldWaitUntilItIsReturned() throws Exception {
+        Semaphore shared = new Semaphore(1, true);
+        PolitenessScheduler scheduler = new PolitenessScheduler(rateLimiter, host -> shared, 10);
+        scheduler.add(agrofy, "a1", 0);
+        scheduler.add(agrofy, "a2", 1);
+        shared.acquire();
+
+        assertThrows(TimeoutException.class, () -> scheduler.next(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50)));
+
+        shared.release();
+        assertEquals("a1", scheduler.next(deadline()).url());
+        assertEquals(0, shared.availablePermits());
+
+        // A task dropped without reporting back keeps its permit until the batch releases it
+        scheduler.releaseUnfinished();
+        assertEquals(1, shared.availablePermits());
+    }
+
+    @Test
+    void next_givenSlotTakenByAnotherBatchAfterTheCheck_shouldWaitForTheNextOne() throws Exception {
+        HostRateLimiter shared = Mockito.spy(rateLimiter);
+        Semaphore permits = new Semaphore(1, true);
+        PolitenessScheduler scheduler = new PolitenessScheduler(shared, host -> permits, 10);
+        scheduler.add(agrofy, "a1", 0);
+        AtomicBoolean raced = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (raced.compareAndSet(false, true)) {
+                shared.reserve("agrofy.com.br");
+            }
+            return invocation.callRealMethod();
+        }).when(shared).tryReserve(eq("agrofy.com.br"), anyLong());
+
+        assertThrows(TimeoutException.class, () -> scheduler.next(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50)));
+        assertEquals(1, permits.availablePermits());
+
+        clock.addAndGet(SECOND);
+        assertEquals("a1", scheduler.next(deadline()).url());
+    }
+
+    private static long deadline() {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    }
+
+    private static Function<String, Semaphore> permits(int perHost) {
+        Map<String, Semaphore> permits = new HashMap<>();
+
+        return host -> permits.computeIfAbsent(host, h -> new Semaphore(perHost, true));
+    }
+
+    private static Bot bot(String domain) {
+        Bot bot = Mockito.mock(Bot.class);
+        when(bot.domain()).thenReturn(domain);
+
+        return bot;
+    }
+}
@@ -0,0 +1,83 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import br.com.oystr.agromachinery.scraping.model.ContractType;
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.util.MachineStore;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class RecrawlDaemonTest {
+
+    @Test
+    void run_givenSoldListing_shouldKeepRecrawlingOthersAndDropItAfterMaxNotFound() throws Exception {
+        MachineStore machineStore = Mockito.mock(MachineStore.class);
+        when(machineStore.isEnabled()).thenReturn(true);
+        when(machineStore.history(anyString())).thenReturn(List.of());
+
+        List<List<String>> cycles = new CopyOnWriteArrayList<>();
+        CountDownLatch threeCycles = new CountDownLatch(3);
+        ScraperService scraperService = Mockito.mock(ScraperService.class);
+        when(scraperService.recrawl(anyList(), eq(60L), any(), any())).thenAnswer(invocation -> {
+            List<String> urls = invocation.getArgument(0);
+            ScrapeProgress progress = invocation.getArgument(2);
+            Consumer<Machine> consumer = invocation.getArgument(3);
+            cycles.add(List.copyOf(urls));
+            for (int i = 0; i < urls.size(); i++) {
+                if (urls.get(i).endsWith("/sold")) {
+                    progress.notFound(i);
+                } else {
+                    consumer.accept(machine(urls.get(i)));
+                    progress.succeeded(i);
+                }
+            }
+            threeCycles.countDown();
+            return true;
+        });
+
+        List<String> consumed = new CopyOnWriteArrayList<>();
+        try (RecrawlDaemon daemon = new RecrawlDaemon(scraperService, machineStore, 0, 0, 0, 2, 100, 60)) {
+            assertEquals(2, daemon.follow(List.of(
+                "https://www.agrofy.com.br/a?utm_source=mail",
+                "https://www.agrofy.com.br/a",
+                "https://www.agrofy.com.br/sold")));
+
+            Thread runner = Thread.ofPlatform().start(() -> {
+                try {
+                    daemon.run(machine -> {
+                        consumed.add(machine.url());
+                        return MachineStore.Change.UNCHANGED;
+                    });
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(threeCycles.await(10, TimeUnit.SECONDS));
+            daemon.close();
+            assertFalse(runner.isAlive());
+        }
+
+        assertEquals(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/sold"), cycles.get(0));
+        assertEquals(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/sold"), cycles.get(1));
+        assertEquals(List.of("https://www.agrofy.com.br/a"), cycles.get(2));
+        assertTrue(consumed.size() >= 3);
+    }
+
+    private static Machine machine(String url) {
+        return new Machine("Trator 8R", ContractType.SALE, "John Deere", 2022, 100, "Erechim", null, null, null, url);
+    }
+}
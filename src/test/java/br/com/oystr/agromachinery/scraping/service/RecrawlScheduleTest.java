@@ -0,0 +1,85 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import br.com.oystr.agromachinery.scraping.util.MachineStore;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecrawlScheduleTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+    private static final String URL = "https://www.agrofy.com.br/trator";
+
+    private final RecrawlSchedule schedule = new RecrawlSchedule(new RecrawlSchedule.Settings(
+        Duration.ofHours(1), Duration.ofHours(8), Duration.ofDays(4), 2));
+
+    @Test
+    void visited_givenChangesAndUnchangedVisits_shouldShrinkAndGrowIntervalWithinBounds() {
+        schedule.add(URL, List.of(), NOW);
+        assertEquals(List.of(URL), schedule.due(NOW, 10));
+
+        schedule.visited(URL, RecrawlSchedule.Visit.CHANGED, NOW);
+        assertEquals(Duration.ofHours(4), schedule.interval(URL).orElseThrow());
+        assertTrue(schedule.due(NOW.plus(Duration.ofHours(3)), 10).isEmpty());
+        assertEquals(List.of(URL), schedule.due(NOW.plus(Duration.ofHours(4)), 10));
+
+        for (int i = 0; i < 10; i++) {
+            schedule.visited(URL, RecrawlSchedule.Visit.CHANGED, NOW);
+            schedule.due(NOW.plus(Duration.ofDays(10)), 10);
+        }
+        assertEquals(Duration.ofHours(1), schedule.interval(URL).orElseThrow());
+
+        for (int i = 0; i < 10; i++) {
+            schedule.visited(URL, RecrawlSchedule.Visit.UNCHANGED, NOW);
+            schedule.due(NOW.plus(Duration.ofDays(10)), 10);
+        }
+        assertEquals(Duration.ofDays(4), schedule.interval(URL).orElseThrow());
+    }
+
+    @Test
+    void add_givenVolatileHistory_shouldScheduleItBeforeStableListings() {
+        List<MachineStore.Observation> volatileHistory = List.of(
+            observation(NOW.minus(Duration.ofHours(12)), "100000"),
+            observation(NOW.minus(Duration.ofHours(8)), "95000"),
+            observation(NOW.minus(Duration.ofHours(4)), "90000"));
+        assertTrue(schedule.add("https://www.agrofy.com.br/volatile", volatileHistory, NOW));
+        assertTrue(schedule.add("https://www.agrofy.com.br/stable", List.of(observation(NOW, "100000")), NOW));
+        assertFalse(schedule.add("https://www.agrofy.com.br/stable", List.of(), NOW));
+
+        assertEquals(Duration.ofHours(2), schedule.interval("https://www.agrofy.com.br/volatile").orElseThrow());
+        assertEquals(Duration.ofHours(8), schedule.interval("https://www.agrofy.com.br/stable").orElseThrow());
+
+        schedule.due(NOW, 10);
+        schedule.visited("https://www.agrofy.com.br/stable", RecrawlSchedule.Visit.NEW, NOW);
+        schedule.visited("https://www.agrofy.com.br/volatile", RecrawlSchedule.Visit.NEW, NOW);
+        assertEquals(List.of("https://www.agrofy.com.br/volatile", "https://www.agrofy.com.br/stable"),
+            schedule.due(NOW.plus(Duration.ofDays(1)), 10));
+    }
+
+    @Test
+    void visited_givenNotFoundTwice_shouldDeprioritizeThenDropListing() {
+        schedule.add(URL, List.of(), NOW);
+        schedule.add("https://www.agrofy.com.br/unfinished", List.of(), NOW);
+        schedule.due(NOW, 10);
+
+        schedule.visited(URL, RecrawlSchedule.Visit.NOT_FOUND, NOW);
+        schedule.visited("https://www.agrofy.com.br/unfinished", RecrawlSchedule.Visit.UNFINISHED, NOW);
+        assertEquals(List.of("https://www.agrofy.com.br/unfinished"), schedule.due(NOW.plus(Duration.ofDays(3)), 10));
+        assertEquals(List.of(URL), schedule.due(NOW.plus(Duration.ofDays(4)), 10));
+
+        schedule.visited(URL, RecrawlSchedule.Visit.NOT_FOUND, NOW);
+        assertEquals(1, schedule.size());
+        assertTrue(schedule.interval(URL).isEmpty());
+    }
+
+    private static MachineStore.Observation observation(Instant observedAt, String price) {
+        return new MachineStore.Observation(observedAt, new BigDecimal(price), 100);
+    }
+}
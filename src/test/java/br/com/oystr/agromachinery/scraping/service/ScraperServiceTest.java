@@ -0,0 +1,426 @@
+package br.com.oystr.agromachinery.scraping.service;
+
+import br.com.oystr.agromachinery.scraping.bot.Bot;
+import br.com.oystr.agromachinery.scraping.bot.BotFactory;
+import br.com.oystr.agromachinery.scraping.bot.DiscoveryBot;
+import br.com.oystr.agromachinery.scraping.exceptions.HostThrottledException;
+import br.com.oystr.agromachinery.scraping.exceptions.MachineNotFoundException;
+import br.com.oystr.agromachinery.scraping.exceptions.PageNotModifiedException;
+import br.com.oystr.agromachinery.scraping.model.ContractType;
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.PhotoMode;
+import br.com.oystr.agromachinery.scraping.util.ImageConverter;
+import br.com.oystr.agromachinery.scraping.util.JsoupWrapper;
+import br.com.oystr.agromachinery.scraping.util.PageSnapshotStore;
+import br.com.oystr.agromachinery.scraping.util.RawPage;
+import br.com.oystr.agromachinery.scraping.util.ScrapeMetrics;
+import org.jsoup.HttpStatusException;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ScraperServiceTest {
+    private Bot bot;
+    private JsoupWrapper jsoupWrapper;
+    private PageSnapshotStore pageSnapshotStore;
+    private ImageConverter imageConverter;
+    private ScraperService scraperService;
+
+    @BeforeEach
+    void setUp() {
+        bot = Mockito.mock(Bot.class);
+        when(bot.domain()).thenReturn("agrofy.com.br");
+        when(bot.fetch(anyString(), any())).thenAnswer(invocation -> machine(invocation.getArgument(0)));
+        when(bot.fetch(eq("https://www.agrofy.com.br/broken"), any())).thenReturn(null);
+
+        BotFactory botFactory = Mockito.mock(BotFactory.class);
+        when(botFactory.getRobot(anyString())).thenReturn(Optional.of(bot));
+        when(botFactory.getRobot("https://unknown.com/tractor")).thenReturn(Optional.empty());
+
+        jsoupWrapper = Mockito.mock(JsoupWrapper.class);
+        pageSnapshotStore = Mockito.mock(PageSnapshotStore.class);
+        imageConverter = Mockito.mock(ImageConverter.class);
+        scraperService = new ScraperService(botFactory, jsoupWrapper, pageSnapshotStore, imageConverter,
+            ScrapeMetrics.NONE);
+        ReflectionTestUtils.setField(scraperService, "threadsCount", 2);
+        ReflectionTestUtils.setField(scraperService, "awaitTerminationSeconds", 10);
+        ReflectionTestUtils.setField(scraperService, "executionMode", ExecutionMode.VIRTUAL);
+        ReflectionTestUtils.setField(scraperService, "maxConcurrencyPerHost", 2);
+        ReflectionTestUtils.setField(scraperService, "photoMode", PhotoMode.LAZY);
+        ReflectionTestUtils.setField(scraperService, "pipelineFetchConcurrency", 2);
+        ReflectionTestUtils.setField(scraperService, "pipelineParseThreads", 1);
+        ReflectionTestUtils.setField(scraperService, "pipelinePhotoConcurrency", 2);
+        ReflectionTestUtils.setField(scraperService, "pipelineQueueCapacity", 1);
+        ReflectionTestUtils.setField(scraperService, "pipelineStatsIntervalSeconds", 1);
+        ReflectionTestUtils.setField(scraperService, "rateLimitEnabled", true);
+        ReflectionTestUtils.setField(scraperService, "rateLimitInitialRate", 1_000.0);
+        ReflectionTestUtils.setField(scraperService, "rateLimitMinRate", 100.0);
+        ReflectionTestUtils.setField(scraperService, "rateLimitMaxRate", 1_000.0);
+        ReflectionTestUtils.setField(scraperService, "rateLimitIncrease", 1.0);
+        ReflectionTestUtils.setField(scraperService, "rateLimitDecreaseFactor", 0.5);
+        ReflectionTestUtils.setField(scraperService, "rateLimitTargetLatencyMs", 1_000L);
+        ReflectionTestUtils.setField(scraperService, "rateLimitBurst", 10);
+        ReflectionTestUtils.setField(scraperService, "maxThrottledRetries", 2);
+        ReflectionTestUtils.setField(scraperService, "frontierWindow", 10_000);
+        ReflectionTestUtils.setField(scraperService, "dedupEnabled", true);
+        ReflectionTestUtils.setField(scraperService, "dedupExpectedUrls", 1_000L);
+        ReflectionTestUtils.setField(scraperService, "dedupFalsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(scraperService, "dedupSnapshotFile", "");
+    }
+
+    @Test
+    void scrape_givenConsumer_shouldStreamEveryFetchedMachine() {
+        List<String> urls = List.of(
+            "https://www.agrofy.com.br/a",
+            "https://www.agrofy.com.br/broken",
+            "https://unknown.com/tractor",
+            "https://www.agrofy.com.br/b"
+        );
+        List<String> streamed = new CopyOnWriteArrayList<>();
+
+        scraperService.scrape(urls, machine -> streamed.add(machine.url()));
+
+        assertEquals(2, streamed.size());
+        assertTrue(streamed.containsAll(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/b")));
+    }
+
+    @Test
+    void scrape_givenFailingConsumer_shouldKeepProcessingOtherUrls() {
+        List<String> urls = List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/b");
+        List<String> streamed = new CopyOnWriteArrayList<>();
+
+        scraperService.scrape(urls, machine -> {
+            if (machine.url().endsWith("/a")) {
+                throw new IllegalStateException("consumer failure");
+            }
+            streamed.add(machine.url());
+        });
+
+        assertEquals(List.of("https://www.agrofy.com.br/b"), streamed);
+    }
+
+    @Test
+    void scrape_givenFixedMode_shouldCollectMachines() {
+        ReflectionTestUtils.setField(scraperService, "executionMode", ExecutionMode.FIXED);
+
+        List<Machine> machines = scraperService.scrape(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/b"));
+
+        assertEquals(2, machines.size());
+    }
+
+    @Test
+    void scrape_givenMachineWithPhoto_shouldFetchPageWithoutPhotoAndAttachItAfter() {
+        String url = "https://www.agrofy.com.br/photo";
+        String photo = "https://cdn.agrofy.com.br/photo.jpg";
+        when(bot.fetch(eq(url), any())).thenReturn(
+            new Machine("Trator", ContractType.SALE, "John Deere", 2022, 100, "Erechim", null, photo, null, url));
+
+        List<Machine> machines = scraperService.scrape(List.of(url));
+
+        assertEquals(1, machines.size());
+        verify(bot).fetch(url, PhotoMode.SKIP);
+        verify(imageConverter).photoPayload(photo, PhotoMode.LAZY);
+    }
+
+    @Test
+    void scrape_givenUnchangedPage_shouldReuseSnapshotMachine() {
+        String url = "https://www.agrofy.com.br/unchanged";
+        when(bot.fetch(eq(url), any())).thenThrow(new PageNotModifiedException("Page not modified: " + url));
+        when(pageSnapshotStore.find(url)).thenReturn(Optional.of(new PageSnapshotStore.Snapshot(url, null, machine(url))));
+
+        List<Machine> machines = scraperService.scrape(List.of(url));
+
+        assertEquals(1, machines.size());
+        assertEquals(url, machines.getFirst().url());
+    }
+
+    @Test
+    void recrawl_givenSoldListing_shouldReportItNotFound() {
+        String sold = "https://www.agrofy.com.br/sold";
+        when(bot.fetch(eq(sold), any())).thenThrow(new MachineNotFoundException("Machine not found on URL: " + sold));
+        List<Long> succeeded = new CopyOnWriteArrayList<>();
+        List<Long> notFound = new CopyOnWriteArrayList<>();
+
+        boolean completed = scraperService.recrawl(List.of("https://www.agrofy.com.br/a", sold), 10, new ScrapeProgress() {
+            @Override
+            public void succeeded(long id) {
+                succeeded.add(id);
+            }
+
+            @Override
+            public void notFound(long id) {
+                notFound.add(id);
+            }
+        }, machine -> {
+        });
+
+        assertTrue(completed);
+        assertEquals(List.of(0L), succeeded);
+        assertEquals(List.of(1L), notFound);
+        verify(pageSnapshotStore).discard(sold);
+    }
+
+    @Test
+    void scrape_givenThrottledUrl_shouldRetryItAfterRetryAfter() {
+        String url = "https://www.agrofy.com.br/throttled";
+        HostThrottledException throttled = new HostThrottledException(
+            new HttpStatusException("HTTP error fetching URL", 429, url), Duration.ofMillis(200));
+        when(bot.fetch(eq(url), any())).thenThrow(throttled).thenAnswer(invocation -> machine(url));
+
+        long start = System.nanoTime();
+        List<Machine> machines = scraperService.scrape(List.of(url, "https://www.agrofy.com.br/a"));
+
+        assertEquals(2, machines.size());
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(200).toNanos());
+        verify(bot, times(2)).fetch(eq(url), any());
+    }
+
+    @Test
+    void scrape_givenUrlThrottledTooManyTimes_shouldSkipIt() {
+        String url = "https://www.agrofy.com.br/throttled";
+        when(bot.fetch(eq(url), any())).thenThrow(new HostThrottledException(
+            new HttpStatusException("HTTP error fetching URL", 503, url), null));
+
+        List<Machine> machines = scraperService.scrape(List.of(url, "https://www.agrofy.com.br/a"));
+
+        assertEquals(List.of("https://www.agrofy.com.br/a"), machines.stream().map(Machine::url).toList());
+        verify(bot, times(3)).fetch(eq(url), any());
+    }
+
+    @Test
+    void scrape_givenPipelineMode_shouldRunEveryUrlThroughTheStages() throws Exception {
+        ReflectionTestUtils.setField(scraperService, "executionMode", ExecutionMode.PIPELINE);
+        when(jsoupWrapper.download(anyString())).thenAnswer(invocation -> {
+            String url = invocation.getArgument(0);
+            return new RawPage(url, url, "UTF-8", new byte[0]);
+        });
+        when(jsoupWrapper.parse(any())).thenReturn(new Document(""));
+        when(bot.extract(any(), anyString())).thenAnswer(invocation -> machine(invocation.getArgument(1)));
+        String unchanged = "https://www.agrofy.com.br/unchanged";
+        when(jsoupWrapper.download(unchanged)).thenThrow(new PageNotModifiedException("Page not modified: " + unchanged));
+        when(pageSnapshotStore.find(unchanged)).thenReturn(Optional.of(new PageSnapshotStore.Snapshot(unchanged, null, machine(unchanged))));
+
+        List<String> urls = List.of(
+            "https://www.agrofy.com.br/a",
+            "https://www.agrofy.com.br/b",
+            "https://www.agrofy.com.br/c",
+            "https://unknown.com/tractor",
+            unchanged
+        );
+
+        List<Machine> machines = scraperService.scrape(urls);
+
+        assertEquals(4, machines.size());
+        assertTrue(machines.stream().map(Machine::url).toList().containsAll(List.of(
+            "https://www.agrofy.com.br/a", "https://www.agrofy.com.br/b", "https://www.agrofy.com.br/c", unchanged)));
+    }
+
+    @Test
+    void scrape_givenPipelineModeAndSnapshotReuseFailing_shouldFailTheUrlWithoutWaitingForTimeout() throws Exception {
+        ReflectionTestUtils.setField(scraperService, "executionMode", ExecutionMode.PIPELINE);
+        String unchanged = "https://www.agrofy.com.br/unchanged";
+        when(jsoupWrapper.download(unchanged)).thenThrow(new PageNotModifiedException("Page not modified: " + unchanged));
+        when(pageSnapshotStore.find(unchanged)).thenThrow(new IllegalStateException("Snapshot store closed"));
+
+        long start = System.nanoTime();
+        List<Machine> machines = scraperService.scrape(List.of(unchanged));
+
+        assertEquals(List.of(), machines);
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toSeconds() < 5);
+        verify(pageSnapshotStore).discard(unchanged);
+    }
+
+    @Test
+    void scrape_givenUnfinishedFrontier_shouldOnlyScrapeUnfinishedUrlsThenStartNewBatch(@TempDir Path frontierDirectory) throws Exception {
+        ReflectionTestUtils.setField(scraperService, "frontierEnabled", true);
+        ReflectionTestUtils.setField(scraperService, "frontierDirectory", frontierDirectory);
+        ReflectionTestUtils.setField(scraperService, "frontierCheckpointIntervalSeconds", 10L);
+        try (CrawlFrontier frontier = CrawlFrontier.open(frontierDirectory, Duration.ofSeconds(10),
+            List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/b", "https://www.agrofy.com.br/c"))) {
+            frontier.succeeded(0);
+            frontier.started(1);
+        }
+
+        List<Machine> resumed = scraperService.scrape(List.of("https://www.agrofy.com.br/new"));
+        List<Machine> next = scraperService.scrape(List.of("https://www.agrofy.com.br/new"));
+
+        assertEquals(List.of("https://www.agrofy.com.br/b", "https://www.agrofy.com.br/c"),
+            resumed.stream().map(Machine::url).sorted().toList());
+        assertEquals(List.of("https://www.agrofy.com.br/new"), next.stream().map(Machine::url).toList());
+    }
+
+    @Test
+    void scrape_givenDuplicateUrls_shouldScrapeEachNormalizedUrlOnce() {
+        List<String> urls = List.of(
+            "https://www.agrofy.com.br/a",
+            "https://WWW.AGROFY.COM.BR/a/#photos",
+            "https://www.agrofy.com.br/a?utm_source=newsletter",
+            "https://www.agrofy.com.br/b"
+        );
+
+        List<Machine> machines = scraperService.scrape(urls);
+
+        assertEquals(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/b"),
+            machines.stream().map(Machine::url).sorted().toList());
+        verify(bot, times(1)).fetch(eq("https://www.agrofy.com.br/a"), any());
+    }
+
+    @Test
+    void scrape_givenSnapshotFile_shouldSkipUrlsScrapedByPreviousBatches(@TempDir Path directory) {
+        ReflectionTestUtils.setField(scraperService, "dedupSnapshotFile", directory.resolve("dedup.bloom").toString());
+
+        List<Machine> first = scraperService.scrape(List.of("https://www.agrofy.com.br/a"));
+        List<Machine> second = scraperService.scrape(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/b"));
+
+        assertEquals(List.of("https://www.agrofy.com.br/a"), first.stream().map(Machine::url).toList());
+        assertEquals(List.of("https://www.agrofy.com.br/b"), second.stream().map(Machine::url).toList());
+        assertTrue(Files.exists(directory.resolve("dedup.bloom")));
+    }
+
+    @Test
+    void scrape_givenSnapshotFileAndFailedUrl_shouldTryItAgainInLaterBatches(@TempDir Path directory) {
+        ReflectionTestUtils.setField(scraperService, "dedupSnapshotFile", directory.resolve("dedup.bloom").toString());
+
+        List<Machine> first = scraperService.scrape(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/broken"));
+        when(bot.fetch(eq("https://www.agrofy.com.br/broken"), any())).thenAnswer(invocation -> machine(invocation.getArgument(0)));
+        List<Machine> second = scraperService.scrape(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/broken"));
+
+        assertEquals(List.of("https://www.agrofy.com.br/a"), first.stream().map(Machine::url).toList());
+        assertEquals(List.of("https://www.agrofy.com.br/broken"), second.stream().map(Machine::url).toList());
+    }
+
+    @Test
+    void scrape_givenSnapshotFileFull_shouldKeepOnePreviousGeneration(@TempDir Path directory) {
+        ReflectionTestUtils.setField(scraperService, "dedupSnapshotFile", directory.resolve("dedup.bloom").toString());
+        ReflectionTestUtils.setField(scraperService, "dedupExpectedUrls", 2L);
+        ReflectionTestUtils.setField(scraperService, "dedupFalsePositiveRate", 0.0001);
+
+        scraperService.scrape(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/b"));
+        scraperService.scrape(List.of("https://www.agrofy.com.br/c"));
+        List<Machine> previousGeneration = scraperService.scrape(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/d"));
+        scraperService.scrape(List.of("https://www.agrofy.com.br/e"));
+        List<Machine> agedOut = scraperService.scrape(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/c"));
+
+        assertEquals(List.of("https://www.agrofy.com.br/d"), previousGeneration.stream().map(Machine::url).toList());
+        assertEquals(List.of("https://www.agrofy.com.br/a"), agedOut.stream().map(Machine::url).toList());
+        assertTrue(Files.exists(directory.resolve("dedup.bloom.previous")));
+    }
+
+    @Test
+    void scrapeBatch_givenSnapshotFile_shouldNeitherSkipNorRememberUrls(@TempDir Path directory) {
+        ReflectionTestUtils.setField(scraperService, "dedupSnapshotFile", directory.resolve("dedup.bloom").toString());
+        scraperService.scrape(List.of("https://www.agrofy.com.br/a"));
+
+        List<Machine> job = new CopyOnWriteArrayList<>();
+        assertTrue(scraperService.scrapeBatch(List.of(
+            "https://www.agrofy.com.br/a",
+            "https://www.agrofy.com.br/a?utm_source=newsletter",
+            "https://www.agrofy.com.br/b"), true, job::add));
+        List<Machine> next = scraperService.scrape(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/b"));
+
+        assertEquals(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/b"),
+            job.stream().map(Machine::url).sorted().toList());
+        assertEquals(List.of("https://www.agrofy.com.br/b"), next.stream().map(Machine::url).toList());
+    }
+
+    @Test
+    void scrapeBatch_givenConcurrentBatches_shouldShareTheHostConcurrencyLimit() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(bot.fetch(anyString(), any())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return machine(invocation.getArgument(0));
+        });
+        List<String> urls = IntStream.range(0, 10).mapToObj(i -> "https://www.agrofy.com.br/" + i).toList();
+
+        List<Machine> machines = new CopyOnWriteArrayList<>();
+        try (ExecutorService batches = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 3; i++) {
+                batches.submit(() -> scraperService.scrapeBatch(urls, false, machines::add));
+            }
+        }
+
+        assertEquals(30, machines.size());
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    void scrapeBatch_givenPhotosNotRequested_shouldNotDownloadThem() {
+        String url = "https://www.agrofy.com.br/photo";
+        String photo = "https://cdn.agrofy.com.br/photo.jpg";
+        when(bot.fetch(eq(url), any())).thenReturn(
+            new Machine("Trator", ContractType.SALE, "John Deere", 2022, 100, "Erechim", null, photo, null, url));
+
+        List<Machine> job = new CopyOnWriteArrayList<>();
+        assertTrue(scraperService.scrapeBatch(List.of(url), false, job::add));
+
+        assertEquals(1, job.size());
+        verify(imageConverter).photoPayload(photo, PhotoMode.SKIP);
+    }
+
+    @Test
+    void scrape_givenListingsBeingDiscovered_shouldScrapeThemBeforeDiscoveryEnds() throws Exception {
+        String search = "https://www.agrofy.com.br/tratores";
+        CountDownLatch firstScraped = new CountDownLatch(1);
+        AtomicBoolean overlapped = new AtomicBoolean();
+        when(jsoupWrapper.fetch(anyString())).thenAnswer(invocation -> {
+            if (invocation.getArgument(0).equals(search + "?page=2")) {
+                overlapped.set(firstScraped.await(5, TimeUnit.SECONDS));
+            }
+            return new Document(invocation.getArgument(0));
+        });
+        DiscoveryBot discoveryBot = Mockito.mock(DiscoveryBot.class);
+        when(discoveryBot.domain()).thenReturn("agrofy.com.br");
+        when(discoveryBot.supports(search)).thenReturn(true);
+        when(discoveryBot.pageUrl(search, 2)).thenReturn(search + "?page=2");
+        when(discoveryBot.discover(any(), eq(search)))
+            .thenReturn(new DiscoveryBot.ResultsPage(List.of("https://www.agrofy.com.br/a"), 2));
+        when(discoveryBot.discover(any(), eq(search + "?page=2")))
+            .thenReturn(new DiscoveryBot.ResultsPage(List.of("https://www.agrofy.com.br/b"), 2));
+        ListingDiscovery listingDiscovery = new ListingDiscovery(scraperService, jsoupWrapper, pageSnapshotStore,
+            List.of(discoveryBot), true, 10, 100, 2);
+
+        List<String> streamed = new CopyOnWriteArrayList<>();
+        try (ListingDiscovery.Listings urls = listingDiscovery.discover(List.of(search))) {
+            scraperService.scrape(urls, machine -> {
+                streamed.add(machine.url());
+                firstScraped.countDown();
+            });
+        }
+
+        assertTrue(overlapped.get());
+        assertEquals(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/b"), streamed);
+    }
+
+    private static Machine machine(String url) {
+        return new Machine("Trator", ContractType.SALE, "John Deere", 2022, 100, "Erechim", null, null, null, url);
+    }
+}
@@ -0,0 +1,40 @@
+package br.com.oystr.agromachinery.scraping.service.discovery;
+
+import br.com.oystr.agromachinery.scraping.bot.DiscoveryBot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static br.com.oystr.agromachinery.scraping.testutils.TestHtmlFileLoader.loadHtml;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AgrofyDiscoveryBotTest {
+
+    private final AgrofyDiscoveryBot discoveryBot = new AgrofyDiscoveryBot(new ObjectMapper());
+
+    @Test
+    void supports_givenUrl_shouldOnlyAcceptResultPages() {
+        assertTrue(discoveryBot.supports("https://www.agrofy.com.br/tratores"));
+        assertTrue(discoveryBot.supports("https://www.agrofy.com.br/maquinas-agricolas/tratores?marca=john-deere"));
+        assertFalse(discoveryBot.supports("https://www.agrofy.com.br/trator-magnum-315.html"));
+        assertFalse(discoveryBot.supports("https://www.mercadomaquinas.com.br/tratores"));
+    }
+
+    @Test
+    void discover_givenNextData_shouldReturnListingsAndPageCount() throws Exception {
+        String url = "https://www.agrofy.com.br/tratores";
+
+        DiscoveryBot.ResultsPage page = discoveryBot.discover(Jsoup.parse(loadHtml("mock_agrofy_search.html"), url), url);
+
+        assertEquals(List.of(
+            "https://www.agrofy.com.br/trator-magnum-315.html",
+            "https://www.agrofy.com.br/trator-john-deere-8320r-204540.html"), page.listingUrls());
+        assertEquals(3, page.lastPage());
+        assertEquals("https://www.agrofy.com.br/tratores?marca=jd&page=2",
+            discoveryBot.pageUrl("https://www.agrofy.com.br/tratores?marca=jd", 2));
+    }
+}
@@ -0,0 +1,37 @@
+package br.com.oystr.agromachinery.scraping.service.discovery;
+
+import br.com.oystr.agromachinery.scraping.bot.DiscoveryBot;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static br.com.oystr.agromachinery.scraping.testutils.TestHtmlFileLoader.loadHtml;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MercadoMaquinasDiscoveryBotTest {
+
+    private final MercadoMaquinasDiscoveryBot discoveryBot = new MercadoMaquinasDiscoveryBot();
+
+    @Test
+    void supports_givenUrl_shouldOnlyAcceptResultPages() {
+        assertTrue(discoveryBot.supports("https://www.mercadomaquinas.com.br/tratores"));
+        assertFalse(discoveryBot.supports("https://www.mercadomaquinas.com.br/anuncio/247160-kombi-2013-2014-2013-franco-da-rocha-sp"));
+        assertFalse(discoveryBot.supports("https://www.mercadomaquinas.com.br/"));
+    }
+
+    @Test
+    void discover_givenResultsPage_shouldReturnListingLinksAndLastPage() {
+        String url = "https://www.mercadomaquinas.com.br/tratores";
+
+        DiscoveryBot.ResultsPage page = discoveryBot.discover(Jsoup.parse(loadHtml("mock_mercadomaquinas_search.html"), url), url);
+
+        assertEquals(List.of(
+            "https://www.mercadomaquinas.com.br/anuncio/247160-kombi-2013-2014-2013-franco-da-rocha-sp",
+            "https://www.mercadomaquinas.com.br/anuncio/236623-mini-escavadeira-bobcat-e27z-2019-sete-lagoas-mg"), page.listingUrls());
+        assertEquals(7, page.lastPage());
+        assertEquals("https://www.mercadomaquinas.com.br/tratores?page=7", discoveryBot.pageUrl(url, 7));
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.oystr.agromachinery.scraping.service.discovery;
+
+import br.com.oystr.agromachinery.scraping.bot.DiscoveryBot;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+import static br.com.oystr.agromachinery.scraping.testutils.TestHtmlFileLoader.loadHtml;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TratoresColheitadeirasDiscoveryBotTest {
+
+    private final TratoresColheitadeirasDiscoveryBot discoveryBot = new TratoresColheitadeirasDiscoveryBot();
+
+    @Test
+    void supports_givenUrl_shouldOnlyAcceptResultPages() {
+        assertTrue(discoveryBot.supports("https://www.tratoresecolheitadeiras.com.br/veiculos/colheitadeira"));
+        assertFalse(discoveryBot.supports("https://www.tratoresecolheitadeiras.com.br/veiculo/uberlandia/mg/plataforma-colheitadeira/1028839"));
+    }
+
+    @Test
+    void discover_givenResultsPage_shouldReturnListingLinksAndLastPage() {
+        String url = "https://www.tratoresecolheitadeiras.com.br/veiculos/colheitadeira";
+
+        DiscoveryBot.ResultsPage page = discoveryBot.discover(
+            Jsoup.parse(loadHtml("mock_tratoresecolheitadeiras_search.html"), url), url);
+
+        assertEquals(2, page.listingUrls().size());
+        assertTrue(page.listingUrls().getLast().endsWith("/agro-novaes-maquinas-agricolas/1279673"));
+        assertEquals(3, page.lastPage());
+        assertEquals(url + "?pagina=2", discoveryBot.pageUrl(url, 2));
+    }
+}
@@ -3,38 +3,43 @@ package br.com.oystr.agromachinery.scraping.service.scrapers;
 import br.com.oystr.agromachinery.scraping.exceptions.MachineNotFoundException;
 import br.com.oystr.agromachinery.scraping.model.ContractType;
 import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.PhotoPayload;
 import br.com.oystr.agromachinery.scraping.service.scrapers.AgrofyScraper;
 import br.com.oystr.agromachinery.scraping.util.ImageConverter;
 import br.com.oystr.agromachinery.scraping.util.JsoupWrapper;
+import br.com.oystr.agromachinery.scraping.util.RawPage;
+import br.com.oystr.agromachinery.scraping.util.ScrapeMetrics;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.MockedStatic;
 import org.mockito.Mockito;
-import org.springframework.boot.test.system.CapturedOutput;
-import org.springframework.boot.test.system.OutputCaptureExtension;
 
 import java.math.BigDecimal;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
 
+import static br.com.oystr.agromachinery.scraping.testutils.ListingPageGenerator.largeListing;
 import static br.com.oystr.agromachinery.scraping.testutils.TestHtmlFileLoader.loadDocument;
+import static br.com.oystr.agromachinery.scraping.testutils.TestHtmlFileLoader.loadHtml;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.mockStatic;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 class AgrofyScraperTest {
     private JsoupWrapper jsoupWrapper;
+    private ImageConverter imageConverter;
     private AgrofyScraper agrofyScraper;
 
     @BeforeEach
     void setUp() {
         jsoupWrapper = Mockito.mock(JsoupWrapper.class);
+        imageConverter = Mockito.mock(ImageConverter.class);
         ObjectMapper objectMapper = new ObjectMapper();
 
-        agrofyScraper = new AgrofyScraper(jsoupWrapper, objectMapper);
+        agrofyScraper = new AgrofyScraper(jsoupWrapper, imageConverter, objectMapper, ScrapeMetrics.NONE);
     }
 
     @Test
@@ -46,35 +51,92 @@ class AgrofyScraperTest {
     @Test
     void fetch_givenMockHtml_shouldReturnCorrectMachine() throws Exception {
         Document mockHtml = loadDocument("mock_agrofy_product.html");
-        when(jsoupWrapper.fetch("https://www.agrofy.com.br/tractor")).thenReturn(mockHtml);
-
-        try (MockedStatic<ImageConverter> mocked = mockStatic(ImageConverter.class)) {
-            mocked.when(() -> ImageConverter.convertImageToBase64(anyString())).thenReturn(Optional.of("mockBase64"));
-
-            Machine machine = agrofyScraper.fetch("https://www.agrofy.com.br/tractor");
-
-            assertNotNull(machine);
-            assertEquals("Trator Magnum", machine.model());
-            assertEquals(ContractType.SALE, machine.contractType());
-            assertEquals("John Deere", machine.make());
-            assertEquals(2022, machine.year());
-            assertEquals(120, machine.workedHours());
-            assertEquals("Erechim", machine.city());
-            assertEquals(new BigDecimal("12345.67"), machine.price());
-            assertEquals("url.jpg", machine.photo());
-            assertEquals("https://www.agrofy.com.br/tractor", machine.url());
-        }
+        when(jsoupWrapper.fetch(eq("https://www.agrofy.com.br/tractor"), any())).thenReturn(mockHtml);
+
+        when(imageConverter.photoPayload(anyString(), any())).thenReturn(PhotoPayload.of("mockBase64"));
+
+        Machine machine = agrofyScraper.fetch("https://www.agrofy.com.br/tractor");
+
+        assertNotNull(machine);
+        assertEquals("Trator Magnum", machine.model());
+        assertEquals(ContractType.SALE, machine.contractType());
+        assertEquals("John Deere", machine.make());
+        assertEquals(2022, machine.year());
+        assertEquals(120, machine.workedHours());
+        assertEquals("Erechim", machine.city());
+        assertEquals(new BigDecimal("12345.67"), machine.price());
+        assertEquals("url.jpg", machine.photo());
+        assertEquals("mockBase64", machine.photoBase64());
+        assertEquals("https://www.agrofy.com.br/tractor", machine.url());
     }
 
     @Test
-    @ExtendWith(OutputCaptureExtension.class)
-    void fetch_givenMockNonListedHtml_shouldReturnNull(CapturedOutput output) throws Exception {
+    void fetch_givenMockNonListedHtml_shouldThrowMachineNotFound() throws Exception {
         Document mockHtml = loadDocument("mock_agrofy_product_nonlisted.html");
-        when(jsoupWrapper.fetch("https://www.agrofy.com.br/tractor")).thenReturn(mockHtml);
+        when(jsoupWrapper.fetch(eq("https://www.agrofy.com.br/tractor"), any())).thenReturn(mockHtml);
 
-        Machine machine = agrofyScraper.fetch("https://www.agrofy.com.br/tractor");
+        assertThrows(MachineNotFoundException.class, () -> agrofyScraper.fetch("https://www.agrofy.com.br/tractor"));
+    }
+
+    @Test
+    void extract_givenReorderedNextData_shouldCollectFieldsInOnePass() throws Exception {
+        Document document = Jsoup.parse("""
+            <script id="__NEXT_DATA__" type="application/json">
+            {"buildId": "x", "props": {"pageProps": {"seo": {"props": {"title": "ignored"}}, "productData": {
+                "productDetails": [
+                    {"value": "2019", "attributeCode": "ano_fabricacion"},
+                    {"attributeCode": "cn2_uso", "value": {"unit": "h"}},
+                    "unexpected",
+                    {"attributeCode": "ano_fabricacion", "value": 1999}
+                ],
+                "related": [{"product": {"title": "ignored"}}],
+                "product": {"images": [], "price": 35000, "marca": "Valtra", "title": "BH 180",
+                            "finalidad": "Aluguel", "localizacion": "Passo Fundo", "extra": {"a": [1, 2]}}
+            }}}}
+            </script>
+            """);
+
+        Machine machine = agrofyScraper.extract(document, "https://www.agrofy.com.br/tractor");
+
+        assertEquals("BH 180", machine.model());
+        assertEquals(ContractType.RENT, machine.contractType());
+        assertEquals("Valtra", machine.make());
+        assertEquals(2019, machine.year());
+        assertEquals(0, machine.workedHours());
+        assertEquals("Passo Fundo", machine.city());
+        assertEquals(new BigDecimal("35000"), machine.price());
+        assertNull(machine.photo());
+    }
+
+    @Test
+    void extract_givenLargePage_shouldMatchFixture() throws Exception {
+        Document fixture = loadDocument("mock_agrofy_product.html");
+        Document largePage = Jsoup.parse(largeListing("mock_agrofy_product.html", 200));
+
+        assertEquals(agrofyScraper.extract(fixture, "https://www.agrofy.com.br/tractor"),
+            agrofyScraper.extract(largePage, "https://www.agrofy.com.br/tractor"));
+    }
+
+    @Test
+    void extract_givenStreamParsedLargePage_shouldMatchFullDocument() throws Exception {
+        JsoupWrapper streamingWrapper = new JsoupWrapper(null, null, true, ScrapeMetrics.NONE);
+        RawPage page = rawPage(largeListing("mock_agrofy_product.html", 200));
+
+        Machine expected = agrofyScraper.extract(streamingWrapper.parse(page), "https://www.agrofy.com.br/tractor");
+        Machine actual = agrofyScraper.extract(streamingWrapper.parse(page, agrofyScraper.streamTargets()), "https://www.agrofy.com.br/tractor");
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void extract_givenStreamParsedNonListedPage_shouldThrowMachineNotFound() throws Exception {
+        JsoupWrapper streamingWrapper = new JsoupWrapper(null, null, true, ScrapeMetrics.NONE);
+        Document document = streamingWrapper.parse(rawPage(loadHtml("mock_agrofy_product_nonlisted.html")), agrofyScraper.streamTargets());
+
+        assertThrows(MachineNotFoundException.class, () -> agrofyScraper.extract(document, "https://www.agrofy.com.br/tractor"));
+    }
 
-        assertNull(machine);
-        assertTrue(output.getAll().contains(MachineNotFoundException.class.getName()));
+    private static RawPage rawPage(String html) {
+        return new RawPage("https://www.agrofy.com.br/tractor", "https://www.agrofy.com.br/tractor", StandardCharsets.UTF_8.name(), html.getBytes(StandardCharsets.UTF_8));
     }
-}
\ No newline at end of file
+}
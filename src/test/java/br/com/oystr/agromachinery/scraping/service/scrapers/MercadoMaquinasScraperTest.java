@@ -3,36 +3,38 @@ package br.com.oystr.agromachinery.scraping.service.scrapers;
 import br.com.oystr.agromachinery.scraping.exceptions.MachineNotFoundException;
 import br.com.oystr.agromachinery.scraping.model.ContractType;
 import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.PhotoPayload;
 import br.com.oystr.agromachinery.scraping.service.scrapers.MercadoMaquinasScraper;
 import br.com.oystr.agromachinery.scraping.util.ImageConverter;
 import br.com.oystr.agromachinery.scraping.util.JsoupWrapper;
+import br.com.oystr.agromachinery.scraping.util.RawPage;
+import br.com.oystr.agromachinery.scraping.util.ScrapeMetrics;
 import org.jsoup.HttpStatusException;
 import org.jsoup.nodes.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.MockedStatic;
 import org.mockito.Mockito;
-import org.springframework.boot.test.system.CapturedOutput;
-import org.springframework.boot.test.system.OutputCaptureExtension;
 
 import java.math.BigDecimal;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
 
+import static br.com.oystr.agromachinery.scraping.testutils.ListingPageGenerator.largeListing;
 import static br.com.oystr.agromachinery.scraping.testutils.TestHtmlFileLoader.loadDocument;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.when;
 
 class MercadoMaquinasScraperTest {
     private JsoupWrapper jsoupWrapper;
+    private ImageConverter imageConverter;
     private MercadoMaquinasScraper mercadoMaquinasScraper;
 
     @BeforeEach
     void setUp() {
         jsoupWrapper = Mockito.mock(JsoupWrapper.class);
-        mercadoMaquinasScraper = new MercadoMaquinasScraper(jsoupWrapper);
+        imageConverter = Mockito.mock(ImageConverter.class);
+        mercadoMaquinasScraper = new MercadoMaquinasScraper(jsoupWrapper, imageConverter, ScrapeMetrics.NONE);
     }
 
     @Test
@@ -44,38 +46,48 @@ class MercadoMaquinasScraperTest {
     @Test
     void fetch_givenMockHtml_shouldReturnCorrectMachine() throws Exception {
         Document mockHtml = loadDocument("mock_mercadomaquinas_product.html");
-        when(jsoupWrapper.fetch(anyString())).thenReturn(mockHtml);
+        when(jsoupWrapper.fetch(anyString(), any())).thenReturn(mockHtml);
 
-        try (MockedStatic<ImageConverter> mocked = mockStatic(ImageConverter.class)) {
-            mocked.when(() -> ImageConverter.convertImageToBase64(anyString())).thenReturn(Optional.of("mockBase64"));
+        when(imageConverter.photoPayload(anyString(), any())).thenReturn(PhotoPayload.of("mockBase64"));
 
-            Machine machine = mercadoMaquinasScraper.fetch("www.mercadomaquinas.com.br/kombi");
+        Machine machine = mercadoMaquinasScraper.fetch("www.mercadomaquinas.com.br/kombi");
 
-            assertNotNull(machine);
+        assertNotNull(machine);
 
-            assertEquals("Kombi", machine.model());
-            assertEquals(ContractType.SALE, machine.contractType());
-            assertEquals("Volkswagen", machine.make());
-            assertEquals(2020, machine.year());
-            assertEquals(1200, machine.workedHours());
-            assertEquals("Curitiba", machine.city());
-            assertEquals(new BigDecimal("35000.0"), machine.price());
-            assertEquals("https://mercadomaquinas.com.br/kombi.jpg", machine.photo());
-            assertEquals("www.mercadomaquinas.com.br/kombi", machine.url());
-        }
+        assertEquals("Kombi", machine.model());
+        assertEquals(ContractType.SALE, machine.contractType());
+        assertEquals("Volkswagen", machine.make());
+        assertEquals(2020, machine.year());
+        assertEquals(1200, machine.workedHours());
+        assertEquals("Curitiba", machine.city());
+        assertEquals(new BigDecimal("35000"), machine.price());
+        assertEquals("https://mercadomaquinas.com.br/kombi.jpg", machine.photo());
+        assertEquals("mockBase64", machine.photoBase64());
+        assertEquals("www.mercadomaquinas.com.br/kombi", machine.url());
     }
 
     @Test
-    @ExtendWith(OutputCaptureExtension.class)
-    void fetch_givenHttpStatusError404_shouldReturnNull(CapturedOutput output) throws Exception {
+    void fetch_givenHttpStatusError404_shouldThrowMachineNotFound() throws Exception {
         final String fetchUrl = "www.mercadomaquinas.com.br/kombi";
 
-        when(jsoupWrapper.fetch(anyString()))
+        when(jsoupWrapper.fetch(anyString(), any()))
             .thenThrow(new HttpStatusException("Not Found 404", 404, fetchUrl));
 
-        Machine machine = mercadoMaquinasScraper.fetch(fetchUrl);
+        assertThrows(MachineNotFoundException.class, () -> mercadoMaquinasScraper.fetch(fetchUrl));
+    }
+
+    @Test
+    void extract_givenStreamParsedLargePage_shouldMatchFullDocument() throws Exception {
+        JsoupWrapper streamingWrapper = new JsoupWrapper(null, null, true, ScrapeMetrics.NONE);
+        RawPage page = rawPage(largeListing("mock_mercadomaquinas_product.html", 200));
+
+        Machine expected = mercadoMaquinasScraper.extract(streamingWrapper.parse(page), "https://www.mercadomaquinas.com.br/kombi");
+        Machine actual = mercadoMaquinasScraper.extract(streamingWrapper.parse(page, mercadoMaquinasScraper.streamTargets()), "https://www.mercadomaquinas.com.br/kombi");
+
+        assertEquals(expected, actual);
+    }
 
-        assertNull(machine);
-        assertTrue(output.getAll().contains(MachineNotFoundException.class.getName()));
+    private static RawPage rawPage(String html) {
+        return new RawPage("https://www.mercadomaquinas.com.br/kombi", "https://www.mercadomaquinas.com.br/kombi", StandardCharsets.UTF_8.name(), html.getBytes(StandardCharsets.UTF_8));
     }
-}
\ No newline at end of file
+}
@@ -3,35 +3,39 @@ package br.com.oystr.agromachinery.scraping.service.scrapers;
 import br.com.oystr.agromachinery.scraping.exceptions.MachineNotFoundException;
 import br.com.oystr.agromachinery.scraping.model.ContractType;
 import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.PhotoPayload;
 import br.com.oystr.agromachinery.scraping.service.scrapers.TratoresColheitadeirasScraper;
 import br.com.oystr.agromachinery.scraping.util.ImageConverter;
 import br.com.oystr.agromachinery.scraping.util.JsoupWrapper;
+import br.com.oystr.agromachinery.scraping.util.RawPage;
+import br.com.oystr.agromachinery.scraping.util.ScrapeMetrics;
 import org.jsoup.nodes.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.MockedStatic;
 import org.mockito.Mockito;
-import org.springframework.boot.test.system.CapturedOutput;
-import org.springframework.boot.test.system.OutputCaptureExtension;
 
 import java.math.BigDecimal;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
 
+import static br.com.oystr.agromachinery.scraping.testutils.ListingPageGenerator.largeListing;
 import static br.com.oystr.agromachinery.scraping.testutils.TestHtmlFileLoader.loadDocument;
+import static br.com.oystr.agromachinery.scraping.testutils.TestHtmlFileLoader.loadHtml;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.mockStatic;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 class TratoresColheitadeirasScraperTest {
     private JsoupWrapper jsoupWrapper;
+    private ImageConverter imageConverter;
     private TratoresColheitadeirasScraper tratoresColheitadeirasScraper;
 
     @BeforeEach
     void setUp() {
         jsoupWrapper = Mockito.mock(JsoupWrapper.class);
-        tratoresColheitadeirasScraper = new TratoresColheitadeirasScraper(jsoupWrapper);
+        imageConverter = Mockito.mock(ImageConverter.class);
+        tratoresColheitadeirasScraper = new TratoresColheitadeirasScraper(jsoupWrapper, imageConverter, ScrapeMetrics.NONE);
     }
 
     @Test
@@ -43,36 +47,54 @@ class TratoresColheitadeirasScraperTest {
     @Test
     void fetch_givenMockHtml_shouldReturnCorrectMachine() throws Exception {
         Document mockHtml = loadDocument("mock_tratoresecolheitadeiras_product.html");
-        when(jsoupWrapper.fetch(anyString())).thenReturn(mockHtml);
+        when(jsoupWrapper.fetch(anyString(), any())).thenReturn(mockHtml);
 
-        try (MockedStatic<ImageConverter> mocked = mockStatic(ImageConverter.class)) {
-            mocked.when(() -> ImageConverter.convertImageToBase64(anyString())).thenReturn(Optional.of("mockBase64"));
+        when(imageConverter.photoPayload(anyString(), any())).thenReturn(PhotoPayload.of("mockBase64"));
 
-            Machine machine = tratoresColheitadeirasScraper.fetch("www.tratoresecolheitadeiras.com.br/colheitadeira");
+        Machine machine = tratoresColheitadeirasScraper.fetch("www.tratoresecolheitadeiras.com.br/colheitadeira");
 
-            assertNotNull(machine);
+        assertNotNull(machine);
 
-            assertEquals("Colheitadeira Modelo X", machine.model());
-            assertEquals(ContractType.SALE, machine.contractType());
-            assertEquals("John Deere", machine.make());
-            assertEquals(2023, machine.year());
-            assertEquals(120, machine.workedHours());
-            assertEquals("Erechim/RS", machine.city());
-            assertEquals(new BigDecimal("123456.78"), machine.price());
-            assertEquals("https://example.com/mock-image.jpg", machine.photo());
-            assertEquals("www.tratoresecolheitadeiras.com.br/colheitadeira", machine.url());
-        }
+        assertEquals("Colheitadeira Modelo X", machine.model());
+        assertEquals(ContractType.SALE, machine.contractType());
+        assertEquals("John Deere", machine.make());
+        assertEquals(2023, machine.year());
+        assertEquals(120, machine.workedHours());
+        assertEquals("Erechim/RS", machine.city());
+        assertEquals(new BigDecimal("123456.78"), machine.price());
+        assertEquals("https://example.com/mock-image.jpg", machine.photo());
+        assertEquals("mockBase64", machine.photoBase64());
+        assertEquals("www.tratoresecolheitadeiras.com.br/colheitadeira", machine.url());
     }
 
     @Test
-    @ExtendWith(OutputCaptureExtension.class)
-    void fetch_givenMockNonListedHtml_shouldReturnNull(CapturedOutput output) throws Exception {
+    void fetch_givenMockNonListedHtml_shouldThrowMachineNotFound() throws Exception {
         Document mockHtml = loadDocument("mock_tratoresecolheitadeiras_product_nonlisted.html");
-        when(jsoupWrapper.fetch("www.tratoresecolheitadeiras.com.br/colheitadeira")).thenReturn(mockHtml);
+        when(jsoupWrapper.fetch(eq("www.tratoresecolheitadeiras.com.br/colheitadeira"), any())).thenReturn(mockHtml);
 
-        Machine machine = tratoresColheitadeirasScraper.fetch("www.tratoresecolheitadeiras.com.br/colheitadeira");
+        assertThrows(MachineNotFoundException.class, () -> tratoresColheitadeirasScraper.fetch("www.tratoresecolheitadeiras.com.br/colheitadeira"));
+    }
+
+    @Test
+    void extract_givenStreamParsedLargePage_shouldMatchFullDocument() throws Exception {
+        JsoupWrapper streamingWrapper = new JsoupWrapper(null, null, true, ScrapeMetrics.NONE);
+        RawPage page = rawPage(largeListing("mock_tratoresecolheitadeiras_product.html", 200));
+
+        Machine expected = tratoresColheitadeirasScraper.extract(streamingWrapper.parse(page), "https://www.tratoresecolheitadeiras.com.br/colheitadeira");
+        Machine actual = tratoresColheitadeirasScraper.extract(streamingWrapper.parse(page, tratoresColheitadeirasScraper.streamTargets()), "https://www.tratoresecolheitadeiras.com.br/colheitadeira");
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void extract_givenStreamParsedNonListedPage_shouldThrowMachineNotFound() throws Exception {
+        JsoupWrapper streamingWrapper = new JsoupWrapper(null, null, true, ScrapeMetrics.NONE);
+        Document document = streamingWrapper.parse(rawPage(loadHtml("mock_tratoresecolheitadeiras_product_nonlisted.html")), tratoresColheitadeirasScraper.streamTargets());
+
+        assertThrows(MachineNotFoundException.class, () -> tratoresColheitadeirasScraper.extract(document, "https://www.tratoresecolheitadeiras.com.br/colheitadeira"));
+    }
 
-        assertNull(machine);
-        assertTrue(output.getAll().contains(MachineNotFoundException.class.getName()));
+    private static RawPage rawPage(String html) {
+        return new RawPage("https://www.tratoresecolheitadeiras.com.br/colheitadeira", "https://www.tratoresecolheitadeiras.com.br/colheitadeira", StandardCharsets.UTF_8.name(), html.getBytes(StandardCharsets.UTF_8));
     }
 }
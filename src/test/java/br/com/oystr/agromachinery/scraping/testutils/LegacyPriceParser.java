@@ -0,0 +1,43 @@
+package br.com.oystr.agromachinery.scraping.testutils;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * The original {@code NumberFormat}-based price parser, kept as a reference for tests and
+ * benchmarks of {@link br.com.oystr.agromachinery.scraping.util.PriceParser}.
+ */
+public final class LegacyPriceParser {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private LegacyPriceParser() {
+    }
+
+    /**
+     * Parses a price string the way {@code PriceParser} did before the hand-rolled scanner:
+     * through a new pt-BR {@link NumberFormat} and a {@code double}.
+     *
+     * @param priceString the price string to parse, e.g., "R$ 1.234,56"
+     * @return the parsed value, or {@link Optional#empty()} if the input is null, blank, or unparseable
+     */
+    public static Optional<BigDecimal> parsePrice(String priceString) {
+        if (priceString == null || priceString.isBlank()) {
+            return Optional.empty();
+        }
+
+        NumberFormat format = NumberFormat.getInstance(Locale.of("pt", "BR"));
+        String cleanedPriceString = priceString.replace("R$ ", "").replace(" ", "");
+
+        try {
+            Number number = format.parse(cleanedPriceString);
+            return Optional.of(BigDecimal.valueOf(number.doubleValue()));
+        } catch (ParseException e) {
+            return Optional.empty();
+        }
+    }
+}
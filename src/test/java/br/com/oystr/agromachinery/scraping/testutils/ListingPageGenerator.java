@@ -0,0 +1,115 @@
+package br.com.oystr.agromachinery.scraping.testutils;
+
+import java.util.function.IntFunction;
+
+import static br.com.oystr.agromachinery.scraping.testutils.TestHtmlFileLoader.loadHtml;
+
+/**
+ * Builds realistically sized listing pages out of the small mock fixtures.
+ * <p>
+ * The fixtures only contain the elements each scraper reads, while real listing pages carry
+ * hundreds of kilobytes of head assets, navigation menus, related listings and, on Agrofy, a
+ * large {@code __NEXT_DATA__} payload. This class wraps a fixture with that kind of filler so
+ * benchmarks measure selectors and JSON parsing against a comparable amount of markup. The
+ * filler never matches the scrapers' selectors, so the extracted machine stays the same as
+ * for the plain fixture.
+ * </p>
+ */
+public final class ListingPageGenerator {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ListingPageGenerator() {
+    }
+
+    /**
+     * Loads a fixture and surrounds its listing with {@code fillerItems} navigation entries and
+     * related listing cards.
+     *
+     * @param resourcePath path to the test HTML file, e.g., "mock_agrofy_product.html"
+     * @param fillerItems  number of menu entries and related listings to add
+     * @return the inflated HTML page
+     */
+    public static String largeListing(String resourcePath, int fillerItems) {
+        String html = loadHtml(resourcePath);
+        if (html.contains("__NEXT_DATA__")) {
+            html = inflateNextData(html, fillerItems);
+        }
+
+        int bodyStart = html.indexOf('>', html.indexOf("<body")) + 1;
+        int bodyEnd = html.lastIndexOf("</body>");
+
+        return html.substring(0, html.indexOf("<body")) + "<body>"
+            + assets(fillerItems)
+            + navigation(fillerItems)
+            + "<main>" + html.substring(bodyStart, bodyEnd) + "</main>"
+            + relatedListings(fillerItems)
+            + footer()
+            + html.substring(bodyEnd);
+    }
+
+    private static String inflateNextData(String html, int fillerItems) {
+        String relatedProducts = repeat(fillerItems, i -> """
+            {"id": %d, "title": "Trator usado %d", "marca": "Marca %d", "price": %d.5, "localizacion": "Cidade %d",
+             "images": [{"image": "https://cdn.example.com/%d/1.jpg"}, {"image": "https://cdn.example.com/%d/2.jpg"}],
+             "attributes": [{"attributeCode": "potencia", "value": %d}, {"attributeCode": "tracao", "value": "4x4"}]}
+            """.formatted(i, i, i % 40, 50_000 + i, i % 300, i, i, 80 + i % 200), ",\n");
+        String extraDetails = repeat(fillerItems / 10, i -> """
+            {"attributeCode": "extra_%d", "value": "valor %d"},
+            """.formatted(i, i), "");
+
+        return html
+            .replace("\"productData\": {", "\"relatedProducts\": [" + relatedProducts + "],\n\"productData\": {")
+            .replace("\"productDetails\": [", "\"productDetails\": [" + extraDetails);
+    }
+
+    private static String assets(int fillerItems) {
+        return repeat(fillerItems / 10, i -> """
+            <link rel="preload" href="/_next/static/chunks/%d.js" as="script">
+            <style>.card-%d{display:flex;margin:0 auto;padding:8px 16px;border:1px solid #e0e0e0}</style>
+            """.formatted(i, i), "");
+    }
+
+    private static String navigation(int fillerItems) {
+        return "<header><nav><ul class=\"menu\">"
+            + repeat(fillerItems, i -> """
+            <li class="menu-entry"><a href="/categoria/%d">Categoria %d</a><span class="badge">%d anúncios</span></li>
+            """.formatted(i, i, i * 3), "")
+            + "</ul></nav></header>";
+    }
+
+    private static String relatedListings(int fillerItems) {
+        return "<section class=\"related\">"
+            + repeat(fillerItems, i -> """
+            <article class="card card-%d">
+                <a href="/anuncio/%d"><img class="thumb" src="https://cdn.example.com/%d/thumb.jpg" alt="Trator usado %d"></a>
+                <div class="card-body">
+                    <h2 class="card-title">Trator usado %d</h2>
+                    <div class="card-attributes"><span>%d cv</span><span>Cidade %d</span></div>
+                    <div class="card-price">R$ %d.000,00</div>
+                </div>
+            </article>
+            """.formatted(i % 10, i, i, i, i, 80 + i % 200, i % 300, 50 + i), "")
+            + "</section>";
+    }
+
+    private static String footer() {
+        return """
+            <footer><div class="footer-links"><a href="/sobre">Sobre nós</a><a href="/contato">Contato</a></div>
+            <p class="copyright">Todos os direitos reservados.</p></footer>
+            """;
+    }
+
+    private static String repeat(int count, IntFunction<String> item, String separator) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(separator);
+            }
+            builder.append(item.apply(i));
+        }
+
+        return builder.toString();
+    }
+}
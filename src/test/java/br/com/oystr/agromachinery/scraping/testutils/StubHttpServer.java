@@ -0,0 +1,163 @@
+package br.com.oystr.agromachinery.scraping.testutils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal local HTTP server used by tests and benchmarks to stand in for the scraped websites.
+ * <p>
+ * Responses are registered by path prefix and served after a fixed artificial latency,
+ * which simulates the network round trip of a real website. Each exchange is handled on
+ * its own virtual thread, so the server never becomes the bottleneck. Responses
+ * registered with an {@code ETag} honor {@code If-None-Match} with a {@code 304}. Paths can
+ * also be throttled, answering an error status with a {@code Retry-After} header to a given
+ * number of requests before serving them normally.
+ * </p>
+ */
+public final class StubHttpServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, StubResponse> responses = new ConcurrentHashMap<>();
+    private final Map<String, Throttle> throttles = new ConcurrentHashMap<>();
+    private final AtomicInteger bodiesServed = new AtomicInteger();
+    private final long latencyMillis;
+
+    private StubHttpServer(long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts a server on a random local port.
+     *
+     * @param latencyMillis artificial delay applied before every response
+     * @return the started server
+     * @throws IOException if the server socket cannot be bound
+     */
+    public static StubHttpServer start(long latencyMillis) throws IOException {
+        StubHttpServer stub = new StubHttpServer(latencyMillis);
+        stub.server.start();
+        return stub;
+    }
+
+    /**
+     * Registers the response served for every request whose path starts with the given prefix.
+     */
+    public StubHttpServer respond(String pathPrefix, String contentType, byte[] body) {
+        return respond(pathPrefix, contentType, body, null);
+    }
+
+    /**
+     * Registers a response carrying an {@code ETag} validator.
+     */
+    public StubHttpServer respond(String pathPrefix, String contentType, byte[] body, String etag) {
+        responses.put(pathPrefix, new StubResponse(contentType, body, etag));
+        return this;
+    }
+
+    /**
+     * Answers the next {@code times} requests whose path starts with the given prefix with
+     * {@code status} and a {@code Retry-After: retryAfter} header.
+     */
+    public StubHttpServer throttle(String pathPrefix, int status, String retryAfter, int times) {
+        throttles.put(pathPrefix, new Throttle(status, retryAfter, new AtomicInteger(times)));
+        return this;
+    }
+
+    /**
+     * @return how many responses were sent with a body, i.e. excluding {@code 304} and {@code 404}
+     */
+    public int bodiesServed() {
+        return bodiesServed.get();
+    }
+
+    /**
+     * @return the base URL of this server, e.g. {@code http://127.0.0.1:54321}
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return the {@code host:port} authority of this server
+     */
+    public String authority() {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            sleep();
+
+            String path = exchange.getRequestURI().getPath();
+            Throttle throttle = throttles.entrySet().stream()
+                .filter(e -> path.startsWith(e.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+            if (throttle != null && throttle.remaining().getAndDecrement() > 0) {
+                exchange.getResponseHeaders().set("Retry-After", throttle.retryAfter());
+                exchange.sendResponseHeaders(throttle.status(), -1);
+                return;
+            }
+
+            StubResponse response = responses.entrySet().stream()
+                .filter(e -> path.startsWith(e.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+
+            if (response == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            if (response.etag() != null) {
+                exchange.getResponseHeaders().set("ETag", response.etag());
+                if (response.etag().equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+            }
+
+            bodiesServed.incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Type", response.contentType());
+            exchange.sendResponseHeaders(200, response.body().length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response.body());
+            }
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record StubResponse(String contentType, byte[] body, String etag) {
+    }
+
+    private record Throttle(int status, String retryAfter, AtomicInteger remaining) {
+    }
+}
@@ -42,4 +42,23 @@ public final class TestHtmlFileLoader {
             throw new RuntimeException("Failed to load test HTML: " + resourcePath, e);
         }
     }
+
+    /**
+     * Loads an HTML file from the classpath as a raw string.
+     *
+     * @param resourcePath path to the test HTML file, e.g., "mock_product.html"
+     * @return the file contents decoded as UTF-8
+     */
+    public static String loadHtml(String resourcePath) {
+        resourcePath = "tests/" + resourcePath;
+        try (InputStream is = TestHtmlFileLoader.class.getClassLoader().getResourceAsStream(resourcePath)) {
+            if (is == null) {
+                fail("Test HTML '%s' file not found!".formatted(resourcePath));
+            }
+
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load test HTML: " + resourcePath, e);
+        }
+    }
 }
@@ -0,0 +1,71 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void mightContain_givenExpectedInsertions_shouldFindAllAndRespectFalsePositiveRate() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (!filter.put(HashUtils.hash64("https://www.agrofy.com.br/" + i))) {
+                falsePositives++;
+            }
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(HashUtils.hash64("https://www.agrofy.com.br/" + i)));
+            if (filter.mightContain(HashUtils.hash64("https://www.mercadomaquinas.com.br/" + i))) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+        assertFalse(filter.put(HashUtils.hash64("https://www.agrofy.com.br/0")));
+    }
+
+    @Test
+    void merge_givenFilterOfSameSize_shouldContainBothInsertions() {
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+        BloomFilter other = BloomFilter.create(100, 0.01);
+        filter.put(1L);
+        other.put(2L);
+
+        filter.merge(other);
+
+        assertTrue(filter.mightContain(1L));
+        assertTrue(filter.mightContain(2L));
+        assertEquals(2, filter.insertions());
+        assertThrows(IllegalArgumentException.class, () -> filter.merge(BloomFilter.create(1_000, 0.01)));
+    }
+
+    @Test
+    void read_givenWrittenFilter_shouldRestoreItOnlyForSameSize() throws Exception {
+        Path file = directory.resolve("dedup.bloom");
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+        filter.put(42L);
+        filter.write(file);
+
+        Optional<BloomFilter> restored = BloomFilter.read(file, 100, 0.01);
+
+        assertTrue(restored.isPresent());
+        assertTrue(restored.get().mightContain(42L));
+        assertEquals(1, restored.get().insertions());
+        assertFalse(restored.get().mightContain(43L));
+        assertTrue(BloomFilter.read(file, 1_000, 0.01).isEmpty());
+        assertTrue(BloomFilter.read(directory.resolve("missing.bloom"), 100, 0.01).isEmpty());
+    }
+}
@@ -0,0 +1,75 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExtractionPlanTest {
+
+    private static final ExtractionPlan.Field<String> TITLE = ExtractionPlan.selector("h1.title", Element::text);
+    private static final ExtractionPlan.Field<String> PRICE = ExtractionPlan.selector("div.price", "span.value", Element::text);
+    private static final ExtractionPlan.Field<Integer> YEAR = ExtractionPlan.label("Ano", e -> Integer.valueOf(e.text()));
+    private static final ExtractionPlan.Field<String> CITY = ExtractionPlan.label("Localização", Element::text);
+    private static final ExtractionPlan.Field<String> HOURS = ExtractionPlan.label("Horas", Element::text);
+    private static final ExtractionPlan.Field<String> COLOR = ExtractionPlan.label("Cor", Element::text);
+
+    private static final Document DOCUMENT = Jsoup.parse("""
+        <h2 class="title">Not this one</h2>
+        <h1 class="title">Trator <b>X</b></h1>
+        <ul>
+            <li class="item"><span class="name">Ano de fabricação:</span><span class="value">1999</span></li>
+            <li class="item"><span class="name">ANO:</span><span class="value">2020</span></li>
+            <li class="item"><span class="name">Localização:</span><span class="value">Curitiba</span></li>
+            <li class="item"><span class="name">Horas trabalhadas:</span><span class="value">1.200 h</span></li>
+            <li class="item"><span class="name">Localização:</span><span class="value">Duplicated</span></li>
+        </ul>
+        <div class="price"><span class="currency">R$</span><span class="value">35.000</span></div>
+        """);
+
+    @Test
+    void extract_givenSelectorsAndLabels_shouldResolveEveryField() {
+        ExtractionPlan plan = ExtractionPlan.builder()
+            .labelRows("li.item", "span.name", "span.value")
+            .fields(TITLE, PRICE, YEAR, CITY, HOURS, COLOR)
+            .build();
+
+        ExtractionPlan.Extraction extraction = plan.extract(DOCUMENT);
+
+        assertEquals("Trator X", extraction.get(TITLE));
+        assertEquals("35.000", extraction.get(PRICE));
+        assertEquals(2020, extraction.get(YEAR));
+        assertEquals("Curitiba", extraction.get(CITY));
+        assertEquals("1.200 h", extraction.get(HOURS));
+        assertNull(extraction.get(COLOR));
+    }
+
+    @Test
+    void extract_givenOwnTextLabels_shouldIndexRowsByTheirOwnText() {
+        ExtractionPlan.Field<String> make = ExtractionPlan.label("Marca", Element::text);
+        ExtractionPlan plan = ExtractionPlan.builder()
+            .ownTextLabelRows("p", "strong")
+            .fields(make)
+            .build();
+
+        ExtractionPlan.Extraction extraction = plan.extract(Jsoup.parse("<p>Modelo: <strong>X</strong></p><p>Marca: <strong>John Deere</strong></p>"));
+
+        assertEquals("John Deere", extraction.get(make));
+    }
+
+    @Test
+    void selector_givenCombinator_shouldRejectAnchor() {
+        assertThrows(IllegalArgumentException.class, () -> ExtractionPlan.selector("div.price span.value", Element::text));
+        assertThrows(IllegalArgumentException.class, () -> ExtractionPlan.selector("li:has(span)", Element::text));
+        assertEquals("Trator X", ExtractionPlan.builder().fields(TITLE).build().extract(DOCUMENT).get(TITLE));
+    }
+
+    @Test
+    void build_givenLabelFieldWithoutRows_shouldThrow() {
+        assertThrows(IllegalStateException.class, () -> ExtractionPlan.builder().fields(YEAR).build());
+    }
+}
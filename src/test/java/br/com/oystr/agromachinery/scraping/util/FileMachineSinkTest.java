@@ -0,0 +1,101 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.model.ContractType;
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.OutputFormat;
+import br.com.oystr.agromachinery.scraping.model.PhotoOutput;
+import br.com.oystr.agromachinery.scraping.model.PhotoPayload;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileMachineSinkTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void close_givenNdjsonWithSeparatePhotos_shouldWriteMachinesAndPhotosToCompleteFiles() throws Exception {
+        try (FileMachineSink sink = FileMachineSink.open(settings(OutputFormat.NDJSON, PhotoOutput.SEPARATE, 1024 * 1024))) {
+            sink.accept(machine("https://www.agrofy.com.br/a", "iVBORw0KGgo"));
+            sink.accept(machine("https://www.agrofy.com.br/b", null));
+        }
+
+        List<Path> files = files();
+        assertEquals(2, files.size());
+        assertTrue(files.getFirst().getFileName().toString().matches("machines-\\d{8}-\\d{6}-00001\\.ndjson"));
+
+        List<String> machines = Files.readAllLines(files.getFirst());
+        assertEquals(2, machines.size());
+        JsonNode first = objectMapper.readTree(machines.getFirst());
+        assertEquals("https://www.agrofy.com.br/a", first.get("url").asText());
+        assertEquals("SALE", first.get("contractType").asText());
+        assertTrue(machines.getFirst().contains("\"price\":150000.50"));
+        assertFalse(first.has("photoBase64"));
+
+        List<String> photos = Files.readAllLines(files.getLast());
+        assertEquals(1, photos.size());
+        assertEquals("iVBORw0KGgo", objectMapper.readTree(photos.getFirst()).get("photoBase64").asText());
+    }
+
+    @Test
+    void close_givenCsv_shouldWriteHeaderAndQuoteFieldsWithSeparators() throws Exception {
+        try (FileMachineSink sink = FileMachineSink.open(settings(OutputFormat.CSV, PhotoOutput.NONE, 1024 * 1024))) {
+            sink.accept(new Machine("Trator \"8R\", 4x4", ContractType.RENT, null, 2022, null, "Erechim",
+                null, null, null, "https://www.agrofy.com.br/a"));
+        }
+
+        assertEquals(List.of(
+            "model,contractType,make,year,workedHours,city,price,photo,url",
+            "\"Trator \"\"8R\"\", 4x4\",RENT,,2022,,Erechim,,,https://www.agrofy.com.br/a"
+        ), Files.readAllLines(files().getFirst()));
+    }
+
+    @Test
+    void accept_givenFilesLargerThanRotationSize_shouldRotateWithoutSplittingLines() throws Exception {
+        try (FileMachineSink sink = FileMachineSink.open(settings(OutputFormat.NDJSON, PhotoOutput.INLINE, 1))) {
+            for (int i = 0; i < 3; i++) {
+                sink.accept(machine("https://www.agrofy.com.br/" + i, null));
+                Thread.sleep(50);
+            }
+            assertEquals(3, sink.written());
+        }
+
+        List<Path> files = files();
+        assertEquals(3, files.size());
+        for (int i = 0; i < files.size(); i++) {
+            List<String> lines = Files.readAllLines(files.get(i));
+            assertEquals(1, lines.size());
+            assertEquals("https://www.agrofy.com.br/" + i, objectMapper.readTree(lines.getFirst()).get("url").asText());
+        }
+    }
+
+    private FileMachineSink.Settings settings(OutputFormat format, PhotoOutput photos, long rotateBytes) {
+        return new FileMachineSink.Settings(format, directory, photos, 100, Duration.ofMillis(10), rotateBytes, 10);
+    }
+
+    private List<Path> files() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static Machine machine(String url, String photoBase64) {
+        return new Machine("Trator 8R", ContractType.SALE, "John Deere", 2022, 100, "Erechim",
+            new BigDecimal("150000.50"), "https://www.agrofy.com.br/photo.jpg", PhotoPayload.of(photoBase64), url);
+    }
+}
@@ -0,0 +1,175 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.exceptions.ImageTooLargeException;
+import br.com.oystr.agromachinery.scraping.model.PhotoMode;
+import br.com.oystr.agromachinery.scraping.model.PhotoPayload;
+import br.com.oystr.agromachinery.scraping.testutils.StubHttpServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageConverterTest {
+
+    private static final byte[] PHOTO = {10, 20, 30, 40};
+
+    @TempDir
+    Path directory;
+
+    private StubHttpServer server;
+    private HttpTransport httpTransport;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = StubHttpServer.start(0).respond("/photo.jpg", "image/jpeg", PHOTO, "\"photo-v1\"");
+        httpTransport = new HttpClientTransport("test", 5_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void convertImageToBase64_givenImage_shouldReturnEncodedBytes() {
+        ImageConverter imageConverter = new ImageConverter(httpTransport, cache(60), 1024, ScrapeMetrics.NONE);
+
+        assertEquals(Optional.of(Base64.getEncoder().encodeToString(PHOTO)),
+            imageConverter.convertImageToBase64(server.baseUrl() + "/photo.jpg"));
+    }
+
+    @Test
+    void convertImageToBase64_givenFreshCachedImage_shouldNotDownloadAgain() {
+        ImageConverter imageConverter = new ImageConverter(httpTransport, cache(60), 1024, ScrapeMetrics.NONE);
+
+        imageConverter.convertImageToBase64(server.baseUrl() + "/photo.jpg");
+        Optional<String> cached = imageConverter.convertImageToBase64(server.baseUrl() + "/photo.jpg");
+
+        assertEquals(Optional.of(Base64.getEncoder().encodeToString(PHOTO)), cached);
+        assertEquals(1, server.bodiesServed());
+    }
+
+    @Test
+    void convertImageToBase64_givenStaleCachedImage_shouldRevalidateWithEtag() {
+        ImageConverter imageConverter = new ImageConverter(httpTransport, cache(0), 1024, ScrapeMetrics.NONE);
+
+        imageConverter.convertImageToBase64(server.baseUrl() + "/photo.jpg");
+        Optional<String> revalidated = imageConverter.convertImageToBase64(server.baseUrl() + "/photo.jpg");
+
+        assertEquals(Optional.of(Base64.getEncoder().encodeToString(PHOTO)), revalidated);
+        assertEquals(1, server.bodiesServed());
+    }
+
+    @Test
+    void convertImageToBase64_givenCachedBlobDeletedAfterLookup_shouldDownloadAgain() throws Exception {
+        ImageConverter imageConverter = new ImageConverter(httpTransport, cache(60), 1024, ScrapeMetrics.NONE);
+
+        imageConverter.convertImageToBase64(server.baseUrl() + "/photo.jpg");
+        deleteBlobs();
+        Optional<String> downloaded = imageConverter.convertImageToBase64(server.baseUrl() + "/photo.jpg");
+
+        assertEquals(Optional.of(Base64.getEncoder().encodeToString(PHOTO)), downloaded);
+        assertEquals(2, server.bodiesServed());
+    }
+
+    @Test
+    void convertImageToBase64_givenNotModifiedButCachedBlobDeleted_shouldDownloadUnconditionally() throws Exception {
+        ImageConverter imageConverter = new ImageConverter(httpTransport, cache(0), 1024, ScrapeMetrics.NONE);
+
+        imageConverter.convertImageToBase64(server.baseUrl() + "/photo.jpg");
+        deleteBlobs();
+        Optional<String> downloaded = imageConverter.convertImageToBase64(server.baseUrl() + "/photo.jpg");
+
+        assertEquals(Optional.of(Base64.getEncoder().encodeToString(PHOTO)), downloaded);
+        assertEquals(2, server.bodiesServed());
+    }
+
+    @Test
+    void convertImageToBase64_givenMissingImage_shouldReturnEmpty() {
+        ImageConverter imageConverter = new ImageConverter(httpTransport, cache(60), 1024, ScrapeMetrics.NONE);
+
+        assertTrue(imageConverter.convertImageToBase64(server.baseUrl() + "/missing.jpg").isEmpty());
+    }
+
+    @Test
+    void photoPayload_givenLazyMode_shouldDownloadOnFirstAccessOnly() {
+        ImageConverter imageConverter = new ImageConverter(httpTransport, cache(60), 1024, ScrapeMetrics.NONE);
+
+        PhotoPayload payload = imageConverter.photoPayload(server.baseUrl() + "/photo.jpg", PhotoMode.LAZY);
+
+        assertFalse(payload.isLoaded());
+        assertEquals(0, server.bodiesServed());
+        assertEquals(Optional.of(Base64.getEncoder().encodeToString(PHOTO)), payload.base64());
+        assertEquals(1, server.bodiesServed());
+    }
+
+    @Test
+    void photoPayload_givenSkipMode_shouldReturnNull() {
+        ImageConverter imageConverter = new ImageConverter(httpTransport, cache(60), 1024, ScrapeMetrics.NONE);
+
+        assertNull(imageConverter.photoPayload(server.baseUrl() + "/photo.jpg", PhotoMode.SKIP));
+        assertEquals(0, server.bodiesServed());
+    }
+
+    @Test
+    void writeImageBase64_givenImage_shouldStreamEncodingIntoSink() throws Exception {
+        ImageConverter imageConverter = new ImageConverter(httpTransport, cache(60), 1024, ScrapeMetrics.NONE);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+
+        long size = imageConverter.writeImageBase64(server.baseUrl() + "/photo.jpg", sink);
+
+        assertEquals(PHOTO.length, size);
+        assertEquals(Base64.getEncoder().encodeToString(PHOTO), sink.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void writeImageBase64_givenImageAboveLimit_shouldRejectAndNotCache() {
+        server.respond("/huge.jpg", "image/jpeg", new byte[4096]);
+        ImageConverter imageConverter = new ImageConverter(httpTransport, cache(60), 1024, ScrapeMetrics.NONE);
+        PhotoCache photoCache = cache(60);
+
+        assertThrows(ImageTooLargeException.class,
+            () -> imageConverter.writeImageBase64(server.baseUrl() + "/huge.jpg", OutputStream.nullOutputStream()));
+        assertTrue(photoCache.lookup(server.baseUrl() + "/huge.jpg").isEmpty());
+    }
+
+    @Test
+    void photoPayload_givenLazyMode_shouldStreamWithoutLoading() throws Exception {
+        ImageConverter imageConverter = new ImageConverter(httpTransport, cache(60), 1024, ScrapeMetrics.NONE);
+        PhotoPayload payload = imageConverter.photoPayload(server.baseUrl() + "/photo.jpg", PhotoMode.LAZY);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+
+        payload.writeBase64To(sink);
+
+        assertEquals(Base64.getEncoder().encodeToString(PHOTO), sink.toString(StandardCharsets.US_ASCII));
+        assertFalse(payload.isLoaded());
+    }
+
+    private void deleteBlobs() throws Exception {
+        try (Stream<Path> blobs = Files.list(directory.resolve("blobs"))) {
+            for (Path blob : blobs.toList()) {
+                Files.delete(blob);
+            }
+        }
+    }
+
+    private PhotoCache cache(long freshSeconds) {
+        return new PhotoCache(true, directory, 10, freshSeconds, new ObjectMapper());
+    }
+}
@@ -0,0 +1,160 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.exceptions.HostThrottledException;
+import br.com.oystr.agromachinery.scraping.exceptions.PageNotModifiedException;
+import br.com.oystr.agromachinery.scraping.model.ContractType;
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.testutils.StubHttpServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jsoup.HttpStatusException;
+import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+import static br.com.oystr.agromachinery.scraping.testutils.TestHtmlFileLoader.loadHtml;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsoupWrapperTest {
+    private static final byte[] PAGE = loadHtml("mock_tratoresecolheitadeiras_product.html").getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    private StubHttpServer server;
+    private PageSnapshotStore pageSnapshotStore;
+    private JsoupWrapper jsoupWrapper;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = StubHttpServer.start(0)
+            .respond("/listing", "text/html; charset=UTF-8", PAGE)
+            .respond("/tagged", "text/html; charset=UTF-8", PAGE, "\"page-v1\"");
+        pageSnapshotStore = new PageSnapshotStore(true, directory, new ObjectMapper());
+        jsoupWrapper = new JsoupWrapper(new HttpClientTransport("test", 5_000), pageSnapshotStore, false, ScrapeMetrics.NONE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void fetch_givenHtmlPage_shouldParseDocument() throws Exception {
+        Document document = jsoupWrapper.fetch(server.baseUrl() + "/listing");
+
+        assertEquals("Colheitadeira Modelo X", document.selectFirst(".product-single__title").text());
+        assertEquals(server.baseUrl() + "/listing", document.location());
+    }
+
+    @Test
+    void fetch_givenMissingPage_shouldThrowHttpStatusException() {
+        HttpStatusException exception = assertThrows(HttpStatusException.class,
+            () -> jsoupWrapper.fetch(server.baseUrl() + "/missing"));
+
+        assertEquals(404, exception.getStatusCode());
+    }
+
+    @Test
+    void fetch_givenTooManyRequests_shouldThrowHostThrottledWithRetryAfter() {
+        server.throttle("/listing", 429, "7", 1);
+
+        HostThrottledException exception = assertThrows(HostThrottledException.class,
+            () -> jsoupWrapper.fetch(server.baseUrl() + "/listing"));
+
+        assertEquals(429, exception.getStatusCode());
+        assertEquals(Optional.of(Duration.ofSeconds(7)), exception.getRetryAfter());
+        assertInstanceOf(HttpStatusException.class, exception.getCause());
+    }
+
+    @Test
+    void parseRetryAfter_givenHttpDate_shouldReturnDelayUntilThen() {
+        String inOneMinute = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusMinutes(1));
+
+        Duration delay = JsoupWrapper.parseRetryAfter(inOneMinute);
+
+        assertTrue(delay.compareTo(Duration.ofSeconds(50)) > 0 && delay.compareTo(Duration.ofSeconds(61)) <= 0, delay.toString());
+        assertEquals(Duration.ZERO, JsoupWrapper.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertNull(JsoupWrapper.parseRetryAfter("soon"));
+    }
+
+    @Test
+    void fetch_givenUnchangedContent_shouldThrowPageNotModified() throws Exception {
+        String url = server.baseUrl() + "/listing";
+        jsoupWrapper.fetch(url);
+        pageSnapshotStore.commit(url, machine(url));
+
+        assertThrows(PageNotModifiedException.class, () -> jsoupWrapper.fetch(url));
+    }
+
+    @Test
+    void fetch_givenMatchingEtag_shouldThrowPageNotModifiedWithoutBody() throws Exception {
+        String url = server.baseUrl() + "/tagged";
+        jsoupWrapper.fetch(url);
+        pageSnapshotStore.commit(url, machine(url));
+
+        assertThrows(PageNotModifiedException.class, () -> jsoupWrapper.fetch(url));
+        assertEquals(1, server.bodiesServed());
+    }
+
+    @Test
+    void fetch_givenUncommittedSnapshot_shouldParseAgain() throws Exception {
+        String url = server.baseUrl() + "/listing";
+        jsoupWrapper.fetch(url);
+        pageSnapshotStore.discard(url);
+
+        assertNotNull(jsoupWrapper.fetch(url));
+    }
+
+    private static Machine machine(String url) {
+        return new Machine("Colheitadeira Modelo X", ContractType.SALE, "John Deere", 2023, 120, "Erechim/RS", null, null, null, url);
+    }
+
+    @Test
+    void parse_givenStreamTargets_shouldKeepOnlyTargetsAndStopOnceFound() throws Exception {
+        JsoupWrapper streamingWrapper = new JsoupWrapper(null, null, true, ScrapeMetrics.NONE);
+        RawPage page = new RawPage("https://example.com", "https://example.com", StandardCharsets.UTF_8.name(), """
+            <html><body>
+            <nav><ul><li>Menu</li></ul></nav>
+            <div class="notice">Closed</div>
+            <div id="wrapper"><h1 class="title">Trator <b>X</b></h1><p>ignored</p></div>
+            <div class="price"><span>R$ 10</span></div>
+            <div class="notice">After the last target</div>
+            <footer>Footer</footer>
+            </body></html>
+            """.getBytes(StandardCharsets.UTF_8));
+
+        Document document = streamingWrapper.parse(page, StreamTargets.of(List.of("h1.title", "div.price"), List.of("div.notice")));
+
+        assertEquals("Trator X", document.selectFirst("#wrapper h1.title").text());
+        assertEquals("R$ 10", document.selectFirst("div.price span").text());
+        assertEquals(List.of("Closed"), document.select("div.notice").eachText());
+        assertNull(document.selectFirst("nav"));
+        assertNull(document.selectFirst("#wrapper p"));
+        assertNull(document.selectFirst("footer"));
+    }
+
+    @Test
+    void parse_givenStreamParsingDisabled_shouldBuildFullDocument() throws Exception {
+        RawPage page = new RawPage("https://example.com", "https://example.com", StandardCharsets.UTF_8.name(), PAGE);
+
+        Document document = jsoupWrapper.parse(page, StreamTargets.of(List.of("h1"), List.of()));
+
+        assertNotNull(document.selectFirst("[data-image]"));
+    }
+}
@@ -0,0 +1,84 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.model.ContractType;
+import br.com.oystr.agromachinery.scraping.model.Machine;
+import br.com.oystr.agromachinery.scraping.model.PhotoPayload;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MachineStoreTest {
+
+    private static final String URL = "https://www.agrofy.com.br/trator";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void record_givenSameAndChangedListing_shouldOnlyAppendChangesToHistory() throws Exception {
+        try (MachineStore store = new MachineStore(true, directory, 1)) {
+            assertEquals(MachineStore.Change.NEW, store.record(machine(URL, "100000.00", 100)));
+            assertEquals(MachineStore.Change.UNCHANGED, store.record(machine(URL, "100000.0", 100)));
+            assertEquals(MachineStore.Change.CHANGED, store.record(machine(URL, "95000", 100)));
+            assertEquals(MachineStore.Change.CHANGED, store.record(machine(URL, "95000", 180)));
+
+            List<MachineStore.Observation> history = store.history(URL);
+            assertEquals(List.of(new BigDecimal("100000.00"), new BigDecimal("95000"), new BigDecimal("95000")),
+                history.stream().map(MachineStore.Observation::price).toList());
+            assertEquals(List.of(100, 100, 180), history.stream().map(MachineStore.Observation::workedHours).toList());
+            assertEquals(180, store.find(URL).orElseThrow().workedHours());
+            assertNull(store.find(URL).orElseThrow().photoPayload());
+            assertTrue(store.find("https://www.agrofy.com.br/unknown").isEmpty());
+        }
+    }
+
+    @Test
+    void constructor_givenExistingSegments_shouldRebuildIndexAndTruncateTornRecord() throws Exception {
+        try (MachineStore store = new MachineStore(true, directory, 1)) {
+            for (int i = 0; i < 5_000; i++) {
+                store.record(machine(URL + "/" + i, "1000", i));
+            }
+            store.record(machine(URL + "/0", "900", 0));
+        }
+        try (OutputStream out = Files.newOutputStream(directory.resolve("segment-00001.log"), StandardOpenOption.APPEND)) {
+            out.write(new byte[]{0, 0, 0, 42, 1, 2});
+        }
+
+        try (MachineStore store = new MachineStore(true, directory, 1)) {
+            assertEquals(5_000, store.size());
+            assertEquals(2, store.history(URL + "/0").size());
+            assertEquals(4_999, store.find(URL + "/4999").orElseThrow().workedHours());
+            assertEquals(MachineStore.Change.UNCHANGED, store.record(machine(URL + "/1", "1000", 1)));
+            assertEquals(MachineStore.Change.NEW, store.record(machine(URL + "/5000", "1000", 5_000)));
+        }
+    }
+
+    @Test
+    void record_givenRecordsLargerThanSegment_shouldRollToNewSegments() throws Exception {
+        try (MachineStore store = new MachineStore(true, directory, 1)) {
+            String longModel = "x".repeat(40_000);
+            for (int i = 0; i < 60; i++) {
+                store.record(new Machine(longModel, ContractType.SALE, null, null, null, null, null, null, null, URL + "/" + i));
+            }
+
+            assertTrue(Files.exists(directory.resolve("segment-00003.log")));
+            assertEquals(longModel, store.find(URL + "/0").orElseThrow().model());
+            assertEquals(longModel, store.find(URL + "/59").orElseThrow().model());
+        }
+    }
+
+    private static Machine machine(String url, String price, int workedHours) {
+        return new Machine("Trator 8R", ContractType.SALE, "John Deere", 2022, workedHours, "Erechim",
+            new BigDecimal(price), "https://www.agrofy.com.br/photo.jpg", PhotoPayload.of("iVBORw0KGgo"), url);
+    }
+}
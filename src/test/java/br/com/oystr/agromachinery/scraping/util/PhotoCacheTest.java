@@ -0,0 +1,109 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhotoCacheTest {
+
+    private static final int ONE_MB = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void lookup_givenStoredPhoto_shouldReturnEntryAndBytes() throws Exception {
+        PhotoCache photoCache = new PhotoCache(true, directory, 10, 60, new ObjectMapper());
+
+        photoCache.store("https://example.com/a.jpg", new byte[]{1, 2, 3}, "\"v1\"", null);
+        PhotoCache.Entry entry = photoCache.lookup("https://example.com/a.jpg").orElseThrow();
+
+        assertEquals("\"v1\"", entry.etag());
+        assertTrue(photoCache.isFresh(entry));
+        assertArrayEquals(new byte[]{1, 2, 3}, photoCache.read(entry));
+    }
+
+    @Test
+    void store_givenSameContentUnderTwoUrls_shouldShareBlob() {
+        PhotoCache photoCache = new PhotoCache(true, directory, 10, 60, new ObjectMapper());
+
+        photoCache.store("https://example.com/a.jpg", new byte[]{4, 5, 6}, null, null);
+        photoCache.store("https://example.com/b.jpg?r=hash", new byte[]{4, 5, 6}, null, null);
+
+        assertEquals(
+            photoCache.lookup("https://example.com/a.jpg").orElseThrow().contentHash(),
+            photoCache.lookup("https://example.com/b.jpg?r=hash").orElseThrow().contentHash()
+        );
+    }
+
+    @Test
+    void store_givenSizeLimitExceeded_shouldEvictLeastRecentlyUsed() throws Exception {
+        PhotoCache photoCache = new PhotoCache(true, directory, 2, 60, new ObjectMapper());
+
+        photoCache.store("https://example.com/a.jpg", filled(ONE_MB, (byte) 1), null, null);
+        photoCache.store("https://example.com/b.jpg", filled(ONE_MB, (byte) 2), null, null);
+        photoCache.read(photoCache.lookup("https://example.com/a.jpg").orElseThrow());
+        photoCache.store("https://example.com/c.jpg", filled(ONE_MB, (byte) 3), null, null);
+
+        assertTrue(photoCache.lookup("https://example.com/a.jpg").isPresent());
+        assertEquals(Optional.empty(), photoCache.lookup("https://example.com/b.jpg"));
+        assertTrue(photoCache.lookup("https://example.com/c.jpg").isPresent());
+    }
+
+    @Test
+    void store_givenSizeLimitExceeded_shouldDeleteEntriesOfEvictedPhotos() throws Exception {
+        PhotoCache photoCache = new PhotoCache(true, directory, 1, 60, new ObjectMapper());
+
+        photoCache.store("https://example.com/a.jpg", filled(ONE_MB, (byte) 1), null, null);
+        photoCache.store("https://example.com/b.jpg", filled(ONE_MB, (byte) 2), null, null);
+
+        assertFalse(Files.exists(entryFile("https://example.com/a.jpg")));
+        assertTrue(Files.exists(entryFile("https://example.com/b.jpg")));
+    }
+
+    @Test
+    void lookup_givenRestartAfterPhotoWasDeleted_shouldDeleteItsEntry() throws Exception {
+        new PhotoCache(true, directory, 10, 60, new ObjectMapper())
+            .store("https://example.com/a.jpg", new byte[]{7}, null, null);
+        try (Stream<Path> blobs = Files.list(directory.resolve("blobs"))) {
+            for (Path blob : blobs.toList()) {
+                Files.delete(blob);
+            }
+        }
+
+        PhotoCache restarted = new PhotoCache(true, directory, 10, 60, new ObjectMapper());
+
+        assertEquals(Optional.empty(), restarted.lookup("https://example.com/a.jpg"));
+        assertFalse(Files.exists(entryFile("https://example.com/a.jpg")));
+    }
+
+    @Test
+    void lookup_givenRestart_shouldReuseCachedPhotos() {
+        new PhotoCache(true, directory, 10, 60, new ObjectMapper())
+            .store("https://example.com/a.jpg", new byte[]{7}, null, null);
+
+        PhotoCache restarted = new PhotoCache(true, directory, 10, 60, new ObjectMapper());
+
+        assertTrue(restarted.lookup("https://example.com/a.jpg").isPresent());
+    }
+
+    private Path entryFile(String url) {
+        return directory.resolve("urls").resolve(HashUtils.sha256(url) + ".json");
+    }
+
+    private static byte[] filled(int size, byte value) {
+        byte[] bytes = new byte[size];
+        java.util.Arrays.fill(bytes, value);
+        return bytes;
+    }
+}
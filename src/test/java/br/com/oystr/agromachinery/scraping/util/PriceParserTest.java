@@ -1,15 +1,20 @@
 package br.com.oystr.agromachinery.scraping.util;
 
+import br.com.oystr.agromachinery.scraping.testutils.LegacyPriceParser;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
 import java.util.Optional;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class PriceParserTest {
 
+    private static final long SEED = 20_240_917L;
+    private static final int SAMPLES = 10_000;
+
     @Test
     void parsePrice_validString_shouldReturnBigDecimal() {
         Optional<BigDecimal> result = PriceParser.parsePrice("R$ 1.234,56");
@@ -27,4 +32,115 @@ class PriceParserTest {
     void parsePrice_invalidString_shouldReturnEmpty() {
         assertTrue(PriceParser.parsePrice("abc").isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void parsePrice_givenLargeValue_shouldKeepExactDigits() {
+        assertEquals(Optional.of(new BigDecimal("1380000.00")), PriceParser.parsePrice("R$ 1.380.000,00"));
+        assertEquals(Optional.of(new BigDecimal("98765432109876.54")), PriceParser.parsePrice("R$ 98.765.432.109.876,54"));
+    }
+
+    @Test
+    void parsePrice_givenNonBreakingSpaces_shouldReturnBigDecimal() {
+        assertEquals(Optional.of(new BigDecimal("35000")), PriceParser.parsePrice("R$\u00a035.000"));
+        assertEquals(Optional.of(new BigDecimal("35000")), PriceParser.parsePrice("\u202fR$\u00a0\u00a035.000\u00a0"));
+    }
+
+    @Test
+    void parsePrice_givenRange_shouldReturnLowerBound() {
+        assertEquals(Optional.of(new BigDecimal("10000")), PriceParser.parsePrice("R$ 10.000 - R$ 12.000"));
+        assertEquals(Optional.of(new BigDecimal("10000.50")), PriceParser.parsePrice("R$ 10.000,50 a 12.000,00"));
+    }
+
+    @Test
+    void parsePrice_givenPriceOnRequest_shouldReturnEmpty() {
+        assertTrue(PriceParser.parsePrice("Sob consulta").isEmpty());
+        assertTrue(PriceParser.parsePrice("R$ sob consulta").isEmpty());
+        assertTrue(PriceParser.parsePrice("R$").isEmpty());
+    }
+
+    @Test
+    void parsePrice_givenTooManyDigits_shouldReturnEmpty() {
+        assertTrue(PriceParser.parsePrice("R$ 99.999.999.999.999.999.999").isEmpty());
+    }
+
+    @Test
+    void parsePrice_givenRandomFormattedPrices_shouldMatchLegacyParser() {
+        Random random = new Random(SEED);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            String price = randomPrice(random);
+
+            BigDecimal expected = LegacyPriceParser.parsePrice(price).orElseThrow();
+            BigDecimal actual = PriceParser.parsePrice(price).orElseThrow();
+
+            assertEquals(0, expected.compareTo(actual), "Mismatch for \"%s\": %s != %s".formatted(price, expected, actual));
+        }
+    }
+
+    @Test
+    void parsePrice_givenRandomText_shouldAgreeWithLegacyParserOnEmptiness() {
+        Random random = new Random(SEED);
+        String alphabet = "abcR$ ,.-0123456789\u00A0";
+
+        for (int i = 0; i < SAMPLES; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int length = random.nextInt(8); length > 0; length--) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            // the legacy parser only skipped "R$ " with a regular space, so it is given the amount alone
+            String amount = withoutPrefix(text.toString());
+            if (!amount.isEmpty() && "-,.".indexOf(amount.charAt(0)) >= 0) {
+                // signed and bare-fraction amounts such as "-5" or ",5" are rejected on purpose
+                assertTrue(PriceParser.parsePrice(text.toString()).isEmpty(), "Parsed \"%s\"".formatted(text));
+                continue;
+            }
+
+            assertEquals(LegacyPriceParser.parsePrice(amount).isPresent(), PriceParser.parsePrice(text.toString()).isPresent(),
+                "Mismatch for \"%s\"".formatted(text));
+        }
+    }
+
+    /**
+     * Strips the leading whitespace, non-breaking spaces and {@code R$} symbols that may precede a price.
+     */
+    private static String withoutPrefix(String text) {
+        String amount = text;
+        String previous;
+        do {
+            previous = amount;
+            amount = amount.replaceFirst("^[\\s\u00A0]+", "").replaceFirst("^R\\$", "");
+        } while (!amount.equals(previous));
+
+        return amount;
+    }
+
+    /**
+     * Formats a random amount (up to 13 integer digits, so the legacy {@code double} path stays
+     * exact) the way listing pages show it, with optional currency symbol, decimals and suffix.
+     */
+    private static String randomPrice(Random random) {
+        long integerPart = random.nextLong(1, 10_000_000_000_000L) / (long) Math.pow(10, random.nextInt(13));
+        StringBuilder digits = new StringBuilder(Long.toString(integerPart));
+        for (int i = digits.length() - 3; i > 0; i -= 3) {
+            digits.insert(i, '.');
+        }
+
+        StringBuilder price = new StringBuilder();
+        if (random.nextBoolean()) {
+            price.append("R$ ");
+        }
+        price.append(digits);
+        switch (random.nextInt(3)) {
+            case 0 -> price.append(',').append("%02d".formatted(random.nextInt(100)));
+            case 1 -> price.append(',').append(random.nextInt(10));
+            default -> {
+            }
+        }
+        if (random.nextInt(4) == 0) {
+            price.append(" - R$ ").append(integerPart + 1);
+        }
+
+        return price.toString();
+    }
+}
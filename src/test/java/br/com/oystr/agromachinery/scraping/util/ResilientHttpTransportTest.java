@@ -0,0 +1,210 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.exceptions.CircuitOpenException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResilientHttpTransportTest {
+
+    private static final String URL = "https://www.agrofy.com.br/trator-1.html";
+    private static final ResilientHttpTransport.Settings SETTINGS = new ResilientHttpTransport.Settings(
+        3, Duration.ofMillis(1), Duration.ofMillis(5), false, 5, 4, Duration.ofSeconds(30));
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void get_givenTransientFailures_shouldRetryUntilSuccess() throws Exception {
+        ScriptedTransport delegate = new ScriptedTransport(502, new HttpConnectTimeoutException("timeout"), 200);
+        ResilientHttpTransport transport = new ResilientHttpTransport(delegate, SETTINGS, clock::get);
+
+        try (TransportResponse response = transport.get(URL, Map.of())) {
+            assertEquals(200, response.statusCode());
+            assertEquals(3, delegate.calls.get());
+            assertEquals(1, delegate.closed.get());
+        }
+    }
+
+    @Test
+    void get_givenPermanentOrThrottledStatus_shouldNotRetry() throws Exception {
+        for (int status : List.of(404, 429, 503)) {
+            ScriptedTransport delegate = new ScriptedTransport(status, 200);
+            ResilientHttpTransport transport = new ResilientHttpTransport(delegate, SETTINGS, clock::get);
+
+            assertEquals(status, transport.get(URL, Map.of()).statusCode());
+            assertEquals(1, delegate.calls.get());
+        }
+    }
+
+    @Test
+    void get_givenEveryAttemptFailing_shouldReturnLastResponseOrThrowLastException() throws Exception {
+        ResilientHttpTransport failingStatus = new ResilientHttpTransport(new ScriptedTransport(500, 500, 504), SETTINGS, clock::get);
+        assertEquals(504, failingStatus.get(URL, Map.of()).statusCode());
+
+        IOException timeout = new HttpConnectTimeoutException("timeout");
+        ResilientHttpTransport failingIo = new ResilientHttpTransport(new ScriptedTransport(timeout, timeout, timeout), SETTINGS, clock::get);
+        assertThrows(HttpConnectTimeoutException.class, () -> failingIo.get(URL, Map.of()));
+    }
+
+    @Test
+    void get_givenHostFailingRepeatedly_shouldOpenCircuitAndProbeAfterOpenDuration() throws Exception {
+        ScriptedTransport delegate = new ScriptedTransport(500, 500, 500, 500, 200, 200);
+        ResilientHttpTransport transport = new ResilientHttpTransport(delegate, SETTINGS, clock::get);
+
+        transport.get(URL, Map.of());
+        assertThrows(IOException.class, () -> transport.get(URL, Map.of()));
+        assertEquals(4, delegate.calls.get());
+
+        assertThrows(CircuitOpenException.class, () -> transport.get("https://www.agrofy.com.br/other", Map.of()));
+        assertEquals(4, delegate.calls.get());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertEquals(200, transport.get(URL, Map.of()).statusCode());
+        assertEquals(200, transport.get(URL, Map.of()).statusCode());
+        assertEquals(6, delegate.calls.get());
+    }
+
+    @Test
+    void get_givenFailedProbe_shouldOpenCircuitAgain() throws Exception {
+        ScriptedTransport delegate = new ScriptedTransport(500, 500, 500, 500, 500);
+        ResilientHttpTransport transport = new ResilientHttpTransport(delegate, SETTINGS, clock::get);
+        transport.get(URL, Map.of());
+        assertThrows(CircuitOpenException.class, () -> transport.get(URL, Map.of()));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertThrows(CircuitOpenException.class, () -> transport.get(URL, Map.of()));
+
+        assertEquals(5, delegate.calls.get());
+        assertThrows(CircuitOpenException.class, () -> transport.get(URL, Map.of()));
+    }
+
+    @Test
+    void get_givenSlowResponseWithHedging_shouldReturnFirstResponseAndCloseTheOther() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean slowClosed = new AtomicBoolean();
+        HttpTransport delegate = (url, headers) -> {
+            int call = calls.incrementAndGet();
+            if (call == 6) {
+                sleep(500);
+                return response(500, () -> slowClosed.set(true));
+            }
+            return response(200, () -> { });
+        };
+        ResilientHttpTransport transport = new ResilientHttpTransport(delegate, new ResilientHttpTransport.Settings(
+            1, Duration.ofMillis(1), Duration.ofMillis(1), true, 5, 4, Duration.ofSeconds(30)), System::nanoTime);
+        for (int i = 0; i < 5; i++) {
+            transport.get(URL, Map.of()).close();
+        }
+
+        long start = System.nanoTime();
+        try (TransportResponse response = transport.get(URL, Map.of())) {
+            assertEquals(200, response.statusCode());
+        }
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(400));
+        assertEquals(7, calls.get());
+        sleep(600);
+        assertTrue(slowClosed.get());
+    }
+
+    @Test
+    void get_givenSlowTrialRequestWithHedging_shouldNotHedgeIt() throws Exception {
+        AtomicReference<String> phase = new AtomicReference<>("warm-up");
+        AtomicInteger trialCalls = new AtomicInteger();
+        HttpTransport delegate = (url, headers) -> switch (phase.get()) {
+            case "failing" -> throw new HttpConnectTimeoutException("connect timed out");
+            case "trial" -> {
+                trialCalls.incrementAndGet();
+                sleep(200);
+                yield response(200, () -> { });
+            }
+            default -> response(200, () -> { });
+        };
+        try (ResilientHttpTransport transport = new ResilientHttpTransport(delegate, new ResilientHttpTransport.Settings(
+            1, Duration.ofMillis(1), Duration.ofMillis(1), true, 5, 2, Duration.ofMillis(50)), System::nanoTime)) {
+            for (int i = 0; i < 5; i++) {
+                transport.get(URL, Map.of()).close();
+            }
+            phase.set("failing");
+            assertThrows(IOException.class, () -> transport.get(URL, Map.of()));
+            assertThrows(IOException.class, () -> transport.get(URL, Map.of()));
+            assertThrows(CircuitOpenException.class, () -> transport.get(URL, Map.of()));
+            sleep(100);
+
+            phase.set("trial");
+            try (TransportResponse response = transport.get(URL, Map.of())) {
+                assertEquals(200, response.statusCode());
+            }
+        }
+
+        assertEquals(1, trialCalls.get());
+    }
+
+    @Test
+    void isTransient_givenStatus_shouldOnlyAcceptServerSideFailures() {
+        assertTrue(ResilientHttpTransport.isTransient(502));
+        assertTrue(ResilientHttpTransport.isTransient(408));
+        assertEquals(List.of(), List.of(200, 304, 404, 429, 503).stream().filter(ResilientHttpTransport::isTransient).toList());
+    }
+
+    private static TransportResponse response(int status, Runnable onClose) {
+        InputStream body = new ByteArrayInputStream(new byte[0]) {
+            @Override
+            public void close() {
+                onClose.run();
+            }
+        };
+
+        return new TransportResponse(status, URL, HttpHeaders.of(Map.of(), (name, value) -> true), body);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Answers each request with the next scripted status code or exception.
+     */
+    private static final class ScriptedTransport implements HttpTransport {
+        private final Deque<Object> outcomes;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger closed = new AtomicInteger();
+
+        private ScriptedTransport(Object... outcomes) {
+            this.outcomes = new ArrayDeque<>(List.of(outcomes));
+        }
+
+        @Override
+        public TransportResponse get(String url, Map<String, String> headers) throws IOException {
+            calls.incrementAndGet();
+            Object outcome = outcomes.removeFirst();
+            if (outcome instanceof IOException e) {
+                throw e;
+            }
+
+            return response((Integer) outcome, closed::incrementAndGet);
+        }
+    }
+}
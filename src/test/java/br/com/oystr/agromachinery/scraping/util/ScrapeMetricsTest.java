@@ -0,0 +1,68 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import br.com.oystr.agromachinery.scraping.exceptions.HostThrottledException;
+import br.com.oystr.agromachinery.scraping.exceptions.MachineNotFoundException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.HttpStatusException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScrapeMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ScrapeMetrics metrics = new ScrapeMetrics(registry);
+
+    @Test
+    void record_givenStagesPerHost_shouldKeepOneTimerPerStageHostAndOutcome() {
+        long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5);
+        metrics.record(ScrapeMetrics.Stage.RESPONSE, "agrofy.com.br", ScrapeMetrics.SUCCESS, start);
+        metrics.record(ScrapeMetrics.Stage.RESPONSE, "agrofy.com.br", ScrapeMetrics.SUCCESS, start);
+        metrics.record(ScrapeMetrics.Stage.RESPONSE, "agrofy.com.br", ScrapeMetrics.outcome(503), start);
+        metrics.recordNanos(ScrapeMetrics.Stage.PHOTO_ENCODE, null, ScrapeMetrics.SUCCESS, 1_000);
+
+        Timer success = registry.find("scraper.http.response").tags("host", "agrofy.com.br", "outcome", "success").timer();
+        assertNotNull(success);
+        assertEquals(2, success.count());
+        assertTrue(success.totalTime(TimeUnit.MILLISECONDS) >= 10);
+        assertEquals(1, registry.find("scraper.http.response").tags("outcome", "throttled").timer().count());
+        assertEquals(1, registry.find("scraper.photo.encode").tags("host", "unknown").timer().count());
+    }
+
+    @Test
+    void extract_givenFailingExtraction_shouldRecordOutcomeAndRethrow() throws Exception {
+        assertEquals("machine", metrics.extract("agrofy.com.br", () -> "machine"));
+        assertThrows(MachineNotFoundException.class, () -> metrics.extract("agrofy.com.br", () -> {
+            throw new MachineNotFoundException("Machine not found");
+        }));
+        assertThrows(IOException.class, () -> metrics.extract("agrofy.com.br", () -> {
+            throw new IOException("Malformed data");
+        }));
+
+        assertEquals(1, registry.find("scraper.extract").tags("outcome", "success").timer().count());
+        assertEquals(1, registry.find("scraper.extract").tags("outcome", "not_found").timer().count());
+        assertEquals(1, registry.find("scraper.extract").tags("outcome", "error").timer().count());
+        assertNull(registry.find("scraper.scrape").timer());
+    }
+
+    @Test
+    void outcome_givenStatusOrException_shouldClassifyIt() {
+        assertEquals("success", ScrapeMetrics.outcome(200));
+        assertEquals("not_modified", ScrapeMetrics.outcome(304));
+        assertEquals("throttled", ScrapeMetrics.outcome(429));
+        assertEquals("client_error", ScrapeMetrics.outcome(404));
+        assertEquals("server_error", ScrapeMetrics.outcome(500));
+        assertEquals("throttled", ScrapeMetrics.outcome(new HostThrottledException(
+            new HttpStatusException("HTTP error fetching URL", 429, "https://www.agrofy.com.br"), null)));
+        assertEquals("server_error", ScrapeMetrics.outcome(new HttpStatusException("HTTP error fetching URL", 502, "https://www.agrofy.com.br")));
+        assertEquals("error", ScrapeMetrics.outcome(new IOException("Connection reset")));
+    }
+}
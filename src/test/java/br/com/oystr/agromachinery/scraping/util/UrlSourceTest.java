@@ -0,0 +1,94 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UrlSourceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void iterator_givenPlainFile_shouldSkipCommentsAndBlankLines() throws Exception {
+        Path file = directory.resolve("urls.txt");
+        Files.writeString(file, """
+            # exported listings
+            https://www.agrofy.com.br/a
+
+            HTTPS://WWW.Agrofy.com.br/a#photos
+              https://www.agrofy.com.br/B
+            https://www.agrofy.com.br/a
+            """);
+
+        try (UrlSource source = UrlSource.file(file)) {
+            assertEquals(List.of("https://www.agrofy.com.br/a", "HTTPS://WWW.Agrofy.com.br/a#photos",
+                "https://www.agrofy.com.br/B", "https://www.agrofy.com.br/a"), read(source));
+            assertEquals(4, source.urls());
+        }
+    }
+
+    @Test
+    void iterator_givenGzippedNdjson_shouldReadUrlFieldAndSkipInvalidLines() throws Exception {
+        Path file = directory.resolve("urls.ndjson.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write("""
+                {"id": 1, "tags": {"url": "nested"}, "url": "https://www.agrofy.com.br/a"}
+                {"id": 2}
+                {"url": "https://www.mercadomaquinas.com.br/anuncio/1"
+                https://www.agrofy.com.br/b
+                """.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (UrlSource source = UrlSource.file(file)) {
+            assertEquals(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/b"), read(source));
+            assertEquals(2, source.invalid());
+        }
+    }
+
+    @Test
+    void iterator_givenWatchedDirectory_shouldReadExistingThenAddedFilesUntilIdle() throws Exception {
+        Files.writeString(directory.resolve("1.txt"), "https://www.agrofy.com.br/a\n");
+        Files.writeString(directory.resolve("2.txt.part"), "https://www.agrofy.com.br/partial\n");
+        Thread producer = Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(300);
+                Path temp = Files.writeString(directory.resolve("3.txt.tmp"), "https://www.agrofy.com.br/a\nhttps://www.agrofy.com.br/c\n");
+                Files.move(temp, directory.resolve("3.txt"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        try (UrlSource source = UrlSource.directory(directory, Duration.ofSeconds(2))) {
+            assertEquals(List.of("https://www.agrofy.com.br/a", "https://www.agrofy.com.br/a", "https://www.agrofy.com.br/c"), read(source));
+        }
+        producer.join();
+    }
+
+    @Test
+    void iterator_givenSourceAlreadyRead_shouldThrow() throws Exception {
+        try (UrlSource source = UrlSource.of(List.of("https://www.agrofy.com.br/a"))) {
+            read(source);
+            assertThrows(IllegalStateException.class, source::iterator);
+        }
+    }
+
+    private static List<String> read(UrlSource source) {
+        List<String> urls = new ArrayList<>();
+        source.forEach(urls::add);
+
+        return urls;
+    }
+}
@@ -0,0 +1,36 @@
+package br.com.oystr.agromachinery.scraping.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UrlUtilsTest {
+
+    @Test
+    void normalize_givenTrivialVariants_shouldReturnSameUrl() {
+        String expected = "https://www.agrofy.com.br/trator?id=10";
+
+        assertEquals(expected, UrlUtils.normalize("  https://www.agrofy.com.br/trator?id=10 "));
+        assertEquals(expected, UrlUtils.normalize("HTTPS://WWW.Agrofy.com.br:443/trator/?id=10#photos"));
+        assertEquals(expected, UrlUtils.normalize("https://www.agrofy.com.br/trator?utm_source=x&id=10&gclid=abc&FBCLID=y"));
+    }
+
+    @Test
+    void normalize_givenMeaningfulParts_shouldKeepThem() {
+        assertEquals("https://www.agrofy.com.br/", UrlUtils.normalize("https://www.agrofy.com.br/?utm_medium=email"));
+        assertEquals("http://www.agrofy.com.br:8080/Trator", UrlUtils.normalize("http://www.agrofy.com.br:8080/Trator"));
+        assertEquals("https://www.agrofy.com.br/a?page=2&sort=price",
+            UrlUtils.normalize("https://www.agrofy.com.br/a?page=2&sort=price"));
+    }
+
+    @Test
+    void withQueryParameter_givenExistingParameters_shouldReplaceOnlyThatOne() {
+        assertEquals("https://www.agrofy.com.br/tratores?page=3",
+            UrlUtils.withQueryParameter("https://www.agrofy.com.br/tratores#top", "page", "3"));
+        assertEquals("https://www.agrofy.com.br/tratores?sort=price&q=8r&page=3",
+            UrlUtils.withQueryParameter("https://www.agrofy.com.br/tratores?page=1&sort=price&q=8r", "page", "3"));
+        assertEquals("3", UrlUtils.queryParameter("https://www.agrofy.com.br/tratores?sort=price&page=3#top", "page"));
+        assertNull(UrlUtils.queryParameter("https://www.agrofy.com.br/tratores#?page=3", "page"));
+    }
+}